@@ -13,8 +13,6 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Dictionary;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -77,8 +75,6 @@ public class ExecBinding extends AbstractActiveBinding<ExecBindingProvider> impl
 	/** the interval to find new refresh candidates (defaults to 1000 milliseconds)*/ 
 	private int granularity = 1000;
 
-	private Map<String, Long> lastUpdateMap = new HashMap<String, Long>();
-
 	/** RegEx to extract a parse a function String <code>'(.*?)\((.*)\)'</code> */
 	private static final Pattern EXTRACT_FUNCTION_PATTERN = Pattern.compile("(.*?)\\((.*)\\)");
 		
@@ -92,59 +88,90 @@ public class ExecBinding extends AbstractActiveBinding<ExecBindingProvider> impl
 		return "Exec Refresh Service";
 	}
 
+	/**
+	 * Polls on the shared scheduler; the commands are killed after the configured timeout.
+	 */
+	@Override
+	protected boolean useSharedScheduler() {
+		return true;
+	}
+
+	/**
+	 * Executes the command of each item in its own task, so that a slow command
+	 * does not delay the commands of the other items.
+	 */
+	@Override
+	protected boolean usePerItemPolling() {
+		return true;
+	}
+
+	@Override
+	protected long getRefreshInterval(String itemName) {
+		ExecBindingProvider provider = findInBindingProvider(itemName);
+		return provider != null ? provider.getRefreshInterval(itemName) : 0;
+	}
+
+	@Override
+	protected long getPollingTimeout(String itemName) {
+		return timeout;
+	}
+
 	@Override
 	public void activate() {
 		super.activate();
 		setProperlyConfigured(true);
 	}
 	
+	/**
+	 * The items are polled individually by {@link #execute(String)}.
+	 */
 	public void execute() {
+	}
+
+	@Override
+	protected void execute(String itemName) {
+		ExecBindingProvider provider = findInBindingProvider(itemName);
+		if (provider == null) {
+			return;
+		}
+
+		String commandLine = provider.getCommandLine(itemName);
+		String transformation = provider.getTransformation(itemName);
+
+		logger.debug("item '{}' is about to be refreshed now", itemName);
+
+		commandLine = String.format(commandLine, Calendar.getInstance().getTime(), "", itemName);
+
+		String response = executeCommandAndWaitResponse(commandLine);
+
+		if(response==null) {
+			logger.error("No response received from command '{}'", commandLine);
+			return;
+		}
+
+		String transformedResponse = response;
+		// If transformation is needed
+		if (transformation.length() > 0)
+			transformedResponse = transformResponse(response, transformation);
+
+		Class<? extends Item> itemType = provider.getItemType(itemName);
+		State state = createState(itemType, transformedResponse);
+
+		if (state != null) {
+			eventPublisher.postUpdate(itemName, state);
+		}
+	}
+
+	/**
+	 * @return the provider which polls the given item, or <code>null</code> if the item is not polled
+	 */
+	private ExecBindingProvider findInBindingProvider(String itemName) {
 		for (ExecBindingProvider provider : providers) {
-			for (String itemName : provider.getInBindingItemNames()) {
-				
-				String commandLine = provider.getCommandLine(itemName);
-				
-				int refreshInterval = provider.getRefreshInterval(itemName);
-				String transformation = provider.getTransformation(itemName);
-				
-				Long lastUpdateTimeStamp = lastUpdateMap.get(itemName);
-				if (lastUpdateTimeStamp == null) {
-					lastUpdateTimeStamp = 0L;
-				}
-				
-				long age = System.currentTimeMillis() - lastUpdateTimeStamp;
-				boolean needsUpdate = age >= refreshInterval;
-				
-				if (needsUpdate) {
-					
-					logger.debug("item '{}' is about to be refreshed now", itemName);
-						
-					commandLine = String.format(commandLine, Calendar.getInstance().getTime(), "", itemName);
-
-					String response = executeCommandAndWaitResponse(commandLine);
-					
-					if(response==null) {
-						logger.error("No response received from command '{}'", commandLine);
-						lastUpdateMap.put(itemName, System.currentTimeMillis());
-						continue;
-					}
-
-					String transformedResponse = response;
-					// If transformation is needed
-					if (transformation.length() > 0)
-						transformedResponse = transformResponse(response, transformation);
-
-					Class<? extends Item> itemType = provider.getItemType(itemName);
-					State state = createState(itemType, transformedResponse);
-
-					if (state != null) {
-						eventPublisher.postUpdate(itemName, state);
-					}
-
-					lastUpdateMap.put(itemName, System.currentTimeMillis());
-				}					
+			if (provider.getInBindingItemNames().contains(itemName)) {
+				return provider;
 			}
 		}
+		return null;
 	}
 
 	protected String transformResponse(String response, String transformation) {
@@ -408,6 +435,8 @@ public class ExecBinding extends AbstractActiveBinding<ExecBindingProvider> impl
 			}
 		}
 		
+		// reschedule the items with the new timeout
+		setProperlyConfigured(true);
 	}
 
 	@Override
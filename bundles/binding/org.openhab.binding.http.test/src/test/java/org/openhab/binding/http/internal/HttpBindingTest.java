@@ -0,0 +1,327 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.http.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.http.HttpBindingProvider;
+import org.openhab.core.binding.BindingChangeListener;
+import org.openhab.core.events.EventPublisher;
+import org.openhab.core.items.Item;
+import org.openhab.core.library.items.StringItem;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.osgi.service.cm.ConfigurationException;
+
+/**
+ * @since 1.8.0
+ */
+public class HttpBindingTest {
+
+	private TestBinding binding;
+	private TestProvider provider;
+	private RecordingEventPublisher eventPublisher;
+
+	@Before
+	public void init() {
+		binding = new TestBinding();
+		provider = new TestProvider();
+		eventPublisher = new RecordingEventPublisher();
+		binding.setEventPublisher(eventPublisher);
+		binding.addBindingProvider(provider);
+	}
+
+	@After
+	public void tearDown() {
+		binding.deactivate();
+	}
+
+	@Test
+	public void testIdenticalRequestsAreCoalesced() {
+		provider.addItem("Temperature", "http://host/data", null);
+		provider.addItem("Humidity", "http://host/data", null);
+		provider.addItem("Pressure", "http://host/data", headers("Accept", "text/plain"));
+
+		binding.execute();
+
+		assertEquals("[http://host/data, http://host/data{Accept=text/plain}]", binding.getRequests().toString());
+		// the two requests are executed concurrently, so the order of the updates is not defined
+		assertEquals("[Humidity, Pressure, Temperature]", new TreeSet<String>(eventPublisher.updates).toString());
+	}
+
+	@Test
+	public void testRecentResponseIsReusedWithinCoalesceWindow() throws ConfigurationException {
+		binding.updated(config("coalesceWindow", "60000"));
+		provider.addItem("Temperature", "http://host/data", null);
+
+		binding.execute();
+		binding.execute();
+
+		assertEquals(1, binding.getRequests().size());
+		assertEquals("[Temperature, Temperature]", eventPublisher.updates.toString());
+	}
+
+	@Test
+	public void testRecentResponseExpiresAfterCoalesceWindow() throws ConfigurationException {
+		binding.updated(config("coalesceWindow", "0"));
+		provider.addItem("Temperature", "http://host/data", null);
+
+		binding.execute();
+		binding.execute();
+
+		assertEquals(2, binding.getRequests().size());
+	}
+
+	@Test
+	public void testDifferentHostsAreRequestedConcurrently() {
+		provider.addItem("Temperature", "http://host1/data", null);
+		provider.addItem("Humidity", "http://host2/data", null);
+		// each request only returns a response once both requests have started
+		binding.latch = new CountDownLatch(2);
+
+		binding.execute();
+
+		assertEquals(2, binding.getRequests().size());
+		assertEquals(2, eventPublisher.updates.size());
+		assertEquals("[response, response]", eventPublisher.states.toString());
+	}
+
+	@Test
+	public void testInvalidNumbersUseDefaults() throws ConfigurationException {
+		Hashtable<String, String> config = config("coalesceWindow", "soon");
+		config.put("parallelism", "many");
+		binding.updated(config);
+		provider.addItem("Temperature", "http://host/data", null);
+		provider.addItem("Humidity", "http://host/data", null);
+
+		binding.execute();
+
+		assertEquals(1, binding.getRequests().size());
+	}
+
+	@Test
+	public void testFailedRequestDoesNotStopOtherUpdates() {
+		provider.addItem("Temperature", "http://broken/data", null);
+		provider.addItem("Humidity", "http://host/data", null);
+		binding.delay = 200;
+
+		binding.execute();
+
+		assertEquals("[Humidity]", eventPublisher.updates.toString());
+	}
+
+	@Test
+	public void testStatisticsAreRecordedByUrl() {
+		provider.addItem("Temperature", "http://host/data", null);
+		provider.addItem("Humidity", "http://host/data", null);
+		provider.addItem("Pressure", "http://down/data", null);
+
+		binding.execute();
+
+		HttpBinding.UrlStatistics statistics = getStatistics("http://host/data");
+		assertEquals(1, statistics.getRequests());
+		assertEquals(0, statistics.getFailures());
+		assertEquals(1, statistics.getCoalesced());
+		statistics = getStatistics("http://down/data");
+		assertEquals(1, statistics.getRequests());
+		assertEquals(1, statistics.getFailures());
+		assertEquals(2, binding.getStatistics().size());
+	}
+
+	@Test
+	public void testReusedResponsesAreCountedAsCoalesced() throws ConfigurationException {
+		binding.updated(config("coalesceWindow", "60000"));
+		provider.addItem("Temperature", "http://host/data", null);
+
+		binding.execute();
+		binding.execute();
+
+		HttpBinding.UrlStatistics statistics = getStatistics("http://host/data");
+		assertEquals(1, statistics.getRequests());
+		assertEquals(1, statistics.getCoalesced());
+	}
+
+	@Test
+	public void testResponseTimes() {
+		HttpBinding.UrlStatistics statistics = new HttpBinding.UrlStatistics();
+		assertEquals(0, statistics.getAverageTime());
+
+		statistics.fetched(true, 100, 0);
+		statistics.fetched(false, 300, 2);
+		statistics.fetched(true, 50, 0);
+
+		assertEquals(3, statistics.getRequests());
+		assertEquals(1, statistics.getFailures());
+		assertEquals(2, statistics.getCoalesced());
+		assertEquals(150, statistics.getAverageTime());
+		assertEquals(300, statistics.getMaxTime());
+		assertEquals(50, statistics.getLastTime());
+		assertEquals("requests=3, failures=1, coalesced=2, averageTime=150ms, maxTime=300ms, lastTime=50ms",
+				statistics.toString());
+	}
+
+	private HttpBinding.UrlStatistics getStatistics(String url) {
+		return (HttpBinding.UrlStatistics) binding.getStatistics().get(url);
+	}
+
+	private static Properties headers(String name, String value) {
+		Properties headers = new Properties();
+		headers.setProperty(name, value);
+		return headers;
+	}
+
+	private static Hashtable<String, String> config(String key, String value) {
+		Hashtable<String, String> config = new Hashtable<String, String>();
+		config.put(key, value);
+		return config;
+	}
+
+	/**
+	 * Records the requests instead of executing them.
+	 */
+	static class TestBinding extends HttpBinding {
+
+		private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+		CountDownLatch latch;
+		long delay;
+
+		@Override
+		String executeGet(String url, Properties headers) {
+			requests.add(headers == null || headers.isEmpty() ? url : url + headers);
+			if (url.contains("broken")) {
+				// an error, unlike a runtime exception, is not caught by the request itself
+				throw new LinkageError("broken");
+			}
+			if (url.contains("down")) {
+				return null;
+			}
+			if (delay > 0) {
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException e) {
+					return null;
+				}
+			}
+			if (latch != null) {
+				latch.countDown();
+				try {
+					if (!latch.await(5, TimeUnit.SECONDS)) {
+						return null;
+					}
+				} catch (InterruptedException e) {
+					return null;
+				}
+			}
+			return "response";
+		}
+
+		List<String> getRequests() {
+			return requests;
+		}
+	}
+
+	static class TestProvider implements HttpBindingProvider {
+
+		private final Map<String, String> urls = new LinkedHashMap<String, String>();
+		private final Map<String, Properties> headers = new LinkedHashMap<String, Properties>();
+
+		void addItem(String itemName, String url, Properties itemHeaders) {
+			urls.put(itemName, url);
+			headers.put(itemName, itemHeaders);
+		}
+
+		public Class<? extends Item> getItemType(String itemName) {
+			return StringItem.class;
+		}
+
+		public String getHttpMethod(String itemName, Command command) {
+			return null;
+		}
+
+		public String getUrl(String itemName, Command command) {
+			return null;
+		}
+
+		public Properties getHttpHeaders(String itemName, Command command) {
+			return null;
+		}
+
+		public String getUrl(String itemName) {
+			return urls.get(itemName);
+		}
+
+		public Properties getHttpHeaders(String itemName) {
+			return headers.get(itemName);
+		}
+
+		public int getRefreshInterval(String itemName) {
+			return 0;
+		}
+
+		public String getTransformation(String itemName) {
+			return "NONE(x)";
+		}
+
+		public List<String> getInBindingItemNames() {
+			return new ArrayList<String>(urls.keySet());
+		}
+
+		public boolean providesBindingFor(String itemName) {
+			return urls.containsKey(itemName);
+		}
+
+		public boolean providesBinding() {
+			return !urls.isEmpty();
+		}
+
+		public Collection<String> getItemNames() {
+			return urls.keySet();
+		}
+
+		public void addBindingChangeListener(BindingChangeListener listener) {
+		}
+
+		public void removeBindingChangeListener(BindingChangeListener listener) {
+		}
+	}
+
+	static class RecordingEventPublisher implements EventPublisher {
+
+		final List<String> updates = Collections.synchronizedList(new ArrayList<String>());
+		final List<State> states = Collections.synchronizedList(new ArrayList<State>());
+
+		public void sendCommand(String itemName, Command command) {
+		}
+
+		public void postCommand(String itemName, Command command) {
+		}
+
+		public void postUpdate(String itemName, State newState) {
+			updates.add(itemName);
+			states.add(newState);
+		}
+	}
+
+}
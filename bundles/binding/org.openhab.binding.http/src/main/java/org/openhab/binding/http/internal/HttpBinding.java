@@ -11,12 +11,35 @@ package org.openhab.binding.http.internal;
 import static org.apache.commons.lang.StringUtils.isNotBlank;
 import static org.openhab.binding.http.internal.HttpGenericBindingProvider.CHANGED_COMMAND_KEY;
 
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -35,6 +58,7 @@ import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.OpenClosedType;
 import org.openhab.core.library.types.PercentType;
 import org.openhab.core.library.types.StringType;
+import org.openhab.core.service.StatisticsProvider;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationHelper;
 import org.openhab.core.transform.TransformationService;
@@ -50,7 +74,8 @@ import org.slf4j.LoggerFactory;
 
 
 /**
- * An active binding which requests a given URL frequently.
+ * An active binding which requests a given URL frequently. The response time
+ * statistics of the requested urls are shown by the console command 'httpstats'.
  * 
  * @author Thomas.Eichstaedt-Engelen
  * @author Kai Kreuzer
@@ -58,12 +83,18 @@ import org.slf4j.LoggerFactory;
  * @auther Ben Jones
  * @since 0.6.0
  */
-public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> implements ManagedService {
+public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> implements ManagedService, StatisticsProvider {
 
 	static final Logger logger = LoggerFactory.getLogger(HttpBinding.class);
 
 	protected static final String CONFIG_TIMEOUT = "timeout";
 	protected static final String CONFIG_GRANULARITY = "granularity";
+	protected static final String CONFIG_PARALLELISM = "parallelism";
+	protected static final String CONFIG_COALESCE_WINDOW = "coalesceWindow";
+	
+	private static final int DEFAULT_PARALLELISM = 4;
+	
+	private static final int DEFAULT_COALESCE_WINDOW = 1000;
 	
 	/** the timeout to use for connecting to a given host (defaults to 5000 milliseconds) */
 	private int timeout = 5000;
@@ -71,8 +102,23 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 	/** the interval to find new refresh candidates (defaults to 1000 milliseconds)*/ 
 	private int granularity = 1000;
 	
+	/** the maximum number of concurrent requests of the in-bindings (defaults to 4) */
+	private int parallelism = DEFAULT_PARALLELISM;
+	
+	/** the time in milliseconds in which a response is reused for identical requests (defaults to 1000 milliseconds) */
+	private int coalesceWindow = DEFAULT_COALESCE_WINDOW;
+	
 	private Map<String, Long> lastUpdateMap = new HashMap<String, Long>();
 	
+	/** the recent responses by url and headers, only accessed by the refresh thread */
+	private Map<String, RecentResponse> recentResponses = new HashMap<String, RecentResponse>();
+	
+	/** the response time statistics by configured url */
+	private ConcurrentMap<String, UrlStatistics> urlStatistics = new ConcurrentHashMap<String, UrlStatistics>();
+	
+	/** the threads which execute the requests of the in-bindings, created on first use */
+	private ThreadPoolExecutor executor;
+	
 	/** RegEx to extract a parse a function String <code>'(.*?)\((.*)\)'</code> */
 	private static final Pattern EXTRACT_FUNCTION_PATTERN = 
 			Pattern.compile("(.*?)\\((.*)\\)");
@@ -103,6 +149,14 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
     protected String getName() {
     	return "HTTP Refresh Service";
     }
+
+    /**
+     * Polls on the shared scheduler; the requests are bounded by the configured timeout.
+     */
+    @Override
+    protected boolean useSharedScheduler() {
+    	return true;
+    }
     
     @Override
     public void activate() {
@@ -110,6 +164,12 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
     	setProperlyConfigured(true);
     }
     
+    @Override
+    public void deactivate() {
+    	super.deactivate();
+    	shutdownExecutor();
+    }
+    
 	/**
 	 * @{inheritDoc}
 	 */
@@ -132,82 +192,286 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 	@Override
 	public void execute() {
 		
+		long now = System.currentTimeMillis();
+		pruneRecentResponses(now);
+		
+		// items which request the same url with the same headers share a single fetch
+		Map<String, Fetch> fetches = new LinkedHashMap<String, Fetch>();
+		
 		for (HttpBindingProvider provider : providers) {
 			for (String itemName : provider.getInBindingItemNames()) {
 				
-				String url = provider.getUrl(itemName);
-				url = String.format(url, Calendar.getInstance().getTime());
+				String rawUrl = provider.getUrl(itemName);
+				String url = String.format(rawUrl, Calendar.getInstance().getTime());
 
 				Properties headers = provider.getHttpHeaders(itemName);
 				int refreshInterval = provider.getRefreshInterval(itemName);
-				String transformation = provider.getTransformation(itemName);
 				
 				Long lastUpdateTimeStamp = lastUpdateMap.get(itemName);
 				if (lastUpdateTimeStamp == null) {
 					lastUpdateTimeStamp = 0L;
 				}
 				
-				long age = System.currentTimeMillis() - lastUpdateTimeStamp;
+				long age = now - lastUpdateTimeStamp;
 				boolean needsUpdate = age >= refreshInterval;
 				
 				if (needsUpdate) {
 					
-					String response = null;
-					
 					// check if special URL is used and data should get from
 					// cache rather than directly from server
 					if (isCacheConfig(url)) {
 						logger.debug("item '{}' is fetched from cache", itemName);
-						response = getCacheData(url);
+						updateItem(provider, itemName, url, getCacheData(url));
 					} else if (isValidUrl(url)) {
+						String key = getFetchKey(url, headers);
+						RecentResponse recentResponse = recentResponses.get(key);
+						if (recentResponse != null) {
+							logger.debug("item '{}' is refreshed with the recent response of '{}'", itemName, url);
+							getStatistics(rawUrl).coalesced(1);
+							updateItem(provider, itemName, url, recentResponse.response);
+							continue;
+						}
+						Fetch fetch = fetches.get(key);
+						if (fetch == null) {
+							fetch = new Fetch(key, rawUrl, url, headers);
+							fetches.put(key, fetch);
+						}
 						logger.debug("item '{}' is about to be refreshed now", itemName);
-						response = HttpUtil.executeUrl("GET", url, headers, null, null, timeout);
+						fetch.itemProviders.add(provider);
+						fetch.itemNames.add(itemName);
 					} else {
 						logger.debug("item '{}' is not a valid URL or is a cache id yet to be initialised ({})", itemName, url);
-						continue;
 					}
-					
-					if (response==null) {
-						logger.error("No response received from '{}'", url);
-					} else {
-						String transformedResponse;
-						try {
-							String[] parts = splitTransformationConfig(transformation);
-							String transformationType = parts[0];
-							String transformationFunction = parts[1];
-							
-							TransformationService transformationService = 
-								TransformationHelper.getTransformationService(HttpActivator.getContext(), transformationType);
-							if (transformationService != null) {
-								transformedResponse = transformationService.transform(transformationFunction, response);
-							} else {
-								transformedResponse = response;
-								logger.warn("couldn't transform response because transformationService of type '{}' is unavailable", transformationType);
-							}
-						}
-						catch (TransformationException te) {
-							logger.error("transformation throws exception [transformation="
-									+ transformation + ", response=" + response + "]", te);
-							
-							// in case of an error we return the response without any
-							// transformation
-							transformedResponse = response;
-						}
-						
-						logger.debug("transformed response is '{}'", transformedResponse);
-						
-						Class<? extends Item> itemType = provider.getItemType(itemName);
-						State state = createState(itemType, transformedResponse);
+				}					
+			}
+		}
+		
+		executeFetches(fetches.values());
+	}
+	
+	/**
+	 * Executes the given fetches on the worker threads of the binding and updates
+	 * the items with the responses in the order the fetches finish. The fetches
+	 * are ordered so that different hosts are requested concurrently.
+	 * 
+	 * @param fetches the fetches to execute
+	 */
+	private void executeFetches(Collection<Fetch> fetches) {
+		if (fetches.isEmpty()) {
+			return;
+		}
+		if (fetches.size() == 1 || parallelism <= 1) {
+			for (Fetch fetch : fetches) {
+				fetch.call();
+				fetched(fetch);
+			}
+			return;
+		}
+		
+		CompletionService<Fetch> completionService = new ExecutorCompletionService<Fetch>(getExecutor());
+		int pending = 0;
+		for (Fetch fetch : interleaveHosts(fetches)) {
+			try {
+				completionService.submit(fetch);
+				pending++;
+			} catch (RejectedExecutionException e) {
+				// the executor has been shut down by a configuration update in the meantime
+				fetch.call();
+				fetched(fetch);
+			}
+		}
+		for (; pending > 0; pending--) {
+			try {
+				fetched(completionService.take().get());
+			} catch (InterruptedException e) {
+				logger.debug("HTTP refresh has been interrupted with {} pending requests", pending);
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException e) {
+				// a failed request must not keep the other items from being updated
+				logger.error("HTTP request failed", e.getCause());
+			}
+		}
+	}
+	
+	/**
+	 * Updates the items of a fetch with its response and records the statistics.
+	 */
+	private void fetched(Fetch fetch) {
+		getStatistics(fetch.rawUrl).fetched(fetch.response != null, fetch.duration, fetch.itemNames.size() - 1);
+		if (fetch.response != null) {
+			recentResponses.put(fetch.key, new RecentResponse(fetch.response, fetch.startTime));
+		}
+		for (int i = 0; i < fetch.itemNames.size(); i++) {
+			updateItem(fetch.itemProviders.get(i), fetch.itemNames.get(i), fetch.url, fetch.response);
+		}
+	}
+	
+	/**
+	 * Transforms the response and posts it as update of the item.
+	 * 
+	 * @param provider the provider of the item's binding configuration
+	 * @param itemName the name of the item to update
+	 * @param url the url the response has been received from
+	 * @param response the response or <code>null</code> if no response has been received
+	 */
+	private void updateItem(HttpBindingProvider provider, String itemName, String url, String response) {
+		if (response==null) {
+			logger.error("No response received from '{}'", url);
+		} else {
+			String transformation = provider.getTransformation(itemName);
+			String transformedResponse;
+			try {
+				String[] parts = splitTransformationConfig(transformation);
+				String transformationType = parts[0];
+				String transformationFunction = parts[1];
+				
+				TransformationService transformationService = 
+					TransformationHelper.getTransformationService(HttpActivator.getContext(), transformationType);
+				if (transformationService != null) {
+					transformedResponse = transformationService.transform(transformationFunction, response);
+				} else {
+					transformedResponse = response;
+					logger.warn("couldn't transform response because transformationService of type '{}' is unavailable", transformationType);
+				}
+			}
+			catch (TransformationException te) {
+				logger.error("transformation throws exception [transformation="
+						+ transformation + ", response=" + response + "]", te);
+				
+				// in case of an error we return the response without any
+				// transformation
+				transformedResponse = response;
+			}
+			
+			logger.debug("transformed response is '{}'", transformedResponse);
+			
+			Class<? extends Item> itemType = provider.getItemType(itemName);
+			State state = createState(itemType, transformedResponse);
+			
+			if (state != null) {
+				eventPublisher.postUpdate(itemName, state);
+			}
+		}
+		
+		lastUpdateMap.put(itemName, System.currentTimeMillis());
+	}
+	
+	/**
+	 * Orders the fetches round-robin by their host, so that the first fetches
+	 * which are executed in parallel request different hosts.
+	 */
+	private static List<Fetch> interleaveHosts(Collection<Fetch> fetches) {
+		Map<String, LinkedList<Fetch>> fetchesByHost = new LinkedHashMap<String, LinkedList<Fetch>>();
+		for (Fetch fetch : fetches) {
+			String host = getHost(fetch.url);
+			LinkedList<Fetch> hostFetches = fetchesByHost.get(host);
+			if (hostFetches == null) {
+				hostFetches = new LinkedList<Fetch>();
+				fetchesByHost.put(host, hostFetches);
+			}
+			hostFetches.add(fetch);
+		}
+		List<Fetch> ordered = new ArrayList<Fetch>(fetches.size());
+		while (ordered.size() < fetches.size()) {
+			for (LinkedList<Fetch> hostFetches : fetchesByHost.values()) {
+				if (!hostFetches.isEmpty()) {
+					ordered.add(hostFetches.removeFirst());
+				}
+			}
+		}
+		return ordered;
+	}
+	
+	private static String getHost(String url) {
+		try {
+			return new URL(url).getHost();
+		} catch (MalformedURLException e) {
+			return url;
+		}
+	}
+	
+	/**
+	 * Returns the key which identifies identical requests.
+	 */
+	private static String getFetchKey(String url, Properties headers) {
+		if (headers == null || headers.isEmpty()) {
+			return url;
+		}
+		return url + new TreeMap<Object, Object>(headers);
+	}
+	
+	/**
+	 * Removes the recent responses which are older than the coalesce window.
+	 */
+	private void pruneRecentResponses(long now) {
+		for (Iterator<RecentResponse> it = recentResponses.values().iterator(); it.hasNext();) {
+			if (now - it.next().time >= coalesceWindow) {
+				it.remove();
+			}
+		}
+	}
+	
+	private synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = new ThreadPoolExecutor(parallelism, parallelism, 60L, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						private final AtomicInteger threadNumber = new AtomicInteger(1);
 						
-						if (state != null) {
-							eventPublisher.postUpdate(itemName, state);
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable, "HTTP Refresh-" + threadNumber.getAndIncrement());
+							thread.setDaemon(true);
+							return thread;
 						}
-					}
-					
-					lastUpdateMap.put(itemName, System.currentTimeMillis());
-				}					
+					});
+			executor.allowCoreThreadTimeOut(true);
+		}
+		return executor;
+	}
+	
+	private synchronized void shutdownExecutor() {
+		if (executor != null) {
+			executor.shutdown();
+			executor = null;
+		}
+	}
+	
+	private UrlStatistics getStatistics(String url) {
+		UrlStatistics statistics = urlStatistics.get(url);
+		if (statistics == null) {
+			UrlStatistics newStatistics = new UrlStatistics();
+			statistics = urlStatistics.putIfAbsent(url, newStatistics);
+			if (statistics == null) {
+				statistics = newStatistics;
 			}
 		}
+		return statistics;
+	}
+	
+	/**
+	 * Requests the url of an in-binding.
+	 * 
+	 * @return the response or <code>null</code> if the request failed
+	 */
+	String executeGet(String url, Properties headers) {
+		return HttpUtil.executeUrl("GET", url, headers, null, null, timeout);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getSummary() {
+		return null;
+	}
+	
+	/**
+	 * Returns the response time statistics of all urls which have been requested
+	 * by the in-bindings so far, by their configured (unformatted) url.
+	 * 
+	 * {@inheritDoc}
+	 */
+	public Map<String, ?> getStatistics() {
+		return Collections.unmodifiableMap(urlStatistics);
 	}
 	
 	/**
@@ -399,6 +663,20 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 					granularity = Integer.parseInt(granularityString);
 				}
 				
+				String parallelismString = (String) config.get(CONFIG_PARALLELISM);
+				if (StringUtils.isNotBlank(parallelismString)) {
+					int newParallelism = Math.max(parseInt(CONFIG_PARALLELISM, parallelismString, DEFAULT_PARALLELISM), 1);
+					if (newParallelism != parallelism) {
+						parallelism = newParallelism;
+						shutdownExecutor();
+					}
+				}
+				
+				String coalesceWindowString = (String) config.get(CONFIG_COALESCE_WINDOW);
+				if (StringUtils.isNotBlank(coalesceWindowString)) {
+					coalesceWindow = parseInt(CONFIG_COALESCE_WINDOW, coalesceWindowString, DEFAULT_COALESCE_WINDOW);
+				}
+				
 				// Parse page cache config
 				
 				@SuppressWarnings("unchecked")
@@ -410,6 +688,7 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 					// the config-key enumeration contains additional keys that we
 					// don't want to process here ...
 					if (CONFIG_TIMEOUT.equals(key) || CONFIG_GRANULARITY.equals(key)
+							|| CONFIG_PARALLELISM.equals(key) || CONFIG_COALESCE_WINDOW.equals(key)
 							|| "service.pid".equals(key)) {
 						continue;
 					}
@@ -459,6 +738,19 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 		}
 	}
 	
+	/**
+	 * Parses a numeric configuration value; invalid values are logged and replaced
+	 * by the <code>defaultValue</code>.
+	 */
+	private static int parseInt(String key, String value, int defaultValue) {
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			logger.warn("Invalid value '{}' for '{}', using the default value {}", new Object[] { value, key, defaultValue });
+			return defaultValue;
+		}
+	}
+	
 	private Properties parseHttpHeaders(String group) {
 		Properties headers = new Properties();
 		if(group != null && group.length()>0){
@@ -513,4 +805,120 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 					+ updateInterval + "]";
 		}
 	}
+	
+	/**
+	 * A request which is shared by all items with the same url and headers.
+	 */
+	private class Fetch implements Callable<Fetch> {
+		
+		final String key;
+		final String rawUrl;
+		final String url;
+		final Properties headers;
+		final List<HttpBindingProvider> itemProviders = new ArrayList<HttpBindingProvider>();
+		final List<String> itemNames = new ArrayList<String>();
+		
+		long startTime;
+		long duration;
+		String response;
+		
+		Fetch(String key, String rawUrl, String url, Properties headers) {
+			this.key = key;
+			this.rawUrl = rawUrl;
+			this.url = url;
+			this.headers = headers;
+		}
+		
+		public Fetch call() {
+			startTime = System.currentTimeMillis();
+			try {
+				response = executeGet(url, headers);
+			} catch (RuntimeException e) {
+				logger.error("Error while requesting '" + url + "'", e);
+			}
+			duration = System.currentTimeMillis() - startTime;
+			logger.debug("requested '{}' for {} items in {}ms", new Object[] { url, itemNames.size(), duration });
+			return this;
+		}
+	}
+	
+	/**
+	 * A response which can be reused by other items within the coalesce window.
+	 */
+	private static class RecentResponse {
+		
+		final String response;
+		final long time;
+		
+		RecentResponse(String response, long time) {
+			this.response = response;
+			this.time = time;
+		}
+	}
+	
+	/**
+	 * The response time statistics of a configured url.
+	 */
+	public static class UrlStatistics {
+		
+		private long requests;
+		private long failures;
+		private long coalesced;
+		private long totalTime;
+		private long maxTime;
+		private long lastTime;
+		
+		synchronized void fetched(boolean success, long duration, int coalescedItems) {
+			requests++;
+			if (!success) {
+				failures++;
+			}
+			coalesced += coalescedItems;
+			totalTime += duration;
+			if (duration > maxTime) {
+				maxTime = duration;
+			}
+			lastTime = duration;
+		}
+		
+		synchronized void coalesced(int items) {
+			coalesced += items;
+		}
+		
+		/** @return the number of requests */
+		public synchronized long getRequests() {
+			return requests;
+		}
+		
+		/** @return the number of requests without a response */
+		public synchronized long getFailures() {
+			return failures;
+		}
+		
+		/** @return the number of item updates which have reused the response of another item */
+		public synchronized long getCoalesced() {
+			return coalesced;
+		}
+		
+		/** @return the average response time in milliseconds */
+		public synchronized long getAverageTime() {
+			return requests > 0 ? totalTime / requests : 0;
+		}
+		
+		/** @return the maximum response time in milliseconds */
+		public synchronized long getMaxTime() {
+			return maxTime;
+		}
+		
+		/** @return the response time of the last request in milliseconds */
+		public synchronized long getLastTime() {
+			return lastTime;
+		}
+		
+		@Override
+		public synchronized String toString() {
+			return "requests=" + requests + ", failures=" + failures + ", coalesced=" + coalesced
+					+ ", averageTime=" + getAverageTime() + "ms, maxTime=" + maxTime + "ms, lastTime=" + lastTime + "ms";
+		}
+	}
 }
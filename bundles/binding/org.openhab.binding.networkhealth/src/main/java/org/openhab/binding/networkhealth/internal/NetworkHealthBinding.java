@@ -56,50 +56,98 @@ public class NetworkHealthBinding extends AbstractActiveBinding<NetworkHealthBin
 	protected String getName() {
 		return "NetworkHealth Refresh Service";
 	}
+
+	/**
+	 * Polls on the shared scheduler; each check is bounded by the configured timeout.
+	 */
+	@Override
+	protected boolean useSharedScheduler() {
+		return true;
+	}
+	
+	/**
+	 * Checks each host in its own task, so that an unreachable host does not
+	 * delay the checks of the other hosts.
+	 */
+	@Override
+	protected boolean usePerItemPolling() {
+		return true;
+	}
 	
 	@Override
 	protected long getRefreshInterval() {
 		return refreshInterval;
 	}
 	
+	@Override
+	protected long getRefreshInterval(String itemName) {
+		return refreshInterval;
+	}
+	
+	@Override
+	protected long getPollingTimeout(String itemName) {
+		NetworkHealthBindingProvider provider = findProvider(itemName);
+		return provider != null ? getTimeout(provider, itemName) : 0;
+	}
+	
 	/**
-	 * @{inheritDoc}
+	 * The items are polled individually by {@link #execute(String)}.
 	 */
 	@Override
 	public void execute() {
-		for (NetworkHealthBindingProvider provider : providers) {
-			for (String itemName : provider.getItemNames()) {
-				
-				String hostname = provider.getHostname(itemName);
-				int port = provider.getPort(itemName);
-
-				if (provider.getTimeout(itemName) > 0) {
-					timeout = provider.getTimeout(itemName);
-				}
-				
-				boolean success = false;
-				
-				try {
-					success = Ping.checkVitality(hostname, port, timeout);
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	protected void execute(String itemName) {
+		NetworkHealthBindingProvider provider = findProvider(itemName);
+		if (provider == null) {
+			return;
+		}
+		
+		String hostname = provider.getHostname(itemName);
+		int port = provider.getPort(itemName);
+		int timeout = getTimeout(provider, itemName);
+		
+		boolean success = false;
+		
+		try {
+			success = Ping.checkVitality(hostname, port, timeout);
 
-					logger.debug("established connection [host '{}' port '{}' timeout '{}']", new Object[] {hostname, port, timeout});
-				} 
-				catch (SocketTimeoutException se) {
-					logger.debug("timed out while connecting to host '{}' port '{}' timeout '{}'", new Object[] {hostname, port, timeout});
-				}
-				catch (IOException ioe) {
-					logger.debug("couldn't establish network connection [host '{}' port '{}' timeout '{}']", new Object[] {hostname, port, timeout});
-				}
-				if (eventPublisher != null) {
+			logger.debug("established connection [host '{}' port '{}' timeout '{}']", new Object[] {hostname, port, timeout});
+		} 
+		catch (SocketTimeoutException se) {
+			logger.debug("timed out while connecting to host '{}' port '{}' timeout '{}'", new Object[] {hostname, port, timeout});
+		}
+		catch (IOException ioe) {
+			logger.debug("couldn't establish network connection [host '{}' port '{}' timeout '{}']", new Object[] {hostname, port, timeout});
+		}
+		if (eventPublisher != null) {
 
-					// check cached state and update only if state differs
-					if (shouldPostUpdate(hostname, port, success)) {
-						eventPublisher.postUpdate(itemName, success ? OnOffType.ON : OnOffType.OFF);
-					}
-				}
+			// check cached state and update only if state differs
+			if (shouldPostUpdate(hostname, port, success)) {
+				eventPublisher.postUpdate(itemName, success ? OnOffType.ON : OnOffType.OFF);
 			}
 		}
 	}
+	
+	private NetworkHealthBindingProvider findProvider(String itemName) {
+		for (NetworkHealthBindingProvider provider : providers) {
+			if (provider.providesBindingFor(itemName)) {
+				return provider;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * @return the timeout of the item, or the configured timeout if the item does not define one
+	 */
+	private int getTimeout(NetworkHealthBindingProvider provider, String itemName) {
+		return provider.getTimeout(itemName) > 0 ? provider.getTimeout(itemName) : timeout;
+	}
 
 	/**
 	 * Whether or not to post the new state to the event bus.
@@ -114,7 +162,7 @@ public class NetworkHealthBinding extends AbstractActiveBinding<NetworkHealthBin
 	 *         <code>false</code> if the state is already cached and did not
 	 *         change.
 	 */
-	private boolean shouldPostUpdate(String hostname, int port, boolean newState) {
+	private synchronized boolean shouldPostUpdate(String hostname, int port, boolean newState) {
 		if (cachePeriod <= 0)
 			return true; // caching disabled
 		long now = System.currentTimeMillis();
@@ -111,6 +111,14 @@ public class OWServerBinding extends
 		return "OWServer Refresh Service";
 	}
 
+	/**
+	 * Polls on the shared scheduler; the requests are bounded by the configured timeout.
+	 */
+	@Override
+	protected boolean useSharedScheduler() {
+		return true;
+	}
+
 	String getVariable(String response, String romId, String name) {
 		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
 
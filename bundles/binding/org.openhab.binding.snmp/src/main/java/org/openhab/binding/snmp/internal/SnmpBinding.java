@@ -113,6 +113,14 @@ public class SnmpBinding extends AbstractActiveBinding<SnmpBindingProvider>
 		return "SNMP Refresh Service";
 	}
 
+	/**
+	 * Polls on the shared scheduler; the requests are sent asynchronously.
+	 */
+	@Override
+	protected boolean useSharedScheduler() {
+		return true;
+	}
+
 	/**
 	 * Configures a {@link DefaultUdpTransportMapping} and starts listening on
 	 * <code>SnmpBinding.port</code> for incoming SNMP Traps.
@@ -10,6 +10,8 @@ package org.openhab.core.autoupdate.internal;
 
 import org.openhab.core.autoupdate.AutoUpdateBindingProvider;
 import org.openhab.core.binding.AbstractBinding;
+import org.openhab.core.events.ItemEvent;
+import org.openhab.core.events.ItemEventListener;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.items.ItemNotFoundException;
 import org.openhab.core.items.ItemRegistry;
@@ -31,7 +33,7 @@ import org.slf4j.LoggerFactory;
  * @author Thomas.Eichstaedt-Engelen
  * @since 0.9.1
  */
-public class AutoUpdateBinding extends AbstractBinding<AutoUpdateBindingProvider> {
+public class AutoUpdateBinding extends AbstractBinding<AutoUpdateBindingProvider> implements ItemEventListener {
 
 	private static final Logger logger = LoggerFactory.getLogger(AutoUpdateBinding.class);
 	
@@ -46,6 +48,15 @@ public class AutoUpdateBinding extends AbstractBinding<AutoUpdateBindingProvider
 	}
 	
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public void itemEventReceived(ItemEvent event) {
+		if (event.getCommand() != null) {
+			receiveCommand(event.getItemName(), event.getCommand());
+		}
+	}
+	
 	/**
 	 * <p>Iterates through all registered {@link AutoUpdateBindingProvider}s and
 	 * checks whether an autoupdate configuration is available for <code>itemName</code>.</p>
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.library.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openhab.core.library.types.DateTimeType;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.HSBType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.openhab.core.types.TypeParser;
+
+/**
+ * @since 1.8.0
+ */
+public class LibraryTypeParsersTest {
+
+	@BeforeClass
+	public static void registerParsers() {
+		LibraryTypeParsers.register();
+	}
+
+	@AfterClass
+	public static void unregisterParsers() {
+		LibraryTypeParsers.unregister();
+	}
+
+	@Test
+	public void testIsBigDecimal() {
+		for(String valid : new String[] { "0", "-1", "+1", "1.5", ".5", "5.", "1e3", "1E-3", "-2.5e+10" }) {
+			assertTrue(valid, LibraryTypeParsers.isBigDecimal(valid));
+		}
+		for(String invalid : new String[] { null, "", "-", ".", "1..5", "1.5.", "e3", "1e", "1e+", "1x", " 1", "ON" }) {
+			assertFalse(String.valueOf(invalid), LibraryTypeParsers.isBigDecimal(invalid));
+		}
+	}
+
+	@Test
+	public void testParseState() {
+		List<Class<? extends State>> types = new ArrayList<Class<? extends State>>();
+		types.add(OnOffType.class);
+		types.add(PercentType.class);
+		types.add(HSBType.class);
+		types.add(DateTimeType.class);
+
+		assertEquals(OnOffType.ON, TypeParser.parseState(types, "ON"));
+		assertEquals(new PercentType(55), TypeParser.parseState(types, "55"));
+		assertEquals(new HSBType("120,50,50"), TypeParser.parseState(types, "120,50,50"));
+		assertEquals(new DateTimeType("2015-03-01T12:30:00"), TypeParser.parseState(types, "2015-03-01T12:30:00"));
+		assertNull(TypeParser.parseState(types, "101"));
+		assertNull(TypeParser.parseState(types, "on"));
+		assertNull(TypeParser.parseState(types, "1,2"));
+		assertNull(TypeParser.parseState(types, null));
+	}
+
+	@Test
+	public void testParseCommandPrecedence() {
+		List<Class<? extends Command>> types = new ArrayList<Class<? extends Command>>();
+		types.add(OnOffType.class);
+		types.add(DecimalType.class);
+		types.add(StringType.class);
+
+		assertEquals(OnOffType.OFF, TypeParser.parseCommand(types, "OFF"));
+		assertEquals(new DecimalType("-12.5"), TypeParser.parseCommand(types, "-12.5"));
+		assertEquals(new StringType("12,5"), TypeParser.parseCommand(types, "12,5"));
+		assertNull(TypeParser.parseCommand(types, null));
+	}
+
+	@Test
+	public void testSameResultAsValueOf() {
+		String[] values = { "0", "100", "12.75", "1e2", "-1", "120,100,0", "2015-03-01T12:30:00", "x" };
+		for(String value : values) {
+			assertEquals(valueOf(DecimalType.class, value), LibraryTypeParsers.DECIMAL_PARSER.parse(value));
+			assertEquals(valueOf(PercentType.class, value), LibraryTypeParsers.PERCENT_PARSER.parse(value));
+			assertEquals(valueOf(HSBType.class, value), LibraryTypeParsers.HSB_PARSER.parse(value));
+			assertEquals(valueOf(DateTimeType.class, value), LibraryTypeParsers.DATE_TIME_PARSER.parse(value));
+		}
+	}
+
+	private static Object valueOf(Class<?> type, String value) {
+		try {
+			return type.getMethod("valueOf", String.class).invoke(null, value);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+}
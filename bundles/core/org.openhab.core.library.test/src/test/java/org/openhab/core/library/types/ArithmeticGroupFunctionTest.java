@@ -10,6 +10,7 @@ package org.openhab.core.library.types;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import junit.framework.Assert;
 
@@ -17,6 +18,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.items.GroupFunction;
+import org.openhab.core.items.GroupItem;
 import org.openhab.core.items.Item;
 import org.openhab.core.library.items.DimmerItem;
 import org.openhab.core.library.items.SwitchItem;
@@ -205,6 +207,59 @@ public class ArithmeticGroupFunctionTest {
 		Assert.assertEquals(new DecimalType("234.95"), state);
 	}
 	
+	@Test
+	public void testIncrementalAggregation() {
+		State[] states = { new DecimalType("1.5"), new DecimalType("-2"), new DecimalType("10.25"),
+				new DecimalType("1E+2"), OpenClosedType.OPEN, OpenClosedType.CLOSED, UnDefType.UNDEF };
+		GroupFunction[] functions = {
+				new ArithmeticGroupFunction.And(OpenClosedType.OPEN, OpenClosedType.CLOSED),
+				new ArithmeticGroupFunction.Or(OpenClosedType.OPEN, OpenClosedType.CLOSED),
+				new ArithmeticGroupFunction.NAnd(OpenClosedType.OPEN, OpenClosedType.CLOSED),
+				new ArithmeticGroupFunction.NOr(OpenClosedType.OPEN, OpenClosedType.CLOSED),
+				new ArithmeticGroupFunction.Count(new StringType("OPEN|1.*")),
+				new ArithmeticGroupFunction.Avg(), new ArithmeticGroupFunction.Sum(),
+				new ArithmeticGroupFunction.Min(), new ArithmeticGroupFunction.Max() };
+		Random random = new Random(42);
+
+		for(GroupFunction groupFunction : functions) {
+			GroupItem group = new GroupItem("Group", null, groupFunction);
+			List<TestItem> members = new ArrayList<TestItem>();
+			for(int i = 0; i < 10; i++) {
+				TestItem member = new TestItem("TestItem" + i, states[random.nextInt(states.length)]);
+				members.add(member);
+				group.addMember(member);
+			}
+			for(int i = 0; i < 200; i++) {
+				TestItem member = members.get(random.nextInt(members.size()));
+				if(i % 50 == 49) {
+					group.removeMember(member);
+					members.remove(member);
+					continue;
+				}
+				member.setState(states[random.nextInt(states.length)]);
+
+				List<Item> items = new ArrayList<Item>(members);
+				String message = groupFunction.getClass().getSimpleName() + " " + items;
+				Assert.assertEquals(message, groupFunction.calculate(items), group.getState());
+				Assert.assertEquals(message, groupFunction.getStateAs(items, DecimalType.class), group.getStateAs(DecimalType.class));
+			}
+		}
+	}
+
+	@Test
+	public void testIncrementalSumKeepsScale() {
+		TestItem item1 = new TestItem("TestItem1", new DecimalType("1.125"));
+		TestItem item2 = new TestItem("TestItem2", new DecimalType("2"));
+		GroupItem group = new GroupItem("Group", null, new ArithmeticGroupFunction.Sum());
+		group.addMember(item1);
+		group.addMember(item2);
+
+		item1.setState(new DecimalType("3"));
+		Assert.assertEquals("5", group.getState().toString());
+		item1.setState(UnDefType.UNDEF);
+		Assert.assertEquals("2", group.getState().toString());
+	}
+	
 	class TestItem extends GenericItem {
 
 		public TestItem(String name, State state) {
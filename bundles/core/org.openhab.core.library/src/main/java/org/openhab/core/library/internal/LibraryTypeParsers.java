@@ -0,0 +1,192 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.library.internal;
+
+import java.math.BigDecimal;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+
+import org.openhab.core.library.types.DateTimeType;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.HSBType;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.types.TypeParser;
+import org.openhab.core.types.ValueParser;
+
+/**
+ * Explicit {@link ValueParser}s for the types of the core library, which check the
+ * syntax of a value before creating the type, so that invalid values do not cause
+ * exceptions. The enum types of the library need no explicit parser, as the
+ * {@link TypeParser} already parses enums without exceptions.
+ *
+ * @since 1.8.0
+ */
+public class LibraryTypeParsers {
+
+	private static final BigDecimal HUNDRED = new BigDecimal(100);
+
+	private static final ThreadLocal<SimpleDateFormat[]> DATE_FORMATS = new ThreadLocal<SimpleDateFormat[]>() {
+		@Override
+		protected SimpleDateFormat[] initialValue() {
+			// clones of the shared formatters of DateTimeType, which are not thread-safe
+			return new SimpleDateFormat[] {
+				(SimpleDateFormat) DateTimeType.DATE_FORMATTER_WITH_TZ.clone(),
+				(SimpleDateFormat) DateTimeType.DATE_FORMATTER.clone()
+			};
+		}
+	};
+
+	static final ValueParser<DecimalType> DECIMAL_PARSER = new ValueParser<DecimalType>() {
+		public DecimalType parse(String value) {
+			BigDecimal number = parseBigDecimal(value);
+			return number!=null ? new DecimalType(number) : null;
+		}
+	};
+
+	static final ValueParser<PercentType> PERCENT_PARSER = new ValueParser<PercentType>() {
+		public PercentType parse(String value) {
+			BigDecimal number = parseBigDecimal(value);
+			if(number==null || number.signum() < 0 || number.compareTo(HUNDRED) > 0) {
+				return null;
+			}
+			return new PercentType(number);
+		}
+	};
+
+	static final ValueParser<HSBType> HSB_PARSER = new ValueParser<HSBType>() {
+		public HSBType parse(String value) {
+			if(value==null) {
+				return null;
+			}
+			String[] constituents = value.split(",");
+			if(constituents.length!=3) {
+				return null;
+			}
+			for(String constituent : constituents) {
+				if(!isBigDecimal(constituent)) {
+					return null;
+				}
+			}
+			return new HSBType(value);
+		}
+	};
+
+	static final ValueParser<DateTimeType> DATE_TIME_PARSER = new ValueParser<DateTimeType>() {
+		public DateTimeType parse(String value) {
+			if(value==null) {
+				return null;
+			}
+			for(SimpleDateFormat format : DATE_FORMATS.get()) {
+				Date date = format.parse(value, new ParsePosition(0));
+				if(date!=null) {
+					Calendar calendar = Calendar.getInstance();
+					calendar.setTime(date);
+					return new DateTimeType(calendar);
+				}
+			}
+			return null;
+		}
+	};
+
+	static final ValueParser<StringType> STRING_PARSER = new ValueParser<StringType>() {
+		public StringType parse(String value) {
+			return new StringType(value);
+		}
+	};
+
+	/**
+	 * Registers the parsers of the core library types with the {@link TypeParser}.
+	 */
+	public static void register() {
+		TypeParser.registerParser(DecimalType.class, DECIMAL_PARSER);
+		TypeParser.registerParser(PercentType.class, PERCENT_PARSER);
+		TypeParser.registerParser(HSBType.class, HSB_PARSER);
+		TypeParser.registerParser(DateTimeType.class, DATE_TIME_PARSER);
+		TypeParser.registerParser(StringType.class, STRING_PARSER);
+	}
+
+	/**
+	 * Removes the parsers of the core library types from the {@link TypeParser}.
+	 */
+	public static void unregister() {
+		TypeParser.unregisterParser(DecimalType.class);
+		TypeParser.unregisterParser(PercentType.class);
+		TypeParser.unregisterParser(HSBType.class);
+		TypeParser.unregisterParser(DateTimeType.class);
+		TypeParser.unregisterParser(StringType.class);
+	}
+
+	/**
+	 * Parses a number in the format accepted by {@link BigDecimal#BigDecimal(String)}.
+	 *
+	 * @param value the string to parse
+	 * @return the number or <code>null</code>, if the string is not a valid number
+	 */
+	static BigDecimal parseBigDecimal(String value) {
+		if(!isBigDecimal(value)) {
+			return null;
+		}
+		try {
+			return new BigDecimal(value);
+		} catch (NumberFormatException e) {
+			// only possible for exponents which exceed the range of an int
+			return null;
+		}
+	}
+
+	/**
+	 * Checks the syntax of a number as accepted by {@link BigDecimal#BigDecimal(String)}:
+	 * an optional sign, digits with an optional decimal point and an optional exponent.
+	 */
+	static boolean isBigDecimal(String value) {
+		if(value==null) {
+			return false;
+		}
+		int length = value.length();
+		int i = 0;
+		if(i < length && (value.charAt(i)=='+' || value.charAt(i)=='-')) {
+			i++;
+		}
+		boolean digits = false;
+		boolean point = false;
+		for(; i < length; i++) {
+			char c = value.charAt(i);
+			if(c >= '0' && c <= '9') {
+				digits = true;
+			} else if(c=='.' && !point) {
+				point = true;
+			} else {
+				break;
+			}
+		}
+		if(!digits) {
+			return false;
+		}
+		if(i < length && (value.charAt(i)=='e' || value.charAt(i)=='E')) {
+			i++;
+			if(i < length && (value.charAt(i)=='+' || value.charAt(i)=='-')) {
+				i++;
+			}
+			if(i==length) {
+				return false;
+			}
+			for(; i < length; i++) {
+				char c = value.charAt(i);
+				if(c < '0' || c > '9') {
+					return false;
+				}
+			}
+		}
+		return i==length;
+	}
+
+}
@@ -11,17 +11,21 @@ package org.openhab.core.library.types;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.List;
+import java.util.TreeMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.openhab.core.items.GroupAggregator;
 import org.openhab.core.items.GroupFunction;
+import org.openhab.core.items.IncrementalGroupFunction;
 import org.openhab.core.items.Item;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
 
 /**
  * This interface is only a container for functions that require the core type library
- * for its calculations.
+ * for its calculations. All of them can be maintained incrementally through a
+ * {@link GroupAggregator}.
  * 
  * @author Kai Kreuzer
  * @since 0.7.0
@@ -40,7 +44,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 0.7.0
 	 *
 	 */
-	static class And implements GroupFunction {
+	static class And implements IncrementalGroupFunction {
 		
 		protected final State activeState;
 		protected final State passiveState;
@@ -90,6 +94,45 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 			}
 		}
 		
+		/**
+		 * @{inheritDoc
+		 */
+		public GroupAggregator<Boolean> createAggregator() {
+			return new MatchCountAggregator() {
+				@Override
+				protected Boolean getValue(Item item) {
+					return activeState.equals(item.getStateAs(activeState.getClass()));
+				}
+
+				@Override
+				protected State calculate(int memberCount) {
+					return toState(memberCount>0 && getMatchCount()==memberCount);
+				}
+
+				@Override
+				protected State calculateAs(int memberCount, Class<? extends State> stateClass) {
+					State state = calculate(memberCount);
+					if(stateClass.isInstance(state)) {
+						return state;
+					} else if(stateClass == DecimalType.class) {
+						return new DecimalType(memberCount - getMatchCount());
+					} else {
+						return null;
+					}
+				}
+			};
+		}
+
+		/**
+		 * Determines the group state from the result of the 'and' operation.
+		 * 
+		 * @param allActive true, if there are items and all of them are in the active state
+		 * @return the group state
+		 */
+		protected State toState(boolean allActive) {
+			return allActive ? activeState : passiveState;
+		}
+		
 		private int count(List<Item> items, State state) {
 			int count = 0;
 			if(items!=null && state!=null) {
@@ -115,7 +158,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 0.7.0
 	 *
 	 */
-	static class Or implements GroupFunction {
+	static class Or implements IncrementalGroupFunction {
 
 		protected final State activeState;
 		protected final State passiveState;
@@ -158,6 +201,45 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 			}
 		}
 		
+		/**
+		 * @{inheritDoc
+		 */
+		public GroupAggregator<Boolean> createAggregator() {
+			return new MatchCountAggregator() {
+				@Override
+				protected Boolean getValue(Item item) {
+					return activeState.equals(item.getStateAs(activeState.getClass()));
+				}
+
+				@Override
+				protected State calculate(int memberCount) {
+					return toState(getMatchCount()>0);
+				}
+
+				@Override
+				protected State calculateAs(int memberCount, Class<? extends State> stateClass) {
+					State state = calculate(memberCount);
+					if(stateClass.isInstance(state)) {
+						return state;
+					} else if(stateClass == DecimalType.class) {
+						return new DecimalType(getMatchCount());
+					} else {
+						return null;
+					}
+				}
+			};
+		}
+
+		/**
+		 * Determines the group state from the result of the 'or' operation.
+		 * 
+		 * @param anyActive true, if at least one item is in the active state
+		 * @return the group state
+		 */
+		protected State toState(boolean anyActive) {
+			return anyActive ? activeState : passiveState;
+		}
+		
 		private int count(List<Item> items, State state) {
 			int count = 0;
 			if(items!=null && state!=null) {
@@ -192,6 +274,12 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 				result.equals(activeState) ? passiveState : activeState;
 			return notResult;
 		}
+
+		@Override
+		protected State toState(boolean allActive) {
+			State result = super.toState(allActive);
+			return result.equals(activeState) ? passiveState : activeState;
+		}
 		
 	}
 
@@ -216,6 +304,12 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 				result.equals(activeState) ? passiveState : activeState;
 			return notResult;
 		}
+
+		@Override
+		protected State toState(boolean anyActive) {
+			State result = super.toState(anyActive);
+			return result.equals(activeState) ? passiveState : activeState;
+		}
 		
 	}
 	
@@ -226,7 +320,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 0.7.0
 	 *
 	 */
-	static class Avg implements GroupFunction {
+	static class Avg implements IncrementalGroupFunction {
 		
 		public Avg() {}
 
@@ -263,6 +357,22 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 				return null;
 			}
 		}
+
+		/**
+		 * @{inheritDoc
+		 */
+		public GroupAggregator<BigDecimal> createAggregator() {
+			return new DecimalSumAggregator() {
+				@Override
+				protected State calculate(int memberCount) {
+					if(getCount()>0) {
+						return new DecimalType(getSum().divide(new BigDecimal(getCount()), RoundingMode.HALF_UP));
+					} else {
+						return UnDefType.UNDEF;
+					}
+				}
+			};
+		}
 	}
 	
 	/**
@@ -276,7 +386,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 1.7.0
 	 *
 	 */
-	static class Count implements GroupFunction {
+	static class Count implements IncrementalGroupFunction {
 		
 		protected final Pattern pattern;
 		
@@ -315,6 +425,23 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 				return null;
 			}
 		}
+
+		/**
+		 * @{inheritDoc
+		 */
+		public GroupAggregator<Boolean> createAggregator() {
+			return new MatchCountAggregator() {
+				@Override
+				protected Boolean getValue(Item item) {
+					return pattern.matcher(item.getState().toString()).matches();
+				}
+
+				@Override
+				protected State calculate(int memberCount) {
+					return new DecimalType(getMatchCount());
+				}
+			};
+		}
 	}
 
 	/**
@@ -324,7 +451,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 1.1.0
 	 *
 	 */
-	static class Sum implements GroupFunction {
+	static class Sum implements IncrementalGroupFunction {
 		
 		public Sum() {}
 
@@ -355,6 +482,18 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 				return null;
 			}
 		}
+
+		/**
+		 * @{inheritDoc
+		 */
+		public GroupAggregator<BigDecimal> createAggregator() {
+			return new DecimalSumAggregator() {
+				@Override
+				protected State calculate(int memberCount) {
+					return new DecimalType(getSum());
+				}
+			};
+		}
 	}
 	
 	/**
@@ -364,7 +503,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 0.7.0
 	 *
 	 */
-	static class Min implements GroupFunction {
+	static class Min implements IncrementalGroupFunction {
 		
 		public Min() {}
 
@@ -400,6 +539,19 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 				return null;
 			}
 		}
+
+		/**
+		 * @{inheritDoc
+		 */
+		public GroupAggregator<BigDecimal> createAggregator() {
+			return new DecimalRangeAggregator() {
+				@Override
+				protected State calculate(int memberCount) {
+					BigDecimal min = getMin();
+					return min!=null ? new DecimalType(min) : UnDefType.UNDEF;
+				}
+			};
+		}
 }
 
 	/**
@@ -409,7 +561,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 0.7.0
 	 *
 	 */
-	static class Max implements GroupFunction {
+	static class Max implements IncrementalGroupFunction {
 		
 		public Max() {}
 
@@ -445,7 +597,181 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 				return null;
 			}
 		}
+
+		/**
+		 * @{inheritDoc
+		 */
+		public GroupAggregator<BigDecimal> createAggregator() {
+			return new DecimalRangeAggregator() {
+				@Override
+				protected State calculate(int memberCount) {
+					BigDecimal max = getMax();
+					return max!=null ? new DecimalType(max) : UnDefType.UNDEF;
+				}
+			};
+		}
 	}
 	
+	/**
+	 * Counts the members which match a condition.
+	 * 
+	 * @since 1.8.0
+	 */
+	static abstract class MatchCountAggregator extends GroupAggregator<Boolean> {
+		
+		private int matchCount = 0;
+
+		@Override
+		protected void add(Boolean matches) {
+			if(matches) {
+				matchCount++;
+			}
+		}
+
+		@Override
+		protected void remove(Boolean matches) {
+			if(matches) {
+				matchCount--;
+			}
+		}
+
+		@Override
+		protected void clear() {
+			matchCount = 0;
+		}
+
+		/**
+		 * @return the number of members which match the condition
+		 */
+		protected int getMatchCount() {
+			return matchCount;
+		}
+	}
+	
+	/**
+	 * Keeps the running sum and count of all member states of decimal type.
+	 * 
+	 * @since 1.8.0
+	 */
+	static abstract class DecimalSumAggregator extends GroupAggregator<BigDecimal> {
+		
+		private BigDecimal sum = BigDecimal.ZERO;
+		private int count = 0;
+		
+		/** the scales of the current values, which determine the scale of the sum */
+		private final CountingMap<Integer> scales = new CountingMap<Integer>();
+
+		@Override
+		protected BigDecimal getValue(Item item) {
+			DecimalType itemState = (DecimalType) item.getStateAs(DecimalType.class);
+			return itemState!=null ? itemState.toBigDecimal() : null;
+		}
+
+		@Override
+		protected void add(BigDecimal value) {
+			sum = sum.add(value);
+			count++;
+			scales.increment(value.scale());
+		}
+
+		@Override
+		protected void remove(BigDecimal value) {
+			sum = sum.subtract(value);
+			count--;
+			scales.decrement(value.scale());
+		}
+
+		@Override
+		protected void clear() {
+			sum = BigDecimal.ZERO;
+			count = 0;
+			scales.clear();
+		}
+
+		/**
+		 * @return the sum of all values, with the same scale as if it had been
+		 * calculated from the current values only
+		 */
+		protected BigDecimal getSum() {
+			int scale = scales.isEmpty() ? 0 : Math.max(0, scales.lastKey());
+			return sum.setScale(scale, RoundingMode.UNNECESSARY);
+		}
+
+		/**
+		 * @return the number of members with a state of decimal type
+		 */
+		protected int getCount() {
+			return count;
+		}
+	}
+	
+	/**
+	 * Keeps all member states of decimal type sorted by their value.
+	 * 
+	 * @since 1.8.0
+	 */
+	static abstract class DecimalRangeAggregator extends GroupAggregator<BigDecimal> {
+		
+		private final CountingMap<BigDecimal> values = new CountingMap<BigDecimal>();
+
+		@Override
+		protected BigDecimal getValue(Item item) {
+			DecimalType itemState = (DecimalType) item.getStateAs(DecimalType.class);
+			return itemState!=null ? itemState.toBigDecimal() : null;
+		}
+
+		@Override
+		protected void add(BigDecimal value) {
+			values.increment(value);
+		}
+
+		@Override
+		protected void remove(BigDecimal value) {
+			values.decrement(value);
+		}
+
+		@Override
+		protected void clear() {
+			values.clear();
+		}
+
+		/**
+		 * @return the smallest value or <code>null</code>, if there is none
+		 */
+		protected BigDecimal getMin() {
+			return values.isEmpty() ? null : values.firstKey();
+		}
+
+		/**
+		 * @return the largest value or <code>null</code>, if there is none
+		 */
+		protected BigDecimal getMax() {
+			return values.isEmpty() ? null : values.lastKey();
+		}
+	}
+	
+	/**
+	 * A sorted map which counts the occurrences of its keys.
+	 * 
+	 * @since 1.8.0
+	 */
+	static class CountingMap<K> extends TreeMap<K, Integer> {
+
+		private static final long serialVersionUID = 6354186542271329871L;
+
+		void increment(K key) {
+			Integer count = get(key);
+			put(key, count!=null ? count + 1 : 1);
+		}
+
+		void decrement(K key) {
+			Integer count = get(key);
+			if(count==null || count <= 1) {
+				remove(key);
+			} else {
+				put(key, count - 1);
+			}
+		}
+	}
 	
 }
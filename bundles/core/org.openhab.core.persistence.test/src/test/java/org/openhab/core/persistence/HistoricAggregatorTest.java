@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.persistence.FilterCriteria.Aggregation;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.test.TestPersistenceService;
+
+/**
+ * @since 1.8.0
+ */
+public class HistoricAggregatorTest {
+
+	@Test
+	public void testAggregateAll() {
+		assertEquals("[10:6]", aggregate(Aggregation.SUM, 0));
+		assertEquals("[10:2]", aggregate(Aggregation.AVG, 0));
+		assertEquals("[10:3]", aggregate(Aggregation.COUNT, 0));
+		assertEquals("[10:1]", aggregate(Aggregation.FIRST, 0));
+		assertEquals("[30:2]", aggregate(Aggregation.LAST, 0));
+		// the timestamp of the selected entry
+		assertEquals("[20:3]", aggregate(Aggregation.MAX, 0));
+		assertEquals("[10:1]", aggregate(Aggregation.MIN, 0));
+	}
+
+	@Test
+	public void testAggregateBuckets() {
+		assertEquals("[0:1, 20:5]", aggregate(Aggregation.SUM, 20));
+		assertEquals("[0:1, 20:3]", aggregate(Aggregation.MAX, 20));
+		assertEquals("[0:1, 20:2]", aggregate(Aggregation.LAST, 20));
+		// the string state is not counted, so its bucket is empty
+		assertEquals("[0:1, 20:2]", aggregate(Aggregation.COUNT, 20));
+		assertEquals("[0:1, 20:2.5]", aggregate(Aggregation.AVG, 20));
+	}
+
+	@Test
+	public void testOrderingAndPaging() {
+		FilterCriteria filter = new FilterCriteria().setAggregation(Aggregation.COUNT).setBucketSize(10)
+			.setOrdering(Ordering.DESCENDING).setPageSize(2).setPageNumber(1);
+		HistoricAggregator aggregator = new HistoricAggregator(filter);
+		for(int i = 0; i < 5; i++) {
+			aggregator.add(new Date(i * 10), i);
+		}
+		assertEquals("[20:1, 10:1]", format(aggregator.getResults()));
+	}
+
+	@Test
+	public void testDecimalValuesAreExact() {
+		assertEquals("[10:21.3]", aggregateDecimals(Aggregation.MIN));
+		assertEquals("[20:21.4]", aggregateDecimals(Aggregation.MAX));
+		assertEquals("[10:64.0]", aggregateDecimals(Aggregation.SUM));
+		assertEquals("[10:21.33333333333333]", aggregateDecimals(Aggregation.AVG));
+
+		// values which are added as doubles are not expanded to their binary representation
+		HistoricAggregator aggregator = new HistoricAggregator(new FilterCriteria().setAggregation(Aggregation.LAST));
+		aggregator.add(new Date(10), 21.3);
+		assertEquals("[10:21.3]", format(aggregator.getResults()));
+	}
+
+	@Test
+	public void testEmpty() {
+		FilterCriteria filter = new FilterCriteria().setAggregation(Aggregation.COUNT);
+		assertTrue(new HistoricAggregator(filter).getResults().isEmpty());
+	}
+
+	@Test
+	public void testBucketStart() {
+		assertEquals(20, HistoricAggregator.getBucketStart(25, 10));
+		assertEquals(20, HistoricAggregator.getBucketStart(20, 10));
+		assertEquals(-10, HistoricAggregator.getBucketStart(-5, 10));
+	}
+
+	@SuppressWarnings("deprecation")
+	@Test
+	public void testQueryFallback() {
+		FilterCriteria filter = new FilterCriteria().setItemName("Test").setBeginDate(new Date(2003 - 1900, 0, 1))
+			.setAggregation(Aggregation.AVG);
+		List<HistoricItem> result = toList(HistoricAggregator.query(new TestPersistenceService(), filter));
+		assertEquals(1, result.size());
+		assertEquals("2007.5", result.get(0).getState().toString());
+		assertEquals(filter.getBeginDate(), result.get(0).getTimestamp());
+	}
+
+	@Test
+	public void testQueryNative() {
+		final HistoricItem nativeResult = new HistoricAggregator.AggregatedItem("Test", new DecimalType(42), new Date(0));
+		AggregatingPersistenceService service = new AggregatingTestService(nativeResult);
+		FilterCriteria filter = new FilterCriteria().setItemName("Test").setAggregation(Aggregation.SUM);
+		assertEquals(nativeResult, HistoricAggregator.query(service, filter).iterator().next());
+	}
+
+	private String aggregate(Aggregation aggregation, long bucketSize) {
+		HistoricAggregator aggregator = new HistoricAggregator(new FilterCriteria().setItemName("Test")
+			.setAggregation(aggregation).setBucketSize(bucketSize).setOrdering(Ordering.ASCENDING));
+		aggregator.add(new Date(10), 1);
+		aggregator.add(new Date(20), 3);
+		aggregator.add(new Date(30), 2);
+		aggregator.add(new Date(40), new StringType("text"));
+		return format(aggregator.getResults());
+	}
+
+	private String aggregateDecimals(Aggregation aggregation) {
+		HistoricAggregator aggregator = new HistoricAggregator(new FilterCriteria().setItemName("Test")
+			.setAggregation(aggregation).setBeginDate(new Date(10)));
+		aggregator.add(new Date(10), new DecimalType("21.3"));
+		aggregator.add(new Date(20), new DecimalType("21.4"));
+		aggregator.add(new Date(30), new DecimalType("21.3"));
+		return format(aggregator.getResults());
+	}
+
+	private static String format(List<HistoricItem> items) {
+		StringBuilder sb = new StringBuilder("[");
+		for(HistoricItem item : items) {
+			if(sb.length() > 1) sb.append(", ");
+			sb.append(item.getTimestamp().getTime()).append(':').append(item.getState());
+		}
+		return sb.append(']').toString();
+	}
+
+	private static List<HistoricItem> toList(Iterable<HistoricItem> items) {
+		List<HistoricItem> list = new ArrayList<HistoricItem>();
+		for(HistoricItem item : items) {
+			list.add(item);
+		}
+		return list;
+	}
+
+	private static class AggregatingTestService extends TestPersistenceService implements AggregatingPersistenceService {
+
+		private final HistoricItem result;
+
+		AggregatingTestService(HistoricItem result) {
+			this.result = result;
+		}
+
+		public boolean supportsAggregation(FilterCriteria filter) {
+			return true;
+		}
+
+		@Override
+		public Iterable<HistoricItem> query(FilterCriteria filter) {
+			return Collections.singletonList(result);
+		}
+	}
+
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+import org.openhab.core.items.Item;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.HistoricAggregator.AggregatedItem;
+
+/**
+ * @since 1.8.0
+ */
+public class HistoricCursorsTest {
+
+	@Test
+	public void testPaged() {
+		PagingTestService service = new PagingTestService(25, true);
+		HistoricCursor cursor = HistoricCursors.open(service, new FilterCriteria(), 10);
+		assertEquals(25, count(cursor));
+		assertEquals("[0, 1, 2]", service.pages.toString());
+	}
+
+	@Test
+	public void testPagedWithFullLastPage() {
+		PagingTestService service = new PagingTestService(20, true);
+		assertEquals(20, count(HistoricCursors.open(service, new FilterCriteria(), 10)));
+		assertEquals("[0, 1, 2]", service.pages.toString());
+	}
+
+	@Test
+	public void testPagedWithLimit() {
+		PagingTestService service = new PagingTestService(100, true);
+		FilterCriteria filter = new FilterCriteria().setPageSize(15);
+		assertEquals(15, count(HistoricCursors.open(service, filter, 10)));
+		assertEquals("[0, 1]", service.pages.toString());
+	}
+
+	@Test
+	public void testSmallPageIsQueriedAtOnce() {
+		PagingTestService service = new PagingTestService(100, true);
+		FilterCriteria filter = new FilterCriteria().setPageSize(5).setPageNumber(3);
+		assertEquals(5, count(HistoricCursors.open(service, filter, 10), 15));
+		assertEquals("[3]", service.pages.toString());
+	}
+
+	@Test
+	public void testServiceWithoutPaging() {
+		PagingTestService service = new PagingTestService(25, false);
+		assertEquals(25, count(HistoricCursors.open(service, new FilterCriteria(), 10)));
+		assertEquals("[0]", service.pages.toString());
+	}
+
+	@Test
+	public void testClose() {
+		PagingTestService service = new PagingTestService(25, true);
+		HistoricCursor cursor = HistoricCursors.open(service, new FilterCriteria(), 10);
+		cursor.next();
+		cursor.close();
+		assertFalse(cursor.hasNext());
+		assertEquals("[0]", service.pages.toString());
+	}
+
+	@Test
+	public void testStreamingService() {
+		final HistoricCursor nativeCursor = HistoricCursors.wrap(null);
+		StreamingPersistenceService service = new PagingTestService(0, true) {
+			@Override
+			public HistoricCursor openCursor(FilterCriteria filter) {
+				return nativeCursor;
+			}
+		};
+		assertSame(nativeCursor, HistoricCursors.open(service, new FilterCriteria()));
+		assertSame(nativeCursor, HistoricCursors.open(service, new FilterCriteria(), 10));
+	}
+
+	private static int count(HistoricCursor cursor) {
+		return count(cursor, 0);
+	}
+
+	private static int count(HistoricCursor cursor, int first) {
+		int count = 0;
+		try {
+			while(cursor.hasNext()) {
+				assertEquals(new Date(first + count), cursor.next().getTimestamp());
+				count++;
+			}
+		} finally {
+			cursor.close();
+		}
+		return count;
+	}
+
+	private static class PagingTestService implements StreamingPersistenceService {
+
+		private final List<HistoricItem> items = new ArrayList<HistoricItem>();
+		private final boolean paging;
+
+		final List<Integer> pages = new ArrayList<Integer>();
+
+		PagingTestService(int size, boolean paging) {
+			for(int i = 0; i < size; i++) {
+				items.add(new AggregatedItem("Test", new DecimalType(i), new Date(i)));
+			}
+			this.paging = paging;
+		}
+
+		public String getName() {
+			return "paging";
+		}
+
+		public void store(Item item) {
+		}
+
+		public void store(Item item, String alias) {
+		}
+
+		public Iterable<HistoricItem> query(FilterCriteria filter) {
+			pages.add(filter.getPageNumber());
+			if(!paging) {
+				return items;
+			}
+			long from = (long) filter.getPageNumber() * filter.getPageSize();
+			if(from >= items.size()) {
+				return Collections.emptyList();
+			}
+			return items.subList((int) from, (int) Math.min(items.size(), from + filter.getPageSize()));
+		}
+
+		public HistoricCursor openCursor(FilterCriteria filter) {
+			return HistoricCursors.paged(this, filter, 10);
+		}
+	}
+
+}
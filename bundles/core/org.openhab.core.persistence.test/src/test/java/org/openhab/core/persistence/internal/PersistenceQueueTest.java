@@ -0,0 +1,249 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.openhab.core.items.Item;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.BatchPersistenceService;
+import org.openhab.core.persistence.PersistenceEntry;
+import org.openhab.core.persistence.PersistenceService;
+import org.openhab.core.persistence.internal.PersistenceQueue.Policy;
+
+/**
+ * @since 1.8.0
+ */
+public class PersistenceQueueTest {
+
+	@Test
+	public void testEntriesKeepQueuedState() {
+		RecordingService service = new RecordingService(false);
+		PersistenceQueue queue = new PersistenceQueue(service, 100, 10, Policy.BLOCK);
+		queue.start();
+
+		NumberItem item = new NumberItem("Temperature");
+		for(int i = 1; i <= 3; i++) {
+			item.setState(new DecimalType(i));
+			queue.add(item, null);
+		}
+		queue.stop();
+
+		assertEquals("[Temperature -> 1, Temperature -> 2, Temperature -> 3]", service.getStored());
+		assertEquals(3, queue.getStoredCount());
+	}
+
+	@Test
+	public void testCoalesce() throws InterruptedException {
+		RecordingService service = new RecordingService(true);
+		PersistenceQueue queue = new PersistenceQueue(service, 100, 10, Policy.COALESCE);
+		queue.start();
+
+		NumberItem item = new NumberItem("Temperature");
+		item.setState(new DecimalType(1));
+		queue.add(item, null);
+		assertTrue(service.entered.await(5, TimeUnit.SECONDS));
+
+		item.setState(new DecimalType(2));
+		queue.add(item, null);
+		item.setState(new DecimalType(3));
+		queue.add(item, null);
+		queue.add(item, "Alias");
+		assertEquals(2, queue.size());
+
+		service.released.countDown();
+		queue.stop();
+
+		assertEquals("[Temperature -> 1, Temperature -> 3, Alias -> 3]", service.getStored());
+		assertEquals(1, queue.getCoalescedCount());
+	}
+
+	@Test
+	public void testDropOldest() throws InterruptedException {
+		RecordingService service = new RecordingService(true);
+		PersistenceQueue queue = new PersistenceQueue(service, 2, 10, Policy.DROP_OLDEST);
+		queue.start();
+
+		NumberItem item = new NumberItem("Temperature");
+		item.setState(new DecimalType(1));
+		queue.add(item, null);
+		assertTrue(service.entered.await(5, TimeUnit.SECONDS));
+
+		for(int i = 2; i <= 4; i++) {
+			item.setState(new DecimalType(i));
+			queue.add(item, null);
+		}
+		assertEquals(2, queue.size());
+		assertEquals(2, queue.getMaxQueueSize());
+
+		service.released.countDown();
+		queue.stop();
+
+		assertEquals("[Temperature -> 1, Temperature -> 3, Temperature -> 4]", service.getStored());
+		assertEquals(1, queue.getDroppedCount());
+	}
+
+	@Test
+	public void testNonBatchServiceStoresQueuedState() throws InterruptedException {
+		SingleRecordingService service = new SingleRecordingService();
+		PersistenceQueue queue = new PersistenceQueue(service, 100, 10, Policy.BLOCK);
+		queue.start();
+
+		NumberItem item = new NumberItem("Temperature");
+		item.getGroupNames().add("Sensors");
+		item.setState(new DecimalType(1));
+		queue.add(item, null);
+		assertTrue(service.entered.await(5, TimeUnit.SECONDS));
+
+		item.setState(new DecimalType(2));
+		queue.add(item, null);
+		item.setState(new DecimalType(3));
+		queue.add(item, null);
+		service.released.countDown();
+		queue.stop();
+
+		assertEquals("[Temperature -> 1, Temperature -> 2, Temperature -> 3]", service.getStored());
+		// the copies keep the type and the groups of the item
+		for(Item stored : service.items) {
+			assertTrue(stored instanceof NumberItem);
+			assertEquals(item.getGroupNames(), stored.getGroupNames());
+		}
+		assertTrue(service.items.get(2)==item);
+	}
+
+	@Test
+	public void testReconfigureKeepsQueuedEntries() throws InterruptedException {
+		RecordingService service = new RecordingService(true);
+		PersistenceQueue queue = new PersistenceQueue(service, 100, 10, Policy.BLOCK);
+		queue.start();
+
+		NumberItem item = new NumberItem("Temperature");
+		item.setState(new DecimalType(1));
+		queue.add(item, null);
+		assertTrue(service.entered.await(5, TimeUnit.SECONDS));
+
+		item.setState(new DecimalType(2));
+		queue.add(item, null);
+		item.setState(new DecimalType(3));
+		queue.add(item, null);
+		queue.reconfigure(100, 10, Policy.COALESCE);
+		assertEquals(1, queue.size());
+		assertEquals(1, queue.getCoalescedCount());
+
+		item.setState(new DecimalType(4));
+		queue.add(item, null);
+		queue.reconfigure(100, 10, Policy.BLOCK);
+		assertEquals(1, queue.size());
+
+		service.released.countDown();
+		queue.stop();
+
+		assertEquals("[Temperature -> 1, Temperature -> 4]", service.getStored());
+	}
+
+	class SingleRecordingService implements PersistenceService {
+
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch released = new CountDownLatch(1);
+
+		final List<Item> items = new ArrayList<Item>();
+		private final List<String> stored = new ArrayList<String>();
+
+		@Override
+		public String getName() {
+			return "single";
+		}
+
+		@Override
+		public void store(Item item) {
+			store(item, null);
+		}
+
+		@Override
+		public void store(Item item, String alias) {
+			synchronized(stored) {
+				items.add(item);
+				stored.add(item.getName() + " -> " + item.getState());
+			}
+			entered.countDown();
+			try {
+				released.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		String getStored() {
+			synchronized(stored) {
+				return stored.toString();
+			}
+		}
+	}
+
+	class RecordingService implements BatchPersistenceService {
+
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch released = new CountDownLatch(1);
+
+		private final boolean blockFirstBatch;
+		private final List<String> stored = new ArrayList<String>();
+
+		RecordingService(boolean blockFirstBatch) {
+			this.blockFirstBatch = blockFirstBatch;
+		}
+
+		@Override
+		public String getName() {
+			return "recording";
+		}
+
+		@Override
+		public void store(Item item) {
+			store(item, null);
+		}
+
+		@Override
+		public void store(Item item, String alias) {
+			throw new IllegalStateException("batch store expected");
+		}
+
+		@Override
+		public void store(Collection<PersistenceEntry> entries) {
+			for(PersistenceEntry entry : entries) {
+				synchronized(stored) {
+					stored.add(entry.getName() + " -> " + entry.getState());
+				}
+			}
+			entered.countDown();
+			if(blockFirstBatch) {
+				try {
+					released.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		String getStored() {
+			synchronized(stored) {
+				return stored.toString();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import org.openhab.core.persistence.FilterCriteria.Aggregation;
+
+/**
+ * A queryable persistence service which is able to aggregate the persisted states
+ * in the database itself, so that only the aggregated values have to be loaded.
+ * 
+ * <p>If {@link #supportsAggregation(FilterCriteria)} returns true for a filter with an
+ * {@link Aggregation}, {@link #query(FilterCriteria)} returns the aggregated values
+ * as decimal states. Only entries with a decimal state are aggregated, which also
+ * applies to {@link Aggregation#COUNT}:</p>
+ * <ul>
+ * <li>Without a bucket size, all matching entries are aggregated into a single value.
+ * For {@link Aggregation#MIN}, {@link Aggregation#MAX}, {@link Aggregation#FIRST} and
+ * {@link Aggregation#LAST} its timestamp is the one of the selected entry, for the
+ * other functions it is the begin date of the filter, or the timestamp of the first
+ * entry if there is no begin date.</li>
+ * <li>With a bucket size, there is one value for each bucket which contains at least
+ * one entry. The buckets start at multiples of the bucket size since 1970-01-01 UTC,
+ * and the timestamp of each value is the start of its bucket.</li>
+ * </ul>
+ * <p>Without any matching entries, the result is empty. For all other services and
+ * filters, {@link HistoricAggregator} computes the same result from the raw entries.</p>
+ * 
+ * @since 1.8.0
+ */
+public interface AggregatingPersistenceService extends QueryablePersistenceService {
+
+	/**
+	 * Checks whether the aggregation of the given filter is computed by the database.
+	 * 
+	 * @param filter the filter with an aggregation
+	 * @return true, if {@link #query(FilterCriteria)} returns the aggregated values
+	 */
+	boolean supportsAggregation(FilterCriteria filter);
+
+}
@@ -0,0 +1,33 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.util.Collection;
+
+/**
+ * A persistence service which is able to store several item states at once,
+ * e.g. within a single database transaction or a single network request.
+ * 
+ * <p>The persistence manager hands over queued states in batches to services
+ * implementing this interface. All other services are called with the single
+ * item store methods of {@link PersistenceService}.</p>
+ * 
+ * @since 1.8.0
+ */
+public interface BatchPersistenceService extends PersistenceService {
+
+	/**
+	 * Stores the given item states. The entries are ordered by the time they
+	 * have been queued.
+	 * 
+	 * @param entries the item states to persist
+	 */
+	void store(Collection<PersistenceEntry> entries);
+
+}
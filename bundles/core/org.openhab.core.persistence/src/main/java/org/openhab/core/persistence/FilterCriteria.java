@@ -22,6 +22,9 @@ import org.openhab.core.types.State;
  * <p>Additionally, the filter criteria supports ordering and paging of the result, so the
  * caller can ask to only return chunks of the result of a certain size (=pageSize) from a
  * starting index (pageNumber*pageSize).</p>
+ * <p>If an aggregation is set, the matching entries are aggregated into a single value, or
+ * into one value per bucket if a bucket size is given as well. Ordering and paging then apply
+ * to the aggregated values. See {@link AggregatingPersistenceService} for the details.</p>
  * <p>All setter methods return the filter criteria instance, so that the methods can be
  * easily chained in order to define a filter.
  * 
@@ -55,6 +58,11 @@ public class FilterCriteria {
 		ASCENDING, DESCENDING
 	}
 	
+	/** Enumeration with all aggregation functions */
+	public enum Aggregation {
+		AVG, SUM, MIN, MAX, COUNT, FIRST, LAST
+	}
+	
 	/** filter result to only contain entries for the given item */
 	private String itemName;
 
@@ -79,6 +87,12 @@ public class FilterCriteria {
 	/** filter result to only contain entries that evaluate to true with the given operator and state */
 	private State state;
 
+	/** aggregate the matching entries with this function, or return them as they are if null */
+	private Aggregation aggregation;
+
+	/** aggregate the entries in time buckets of this many milliseconds, or all of them at once if 0 */
+	private long bucketSize = 0;
+
 	public String getItemName() {
 		return itemName;
 	}
@@ -111,6 +125,14 @@ public class FilterCriteria {
 		return state;
 	}
 
+	public Aggregation getAggregation() {
+		return aggregation;
+	}
+
+	public long getBucketSize() {
+		return bucketSize;
+	}
+
 	public FilterCriteria setItemName(String itemName) {
 		this.itemName = itemName;
 		return this;
@@ -151,4 +173,14 @@ public class FilterCriteria {
 		return this;
 	}
 
+	public FilterCriteria setAggregation(Aggregation aggregation) {
+		this.aggregation = aggregation;
+		return this;
+	}
+
+	public FilterCriteria setBucketSize(long bucketSize) {
+		this.bucketSize = bucketSize;
+		return this;
+	}
+
 }
@@ -0,0 +1,258 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.FilterCriteria.Aggregation;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.types.State;
+
+/**
+ * Aggregates persisted states as described in {@link AggregatingPersistenceService}.
+ * 
+ * <p>The entries have to be added in ascending order. Only the values of the current
+ * bucket are kept, so the entries can be streamed from the database without loading
+ * them all at once. Entries without a decimal state are ignored by all functions,
+ * including {@link Aggregation#COUNT}, so that e.g. the average is the sum divided
+ * by the count. The selecting functions return the state of the selected entry as it
+ * was added, the sum and the average are calculated with decimals.</p>
+ * 
+ * @since 1.8.0
+ */
+public class HistoricAggregator {
+
+	/** the number of raw entries which are queried at once, if the service does not support cursors */
+	private static final int PAGE_SIZE = 1000;
+
+	private final FilterCriteria filter;
+	private final List<HistoricItem> results = new ArrayList<HistoricItem>();
+
+	/** the start of the current bucket, or null if there are no entries yet */
+	private Date bucketStart;
+	private long bucketEnd;
+
+	private int count;
+	private BigDecimal sum = BigDecimal.ZERO;
+	private BigDecimal selectedValue;
+	private State selectedState;
+	private Date selectedTimestamp;
+
+	/**
+	 * Creates an aggregator for the aggregation function and bucket size of the given filter.
+	 * 
+	 * @param filter the filter with an aggregation
+	 */
+	public HistoricAggregator(FilterCriteria filter) {
+		if(filter.getAggregation()==null) {
+			throw new IllegalArgumentException("The filter does not define an aggregation");
+		}
+		this.filter = filter;
+	}
+
+	/**
+	 * Queries the given service for the aggregated values of a filter. The values are computed by
+	 * the service, if it is able to, or from its raw entries otherwise.
+	 * 
+	 * @param service the service to query
+	 * @param filter the filter, which may define an aggregation
+	 * @return the aggregated values, or the raw entries if the filter does not define an aggregation
+	 */
+	public static Iterable<HistoricItem> query(QueryablePersistenceService service, FilterCriteria filter) {
+		if(filter.getAggregation()==null) {
+			return service.query(filter);
+		}
+		if(service instanceof AggregatingPersistenceService
+				&& ((AggregatingPersistenceService) service).supportsAggregation(filter)) {
+			return service.query(filter);
+		}
+		FilterCriteria rawFilter = new FilterCriteria()
+			.setItemName(filter.getItemName())
+			.setBeginDate(filter.getBeginDate())
+			.setEndDate(filter.getEndDate())
+			.setOperator(filter.getOperator())
+			.setState(filter.getState())
+			.setOrdering(Ordering.ASCENDING);
+		HistoricAggregator aggregator = new HistoricAggregator(filter);
+		HistoricCursor cursor = HistoricCursors.open(service, rawFilter, PAGE_SIZE);
+		try {
+			while(cursor.hasNext()) {
+				HistoricItem historicItem = cursor.next();
+				aggregator.add(historicItem.getTimestamp(), historicItem.getState());
+			}
+		} finally {
+			cursor.close();
+		}
+		return aggregator.getResults();
+	}
+
+	/**
+	 * Adds a decimal value.
+	 * 
+	 * @param timestamp the time of the entry, which must not be before the previous one
+	 * @param value the value
+	 */
+	public void add(Date timestamp, double value) {
+		add(timestamp, new DecimalType(BigDecimal.valueOf(value).stripTrailingZeros()));
+	}
+
+	/**
+	 * Adds an entry with any state; entries without a decimal state are ignored.
+	 * 
+	 * @param timestamp the time of the entry, which must not be before the previous one
+	 * @param state the state
+	 */
+	public void add(Date timestamp, State state) {
+		if(!(state instanceof DecimalType)) {
+			return;
+		}
+		BigDecimal value = ((DecimalType) state).toBigDecimal();
+		startBucket(timestamp);
+		count++;
+		sum = sum.add(value);
+		switch(filter.getAggregation()) {
+			case MIN:
+				if(count==1 || value.compareTo(selectedValue) < 0) select(timestamp, value, state);
+				break;
+			case MAX:
+				if(count==1 || value.compareTo(selectedValue) > 0) select(timestamp, value, state);
+				break;
+			case FIRST:
+				if(count==1) select(timestamp, value, state);
+				break;
+			case LAST:
+				select(timestamp, value, state);
+				break;
+			default:
+		}
+	}
+
+	/**
+	 * Returns the aggregated values of all entries added so far, ordered and paged as
+	 * requested by the filter.
+	 * 
+	 * @return the aggregated values
+	 */
+	public List<HistoricItem> getResults() {
+		finishBucket();
+		List<HistoricItem> ordered = results;
+		if(filter.getOrdering()==Ordering.DESCENDING) {
+			ordered = new ArrayList<HistoricItem>(results);
+			Collections.reverse(ordered);
+		}
+		long from = (long) filter.getPageNumber() * filter.getPageSize();
+		if(from >= ordered.size()) {
+			return Collections.emptyList();
+		}
+		long to = Math.min(ordered.size(), from + filter.getPageSize());
+		return ordered.subList((int) from, (int) to);
+	}
+
+	/**
+	 * Calculates the start of the bucket which contains the given time.
+	 * 
+	 * @param time the time in milliseconds since 1970-01-01 UTC
+	 * @param bucketSize the bucket size in milliseconds
+	 * @return the start of the bucket in milliseconds since 1970-01-01 UTC
+	 */
+	public static long getBucketStart(long time, long bucketSize) {
+		long start = time - time % bucketSize;
+		return time < 0 && start!=time ? start - bucketSize : start;
+	}
+
+	private void startBucket(Date timestamp) {
+		long bucketSize = filter.getBucketSize();
+		if(bucketStart!=null && (bucketSize <= 0 || timestamp.getTime() < bucketEnd)) {
+			return;
+		}
+		finishBucket();
+		if(bucketSize > 0) {
+			long start = getBucketStart(timestamp.getTime(), bucketSize);
+			bucketStart = new Date(start);
+			bucketEnd = start + bucketSize;
+		} else {
+			bucketStart = filter.getBeginDate()!=null ? filter.getBeginDate() : timestamp;
+		}
+		count = 0;
+		sum = BigDecimal.ZERO;
+		selectedState = null;
+		selectedTimestamp = null;
+	}
+
+	private void select(Date timestamp, BigDecimal value, State state) {
+		selectedTimestamp = timestamp;
+		selectedValue = value;
+		selectedState = state;
+	}
+
+	private void finishBucket() {
+		if(bucketStart==null || count==0) {
+			return;
+		}
+		Date timestamp = filter.getBucketSize() > 0 || selectedTimestamp==null ? bucketStart : selectedTimestamp;
+		State state;
+		switch(filter.getAggregation()) {
+			case COUNT:
+				state = new DecimalType(count);
+				break;
+			case SUM:
+				state = new DecimalType(sum);
+				break;
+			case AVG:
+				state = new DecimalType(sum.divide(BigDecimal.valueOf(count), MathContext.DECIMAL64));
+				break;
+			default:
+				state = selectedState;
+		}
+		results.add(new AggregatedItem(filter.getItemName(), state, timestamp));
+		count = 0;
+	}
+
+	/**
+	 * An aggregated value as it is returned by the {@link HistoricAggregator}.
+	 */
+	public static class AggregatedItem implements HistoricItem {
+
+		private final String name;
+		private final State state;
+		private final Date timestamp;
+
+		public AggregatedItem(String name, State state, Date timestamp) {
+			this.name = name;
+			this.state = state;
+			this.timestamp = timestamp;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public State getState() {
+			return state;
+		}
+
+		public Date getTimestamp() {
+			return timestamp;
+		}
+
+		@Override
+		public String toString() {
+			return DateFormat.getDateTimeInstance().format(timestamp) + ": " + name + " -> " + state.toString();
+		}
+
+	}
+
+}
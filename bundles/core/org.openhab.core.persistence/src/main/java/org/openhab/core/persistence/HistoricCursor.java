@@ -0,0 +1,29 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.util.Iterator;
+
+/**
+ * Iterates over the result of a query, while the persistence service loads the
+ * entries only page by page.
+ * 
+ * <p>A cursor may hold database resources, so it must always be closed, even if
+ * it has not been iterated to the end.</p>
+ * 
+ * @since 1.8.0
+ */
+public interface HistoricCursor extends Iterator<HistoricItem> {
+
+	/**
+	 * Releases all resources of the cursor. Calling this method more than once has no effect.
+	 */
+	void close();
+
+}
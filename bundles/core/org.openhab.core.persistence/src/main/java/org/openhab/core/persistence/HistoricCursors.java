@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Opens {@link HistoricCursor}s on any {@link QueryablePersistenceService}.
+ * 
+ * @since 1.8.0
+ */
+public final class HistoricCursors {
+
+	private HistoricCursors() {
+	}
+
+	/**
+	 * Queries the given service with a cursor. Services which do not implement
+	 * {@link StreamingPersistenceService} are queried at once.
+	 * 
+	 * @param service the service to query
+	 * @param filter the filter to apply to the query
+	 * @return the cursor, which has to be closed by the caller
+	 */
+	public static HistoricCursor open(QueryablePersistenceService service, FilterCriteria filter) {
+		if(service instanceof StreamingPersistenceService) {
+			return ((StreamingPersistenceService) service).openCursor(filter);
+		}
+		return wrap(service.query(filter));
+	}
+
+	/**
+	 * Queries the given service with a cursor. Services which do not implement
+	 * {@link StreamingPersistenceService} are queried page by page with the given page size.
+	 * 
+	 * @param service the service to query
+	 * @param filter the filter to apply to the query
+	 * @param pageSize the page size to use if the service does not support cursors itself
+	 * @return the cursor, which has to be closed by the caller
+	 */
+	public static HistoricCursor open(QueryablePersistenceService service, FilterCriteria filter, int pageSize) {
+		if(service instanceof StreamingPersistenceService) {
+			return ((StreamingPersistenceService) service).openCursor(filter);
+		}
+		return paged(service, filter, pageSize);
+	}
+
+	/**
+	 * Creates a cursor which uses the paging of {@link QueryablePersistenceService#query(FilterCriteria)}
+	 * to fetch the entries of a filter page by page. If the filter requests a page which is not
+	 * larger than the given page size, the service is queried at once.
+	 * 
+	 * @param service the service to query
+	 * @param filter the filter to apply to the query
+	 * @param pageSize the number of entries to fetch at once
+	 * @return the cursor, which has to be closed by the caller
+	 */
+	public static HistoricCursor paged(final QueryablePersistenceService service, final FilterCriteria filter, int pageSize) {
+		if(filter.getPageNumber() > 0 || filter.getPageSize() <= pageSize) {
+			return wrap(service.query(filter));
+		}
+		return new PagedHistoricCursor(pageSize, filter.getPageSize()) {
+			@Override
+			protected List<HistoricItem> fetchPage(int offset, int pageSize, HistoricItem last) {
+				FilterCriteria page = new FilterCriteria()
+					.setItemName(filter.getItemName())
+					.setBeginDate(filter.getBeginDate())
+					.setEndDate(filter.getEndDate())
+					.setOperator(filter.getOperator())
+					.setState(filter.getState())
+					.setOrdering(filter.getOrdering())
+					.setAggregation(filter.getAggregation())
+					.setBucketSize(filter.getBucketSize())
+					.setPageSize(pageSize)
+					.setPageNumber(offset / pageSize);
+				return toList(service.query(page));
+			}
+		};
+	}
+
+	/**
+	 * Creates a cursor over an already loaded result.
+	 * 
+	 * @param result the result of a query, may be <code>null</code>
+	 * @return the cursor
+	 */
+	public static HistoricCursor wrap(Iterable<HistoricItem> result) {
+		final Iterator<HistoricItem> iterator =
+			result!=null ? result.iterator() : Collections.<HistoricItem>emptyList().iterator();
+		return new HistoricCursor() {
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			public HistoricItem next() {
+				return iterator.next();
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+			public void close() {
+			}
+		};
+	}
+
+	private static List<HistoricItem> toList(Iterable<HistoricItem> result) {
+		if(result==null) {
+			return Collections.emptyList();
+		}
+		if(result instanceof List<?>) {
+			return (List<HistoricItem>) result;
+		}
+		List<HistoricItem> items = new ArrayList<HistoricItem>();
+		for(HistoricItem item : result) {
+			items.add(item);
+		}
+		return items;
+	}
+
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link HistoricCursor} which fetches the entries in pages of a fixed size.
+ * Only the current page is kept in memory, and the next one is fetched when it
+ * has been iterated.
+ * 
+ * <p>The result ends with the first page which does not contain exactly as many
+ * entries as requested, or when the limit is reached.</p>
+ * 
+ * @since 1.8.0
+ */
+public abstract class PagedHistoricCursor implements HistoricCursor {
+
+	private final int pageSize;
+	private final int limit;
+
+	private Iterator<HistoricItem> page = Collections.<HistoricItem>emptyList().iterator();
+	private HistoricItem last;
+	private int count;
+	private boolean exhausted;
+
+	/**
+	 * @param pageSize the number of entries to fetch at once
+	 * @param limit the maximum number of entries to return
+	 */
+	protected PagedHistoricCursor(int pageSize, int limit) {
+		if(pageSize <= 0) {
+			throw new IllegalArgumentException("The page size must be positive");
+		}
+		this.pageSize = pageSize;
+		this.limit = limit;
+		this.exhausted = limit <= 0;
+	}
+
+	/**
+	 * Fetches the next page of entries.
+	 * 
+	 * @param offset the number of entries which have already been fetched
+	 * @param pageSize the number of entries to fetch
+	 * @param last the last entry which has been fetched, or <code>null</code> for the first page
+	 * @return the entries of the page
+	 */
+	protected abstract List<HistoricItem> fetchPage(int offset, int pageSize, HistoricItem last);
+
+	public boolean hasNext() {
+		if(count >= limit) {
+			return false;
+		}
+		if(!page.hasNext() && !exhausted) {
+			List<HistoricItem> items = fetchPage(count, pageSize, last);
+			if(items==null || items.size()!=pageSize) {
+				exhausted = true;
+			}
+			if(items!=null) {
+				page = items.iterator();
+			}
+		}
+		return page.hasNext();
+	}
+
+	public HistoricItem next() {
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		last = page.next();
+		count++;
+		return last;
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	public void close() {
+		exhausted = true;
+		page = Collections.<HistoricItem>emptyList().iterator();
+	}
+
+}
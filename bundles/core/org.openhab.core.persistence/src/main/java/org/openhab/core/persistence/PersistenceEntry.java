@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.util.Date;
+
+import org.openhab.core.items.Item;
+import org.openhab.core.types.State;
+
+/**
+ * A single store request as it is handed to a {@link BatchPersistenceService}.
+ * It keeps the item together with the state it had at the time the request
+ * was queued, as the item itself might have changed its state in the meantime.
+ * 
+ * @since 1.8.0
+ */
+public class PersistenceEntry {
+
+	private final Item item;
+	private final String alias;
+	private final State state;
+	private final Date timestamp;
+
+	public PersistenceEntry(Item item, String alias, State state, Date timestamp) {
+		this.item = item;
+		this.alias = alias;
+		this.state = state;
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * @return the item to persist
+	 */
+	public Item getItem() {
+		return item;
+	}
+
+	/**
+	 * @return the alias under which the item should be persisted or
+	 * <code>null</code>, if the item name should be used
+	 */
+	public String getAlias() {
+		return alias;
+	}
+
+	/**
+	 * @return the name under which the item should be persisted, i.e. the alias
+	 * if there is one and the item name otherwise
+	 */
+	public String getName() {
+		return alias!=null ? alias : item.getName();
+	}
+
+	/**
+	 * @return the state of the item at the time the request was queued
+	 */
+	public State getState() {
+		return state;
+	}
+
+	/**
+	 * @return the time the request was queued
+	 */
+	public Date getTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public String toString() {
+		return getName() + " -> " + state + " (" + timestamp + ")";
+	}
+
+}
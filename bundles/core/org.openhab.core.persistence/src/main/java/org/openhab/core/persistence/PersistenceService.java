@@ -31,11 +31,11 @@ public interface PersistenceService {
 
 	/**
 	 * Stores the current value of the given item.
-	 * <p>Implementors should keep in mind that all registered 
-	 * {@link PersistenceService}s are called synchronously. Hence long running
-	 * operations should be processed asynchronously. E.g. <code>store</code>
-	 * adds things to a queue which is processed by some asynchronous workers
-	 * (Quartz Job, Thread, etc.).</p>  
+	 * <p>Implementors should keep in mind that the persistence manager calls
+	 * each {@link PersistenceService} from a single worker thread of its
+	 * persistence queue. Hence long running operations delay all further
+	 * store requests for this service and should be processed asynchronously
+	 * or in batches (see {@link BatchPersistenceService}).</p>  
 	 * 
 	 * @param item the item which state should be persisted.
 	 */
@@ -43,11 +43,11 @@ public interface PersistenceService {
 
 	/**
 	 * <p>Stores the current value of the given item under a specified alias.</p>
-	 * <p>Implementors should keep in mind that all registered 
-	 * {@link PersistenceService}s are called synchronously. Hence long running
-	 * operations should be processed asynchronously. E.g. <code>store</code>
-	 * adds things to a queue which is processed by some asynchronous workers
-	 * (Quartz Job, Thread, etc.).</p>  
+	 * <p>Implementors should keep in mind that the persistence manager calls
+	 * each {@link PersistenceService} from a single worker thread of its
+	 * persistence queue. Hence long running operations delay all further
+	 * store requests for this service and should be processed asynchronously
+	 * or in batches (see {@link BatchPersistenceService}).</p>  
 	 * 
 	 * @param item the item which state should be persisted.
 	 * @param alias the alias under which the item should be persisted.
@@ -0,0 +1,31 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+/**
+ * A queryable persistence service which is able to return the result of a query
+ * incrementally, so that large results do not have to be loaded into memory at once.
+ * 
+ * <p>Use {@link HistoricCursors#open(QueryablePersistenceService, FilterCriteria)} to
+ * query any service with a cursor.</p>
+ * 
+ * @since 1.8.0
+ */
+public interface StreamingPersistenceService extends QueryablePersistenceService {
+
+	/**
+	 * Opens a cursor over the entries which match the given filter. It returns
+	 * the same entries in the same order as {@link #query(FilterCriteria)}.
+	 * 
+	 * @param filter the filter to apply to the query
+	 * @return the cursor, which has to be closed by the caller
+	 */
+	HistoricCursor openCursor(FilterCriteria filter);
+
+}
@@ -8,8 +8,9 @@
  */
 package org.openhab.core.persistence.extensions;
 
+import java.math.BigDecimal;
+import java.math.MathContext;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.Date;
 import java.util.Dictionary;
 import java.util.HashMap;
@@ -20,11 +21,17 @@ import org.joda.time.base.AbstractInstant;
 import org.openhab.core.items.Item;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Aggregation;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricAggregator;
+import org.openhab.core.persistence.HistoricAggregator.AggregatedItem;
+import org.openhab.core.persistence.HistoricCursor;
+import org.openhab.core.persistence.HistoricCursors;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.types.State;
+import org.openhab.core.types.TypeParser;
 import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.cm.ManagedService;
 import org.slf4j.Logger;
@@ -46,6 +53,9 @@ public class PersistenceExtensions implements ManagedService {
 	
 	private static final Logger logger = LoggerFactory.getLogger(PersistenceExtensions.class);
 	
+	/** the number of entries which are loaded at once from services which do not support cursors */
+	private static final int PAGE_SIZE = 1000;
+	
 	private static Map<String, PersistenceService> services = new HashMap<String, PersistenceService>();
 	private static String defaultService = null; 
 	
@@ -122,11 +132,11 @@ public class PersistenceExtensions implements ManagedService {
 			filter.setItemName(item.getName());
 			filter.setPageSize(1);
 			filter.setOrdering(Ordering.DESCENDING);
-			Iterable<HistoricItem> result = qService.query(filter);
-			if(result.iterator().hasNext()) {
-				return result.iterator().next();
-			} else {
-				return null;
+			HistoricCursor result = HistoricCursors.open(qService, filter);
+			try {
+				return result.hasNext() ? result.next() : null;
+			} finally {
+				result.close();
 			}
 		} else {
 			logger.warn("There is no queryable persistence service registered with the name '{}'", serviceName);
@@ -160,24 +170,27 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return true, if item state had changed
 	 */
 	static public Boolean changedSince(Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
-		Iterator<HistoricItem> it = result.iterator();
-		HistoricItem itemThen = historicState(item, timestamp);
-		if(itemThen == null) {
-			// Can't get the state at the start time
-			// If we've got results more recent that this, it must have changed
-			return(it.hasNext());
-		}
-
-		State state = itemThen.getState();
-		while(it.hasNext()) {
-			HistoricItem hItem = it.next();
-			if(state!=null && !hItem.getState().equals(state)) {
-				return true;
+		HistoricCursor it = getAllStatesSince(item, timestamp, serviceName);
+		try {
+			HistoricItem itemThen = historicState(item, timestamp);
+			if(itemThen == null) {
+				// Can't get the state at the start time
+				// If we've got results more recent that this, it must have changed
+				return(it.hasNext());
+			}
+
+			State state = itemThen.getState();
+			while(it.hasNext()) {
+				HistoricItem hItem = it.next();
+				if(state!=null && !hItem.getState().equals(state)) {
+					return true;
+				}
+				state = hItem.getState();
 			}
-			state = hItem.getState();
+			return false;
+		} finally {
+			it.close();
 		}
-		return false;
 	} 
 
 	/**
@@ -206,11 +219,11 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return true, if item state was updated
 	 */
 	static public Boolean updatedSince(Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
-		if(result.iterator().hasNext()) {
-			return true;
-		} else {
-			return false;
+		HistoricCursor result = getAllStatesSince(item, timestamp, serviceName);
+		try {
+			return result.hasNext();
+		} finally {
+			result.close();
 		}
 	} 
 
@@ -242,19 +255,14 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return a historic item with the maximum state value since the given point in time
 	 */
 	static public HistoricItem maximumSince(final Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
-		Iterator<HistoricItem> it = result.iterator();
-		HistoricItem maximumHistoricItem = null;
+		HistoricItem maximumHistoricItem = toItemState(item, aggregateSince(item, timestamp, serviceName, Aggregation.MAX));
 		DecimalType maximum = (DecimalType) item.getStateAs(DecimalType.class);
-		while(it.hasNext()) {
-			HistoricItem historicItem = it.next();
-			State state = historicItem.getState();
-			if (state instanceof DecimalType) {
-				DecimalType value = (DecimalType) state;
-				if(maximum==null || value.compareTo(maximum)>0) {
-					maximum = value;
-					maximumHistoricItem = historicItem;
-				}
+		if(maximumHistoricItem!=null) {
+			DecimalType value = (DecimalType) maximumHistoricItem.getState();
+			if(maximum==null || value.compareTo(maximum)>0) {
+				maximum = value;
+			} else {
+				maximumHistoricItem = null;
 			}
 		}
 		if(maximumHistoricItem==null && maximum!=null) {
@@ -307,19 +315,14 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return the historic item with the minimum state value since the given point in time
 	 */
 	static public HistoricItem minimumSince(final Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
-		Iterator<HistoricItem> it = result.iterator();
-		HistoricItem minimumHistoricItem = null;
+		HistoricItem minimumHistoricItem = toItemState(item, aggregateSince(item, timestamp, serviceName, Aggregation.MIN));
 		DecimalType minimum = (DecimalType) item.getStateAs(DecimalType.class);
-		while(it.hasNext()) {
-			HistoricItem historicItem = it.next();
-			State state = historicItem.getState();
-			if (state instanceof DecimalType) {
-				DecimalType value = (DecimalType) state;
-				if(minimum==null || value.compareTo(minimum)<0) {
-					minimum = value;
-					minimumHistoricItem = historicItem;
-				}
+		if(minimumHistoricItem!=null) {
+			DecimalType value = (DecimalType) minimumHistoricItem.getState();
+			if(minimum==null || value.compareTo(minimum)<0) {
+				minimum = value;
+			} else {
+				minimumHistoricItem = null;
 			}
 		}
 		if(minimumHistoricItem==null && minimum!=null) {
@@ -370,27 +373,22 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return the average state value since the given point in time
 	 */
 	static public DecimalType averageSince(Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
-		Iterator<HistoricItem> it = result.iterator();
+		// both aggregations only include the persisted states which are decimal
+		HistoricItem sum = aggregateSince(item, timestamp, serviceName, Aggregation.SUM);
+		HistoricItem count = sum!=null ? aggregateSince(item, timestamp, serviceName, Aggregation.COUNT) : null;
 
-		double total = 0;
+		BigDecimal total = BigDecimal.ZERO;
 		int quantity = 0;
-		DecimalType histValue = null;
-		while(it.hasNext()) {
-			State state = it.next().getState();
-			if (state instanceof DecimalType) {
-				histValue = (DecimalType) state;
-				total += histValue.doubleValue();
-				quantity++;
-			}
+		if (sum != null && count != null) {
+			total = ((DecimalType) sum.getState()).toBigDecimal();
+			quantity = ((DecimalType) count.getState()).intValue();
 		}
 		
 		// If the current value has not been persisted it should be included in the average as well.
-		// Assume that any current value different from the last historical value has not been 
-		// persisted and include it.
+		// As the persisted values are aggregated by the service, the current value is always included.
 		DecimalType currentValue = (DecimalType) item.getStateAs(DecimalType.class);
-		if (currentValue != null && currentValue != histValue ) {
-			total += currentValue.doubleValue();
+		if (currentValue != null) {
+			total = total.add(currentValue.toBigDecimal());
 			quantity++;
 		}
 
@@ -398,7 +396,7 @@ public class PersistenceExtensions implements ManagedService {
 			return null;
 		}
 		else{
-			double average = total / quantity;
+			BigDecimal average = total.divide(BigDecimal.valueOf(quantity), MathContext.DECIMAL64);
 			return new DecimalType(average);
 			
 		}
@@ -431,9 +429,6 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return the variance of the value since the given point in time
 	 */
 	static public DecimalType varianceSince(Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
-		Iterator<HistoricItem> it = result.iterator();
-
 		DecimalType average = averageSince(item, timestamp, serviceName);
 		if (average == null) {
 			return null;
@@ -442,13 +437,18 @@ public class PersistenceExtensions implements ManagedService {
 		double total = 0;
 		int quantity = 0;
 		DecimalType histValue = null;
-		while(it.hasNext()) {
-			State state = it.next().getState();
-			if (state instanceof DecimalType) {
-				histValue = (DecimalType) state;
-				total += Math.pow(histValue.doubleValue()- average.doubleValue(), 2);
-				quantity++;
+		HistoricCursor it = getAllStatesSince(item, timestamp, serviceName);
+		try {
+			while(it.hasNext()) {
+				State state = it.next().getState();
+				if (state instanceof DecimalType) {
+					histValue = (DecimalType) state;
+					total += Math.pow(histValue.doubleValue()- average.doubleValue(), 2);
+					quantity++;
+				}
 			}
+		} finally {
+			it.close();
 		}
 
 		// If the current value has not been persisted it should be included in the average as well.
@@ -529,18 +529,12 @@ public class PersistenceExtensions implements ManagedService {
 	 */
 
 	static public DecimalType sumSince(Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
-		Iterator<HistoricItem> it = result.iterator();
-		
-		double sum = 0;
-		while(it.hasNext()) {
-			State state = it.next().getState();
-			if (state instanceof DecimalType) {
-				sum += ((DecimalType) state).doubleValue();
-			}
+		HistoricItem sum = aggregateSince(item, timestamp, serviceName, Aggregation.SUM);
+		if (sum != null) {
+			return (DecimalType) sum.getState();
+		} else {
+			return new DecimalType(0);
 		}
-
-		return new DecimalType(sum);
 	}
 	
 	/**
@@ -573,11 +567,11 @@ public class PersistenceExtensions implements ManagedService {
 			filter.setItemName(item.getName());
 			filter.setOrdering(Ordering.DESCENDING);
 			filter.setPageSize(1);
-			Iterable<HistoricItem> result = qService.query(filter);
-			if (result.iterator().hasNext()) {
-				return result.iterator().next().getTimestamp();
-			} else {
-				return null;
+			HistoricCursor result = HistoricCursors.open(qService, filter);
+			try {
+				return result.hasNext() ? result.next().getTimestamp() : null;
+			} finally {
+				result.close();
 			}
 		} else {
 			logger.warn("There is no queryable persistence service registered with the name '{}'", serviceName);
@@ -708,30 +702,22 @@ public class PersistenceExtensions implements ManagedService {
 			filter.setItemName(item.getName());
 			filter.setOrdering(Ordering.DESCENDING);
 
-			filter.setPageSize(skipEqual ? 1000 : 1);
-			int startPage = 0;
-			filter.setPageNumber(startPage);
-
-			Iterable<HistoricItem> items = qService.query(filter);
-			while (items != null) {
-				Iterator<HistoricItem> itemIterator = items.iterator();
-				int itemCount = 0;
-				while (itemIterator.hasNext()) {
-					HistoricItem historicItem = itemIterator.next(); 
-					itemCount++;
-					if (!skipEqual || (skipEqual && !historicItem.getState().equals(item.getState()))) {
+			if (!skipEqual) {
+				filter.setPageSize(1);
+			}
+
+			HistoricCursor items = HistoricCursors.open(qService, filter, PAGE_SIZE);
+			try {
+				while (items.hasNext()) {
+					HistoricItem historicItem = items.next(); 
+					if (!skipEqual || !historicItem.getState().equals(item.getState())) {
 						return historicItem;
 					}
 				}
-				if (itemCount == filter.getPageSize()) {
-					filter.setPageNumber(++startPage);
-					items = qService.query(filter);
-				}
-				else {
-					items = null;
-				}
+				return null;
+			} finally {
+				items.close();
 			}
-			return null;
 
 		} else {
 			logger.warn("There is no queryable persistence service registered with the name '{}'", serviceName);
@@ -739,7 +725,7 @@ public class PersistenceExtensions implements ManagedService {
 		}
 	}
 
-	static private Iterable<HistoricItem> getAllStatesSince(Item item, AbstractInstant timestamp, String serviceName) {
+	static private HistoricCursor getAllStatesSince(Item item, AbstractInstant timestamp, String serviceName) {
 		PersistenceService service = services.get(serviceName);
 		if (service instanceof QueryablePersistenceService) {
 			QueryablePersistenceService qService = (QueryablePersistenceService) service;
@@ -747,11 +733,53 @@ public class PersistenceExtensions implements ManagedService {
 			filter.setBeginDate(timestamp.toDate());
 			filter.setItemName(item.getName());
 			filter.setOrdering(Ordering.ASCENDING);
-			return qService.query(filter);
+			return HistoricCursors.open(qService, filter, PAGE_SIZE);
+		} else {
+			logger.warn("There is no queryable persistence service registered with the name '{}'", serviceName);
+			return HistoricCursors.wrap(null);
+		}
+	}
+	
+	/**
+	 * Aggregates the persisted states of an <code>item</code> since a certain point in time, natively
+	 * if the {@link PersistenceService} supports it.
+	 * 
+	 * @return the aggregated value, or <code>null</code> if there are no persisted decimal states
+	 */
+	static private HistoricItem aggregateSince(Item item, AbstractInstant timestamp, String serviceName, Aggregation aggregation) {
+		PersistenceService service = services.get(serviceName);
+		if (service instanceof QueryablePersistenceService) {
+			FilterCriteria filter = new FilterCriteria();
+			filter.setBeginDate(timestamp.toDate());
+			filter.setItemName(item.getName());
+			filter.setAggregation(aggregation);
+			Iterable<HistoricItem> result = HistoricAggregator.query((QueryablePersistenceService) service, filter);
+			if (result == null) {
+				return null;
+			}
+			Iterator<HistoricItem> it = result.iterator();
+			return it.hasNext() ? it.next() : null;
 		} else {
 			logger.warn("There is no queryable persistence service registered with the name '{}'", serviceName);
-			return Collections.emptySet();
+			return null;
+		}
+	}
+	
+	/**
+	 * Converts the decimal state of an aggregated value into the state type of the <code>item</code>,
+	 * e.g. a percent value for a dimmer, as the persisted states of the item have.
+	 * 
+	 * @return the historic item with the converted state, or <code>null</code> if there is no aggregated value
+	 */
+	static private HistoricItem toItemState(Item item, HistoricItem historicItem) {
+		if (historicItem == null || item.getAcceptedDataTypes() == null) {
+			return historicItem;
+		}
+		State state = TypeParser.parseState(item.getAcceptedDataTypes(), historicItem.getState().toString());
+		if (!(state instanceof DecimalType) || state.getClass() == historicItem.getState().getClass()) {
+			return historicItem;
 		}
+		return new AggregatedItem(historicItem.getName(), state, historicItem.getTimestamp());
 	}
 	
 	/**
@@ -12,8 +12,10 @@ import static org.quartz.JobBuilder.newJob;
 import static org.quartz.TriggerBuilder.newTrigger;
 
 import java.text.DateFormat;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -23,6 +25,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.lang.StringUtils;
 import org.eclipse.emf.ecore.EObject;
 import org.openhab.core.events.AbstractEventSubscriber;
 import org.openhab.core.items.GenericItem;
@@ -37,6 +40,8 @@ import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.PersistentStateRestorer;
 import org.openhab.core.persistence.QueryablePersistenceService;
+import org.openhab.core.persistence.internal.PersistenceRoutingTable.Route;
+import org.openhab.core.service.ConfigurationUtil;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
 import org.openhab.model.core.EventType;
@@ -50,6 +55,8 @@ import org.openhab.model.persistence.persistence.PersistenceConfiguration;
 import org.openhab.model.persistence.persistence.PersistenceModel;
 import org.openhab.model.persistence.persistence.Strategy;
 import org.openhab.model.persistence.scoping.GlobalStrategies;
+import org.osgi.service.cm.ConfigurationException;
+import org.osgi.service.cm.ManagedService;
 import org.quartz.CronScheduleBuilder;
 import org.quartz.Job;
 import org.quartz.JobDetail;
@@ -66,14 +73,23 @@ import org.slf4j.LoggerFactory;
  * This class is the central part of the persistence management and delegation. It reads the persistence
  * models, schedules timers and manages the invocation of {@link PersistenceService}s upon events.
  * 
+ * <p>Store requests are not passed to the persistence services directly, but through a bounded
+ * {@link PersistenceQueue} per service, so that slow services do not block the event bus.</p>
+ * 
  * @author Kai Kreuzer
  * @since 1.0.0
  *
  */
-public class PersistenceManager extends AbstractEventSubscriber implements ModelRepositoryChangeListener, ItemRegistryChangeListener, StateChangeListener, PersistentStateRestorer {
+public class PersistenceManager extends AbstractEventSubscriber implements ModelRepositoryChangeListener, ItemRegistryChangeListener, StateChangeListener, PersistentStateRestorer, ManagedService {
 	
 	private static final Logger logger = LoggerFactory.getLogger(PersistenceManager.class);
 
+	private static final int DEFAULT_QUEUE_SIZE = 10000;
+
+	private static final int DEFAULT_BATCH_SIZE = 100;
+
+	private static final PersistenceQueue.Policy DEFAULT_POLICY = PersistenceQueue.Policy.BLOCK;
+
 	private static PersistenceManager instance;
 	
 	// the scheduler used for timer events
@@ -92,6 +108,21 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	protected Map<String, List<Strategy>> defaultStrategies = 
 			Collections.synchronizedMap(new HashMap<String, List<Strategy>>());
 	
+	/** keeps the write-behind queue for each persistence service */
+	protected Map<String, PersistenceQueue> queues = new ConcurrentHashMap<String, PersistenceQueue>();
+
+	/** the maximum number of store requests which are queued per persistence service */
+	private int queueSize = DEFAULT_QUEUE_SIZE;
+
+	/** the maximum number of store requests which are handed over to a persistence service at once */
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	/** what to do with store requests, if the queue of a persistence service is full */
+	private PersistenceQueue.Policy policy = DEFAULT_POLICY;
+
+	/** the compiled persistence configurations of all services, rebuilt on model and item changes */
+	private volatile PersistenceRoutingTable routingTable = new PersistenceRoutingTable.Builder().build();
+	
 	
 	public PersistenceManager() {
 		PersistenceManager.instance = this;
@@ -111,6 +142,9 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	}
 	
 	public void deactivate() {
+		for(String serviceName : queues.keySet()) {
+			stopQueue(serviceName);
+		}
 	}
 	
 	
@@ -141,19 +175,79 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	public void unsetItemRegistry(ItemRegistry itemRegistry) {
 		itemRegistry.removeItemRegistryChangeListener(this);
 		this.itemRegistry = null;
+		rebuildRoutingTable();
 	}
 
 	public void addPersistenceService(PersistenceService persistenceService) {
 		logger.debug("Initializing {} persistence service.", persistenceService.getName());
 		persistenceServices.put(persistenceService.getName(), persistenceService);
+		startQueue(persistenceService);
 		stopEventHandling(persistenceService.getName());
 		startEventHandling(persistenceService.getName());
 	}
 
 	public void removePersistenceService(PersistenceService persistenceService) {
 		stopEventHandling(persistenceService.getName());
+		stopQueue(persistenceService.getName());
 		persistenceServices.remove(persistenceService.getName());
 	}
+
+	/**
+	 * Creates and starts a new write-behind queue for the given persistence service,
+	 * replacing any existing queue of the service.
+	 * 
+	 * @param persistenceService the persistence service to create the queue for
+	 */
+	private void startQueue(PersistenceService persistenceService) {
+		stopQueue(persistenceService.getName());
+		PersistenceQueue queue = new PersistenceQueue(persistenceService, queueSize, batchSize, policy);
+		queue.start();
+		queues.put(persistenceService.getName(), queue);
+	}
+
+	/**
+	 * Stops the write-behind queue of the given persistence service after all
+	 * queued requests have been handed over to the service.
+	 * 
+	 * @param serviceName the name of the persistence service
+	 */
+	private void stopQueue(String serviceName) {
+		PersistenceQueue queue = queues.remove(serviceName);
+		if(queue!=null) {
+			queue.stop();
+			logger.debug("Stopped {}", queue);
+		}
+	}
+
+	/**
+	 * Queues the current state of an item for being stored by a persistence service.
+	 * 
+	 * @param serviceName the name of the persistence service
+	 * @param item the item to persist
+	 * @param alias the alias under which the item should be persisted, may be <code>null</code>
+	 */
+	/*default */ void store(String serviceName, Item item, String alias) {
+		PersistenceQueue queue = queues.get(serviceName);
+		if(queue!=null) {
+			queue.add(item, alias);
+		} else {
+			PersistenceService service = persistenceServices.get(serviceName);
+			if(service!=null) {
+				service.store(item, alias);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of store requests which are currently queued for a persistence service.
+	 * 
+	 * @param serviceName the name of the persistence service
+	 * @return the current queue depth or -1, if there is no queue for the service
+	 */
+	public int getQueueSize(String serviceName) {
+		PersistenceQueue queue = queues.get(serviceName);
+		return queue!=null ? queue.size() : -1;
+	}
 	
 	
 	public void modelChanged(String modelName, EventType type) {
@@ -181,6 +275,7 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 		if(model!=null) {
 			persistenceConfigurations.put(modelName, model.getConfigs());
 			defaultStrategies.put(modelName, model.getDefaults());
+			rebuildRoutingTable();
 			initializeItems(model, modelName);
 			createTimers(modelName);
 		}
@@ -194,6 +289,7 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	private void stopEventHandling(String modelName) {
 		persistenceConfigurations.remove(modelName);
 		defaultStrategies.remove(modelName);
+		rebuildRoutingTable();
 		removeTimers(modelName);
 	}
 
@@ -230,78 +326,187 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	 * @param onlyChanges true, if it has the change strategy, false otherwise
 	 */
 	private void handleStateEvent(Item item, boolean onlyChanges) {
-		synchronized (persistenceConfigurations) {
+		int strategy = onlyChanges ? PersistenceRoutingTable.CHANGE : PersistenceRoutingTable.UPDATE;
+		for(Route route : routingTable.getRoutes(item.getName())) {
+			if(route.hasStrategy(strategy)) {
+				store(route.getServiceName(), item, route.getAlias());
+			}
+		}
+	}
+
+	/**
+	 * Compiles the persistence configurations of all services into a new routing table,
+	 * which is used for all subsequent state events.
+	 */
+	private synchronized void rebuildRoutingTable() {
+		PersistenceRoutingTable.Builder builder = new PersistenceRoutingTable.Builder();
+		if(itemRegistry!=null) {
 			for(Entry<String, List<PersistenceConfiguration>> entry : persistenceConfigurations.entrySet()) {
 				String serviceName = entry.getKey();
-				if(persistenceServices.containsKey(serviceName)) {				
-					for(PersistenceConfiguration config : entry.getValue()) {
-						if(hasStrategy(serviceName, config, onlyChanges ? GlobalStrategies.CHANGE : GlobalStrategies.UPDATE)) {
-							if(appliesToItem(config, item)) {
-								persistenceServices.get(serviceName).store(item, config.getAlias());
-							}
+				if(!defaultStrategies.containsKey(serviceName)) {
+					continue;
+				}
+				for(PersistenceConfiguration config : entry.getValue()) {
+					int strategies = getStrategies(serviceName, config);
+					if(strategies!=0) {
+						Route route = new Route(serviceName, config.getAlias(), strategies);
+						for(Item item : getAllItems(config)) {
+							builder.add(item.getName(), route);
 						}
 					}
 				}
 			}
 		}
+		routingTable = builder.build();
+		logger.trace("Rebuilt persistence routing table for {} items", routingTable.size());
 	}
-	
+
 	/**
-	 * Checks if a given persistence configuration entry has a certain strategy for the given service
+	 * Updates the routes of a single item and, if it is a group, of all its members, 
+	 * instead of rebuilding the whole routing table.
 	 * 
-	 * @param serviceName the service to check the configuration for
-	 * @param config the persistence configuration entry
-	 * @param strategy the strategy to check for
-	 * @return true, if it has the given strategy
+	 * @param item the item which has been added or removed
+	 * @param removed true, if the item has been removed from the item registry
 	 */
-	protected boolean hasStrategy(String serviceName, PersistenceConfiguration config, Strategy strategy) {
-		if(defaultStrategies.get(serviceName).contains(strategy) && config.getStrategies().isEmpty()) {
-			return true;
-		} else {
-			for(Strategy s : config.getStrategies()) {
-				if(s.equals(strategy)) {
-					return true;
+	private synchronized void updateRoutes(Item item, boolean removed) {
+		if(itemRegistry==null) {
+			return;
+		}
+		if(removed && item instanceof GroupItem) {
+			// the item registry has already detached the members from the removed group,
+			// so the items whose routes depended on the group cannot be determined anymore
+			rebuildRoutingTable();
+			return;
+		}
+		routingTable.setRoutes(item.getName(), removed ? Collections.<Route>emptyList() : getRoutes(item));
+		if(item instanceof GroupItem) {
+			// the routes of the members depend on the groups they belong to
+			for(Item member : ((GroupItem) item).getAllMembers()) {
+				routingTable.setRoutes(member.getName(), getRoutes(member));
+			}
+		}
+	}
+
+	/**
+	 * Determines the routes of a single item from the persistence configurations of all services.
+	 * 
+	 * @param item the item
+	 * @return the routes of the item
+	 */
+	private List<Route> getRoutes(Item item) {
+		List<Route> routes = new ArrayList<Route>(1);
+		Set<String> groupNames = null;
+		for(Entry<String, List<PersistenceConfiguration>> entry : persistenceConfigurations.entrySet()) {
+			String serviceName = entry.getKey();
+			if(!defaultStrategies.containsKey(serviceName)) {
+				continue;
+			}
+			for(PersistenceConfiguration config : entry.getValue()) {
+				int strategies = getStrategies(serviceName, config);
+				if(strategies==0) {
+					continue;
+				}
+				if(groupNames==null) {
+					groupNames = getAllGroupNames(item);
+				}
+				if(appliesTo(config, item, groupNames)) {
+					routes.add(new Route(serviceName, config.getAlias(), strategies));
 				}
 			}
-			return false;
 		}
+		return routes;
 	}
 
 	/**
-	 * Checks if a given persistence configuration entry is relevant for an item
+	 * @return the strategy bits of the routing table for the given configuration
+	 */
+	private int getStrategies(String serviceName, PersistenceConfiguration config) {
+		int strategies = 0;
+		if(hasStrategy(serviceName, config, GlobalStrategies.CHANGE)) {
+			strategies |= PersistenceRoutingTable.CHANGE;
+		}
+		if(hasStrategy(serviceName, config, GlobalStrategies.UPDATE)) {
+			strategies |= PersistenceRoutingTable.UPDATE;
+		}
+		if(hasStrategy(serviceName, config, GlobalStrategies.RESTORE)) {
+			strategies |= PersistenceRoutingTable.RESTORE;
+		}
+		return strategies;
+	}
+
+	/**
+	 * Checks whether the persistence configuration applies to the given item, in the same way
+	 * as {@link #getAllItems(PersistenceConfiguration)} does.
 	 * 
 	 * @param config the persistence configuration entry
-	 * @param item to check if the configuration applies to
+	 * @param item the item to check
+	 * @param groupNames the names of all groups the item belongs to, directly or through other groups
 	 * @return true, if the configuration applies to the item
 	 */
-	protected boolean appliesToItem(PersistenceConfiguration config, Item item) {
+	private boolean appliesTo(PersistenceConfiguration config, Item item, Set<String> groupNames) {
 		for(EObject itemCfg : config.getItems()) {
-			if (itemCfg instanceof AllConfig) {
+			if(itemCfg instanceof AllConfig) {
 				return true;
 			}
-			if (itemCfg instanceof ItemConfig) {
-				ItemConfig singleItemConfig = (ItemConfig) itemCfg;
-				if(item.getName().equals(singleItemConfig.getItem())) {
-					return true;
-				}
+			if(itemCfg instanceof ItemConfig && item.getName().equals(((ItemConfig) itemCfg).getItem())) {
+				return true;
 			}
-			if (itemCfg instanceof GroupConfig) {
-				GroupConfig groupItemCfg = (GroupConfig) itemCfg;
-				String groupName = groupItemCfg.getGroup();
-				try {
-					Item gItem = itemRegistry.getItem(groupName);
-					if (gItem instanceof GroupItem) {
-						GroupItem groupItem = (GroupItem) gItem;
-						if(groupItem.getAllMembers().contains(item)) {
-							return true;
-						}
-					}
-				} catch (Exception e) {}
+			// groups are not members of the groups they belong to, see GroupItem.getAllMembers()
+			if(itemCfg instanceof GroupConfig && !(item instanceof GroupItem) 
+					&& groupNames.contains(((GroupConfig) itemCfg).getGroup())) {
+				return true;
 			}
 		}
 		return false;
 	}
 
+	/**
+	 * @return the names of all registered groups the item belongs to, directly or through other groups
+	 */
+	private Set<String> getAllGroupNames(Item item) {
+		Set<String> groupNames = new HashSet<String>();
+		collectGroupNames(item, groupNames);
+		return groupNames;
+	}
+
+	private void collectGroupNames(Item item, Set<String> groupNames) {
+		for(String groupName : item.getGroupNames()) {
+			if(groupNames.contains(groupName)) {
+				continue;
+			}
+			try {
+				Item group = itemRegistry.getItem(groupName);
+				if(group instanceof GroupItem) {
+					groupNames.add(groupName);
+					collectGroupNames(group, groupNames);
+				}
+			} catch (ItemNotFoundException e) {
+				// the group does not exist, so the item is not a member of it
+			}
+		}
+	}
+	
+	/**
+	 * Checks if a given persistence configuration entry has a certain strategy for the given service
+	 * 
+	 * @param serviceName the service to check the configuration for
+	 * @param config the persistence configuration entry
+	 * @param strategy the strategy to check for
+	 * @return true, if it has the given strategy
+	 */
+	protected boolean hasStrategy(String serviceName, PersistenceConfiguration config, Strategy strategy) {
+		if(defaultStrategies.get(serviceName).contains(strategy) && config.getStrategies().isEmpty()) {
+			return true;
+		} else {
+			for(Strategy s : config.getStrategies()) {
+				if(s.equals(strategy)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
 	/**
 	 * Retrieves all items for which the persistence configuration applies to.
 	 * 
@@ -346,12 +551,18 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	}
 
 	public void allItemsChanged(Collection<String> oldItemNames) {
+		rebuildRoutingTable();
 		for(Item item : itemRegistry.getItems()) {
-			itemAdded(item);
+			addItem(item);
 		}
 	}
 
 	public void itemAdded(Item item) {
+		updateRoutes(item, false);
+		addItem(item);
+	}
+
+	private void addItem(Item item) {
 		initialize(item);
 		if (item instanceof GenericItem) {
 			GenericItem genericItem = (GenericItem) item;
@@ -370,35 +581,31 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	protected void initialize(Item item) {
 		// get the last persisted state from the persistence service if no state is yet set
 		if(item.getState().equals(UnDefType.NULL) && item instanceof GenericItem) {
-			for(Entry<String, List<PersistenceConfiguration>> entry : persistenceConfigurations.entrySet()) {
-				String serviceName = entry.getKey();
-				for(PersistenceConfiguration config : entry.getValue()) {
-					if(hasStrategy(serviceName, config, GlobalStrategies.RESTORE)) {
-						if(appliesToItem(config, item)) {
-							PersistenceService service = persistenceServices.get(serviceName);
-							if(service instanceof QueryablePersistenceService) {
-								QueryablePersistenceService queryService = (QueryablePersistenceService) service;
-								FilterCriteria filter = new FilterCriteria().setItemName(item.getName()).setPageSize(1);
-								Iterable<HistoricItem> result = queryService.query(filter);
-								Iterator<HistoricItem> it = result.iterator();
-								if(it.hasNext()) {
-									HistoricItem historicItem = it.next();
-									GenericItem genericItem = (GenericItem) item;
-									genericItem.removeStateChangeListener(this);
-									genericItem.setState(historicItem.getState());
-									genericItem.addStateChangeListener(this);
-									logger.debug("Restored item state from '{}' for item '{}' -> '{}'", 
-											new Object[] { DateFormat.getDateTimeInstance().format(historicItem.getTimestamp()), 
-											item.getName(), historicItem.getState().toString() } );
-									return;
-								}
-							} else if(service!=null) {
-								logger.warn("Failed to restore item states as persistence service '{}' can not be queried.", serviceName);
-							}
+			for(Route route : routingTable.getRoutes(item.getName())) {
+				if(route.hasStrategy(PersistenceRoutingTable.RESTORE)) {
+					String serviceName = route.getServiceName();
+					PersistenceService service = persistenceServices.get(serviceName);
+					if(service instanceof QueryablePersistenceService) {
+						QueryablePersistenceService queryService = (QueryablePersistenceService) service;
+						FilterCriteria filter = new FilterCriteria().setItemName(item.getName()).setPageSize(1);
+						Iterable<HistoricItem> result = queryService.query(filter);
+						Iterator<HistoricItem> it = result.iterator();
+						if(it.hasNext()) {
+							HistoricItem historicItem = it.next();
+							GenericItem genericItem = (GenericItem) item;
+							genericItem.removeStateChangeListener(this);
+							genericItem.setState(historicItem.getState());
+							genericItem.addStateChangeListener(this);
+							logger.debug("Restored item state from '{}' for item '{}' -> '{}'", 
+									new Object[] { DateFormat.getDateTimeInstance().format(historicItem.getTimestamp()), 
+									item.getName(), historicItem.getState().toString() } );
+							return;
 						}
+					} else if(service!=null) {
+						logger.warn("Failed to restore item states as persistence service '{}' can not be queried.", serviceName);
 					}
 				}
-			}	
+			}
 		}		
 	}
 
@@ -407,6 +614,7 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 			GenericItem genericItem = (GenericItem) item;
 			genericItem.removeStateChangeListener(this);
 		}
+		updateRoutes(item, true);
 	}
 	
 	/**
@@ -471,6 +679,35 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 			logger.warn("Failed to delete cron jobs of group '{}'", persistModelName);
 		}
 	}
-		
+
+	@SuppressWarnings("rawtypes")
+	public void updated(Dictionary config) throws ConfigurationException {
+		int newQueueSize = DEFAULT_QUEUE_SIZE;
+		int newBatchSize = DEFAULT_BATCH_SIZE;
+		PersistenceQueue.Policy newPolicy = DEFAULT_POLICY;
+		if(config!=null) {
+			newQueueSize = ConfigurationUtil.parsePositiveInt(config, "queuesize", DEFAULT_QUEUE_SIZE);
+			newBatchSize = ConfigurationUtil.parsePositiveInt(config, "batchsize", DEFAULT_BATCH_SIZE);
+			String policyString = (String) config.get("policy");
+			if(StringUtils.isNotBlank(policyString)) {
+				newPolicy = PersistenceQueue.Policy.fromString(policyString.trim());
+				if(newPolicy==null) {
+					throw new ConfigurationException("policy", "Unknown queue policy '" + policyString + 
+							"', valid values are 'block', 'dropoldest' and 'coalesce'");
+				}
+			}
+		}
+		if(newQueueSize!=queueSize || newBatchSize!=batchSize || newPolicy!=policy) {
+			queueSize = newQueueSize;
+			batchSize = newBatchSize;
+			policy = newPolicy;
+			logger.debug("Persistence queues are configured with size {}, batch size {} and policy {}", 
+					new Object[] { queueSize, batchSize, policy });
+			// the queues are changed in place, so that this does not wait for them to be flushed
+			for(PersistenceQueue queue : queues.values()) {
+				queue.reconfigure(queueSize, batchSize, policy);
+			}
+		}
+	}
 
 }
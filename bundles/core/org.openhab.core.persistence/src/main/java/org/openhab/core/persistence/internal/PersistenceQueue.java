@@ -0,0 +1,405 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.items.GroupItem;
+import org.openhab.core.items.Item;
+import org.openhab.core.persistence.BatchPersistenceService;
+import org.openhab.core.persistence.PersistenceEntry;
+import org.openhab.core.persistence.PersistenceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded write-behind queue for a single {@link PersistenceService}. Store
+ * requests are queued by the thread which has changed the item state and are
+ * handed over to the persistence service by a dedicated worker thread, so that
+ * slow persistence services do not block the event bus.
+ *
+ * <p>If the persistence service implements {@link BatchPersistenceService}, the
+ * queued entries are passed in batches together with the state the item had
+ * and the time when the entry was queued. Otherwise the service is called for
+ * each entry separately; if the item state has changed in the meantime, it is
+ * passed a copy of the item with the queued state, so that the queued state
+ * is stored nevertheless. Such services store the entry with the time of the
+ * call, though.</p>
+ *
+ * @since 1.8.0
+ */
+class PersistenceQueue {
+
+	private static final Logger logger = LoggerFactory.getLogger(PersistenceQueue.class);
+
+	/** the time to wait for the worker to flush the queue when stopping */
+	private static final long STOP_TIMEOUT = 5000L;
+
+	/**
+	 * Defines what happens if a store request is queued while the queue is full
+	 */
+	public enum Policy {
+		/** the calling thread is blocked until there is space in the queue */
+		BLOCK,
+		/** the oldest queued entry is dropped */
+		DROP_OLDEST,
+		/** only the latest state of an item is kept in the queue; if the queue is still full, the oldest entry is dropped */
+		COALESCE;
+
+		/**
+		 * Parses the configured policy name.
+		 *
+		 * @param name the policy name, e.g. "block", "dropoldest" or "coalesce"
+		 * @return the policy or <code>null</code>, if the name is unknown
+		 */
+		public static Policy fromString(String name) {
+			for(Policy policy : values()) {
+				if(policy.name().replace("_", "").equalsIgnoreCase(name.replace("_", "").replace("-", ""))) {
+					return policy;
+				}
+			}
+			return null;
+		}
+	}
+
+	private final PersistenceService service;
+
+	/** the settings of this queue, guarded by the lock */
+	private int maxSize;
+	private int batchSize;
+	private volatile Policy policy;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+
+	/** the queued entries for the policies {@link Policy#BLOCK} and {@link Policy#DROP_OLDEST} */
+	private final ArrayDeque<PersistenceEntry> entries = new ArrayDeque<PersistenceEntry>();
+
+	/** the queued entries by their persistence name for the policy {@link Policy#COALESCE} */
+	private final LinkedHashMap<String, PersistenceEntry> latestEntries = new LinkedHashMap<String, PersistenceEntry>();
+
+	private final AtomicLong storedCount = new AtomicLong();
+	private final AtomicLong droppedCount = new AtomicLong();
+	private final AtomicLong coalescedCount = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+
+	private volatile int maxQueueSize = 0;
+
+	private volatile boolean running = false;
+
+	private Thread worker;
+
+	/**
+	 * @param service the persistence service to hand over the entries to
+	 * @param maxSize the maximum number of entries in the queue
+	 * @param batchSize the maximum number of entries handed over at once
+	 * @param policy the policy to apply if the queue is full
+	 */
+	PersistenceQueue(PersistenceService service, int maxSize, int batchSize, Policy policy) {
+		this.service = service;
+		this.maxSize = maxSize;
+		this.batchSize = batchSize;
+		this.policy = policy;
+	}
+
+	/**
+	 * Changes the settings of this queue without restarting it. Entries which
+	 * are already queued are kept, even if they exceed a smaller maximum size.
+	 *
+	 * @param maxSize the maximum number of entries in the queue
+	 * @param batchSize the maximum number of entries handed over at once
+	 * @param policy the policy to apply if the queue is full
+	 */
+	void reconfigure(int maxSize, int batchSize, Policy policy) {
+		lock.lock();
+		try {
+			if(policy==Policy.COALESCE && this.policy!=Policy.COALESCE) {
+				for(PersistenceEntry entry : entries) {
+					if(latestEntries.put(entry.getName(), entry)!=null) {
+						coalescedCount.incrementAndGet();
+					}
+				}
+				entries.clear();
+			} else if(policy!=Policy.COALESCE && this.policy==Policy.COALESCE) {
+				entries.addAll(latestEntries.values());
+				latestEntries.clear();
+			}
+			this.maxSize = maxSize;
+			this.batchSize = batchSize;
+			this.policy = policy;
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Starts the worker thread of this queue.
+	 */
+	void start() {
+		running = true;
+		worker = new Thread(new Runnable() {
+			public void run() {
+				processQueue();
+			}
+		}, "Persistence Queue (" + service.getName() + ")");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Stops the worker thread after all queued entries have been handed over
+	 * to the persistence service.
+	 */
+	void stop() {
+		lock.lock();
+		try {
+			running = false;
+			notEmpty.signalAll();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		if(worker!=null && worker!=Thread.currentThread()) {
+			try {
+				worker.join(STOP_TIMEOUT);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if(worker.isAlive()) {
+				logger.warn("Persistence queue of service '{}' could not be flushed within {}ms, {} entries are lost.",
+						new Object[] { service.getName(), STOP_TIMEOUT, size() });
+			}
+		}
+		worker = null;
+	}
+
+	/**
+	 * Queues the current state of the given item.
+	 *
+	 * @param item the item to persist
+	 * @param alias the alias under which the item should be persisted, may be <code>null</code>
+	 */
+	void add(Item item, String alias) {
+		PersistenceEntry entry = new PersistenceEntry(item, alias, item.getState(), new Date());
+		lock.lock();
+		try {
+			if(!running) {
+				logger.debug("Persistence queue of service '{}' is stopped, dropping {}", service.getName(), entry);
+				droppedCount.incrementAndGet();
+				return;
+			}
+			// the policy may be changed while waiting, so it is checked again afterwards
+			while(policy==Policy.BLOCK && entries.size() >= maxSize) {
+				notFull.await();
+				if(!running) {
+					droppedCount.incrementAndGet();
+					return;
+				}
+			}
+			if(policy==Policy.COALESCE) {
+				if(latestEntries.put(entry.getName(), entry)!=null) {
+					coalescedCount.incrementAndGet();
+				} else if(latestEntries.size() > maxSize) {
+					Iterator<PersistenceEntry> it = latestEntries.values().iterator();
+					dropped(it.next());
+					it.remove();
+				}
+			} else {
+				while(entries.size() >= maxSize) {
+					dropped(entries.poll());
+				}
+				entries.add(entry);
+			}
+			int size = size();
+			if(size > maxQueueSize) {
+				maxQueueSize = size;
+			}
+			notEmpty.signal();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			droppedCount.incrementAndGet();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void dropped(PersistenceEntry entry) {
+		if(droppedCount.getAndIncrement()==0) {
+			logger.warn("Persistence queue of service '{}' is full (size {}), dropping entries.", service.getName(), maxSize);
+		}
+		logger.debug("Dropped {} for persistence service '{}'", entry, service.getName());
+	}
+
+	/**
+	 * Takes the queued entries and hands them over to the persistence service
+	 * until the queue is stopped.
+	 */
+	private void processQueue() {
+		List<PersistenceEntry> batch = new ArrayList<PersistenceEntry>(batchSize);
+		while(true) {
+			lock.lock();
+			try {
+				while(running && size()==0) {
+					notEmpty.await();
+				}
+				if(size()==0) {
+					return;
+				}
+				drainTo(batch);
+				notFull.signalAll();
+			} catch (InterruptedException e) {
+				logger.debug("Persistence queue of service '{}' has been interrupted.", service.getName());
+				return;
+			} finally {
+				lock.unlock();
+			}
+			dispatch(batch);
+			batch.clear();
+		}
+	}
+
+	private void drainTo(List<PersistenceEntry> batch) {
+		if(policy==Policy.COALESCE) {
+			Iterator<PersistenceEntry> it = latestEntries.values().iterator();
+			while(it.hasNext() && batch.size() < batchSize) {
+				batch.add(it.next());
+				it.remove();
+			}
+		} else {
+			while(!entries.isEmpty() && batch.size() < batchSize) {
+				batch.add(entries.poll());
+			}
+		}
+	}
+
+	private void dispatch(List<PersistenceEntry> batch) {
+		long startTime = System.currentTimeMillis();
+		try {
+			if(service instanceof BatchPersistenceService) {
+				((BatchPersistenceService) service).store(batch);
+			} else {
+				for(PersistenceEntry entry : batch) {
+					service.store(getItemWithQueuedState(entry), entry.getAlias());
+				}
+			}
+			storedCount.addAndGet(batch.size());
+		} catch (RuntimeException e) {
+			failedCount.addAndGet(batch.size());
+			logger.error("Persistence service '" + service.getName() + "' failed to store " + batch.size() + " entries", e);
+		}
+		logger.trace("Storing {} entries with persistence service '{}' took {}ms",
+				new Object[] { batch.size(), service.getName(), System.currentTimeMillis() - startTime });
+	}
+
+	/**
+	 * Returns the item of the given entry, if its state has not changed since
+	 * the entry has been queued, or a copy of the item with the queued state.
+	 * The copy is an instance of the same item class, as persistence services
+	 * decide by the item type how to store the state.
+	 *
+	 * @param entry the queued entry
+	 * @return an item with the queued state
+	 */
+	static Item getItemWithQueuedState(PersistenceEntry entry) {
+		Item item = entry.getItem();
+		if(entry.getState().equals(item.getState()) || !(item instanceof GenericItem)) {
+			return item;
+		}
+		GenericItem copy = copyItem((GenericItem) item);
+		if(copy==null) {
+			logger.debug("Cannot copy item '{}', storing its current state instead of the queued one.", item.getName());
+			return item;
+		}
+		copy.setState(entry.getState());
+		return copy;
+	}
+
+	private static GenericItem copyItem(GenericItem item) {
+		GenericItem copy;
+		if(item instanceof GroupItem) {
+			GenericItem baseItem = ((GroupItem) item).getBaseItem();
+			// the base item is changed by the group to convert its state, so it is copied as well
+			copy = new GroupItem(item.getName(), baseItem!=null ? copyItem(baseItem) : null);
+		} else {
+			try {
+				copy = item.getClass().getConstructor(String.class).newInstance(item.getName());
+			} catch (Exception e) {
+				return null;
+			}
+		}
+		copy.getGroupNames().addAll(item.getGroupNames());
+		return copy;
+	}
+
+	/**
+	 * @return the number of entries which are currently queued
+	 */
+	int size() {
+		lock.lock();
+		try {
+			return policy==Policy.COALESCE ? latestEntries.size() : entries.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the maximum number of entries which have been queued at the same time
+	 */
+	int getMaxQueueSize() {
+		return maxQueueSize;
+	}
+
+	/**
+	 * @return the number of entries which have been handed over to the persistence service
+	 */
+	long getStoredCount() {
+		return storedCount.get();
+	}
+
+	/**
+	 * @return the number of entries which have been dropped because the queue was full
+	 */
+	long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * @return the number of entries which have been replaced by a newer state of the same item
+	 */
+	long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	/**
+	 * @return the number of entries which the persistence service failed to store
+	 */
+	long getFailedCount() {
+		return failedCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return "PersistenceQueue [service=" + service.getName() + ", policy=" + policy + ", size=" + size() +
+				", maxQueueSize=" + maxQueueSize + ", stored=" + storedCount + ", dropped=" + droppedCount +
+				", coalesced=" + coalescedCount + ", failed=" + failedCount + "]";
+	}
+
+}
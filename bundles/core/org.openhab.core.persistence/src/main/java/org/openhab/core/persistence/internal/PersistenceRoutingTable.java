@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A table which tells for each item name, which persistence services have to be
+ * called under which alias for which of the global strategies. It is compiled
+ * from the persistence models by the {@link PersistenceManager}, so that handling
+ * a state event only requires a single map lookup. When single items are added
+ * or removed, only their routes are replaced; the route list of an item is
+ * never modified.
+ *
+ * @since 1.8.0
+ */
+class PersistenceRoutingTable {
+
+	/** bit for the "everyChange" strategy */
+	static final int CHANGE = 1;
+
+	/** bit for the "everyUpdate" strategy */
+	static final int UPDATE = 2;
+
+	/** bit for the "restoreOnStartup" strategy */
+	static final int RESTORE = 4;
+
+	private final Map<String, List<Route>> routes;
+
+	private PersistenceRoutingTable(Map<String, List<Route>> routes) {
+		this.routes = routes;
+	}
+
+	/**
+	 * Returns all routes for the given item.
+	 *
+	 * @param itemName the name of the item
+	 * @return the routes of the item, never <code>null</code>
+	 */
+	List<Route> getRoutes(String itemName) {
+		List<Route> itemRoutes = routes.get(itemName);
+		return itemRoutes!=null ? itemRoutes : Collections.<Route>emptyList();
+	}
+
+	/**
+	 * Replaces the routes of a single item.
+	 *
+	 * @param itemName the name of the item
+	 * @param itemRoutes the new routes of the item, may be empty
+	 */
+	void setRoutes(String itemName, List<Route> itemRoutes) {
+		if(itemRoutes.isEmpty()) {
+			routes.remove(itemName);
+		} else {
+			routes.put(itemName, Collections.unmodifiableList(new ArrayList<Route>(itemRoutes)));
+		}
+	}
+
+	/**
+	 * @return the number of items that have at least one route
+	 */
+	int size() {
+		return routes.size();
+	}
+
+	/**
+	 * A single route of an item to a persistence service.
+	 */
+	static class Route {
+
+		private final String serviceName;
+		private final String alias;
+		private final int strategies;
+
+		Route(String serviceName, String alias, int strategies) {
+			this.serviceName = serviceName;
+			this.alias = alias;
+			this.strategies = strategies;
+		}
+
+		/**
+		 * @return the name of the persistence service
+		 */
+		String getServiceName() {
+			return serviceName;
+		}
+
+		/**
+		 * @return the alias under which the item is persisted, may be <code>null</code>
+		 */
+		String getAlias() {
+			return alias;
+		}
+
+		/**
+		 * @param strategy one of {@link PersistenceRoutingTable#CHANGE}, {@link PersistenceRoutingTable#UPDATE}
+		 * or {@link PersistenceRoutingTable#RESTORE}
+		 * @return true, if the route applies to the given strategy
+		 */
+		boolean hasStrategy(int strategy) {
+			return (strategies & strategy)!=0;
+		}
+
+		@Override
+		public String toString() {
+			return serviceName + (alias!=null ? " -> " + alias : "") + " (" + Integer.toBinaryString(strategies) + ")";
+		}
+	}
+
+	/**
+	 * Collects the routes for a new {@link PersistenceRoutingTable}.
+	 */
+	static class Builder {
+
+		private final Map<String, List<Route>> routes = new HashMap<String, List<Route>>();
+
+		/**
+		 * Adds a route for the given item.
+		 *
+		 * @param itemName the name of the item
+		 * @param route the route to add
+		 * @return this builder
+		 */
+		Builder add(String itemName, Route route) {
+			List<Route> itemRoutes = routes.get(itemName);
+			if(itemRoutes==null) {
+				itemRoutes = new ArrayList<Route>(1);
+				routes.put(itemName, itemRoutes);
+			}
+			itemRoutes.add(route);
+			return this;
+		}
+
+		/**
+		 * @return the routing table
+		 */
+		PersistenceRoutingTable build() {
+			Map<String, List<Route>> table = new ConcurrentHashMap<String, List<Route>>(routes.size() * 4 / 3 + 1);
+			for(Map.Entry<String, List<Route>> entry : routes.entrySet()) {
+				table.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<Route>(entry.getValue())));
+			}
+			return new PersistenceRoutingTable(table);
+		}
+	}
+
+}
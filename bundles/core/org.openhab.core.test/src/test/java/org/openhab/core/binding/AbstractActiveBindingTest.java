@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.binding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since 1.8.0
+ */
+public class AbstractActiveBindingTest {
+
+	private TestBinding binding;
+	private TestProvider provider;
+
+	@Before
+	public void init() {
+		binding = new TestBinding();
+		provider = new TestProvider();
+		provider.itemNames.add("Fast");
+		provider.itemNames.add("Slow");
+		binding.addBindingProvider(provider);
+		binding.setProperlyConfigured(true);
+	}
+
+	@After
+	public void cleanup() {
+		binding.removeBindingProvider(provider);
+	}
+
+	@Test
+	public void testSlowItemDoesNotDelayOtherItems() throws InterruptedException {
+		assertTrue(binding.slowStarted.await(5, TimeUnit.SECONDS));
+		int polls = binding.getPolls("Fast");
+
+		// the slow item is still polled, but the fast item is polled again and again
+		assertTrue(binding.fastPolls.await(5, TimeUnit.SECONDS));
+		assertTrue(binding.getPolls("Fast") > polls);
+
+		// until the poll of the slow item is interrupted after its timeout
+		assertTrue(binding.slowInterrupted.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testRemovedItemIsNotPolled() throws InterruptedException {
+		assertTrue(binding.fastPolls.await(5, TimeUnit.SECONDS));
+		provider.itemNames.remove("Fast");
+		binding.bindingChanged(provider, "Fast");
+		Thread.sleep(50);
+		int polls = binding.getPolls("Fast");
+		Thread.sleep(100);
+
+		assertEquals(polls, binding.getPolls("Fast"));
+		assertTrue(binding.activeService.isRunning());
+	}
+
+	@Test
+	public void testItemsAreNotPolledWithoutProviders() {
+		binding.removeBindingProvider(provider);
+
+		assertFalse(binding.activeService.isRunning());
+	}
+
+	static class TestBinding extends AbstractActiveBinding<TestProvider> {
+
+		final ConcurrentMap<String, AtomicInteger> polls = new ConcurrentHashMap<String, AtomicInteger>();
+		final CountDownLatch fastPolls = new CountDownLatch(5);
+		final CountDownLatch slowStarted = new CountDownLatch(1);
+		final CountDownLatch slowInterrupted = new CountDownLatch(1);
+
+		@Override
+		protected void execute() {
+		}
+
+		@Override
+		protected void execute(String itemName) {
+			polls.putIfAbsent(itemName, new AtomicInteger());
+			polls.get(itemName).incrementAndGet();
+			if ("Slow".equals(itemName)) {
+				slowStarted.countDown();
+				try {
+					Thread.sleep(5000);
+				} catch (InterruptedException e) {
+					slowInterrupted.countDown();
+				}
+			} else {
+				fastPolls.countDown();
+			}
+		}
+
+		@Override
+		protected boolean useSharedScheduler() {
+			return true;
+		}
+
+		@Override
+		protected boolean usePerItemPolling() {
+			return true;
+		}
+
+		@Override
+		protected long getRefreshInterval() {
+			return 60000;
+		}
+
+		@Override
+		protected long getRefreshInterval(String itemName) {
+			return 10;
+		}
+
+		@Override
+		protected long getPollingTimeout(String itemName) {
+			return "Slow".equals(itemName) ? 500 : 0;
+		}
+
+		@Override
+		protected String getName() {
+			return "Test Refresh Service";
+		}
+
+		int getPolls(String itemName) {
+			AtomicInteger count = polls.get(itemName);
+			return count != null ? count.get() : 0;
+		}
+	}
+
+	static class TestProvider implements BindingProvider {
+
+		final Set<String> itemNames = new CopyOnWriteArraySet<String>();
+
+		public void addBindingChangeListener(BindingChangeListener listener) {
+		}
+
+		public void removeBindingChangeListener(BindingChangeListener listener) {
+		}
+
+		public boolean providesBindingFor(String itemName) {
+			return itemNames.contains(itemName);
+		}
+
+		public boolean providesBinding() {
+			return !itemNames.isEmpty();
+		}
+
+		public Collection<String> getItemNames() {
+			return itemNames;
+		}
+	}
+
+}
@@ -0,0 +1,264 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.internal.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.binding.AbstractBinding;
+import org.openhab.core.binding.BindingChangeListener;
+import org.openhab.core.binding.BindingProvider;
+import org.openhab.core.binding.BindingRoutingTable;
+import org.openhab.core.types.Command;
+import org.osgi.service.event.Event;
+
+/**
+ * @since 1.8.0
+ */
+public class BindingEventRouterTest {
+
+	private final BindingRoutingTable routingTable = BindingRoutingTable.getInstance();
+	private final EventPublisherImpl eventPublisher = new EventPublisherImpl();
+
+	private TestProvider provider1;
+	private TestProvider provider2;
+	private TestBinding binding1;
+	private TestBinding binding2;
+
+	@Before
+	public void setup() {
+		provider1 = new TestProvider("Light_Kitchen", "Light_Hall");
+		provider2 = new TestProvider("Light_Hall");
+		binding1 = new TestBinding();
+		binding2 = new TestBinding();
+		binding1.addBindingProvider(provider1);
+		binding2.addBindingProvider(provider2);
+	}
+
+	@After
+	public void tearDown() {
+		binding1.removeBindingProvider(provider1);
+		binding2.removeBindingProvider(provider2);
+	}
+
+	@Test
+	public void testRouting() {
+		assertTrue(routingTable.isRouted(binding1));
+		assertEquals(2, routingTable.getBindings("Light_Hall").length);
+		assertEquals(1, routingTable.getBindings("Light_Kitchen").length);
+		assertEquals(0, routingTable.getBindings("Light_Bath").length);
+
+		eventPublisher.sendCommand("Light_Kitchen", new TestCommand("ON"));
+		eventPublisher.sendCommand("Light_Hall", new TestCommand("OFF"));
+		eventPublisher.sendCommand("Light_Bath", new TestCommand("ON"));
+
+		assertEquals("[Light_Kitchen ON, Light_Hall OFF]", binding1.commands.toString());
+		assertEquals("[Light_Hall OFF]", binding2.commands.toString());
+	}
+
+	@Test
+	public void testBindingChanged() {
+		provider2.bind("Light_Bath");
+		provider2.unbind("Light_Hall");
+
+		eventPublisher.sendCommand("Light_Bath", new TestCommand("ON"));
+		eventPublisher.sendCommand("Light_Hall", new TestCommand("OFF"));
+
+		assertEquals("[Light_Bath ON]", binding2.commands.toString());
+	}
+
+	@Test
+	public void testRoutedEventsAreIgnored() {
+		Map<String, Object> properties = new HashMap<String, Object>();
+		properties.put("item", "Light_Kitchen");
+		properties.put("command", new TestCommand("ON"));
+		binding1.handleEvent(new Event("openhab/command/Light_Kitchen", properties));
+		properties.put(BindingRoutingTable.ROUTED_PROPERTY, Boolean.TRUE);
+		binding1.handleEvent(new Event("openhab/command/Light_Kitchen", properties));
+
+		assertEquals("[Light_Kitchen ON]", binding1.commands.toString());
+	}
+
+	@Test
+	public void testOverridingBindingsAreNotRouted() {
+		TestBinding binding = new TestBinding() {
+			@Override
+			public void receiveCommand(String itemName, Command command) {
+				commands.add(itemName + " " + command);
+			}
+		};
+		binding.addBindingProvider(new TestProvider("Light_Kitchen"));
+
+		assertFalse(routingTable.isRouted(binding));
+		assertEquals(1, routingTable.getBindings("Light_Kitchen").length);
+	}
+
+	@Test
+	public void testRemoveProvider() {
+		binding1.removeBindingProvider(provider1);
+
+		assertFalse(routingTable.isRouted(binding1));
+		assertEquals(1, routingTable.getBindings("Light_Hall").length);
+		assertEquals(0, routingTable.getBindings("Light_Kitchen").length);
+	}
+
+	@Test
+	public void testReplacedItemsAreRoutedWithoutGap() throws InterruptedException {
+		final List<String> items = new ArrayList<String>();
+		items.add("Light_Kitchen");
+		items.add("Light_Hall");
+		Thread writer = new Thread() {
+			@Override
+			public void run() {
+				for(int i = 0; i < 10000; i++) {
+					routingTable.setItems(binding1, items);
+				}
+			}
+		};
+		writer.start();
+		int gaps = 0;
+		while(writer.isAlive()) {
+			if(!routingTable.isRouted(binding1) || routingTable.getBindings("Light_Kitchen").length==0) {
+				gaps++;
+			}
+		}
+		writer.join();
+
+		assertEquals(0, gaps);
+		assertEquals(2, routingTable.getBindings("Light_Hall").length);
+	}
+
+	@Test
+	public void testSlowBindingDoesNotDelayOtherBindings() throws InterruptedException {
+		final CountDownLatch released = new CountDownLatch(1);
+		final CountDownLatch received = new CountDownLatch(1);
+		TestBinding slowBinding = new TestBinding() {
+			@Override
+			protected void internalReceiveCommand(String itemName, Command command) {
+				try {
+					released.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.internalReceiveCommand(itemName, command);
+			}
+		};
+		TestBinding fastBinding = new TestBinding() {
+			@Override
+			protected void internalReceiveCommand(String itemName, Command command) {
+				super.internalReceiveCommand(itemName, command);
+				received.countDown();
+			}
+		};
+		TestProvider provider = new TestProvider("Light_Garden");
+		slowBinding.addBindingProvider(provider);
+		fastBinding.addBindingProvider(provider);
+		try {
+			eventPublisher.postCommand("Light_Garden", new TestCommand("ON"));
+
+			assertTrue(received.await(5, TimeUnit.SECONDS));
+			assertEquals("[Light_Garden ON]", fastBinding.commands.toString());
+			assertTrue(slowBinding.commands.isEmpty());
+		} finally {
+			released.countDown();
+			slowBinding.removeBindingProvider(provider);
+			fastBinding.removeBindingProvider(provider);
+		}
+	}
+
+	static class TestBinding extends AbstractBinding<BindingProvider> {
+
+		final List<String> commands = new CopyOnWriteArrayList<String>();
+
+		@Override
+		protected void internalReceiveCommand(String itemName, Command command) {
+			commands.add(itemName + " " + command);
+		}
+	}
+
+	static class TestProvider implements BindingProvider {
+
+		private final Set<String> itemNames = new CopyOnWriteArraySet<String>();
+		private final Set<BindingChangeListener> listeners = new CopyOnWriteArraySet<BindingChangeListener>();
+
+		TestProvider(String... itemNames) {
+			for(String itemName : itemNames) {
+				this.itemNames.add(itemName);
+			}
+		}
+
+		void bind(String itemName) {
+			itemNames.add(itemName);
+			for(BindingChangeListener listener : listeners) {
+				listener.bindingChanged(this, itemName);
+			}
+		}
+
+		void unbind(String itemName) {
+			itemNames.remove(itemName);
+			for(BindingChangeListener listener : listeners) {
+				listener.bindingChanged(this, itemName);
+			}
+		}
+
+		public void addBindingChangeListener(BindingChangeListener listener) {
+			listeners.add(listener);
+		}
+
+		public void removeBindingChangeListener(BindingChangeListener listener) {
+			listeners.remove(listener);
+		}
+
+		public boolean providesBindingFor(String itemName) {
+			return itemNames.contains(itemName);
+		}
+
+		public boolean providesBinding() {
+			return !itemNames.isEmpty();
+		}
+
+		public Collection<String> getItemNames() {
+			return new ArrayList<String>(itemNames);
+		}
+	}
+
+	static class TestCommand implements Command {
+
+		private final String value;
+
+		TestCommand(String value) {
+			this.value = value;
+		}
+
+		public String format(String pattern) {
+			return value;
+		}
+
+		@Override
+		public String toString() {
+			return value;
+		}
+	}
+
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.internal.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.events.AbstractEventSubscriber;
+import org.openhab.core.events.ItemEvent;
+import org.openhab.core.events.ItemEventListener;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.EventType;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+
+/**
+ * @since 1.8.0
+ */
+public class EventPublisherImplTest {
+
+	private final EventPublisherImpl eventPublisher = new EventPublisherImpl();
+	private final RecordingEventAdmin eventAdmin = new RecordingEventAdmin();
+	private final RecordingSubscriber subscriber = new RecordingSubscriber();
+	private final RecordingSubscriber otherSubscriber = new RecordingSubscriber();
+
+	@Before
+	public void setup() {
+		eventPublisher.setEventAdmin(eventAdmin);
+		eventPublisher.addItemEventListener(subscriber);
+	}
+
+	@Test
+	public void testSendCommand() {
+		eventPublisher.sendCommand("Light", new TestCommand("ON"));
+
+		assertEquals("[command Light ON]", subscriber.events.toString());
+
+		Event event = eventAdmin.events.get(0);
+		assertEquals("openhab/command/Light", event.getTopic());
+		assertTrue(ItemEvent.isDispatchedTo(event, subscriber));
+		assertFalse(ItemEvent.isDispatchedTo(event, otherSubscriber));
+
+		// the subscriber ignores the event from the EventAdmin, which it has already received
+		subscriber.handleEvent(event);
+		otherSubscriber.handleEvent(event);
+		assertEquals("[command Light ON]", subscriber.events.toString());
+		assertEquals("[command Light ON]", otherSubscriber.events.toString());
+	}
+
+	@Test
+	public void testPostUpdatesInOrder() throws InterruptedException {
+		subscriber.expected = new CountDownLatch(100);
+		for(int i = 0; i < 100; i++) {
+			eventPublisher.postUpdate("Item" + i, UnDefType.UNDEF);
+		}
+		assertTrue(subscriber.expected.await(5, TimeUnit.SECONDS));
+
+		for(int i = 0; i < 100; i++) {
+			assertEquals("update Item" + i + " UNDEF", subscriber.events.get(i));
+		}
+		assertEquals("openhab/update/Item0", eventAdmin.events.get(0).getTopic());
+	}
+
+	@Test
+	public void testRemoveListener() {
+		eventPublisher.removeItemEventListener(subscriber);
+		eventPublisher.sendCommand("Light", new TestCommand("ON"));
+
+		assertTrue(subscriber.events.isEmpty());
+		assertFalse(ItemEvent.isDispatchedTo(eventAdmin.events.get(0), subscriber));
+	}
+
+	@Test
+	public void testSlowListenerDoesNotDelayOtherListeners() throws InterruptedException {
+		final CountDownLatch released = new CountDownLatch(1);
+		RecordingSubscriber slowSubscriber = new RecordingSubscriber() {
+			@Override
+			public void receiveUpdate(String itemName, State newState) {
+				try {
+					released.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.receiveUpdate(itemName, newState);
+			}
+		};
+		slowSubscriber.expected = new CountDownLatch(1);
+		eventPublisher.addItemEventListener(slowSubscriber);
+		subscriber.expected = new CountDownLatch(1);
+		try {
+			eventPublisher.postUpdate("Item", UnDefType.UNDEF);
+
+			assertTrue(subscriber.expected.await(5, TimeUnit.SECONDS));
+			assertTrue(slowSubscriber.events.isEmpty());
+		} finally {
+			released.countDown();
+		}
+		assertTrue(slowSubscriber.expected.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testLaterListenersAreNotDispatched() {
+		eventPublisher.sendCommand("Light", new TestCommand("ON"));
+		eventPublisher.addItemEventListener(otherSubscriber);
+
+		assertFalse(ItemEvent.isDispatchedTo(eventAdmin.events.get(0), otherSubscriber));
+	}
+
+	@Test
+	public void testItemEvent() {
+		ItemEvent event = ItemEvent.createUpdateEvent("Light", UnDefType.NULL);
+		assertEquals(EventType.UPDATE, event.getType());
+		assertEquals(UnDefType.NULL, event.getState());
+		assertEquals(null, event.getCommand());
+	}
+
+	static class RecordingSubscriber extends AbstractEventSubscriber implements ItemEventListener {
+
+		final List<String> events = new CopyOnWriteArrayList<String>();
+		CountDownLatch expected;
+
+		public void itemEventReceived(ItemEvent event) {
+			if(event.getType()==EventType.UPDATE) {
+				receiveUpdate(event.getItemName(), event.getState());
+			} else {
+				receiveCommand(event.getItemName(), event.getCommand());
+			}
+		}
+
+		@Override
+		public void receiveCommand(String itemName, Command command) {
+			events.add("command " + itemName + " " + command);
+		}
+
+		@Override
+		public void receiveUpdate(String itemName, State newState) {
+			events.add("update " + itemName + " " + ((UnDefType) newState).name());
+			expected.countDown();
+		}
+	}
+
+	static class RecordingEventAdmin implements EventAdmin {
+
+		final List<Event> events = new ArrayList<Event>();
+
+		public void postEvent(Event event) {
+			events.add(event);
+		}
+
+		public void sendEvent(Event event) {
+			events.add(event);
+		}
+	}
+
+	static class TestCommand implements Command {
+
+		private final String value;
+
+		TestCommand(String value) {
+			this.value = value;
+		}
+
+		public String format(String pattern) {
+			return value;
+		}
+
+		@Override
+		public String toString() {
+			return value;
+		}
+	}
+
+}
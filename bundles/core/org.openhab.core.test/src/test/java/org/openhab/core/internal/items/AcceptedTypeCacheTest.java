@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.internal.items;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.items.GroupItem;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+
+/**
+ * @since 1.8.0
+ */
+public class AcceptedTypeCacheTest {
+
+	private final AcceptedTypeCache cache = new AcceptedTypeCache();
+
+	@Test
+	public void testAcceptedTypes() {
+		TestItem item = new TestItem("TestItem", BaseState.class, UnDefType.class);
+
+		assertTrue(cache.isAccepted(item, new BaseState()));
+		assertTrue(cache.isAccepted(item, new DerivedState()));
+		assertTrue(cache.isAccepted(item, UnDefType.NULL));
+		assertFalse(cache.isAccepted(item, new OtherState()));
+		// the cached results are the same
+		assertTrue(cache.isAccepted(item, new DerivedState()));
+		assertFalse(cache.isAccepted(item, new OtherState()));
+	}
+
+	@Test
+	public void testGroupItems() {
+		GroupItem groupWithBaseItem = new GroupItem("Group1", new TestItem("Base", OtherState.class));
+		assertTrue(cache.isAccepted(groupWithBaseItem, new OtherState()));
+		assertFalse(cache.isAccepted(groupWithBaseItem, new BaseState()));
+
+		GroupItem groupWithoutBaseItem = new GroupItem("Group2");
+		assertFalse(cache.isAccepted(groupWithoutBaseItem, new BaseState()));
+		groupWithoutBaseItem.addMember(new TestItem("Member", BaseState.class));
+		assertTrue(cache.isAccepted(groupWithoutBaseItem, new BaseState()));
+	}
+
+	static class BaseState implements State {
+		public String format(String pattern) {
+			return pattern;
+		}
+	}
+
+	static class DerivedState extends BaseState {
+	}
+
+	static class OtherState implements State {
+		public String format(String pattern) {
+			return pattern;
+		}
+	}
+
+	class TestItem extends GenericItem {
+
+		private final List<Class<? extends State>> acceptedDataTypes = new ArrayList<Class<? extends State>>();
+
+		public TestItem(String name, Class<? extends State>... acceptedDataTypes) {
+			super(name);
+			Collections.addAll(this.acceptedDataTypes, acceptedDataTypes);
+		}
+
+		@Override
+		public List<Class<? extends State>> getAcceptedDataTypes() {
+			return acceptedDataTypes;
+		}
+
+		@Override
+		public List<Class<? extends Command>> getAcceptedCommandTypes() {
+			return Collections.emptyList();
+		}
+
+	}
+
+}
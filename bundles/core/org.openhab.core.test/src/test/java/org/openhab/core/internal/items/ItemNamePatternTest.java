@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.internal.items;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @since 1.8.0
+ */
+public class ItemNamePatternTest {
+
+	@Test
+	public void testLiteral() {
+		ItemNamePattern pattern = ItemNamePattern.compile("Light_Hall");
+		assertTrue(pattern.isLiteral());
+		assertTrue(pattern.matches("Light_Hall"));
+		assertFalse(pattern.matches("Light_Hall2"));
+	}
+
+	@Test
+	public void testPrefix() {
+		ItemNamePattern pattern = ItemNamePattern.compile("Light_**");
+		assertTrue(pattern.isPrefix());
+		assertEquals("Light_", pattern.getPrefix());
+		assertTrue(pattern.matches("Light_Hall"));
+		assertFalse(pattern.matches("Dimmer_Hall"));
+	}
+
+	@Test
+	public void testWildcards() {
+		ItemNamePattern pattern = ItemNamePattern.compile("*_Hal?");
+		assertFalse(pattern.isLiteral());
+		assertFalse(pattern.isPrefix());
+		assertTrue(pattern.matches("Light_Hall"));
+		assertTrue(pattern.matches("Light_Hal"));
+		assertFalse(pattern.matches("Light_Hallway"));
+	}
+
+	@Test
+	public void testCompiledPatternIsCached() {
+		assertSame(ItemNamePattern.compile("*_Hall"), ItemNamePattern.compile("*_Hall"));
+	}
+
+}
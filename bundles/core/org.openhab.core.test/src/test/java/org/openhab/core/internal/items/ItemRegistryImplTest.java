@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.internal.items;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.items.GroupItem;
+import org.openhab.core.items.Item;
+import org.openhab.core.items.ItemNotFoundException;
+import org.openhab.core.items.ItemProvider;
+import org.openhab.core.items.ItemsChangeListener;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+
+/**
+ * Checks that the name index of the {@link ItemRegistryImpl} is kept in sync
+ * with the items of its providers.
+ *
+ * @since 1.8.0
+ */
+public class ItemRegistryImplTest {
+
+	private ItemRegistryImpl registry;
+	private TestItemProvider provider;
+
+	@Before
+	public void setup() {
+		registry = new ItemRegistryImpl();
+		provider = new TestItemProvider();
+		provider.items.add(new TestItem("Light_Kitchen"));
+		provider.items.add(new TestItem("Light_Hall"));
+		registry.addItemProvider(provider);
+	}
+
+	@Test
+	public void testGetItemAfterProviderAdded() throws ItemNotFoundException {
+		assertEquals("Light_Kitchen", registry.getItem("Light_Kitchen").getName());
+		assertEquals("Light_Hall", registry.getItem("Light_Hall").getName());
+		assertNotFound("Light_Bath");
+	}
+
+	@Test
+	public void testGetItemAfterItemAddedAndRemoved() throws ItemNotFoundException {
+		Item item = new TestItem("Light_Bath");
+		registry.itemAdded(provider, item);
+		assertSame(item, registry.getItem("Light_Bath"));
+
+		registry.itemRemoved(provider, item);
+		assertNotFound("Light_Bath");
+	}
+
+	@Test
+	public void testGetItemAfterAllItemsChanged() throws ItemNotFoundException {
+		provider.items.clear();
+		provider.items.add(new TestItem("Light_Bath"));
+		registry.allItemsChanged(provider, null);
+
+		assertEquals("Light_Bath", registry.getItem("Light_Bath").getName());
+		assertNotFound("Light_Kitchen");
+		assertNotFound("Light_Hall");
+	}
+
+	@Test
+	public void testGetItemAfterProviderRemoved() {
+		registry.removeItemProvider(provider);
+		assertNotFound("Light_Kitchen");
+		assertNotFound("Light_Hall");
+	}
+
+	@Test
+	public void testGetItemsByPattern() {
+		provider.items.add(new TestItem("Temperature_Hall"));
+		registry.allItemsChanged(provider, null);
+
+		assertEquals(2, registry.getItems("Light_*").size());
+		assertEquals(2, registry.getItems("*_Hall").size());
+		assertEquals(1, registry.getItems("Temp*_Hal?").size());
+		assertEquals(1, registry.getItems("Light_Hall").size());
+		assertEquals(0, registry.getItems("Light").size());
+		assertEquals(3, registry.getItems("*").size());
+	}
+
+	@Test
+	public void testGroupMembers() throws ItemNotFoundException {
+		TestItem member = new TestItem("Light_Bath");
+		member.getGroupNames().add("Lights");
+		registry.itemAdded(provider, member);
+		GroupItem group = new GroupItem("Lights");
+		registry.itemAdded(provider, group);
+		assertTrue(group.getMembers().contains(member));
+
+		TestItem newMember = new TestItem("Light_Garden");
+		newMember.getGroupNames().add("Lights");
+		registry.itemAdded(provider, newMember);
+		assertTrue(group.getMembers().contains(newMember));
+
+		registry.itemRemoved(provider, member);
+		assertFalse(group.getMembers().contains(member));
+		assertEquals(1, group.getMembers().size());
+	}
+
+	@Test
+	public void testUnchangedItemsAreKept() throws ItemNotFoundException {
+		Item kitchen = registry.getItem("Light_Kitchen");
+		((GenericItem) kitchen).setState(UnDefType.UNDEF);
+		GroupItem group = new GroupItem("Lights");
+		TestItem hall = new TestItem("Light_Hall");
+		hall.getGroupNames().add("Lights");
+		provider.items.set(1, hall);
+		provider.items.add(group);
+		registry.allItemsChanged(provider, null);
+
+		assertSame(kitchen, registry.getItem("Light_Kitchen"));
+		assertEquals(UnDefType.UNDEF, kitchen.getState());
+		assertSame(hall, registry.getItem("Light_Hall"));
+		assertEquals(1, group.getMembers().size());
+
+		// the group is only filled once, although it is provided again
+		registry.allItemsChanged(provider, null);
+		assertEquals(1, group.getMembers().size());
+	}
+
+	private void assertNotFound(String name) {
+		try {
+			registry.getItem(name);
+			fail("item '" + name + "' should not be found");
+		} catch (ItemNotFoundException e) {
+			// expected
+		}
+	}
+
+	class TestItemProvider implements ItemProvider {
+
+		List<Item> items = new ArrayList<Item>();
+
+		@Override
+		public Collection<Item> getItems() {
+			return new ArrayList<Item>(items);
+		}
+
+		@Override
+		public void addItemChangeListener(ItemsChangeListener listener) {
+		}
+
+		@Override
+		public void removeItemChangeListener(ItemsChangeListener listener) {
+		}
+	}
+
+	class TestItem extends GenericItem {
+
+		public TestItem(String name) {
+			super(name);
+		}
+
+		@Override
+		public List<Class<? extends State>> getAcceptedDataTypes() {
+			return null;
+		}
+
+		@Override
+		public List<Class<? extends Command>> getAcceptedCommandTypes() {
+			return null;
+		}
+	}
+
+}
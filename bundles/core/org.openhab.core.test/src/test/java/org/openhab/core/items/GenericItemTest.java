@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.items;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+
+/**
+ * @since 1.8.0
+ */
+public class GenericItemTest {
+
+	@After
+	public void disableStatistics() {
+		GenericItem.setStatisticsEnabled(false);
+	}
+
+	@Test
+	public void testNotifyListeners() {
+		TestItem item = new TestItem("TestItem");
+		RecordingListener listener1 = new RecordingListener("1");
+		RecordingListener listener2 = new RecordingListener("2");
+		item.addStateChangeListener(listener1);
+		item.addStateChangeListener(listener2);
+		// adding a listener twice must not notify it twice
+		item.addStateChangeListener(listener1);
+
+		item.setState(UnDefType.UNDEF);
+		item.setState(UnDefType.UNDEF);
+		item.removeStateChangeListener(listener2);
+		item.setState(UnDefType.NULL);
+
+		assertEquals("[1 updated UNDEF, 1 changed NULL -> UNDEF, 1 updated UNDEF, 1 updated NULL, 1 changed UNDEF -> NULL]",
+				listener1.events.toString());
+		assertEquals("[2 updated UNDEF, 2 changed NULL -> UNDEF, 2 updated UNDEF]", listener2.events.toString());
+	}
+
+	@Test
+	public void testRemoveListenerDuringNotification() {
+		final TestItem item = new TestItem("TestItem");
+		final RecordingListener listener2 = new RecordingListener("2");
+		RecordingListener listener1 = new RecordingListener("1") {
+			@Override
+			public void stateUpdated(Item item2, State state) {
+				super.stateUpdated(item2, state);
+				item.removeStateChangeListener(listener2);
+			}
+		};
+		item.addStateChangeListener(listener1);
+		item.addStateChangeListener(listener2);
+
+		// the running notification still uses the previous listeners
+		item.setState(UnDefType.UNDEF);
+		item.setState(UnDefType.NULL);
+
+		assertEquals("[2 updated UNDEF, 2 changed NULL -> UNDEF]", listener2.events.toString());
+	}
+
+	@Test
+	public void testStatistics() {
+		TestItem item = new TestItem("TestItem");
+		item.setState(UnDefType.UNDEF);
+		assertEquals(0, item.getStateChangeCount());
+		assertEquals(0, item.getLastStateChange());
+
+		GenericItem.setStatisticsEnabled(true);
+		long start = System.currentTimeMillis();
+		item.setState(UnDefType.NULL);
+		item.setState(UnDefType.NULL);
+		item.setState(UnDefType.UNDEF);
+
+		assertEquals(2, item.getStateChangeCount());
+		assertTrue(item.getLastStateChange() >= start);
+	}
+
+	class RecordingListener implements StateChangeListener {
+
+		final List<String> events = new ArrayList<String>();
+		private final String name;
+
+		RecordingListener(String name) {
+			this.name = name;
+		}
+
+		public void stateChanged(Item item, State oldState, State newState) {
+			events.add(name + " changed " + ((UnDefType) oldState).name() + " -> " + ((UnDefType) newState).name());
+		}
+
+		public void stateUpdated(Item item, State state) {
+			events.add(name + " updated " + ((UnDefType) state).name());
+		}
+	}
+
+	class TestItem extends GenericItem {
+
+		public TestItem(String name) {
+			super(name);
+		}
+
+		@Override
+		public List<Class<? extends State>> getAcceptedDataTypes() {
+			return null;
+		}
+
+		@Override
+		public List<Class<? extends Command>> getAcceptedCommandTypes() {
+			return null;
+		}
+
+	}
+
+}
@@ -54,6 +54,14 @@ public class GroupItemTest {
 	}
 	
 	
+	@Test
+	public void testRemoveAllMembers() {
+		rootGroupItem.removeAllMembers();
+		Assert.assertTrue(rootGroupItem.getMembers().isEmpty());
+		Assert.assertTrue(rootGroupItem.getAllMembers().isEmpty());
+	}
+	
+	
 	class TestItem extends GenericItem {
 
 		public TestItem(String name) {
@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since 1.8.0
+ */
+public class PollingSchedulerTest {
+
+	private PollingScheduler scheduler;
+
+	@Before
+	public void init() {
+		scheduler = new PollingScheduler(4, 0);
+	}
+
+	@After
+	public void cleanup() {
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testTaskIsExecutedPeriodically() throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(3);
+		PollingScheduler.Task task = scheduler.schedule("test", "task", 10, new Runnable() {
+			public void run() {
+				latch.countDown();
+			}
+		});
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		task.cancel();
+		Thread.sleep(50);
+		assertTrue(scheduler.getStatistics().get("test").getExecutions() >= 3);
+	}
+
+	@Test
+	public void testCancelledTaskIsNotExecuted() throws InterruptedException {
+		final AtomicInteger executions = new AtomicInteger();
+		PollingScheduler.Task task = scheduler.schedule("test", "task", 10, new Runnable() {
+			public void run() {
+				executions.incrementAndGet();
+			}
+		});
+		Thread.sleep(100);
+		task.cancel();
+		Thread.sleep(50);
+		int count = executions.get();
+		Thread.sleep(100);
+
+		assertTrue(task.isCancelled());
+		assertEquals(count, executions.get());
+	}
+
+	@Test
+	public void testConcurrencyLimit() throws InterruptedException {
+		scheduler.setConcurrencyLimit("test", 1);
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		final CountDownLatch latch = new CountDownLatch(6);
+		Runnable runnable = new Runnable() {
+			public void run() {
+				int current = running.incrementAndGet();
+				if (current > maxRunning.get()) {
+					maxRunning.set(current);
+				}
+				try {
+					Thread.sleep(20);
+				} catch (InterruptedException e) {
+				}
+				running.decrementAndGet();
+				latch.countDown();
+			}
+		};
+		PollingScheduler.Task task1 = scheduler.schedule("test", "task1", 0, runnable);
+		PollingScheduler.Task task2 = scheduler.schedule("test", "task2", 0, runnable);
+		PollingScheduler.Task task3 = scheduler.schedule("test", "task3", 0, runnable);
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		task1.cancel();
+		task2.cancel();
+		task3.cancel();
+		assertEquals(1, maxRunning.get());
+	}
+
+	@Test
+	public void testTriggerExecutesImmediately() throws InterruptedException {
+		final CountDownLatch first = new CountDownLatch(1);
+		final CountDownLatch second = new CountDownLatch(2);
+		PollingScheduler.Task task = scheduler.schedule("test", "task", 60000, new Runnable() {
+			public void run() {
+				first.countDown();
+				second.countDown();
+			}
+		});
+		assertTrue(first.await(5, TimeUnit.SECONDS));
+		Thread.sleep(50);
+
+		task.trigger();
+		assertTrue(second.await(5, TimeUnit.SECONDS));
+		task.cancel();
+	}
+
+	@Test
+	public void testTimedOutExecutionIsInterrupted() throws InterruptedException {
+		final CountDownLatch interrupted = new CountDownLatch(1);
+		PollingScheduler.Task task = scheduler.schedule("test", "task", 60000, 50, new Runnable() {
+			public void run() {
+				try {
+					Thread.sleep(5000);
+				} catch (InterruptedException e) {
+					interrupted.countDown();
+				}
+			}
+		});
+
+		assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+		task.cancel();
+		Thread.sleep(50);
+		assertEquals(1, scheduler.getStatistics().get("test").getTimedOut());
+	}
+
+	@Test
+	public void testSlowGroupDoesNotBlockOtherGroups() throws InterruptedException {
+		final CountDownLatch blocked = new CountDownLatch(1);
+		Runnable slow = new Runnable() {
+			public void run() {
+				try {
+					blocked.await();
+				} catch (InterruptedException e) {
+				}
+			}
+		};
+		PollingScheduler.Task[] slowTasks = new PollingScheduler.Task[4];
+		for (int i = 0; i < slowTasks.length; i++) {
+			slowTasks[i] = scheduler.schedule("slow", "slow" + i, 0, slow);
+		}
+		final CountDownLatch fast = new CountDownLatch(3);
+		PollingScheduler.Task fastTask = scheduler.schedule("fast", "fast", 10, new Runnable() {
+			public void run() {
+				fast.countDown();
+			}
+		});
+
+		// the slow tasks only occupy as many of the four workers as their group is allowed to use
+		assertTrue(fast.await(5, TimeUnit.SECONDS));
+		PollingScheduler.Statistics statistics = scheduler.getStatistics().get("slow");
+		assertEquals(PollingScheduler.DEFAULT_CONCURRENCY_LIMIT, statistics.getRunning());
+		assertEquals(slowTasks.length - PollingScheduler.DEFAULT_CONCURRENCY_LIMIT, statistics.getWaiting());
+
+		fastTask.cancel();
+		for (PollingScheduler.Task task : slowTasks) {
+			task.cancel();
+		}
+		blocked.countDown();
+	}
+
+	@Test
+	public void testOverdueExecutionsAreCounted() throws InterruptedException {
+		scheduler.setConcurrencyLimit("slow", 1);
+		final CountDownLatch latch = new CountDownLatch(2);
+		Runnable runnable = new Runnable() {
+			public void run() {
+				try {
+					Thread.sleep(PollingScheduler.OVERDUE_TOLERANCE + 200);
+				} catch (InterruptedException e) {
+				}
+				latch.countDown();
+			}
+		};
+		PollingScheduler.Task task1 = scheduler.schedule("slow", "task1", 60000, runnable);
+		PollingScheduler.Task task2 = scheduler.schedule("slow", "task2", 60000, runnable);
+
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		task1.cancel();
+		task2.cancel();
+		Thread.sleep(50);
+		PollingScheduler.Statistics statistics = scheduler.getStatistics().get("slow");
+		assertEquals(2, statistics.getExecutions());
+		assertEquals(1, statistics.getOverdue());
+		assertTrue(statistics.getMaxLateness() > PollingScheduler.OVERDUE_TOLERANCE);
+	}
+
+}
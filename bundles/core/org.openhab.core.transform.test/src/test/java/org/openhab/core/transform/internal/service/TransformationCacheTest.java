@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.transform.internal.service;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.transform.TransformationException;
+
+
+/**
+ * @since 1.8.0
+ */
+public class TransformationCacheTest {
+
+	private TransformationCache cache;
+
+	private File file;
+
+	private int loads;
+
+	@Before
+	public void init() throws IOException {
+		cache = new TransformationCache(2);
+		file = File.createTempFile("transform", ".map");
+		loads = 0;
+	}
+
+	@After
+	public void cleanup() {
+		file.delete();
+	}
+
+	@Test
+	public void testExpressionIsCompiledOnce() throws TransformationException {
+		Assert.assertEquals("a1", cache.get("test", "a", loader("a")));
+		Assert.assertEquals("a1", cache.get("test", "a", loader("a")));
+		Assert.assertEquals("a2", cache.get("other", "a", loader("a")));
+
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() throws TransformationException {
+		cache.get("test", "a", loader("a"));
+		cache.get("test", "b", loader("b"));
+		cache.get("test", "a", loader("a"));
+		cache.get("test", "c", loader("c"));
+
+		Assert.assertEquals(2, cache.size());
+		Assert.assertEquals("a1", cache.get("test", "a", loader("a")));
+		Assert.assertEquals("b4", cache.get("test", "b", loader("b")));
+	}
+
+	@Test
+	public void testModifiedFileIsReloaded() throws TransformationException, IOException {
+		FileUtils.writeStringToFile(file, "a=1");
+		Assert.assertEquals("f1", cache.get("test", file, loader("f")));
+		Assert.assertEquals("f1", cache.get("test", file, loader("f")));
+
+		FileUtils.writeStringToFile(file, "a=10");
+		Assert.assertEquals("f2", cache.get("test", file, loader("f")));
+		Assert.assertEquals(2, cache.getMisses());
+	}
+
+	@Test(expected=TransformationException.class)
+	public void testFailureIsNotCached() throws TransformationException {
+		try {
+			cache.get("test", "a", new TransformationCache.Loader<String>() {
+				public String load() throws TransformationException {
+					throw new TransformationException("invalid");
+				}
+			});
+			Assert.fail();
+		} catch (TransformationException e) {
+			Assert.assertEquals(0, cache.size());
+		}
+		cache.get("test", "a", new TransformationCache.Loader<String>() {
+			public String load() throws TransformationException {
+				throw new TransformationException("still invalid");
+			}
+		});
+	}
+
+	private TransformationCache.Loader<String> loader(final String value) {
+		return new TransformationCache.Loader<String>() {
+			public String load() {
+				return value + (++loads);
+			}
+		};
+	}
+
+}
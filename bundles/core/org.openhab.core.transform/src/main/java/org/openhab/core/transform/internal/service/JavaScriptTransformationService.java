@@ -10,10 +10,13 @@ package org.openhab.core.transform.internal.service;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
@@ -60,32 +63,30 @@ public class JavaScriptTransformationService implements TransformationService {
 
 		logger.debug("about to transform '{}' by the Java Script '{}'", source, filename);
 
-		Reader reader;
-
-		try {
-			String path = ConfigDispatcher.getConfigFolder() 
-				+ File.separator + TransformationActivator.TRANSFORM_FOLDER_NAME
-				+ File.separator + filename;
-			reader = new InputStreamReader(new FileInputStream(path));
-		} catch (FileNotFoundException e) {
-			throw new TransformationException("An error occured while loading script.", e);
-		}
-
-		ScriptEngineManager manager = new ScriptEngineManager();
-		
-		ScriptEngine engine = manager.getEngineByName("javascript");
-		engine.put("input", source);
+		final File file = new File(ConfigDispatcher.getConfigFolder()
+			+ File.separator + TransformationActivator.TRANSFORM_FOLDER_NAME
+			+ File.separator + filename);
+		Script script = TransformationCache.getInstance().get("javascript", file, new TransformationCache.Loader<Script>() {
+			public Script load() throws TransformationException {
+				return loadScript(file);
+			}
+		});
 
 		Object result = null;
 
 		long startTime = System.currentTimeMillis();
 
 		try {
-			result = engine.eval(reader);
+			// every transformation gets its own bindings, so that the compiled script can be shared
+			Bindings bindings = script.engine.createBindings();
+			bindings.put("input", source);
+			if (script.compiledScript != null) {
+				result = script.compiledScript.eval(bindings);
+			} else {
+				result = script.engine.eval(script.source, bindings);
+			}
 		} catch (ScriptException e) {
 			throw new TransformationException("An error occured while executing script.", e);
-		} finally {
-			IOUtils.closeQuietly(reader);
 		}
 
 		logger.trace("JavaScript execution elapsed {} ms", System.currentTimeMillis() - startTime);
@@ -93,4 +94,54 @@ public class JavaScriptTransformationService implements TransformationService {
 		return String.valueOf(result);
 	}
 
+	/**
+	 * Reads the given script and compiles it, if the script engine supports it.
+	 */
+	private static Script loadScript(File file) throws TransformationException {
+		String source;
+		Reader reader = null;
+		try {
+			reader = new InputStreamReader(new FileInputStream(file));
+			source = IOUtils.toString(reader);
+		} catch (IOException e) {
+			throw new TransformationException("An error occured while loading script.", e);
+		} finally {
+			IOUtils.closeQuietly(reader);
+		}
+
+		ScriptEngineManager manager = new ScriptEngineManager();
+		ScriptEngine engine = manager.getEngineByName("javascript");
+		if (engine == null) {
+			throw new TransformationException("No Java Script engine is available.");
+		}
+
+		CompiledScript compiledScript = null;
+		if (engine instanceof Compilable) {
+			try {
+				compiledScript = ((Compilable) engine).compile(source);
+			} catch (ScriptException e) {
+				throw new TransformationException("An error occured while compiling script.", e);
+			}
+		}
+		return new Script(engine, source, compiledScript);
+	}
+
+	/**
+	 * A script together with its engine and its compiled form.
+	 */
+	private static class Script {
+
+		private final ScriptEngine engine;
+		private final String source;
+
+		/** the compiled script, or <code>null</code> if the engine cannot compile scripts */
+		private final CompiledScript compiledScript;
+
+		private Script(ScriptEngine engine, String source, CompiledScript compiledScript) {
+			this.engine = engine;
+			this.source = source;
+			this.compiledScript = compiledScript;
+		}
+	}
+
 }
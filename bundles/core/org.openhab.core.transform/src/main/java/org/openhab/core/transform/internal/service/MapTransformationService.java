@@ -8,6 +8,7 @@
  */
 package org.openhab.core.transform.internal.service;
 
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
@@ -53,27 +54,40 @@ public class MapTransformationService extends LocalizableTransformationService i
 			throw new TransformationException("the given parameters 'filename' and 'source' must not be null");
 		}
 		
-		String path = getLocalizedProposedFilename(filename);					
-		Reader reader = null;
-		try {						
-			Properties properties = new Properties();
-			reader = new FileReader(path);
-			properties.load(reader);
-			String target = properties.getProperty(source);
-			if (target!=null) {
-				logger.debug("transformation resulted in '{}'", target);
-				return target;
-			} else {
-				logger.warn("Could not find a mapping for '{}' in the file '{}'.", source, filename);
-				return "";
-			}
-		} catch (IOException e) {
-			String message = "opening file '" + filename + "' throws exception";
-			logger.error(message, e);
-			throw new TransformationException(message, e);
-		} finally {
-			IOUtils.closeQuietly(reader);
+		String path = getLocalizedProposedFilename(filename);
+		Properties properties = loadProperties(filename, path);
+		String target = properties.getProperty(source);
+		if (target!=null) {
+			logger.debug("transformation resulted in '{}'", target);
+			return target;
+		} else {
+			logger.warn("Could not find a mapping for '{}' in the file '{}'.", source, filename);
+			return "";
 		}
 	}
 
+	/**
+	 * Returns the mappings of the given file, which are read again only
+	 * when the file has been modified.
+	 */
+	private static Properties loadProperties(final String filename, final String path) throws TransformationException {
+		return TransformationCache.getInstance().get("map", new File(path), new TransformationCache.Loader<Properties>() {
+			public Properties load() throws TransformationException {
+				Reader reader = null;
+				try {
+					Properties properties = new Properties();
+					reader = new FileReader(path);
+					properties.load(reader);
+					return properties;
+				} catch (IOException e) {
+					String message = "opening file '" + filename + "' throws exception";
+					logger.error(message, e);
+					throw new TransformationException(message, e);
+				} finally {
+					IOUtils.closeQuietly(reader);
+				}
+			}
+		});
+	}
+
 }
@@ -43,7 +43,7 @@ public class RegExTransformationService implements TransformationService {
 
 		String result = source;
 
-		Matcher matcher = Pattern.compile("^" + regExpression + "$", Pattern.DOTALL).matcher(source.trim());
+		Matcher matcher = compile(regExpression).matcher(source.trim());
 		if (!matcher.matches()) {
 			logger.debug("the given regex '^{}$' doesn't match the given content '{}' -> couldn't compute transformation", regExpression, source);
 			return result;
@@ -67,4 +67,12 @@ public class RegExTransformationService implements TransformationService {
 		return result;
 	}
 
+	private static Pattern compile(final String regExpression) throws TransformationException {
+		return TransformationCache.getInstance().get("regex", regExpression, new TransformationCache.Loader<Pattern>() {
+			public Pattern load() {
+				return Pattern.compile("^" + regExpression + "$", Pattern.DOTALL);
+			}
+		});
+	}
+
 }
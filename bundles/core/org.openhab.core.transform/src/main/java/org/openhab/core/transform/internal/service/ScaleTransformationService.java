@@ -9,13 +9,16 @@
 package org.openhab.core.transform.internal.service;
 
 import java.io.BufferedReader;
-import java.io.DataInputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.apache.commons.io.IOUtils;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
 import org.slf4j.Logger;
@@ -53,55 +56,88 @@ public class ScaleTransformationService extends LocalizableTransformationService
 	 */
 	public String transform(String filename, String source) throws TransformationException {
 
-	if (filename == null || source == null) {
-		throw new TransformationException("the given parameters 'filename' and 'source' must not be null");
-	}
+		if (filename == null || source == null) {
+			throw new TransformationException("the given parameters 'filename' and 'source' must not be null");
+		}
 
-	String result = "not found";
-	String path = getLocalizedProposedFilename(filename);
-
-	try{
-		double value = Double.parseDouble(source);
-		FileInputStream fstream = new FileInputStream(path);
-		DataInputStream in = new DataInputStream(fstream);
-		BufferedReader br = new BufferedReader(new InputStreamReader(in));
-
-		String strLine;
-		while ((strLine = br.readLine()) != null) {
-			Matcher matcher = limits_pattern.matcher(strLine);
-			if (matcher.matches() && (matcher.groupCount()==5)) {
-				double minLimit = Double.parseDouble(matcher.group(2));
-				double maxLimit = Double.parseDouble(matcher.group(3));
-
-				// a bit of a trick to include/exclude limits of the segment
-				if (matcher.group(1).equals("]"))
-					minLimit = minLimit + 0.0000000001;
-				if (matcher.group(1).equals("["))
-					minLimit = minLimit - 0.0000000001;
-				if (matcher.group(4).equals("]"))
-					maxLimit = maxLimit + 0.0000000001;
-				if (matcher.group(4).equals("["))
-					maxLimit = maxLimit - 0.0000000001;
-
-				if ((minLimit < value) && (value < maxLimit)) {
-					result = matcher.group(5);
-					break;
-				}
-			} 
+		double value;
+		try {
+			value = Double.parseDouble(source);
+		} catch (NumberFormatException e) {
+			// If it's not a number let's try it like a classical map
+			// mainly for UnDefType value reason
+			MapTransformationService map = new MapTransformationService();
+			return map.transform(filename, source);
 		}
 
-		in.close();
-	} catch (NumberFormatException e){
-		// If it's not a number let's try it like a classical map
-		// mainly for UnDefType value reason
-		MapTransformationService map = new MapTransformationService();
-		result = map.transform(filename, source);
-		
-	} catch (IOException e) {	
-		throw new TransformationException("An error occured while scaling value ", e);
+		String path = getLocalizedProposedFilename(filename);
+		for (ScaleEntry entry : loadScale(path)) {
+			if ((entry.minLimit < value) && (value < entry.maxLimit)) {
+				return entry.result;
+			}
+		}
+		return "not found";
 	}
 
-	return result;
-}
+	/**
+	 * Returns the scale definitions of the given file, which are read again
+	 * only when the file has been modified.
+	 */
+	private static List<ScaleEntry> loadScale(final String path) throws TransformationException {
+		return TransformationCache.getInstance().get("scale", new File(path), new TransformationCache.Loader<List<ScaleEntry>>() {
+			public List<ScaleEntry> load() throws TransformationException {
+				List<ScaleEntry> scale = new ArrayList<ScaleEntry>();
+				BufferedReader br = null;
+				try {
+					br = new BufferedReader(new InputStreamReader(new FileInputStream(path)));
+					String strLine;
+					while ((strLine = br.readLine()) != null) {
+						Matcher matcher = limits_pattern.matcher(strLine);
+						if (matcher.matches() && (matcher.groupCount()==5)) {
+							try {
+								double minLimit = Double.parseDouble(matcher.group(2));
+								double maxLimit = Double.parseDouble(matcher.group(3));
+
+								// a bit of a trick to include/exclude limits of the segment
+								if (matcher.group(1).equals("]"))
+									minLimit = minLimit + 0.0000000001;
+								if (matcher.group(1).equals("["))
+									minLimit = minLimit - 0.0000000001;
+								if (matcher.group(4).equals("]"))
+									maxLimit = maxLimit + 0.0000000001;
+								if (matcher.group(4).equals("["))
+									maxLimit = maxLimit - 0.0000000001;
+
+								scale.add(new ScaleEntry(minLimit, maxLimit, matcher.group(5)));
+							} catch (NumberFormatException e) {
+								logger.warn("Ignoring invalid scale definition '{}' in file '{}'", strLine, path);
+							}
+						}
+					}
+				} catch (IOException e) {
+					throw new TransformationException("An error occured while scaling value ", e);
+				} finally {
+					IOUtils.closeQuietly(br);
+				}
+				return scale;
+			}
+		});
+	}
+
+	/**
+	 * A segment of a scale together with the value it is mapped to.
+	 */
+	private static class ScaleEntry {
+
+		private final double minLimit;
+		private final double maxLimit;
+		private final String result;
+
+		private ScaleEntry(double minLimit, double maxLimit, String result) {
+			this.minLimit = minLimit;
+			this.maxLimit = maxLimit;
+			this.result = result;
+		}
+	}
 
 }
@@ -0,0 +1,192 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.transform.internal.service;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openhab.core.transform.TransformationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the compiled form of the transformations (like XSLT templates, XPath
+ * expressions, regular expressions, scripts and parsed map and scale files),
+ * so that they do not have to be read and compiled again for every single
+ * transformation.
+ *
+ * <p>The cache is shared by all transformation services. Entries which have
+ * been loaded from a file are discarded as soon as the file has been modified,
+ * so changes to the files in the 'configurations/transform' folder are picked
+ * up with the next transformation. When more than <code>capacity</code>
+ * entries are cached, the least recently used ones are removed.</p>
+ *
+ * @since 1.8.0
+ */
+class TransformationCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(TransformationCache.class);
+
+	/** the maximum number of compiled transformations of the shared cache */
+	static final int DEFAULT_CAPACITY = 200;
+
+	private static final TransformationCache instance = new TransformationCache(DEFAULT_CAPACITY);
+
+	/**
+	 * Compiles a transformation, if it is not cached yet.
+	 */
+	interface Loader<T> {
+		/**
+		 * @return the compiled transformation, must not be <code>null</code>
+		 * @throws TransformationException if the transformation could not be compiled
+		 */
+		T load() throws TransformationException;
+	}
+
+	/**
+	 * A compiled transformation, together with the state of the file it has been loaded from.
+	 */
+	private static class Entry {
+
+		private final Object value;
+		private final File file;
+		private final long lastModified;
+		private final long length;
+
+		private Entry(Object value, File file, long lastModified, long length) {
+			this.value = value;
+			this.file = file;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+
+		private boolean isValid() {
+			return file==null || (file.lastModified()==lastModified && file.length()==length);
+		}
+	}
+
+	private final int capacity;
+
+	/** the entries in access order, guarded by themselves */
+	private final Map<String, Entry> entries;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	TransformationCache(final int capacity) {
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * @return the cache shared by all transformation services
+	 */
+	static TransformationCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns the cached transformation for an expression, or compiles and caches it.
+	 *
+	 * @param type the type of the transformation, which separates the keys of the different services
+	 * @param expression the expression to compile
+	 * @param loader compiles the expression
+	 * @return the compiled transformation
+	 * @throws TransformationException if the expression could not be compiled
+	 */
+	<T> T get(String type, String expression, Loader<T> loader) throws TransformationException {
+		return getEntry(type + ":" + expression, null, loader);
+	}
+
+	/**
+	 * Returns the cached transformation for a file, or loads and caches it. The cached
+	 * transformation is loaded again when the file has been modified in the meantime.
+	 *
+	 * @param type the type of the transformation, which separates the keys of the different services
+	 * @param file the file which contains the transformation
+	 * @param loader reads and compiles the file
+	 * @return the compiled transformation
+	 * @throws TransformationException if the file could not be read or compiled
+	 */
+	<T> T get(String type, File file, Loader<T> loader) throws TransformationException {
+		return getEntry(type + ":" + file.getPath(), file, loader);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T getEntry(String key, File file, Loader<T> loader) throws TransformationException {
+		Entry entry;
+		synchronized(entries) {
+			entry = entries.get(key);
+		}
+		if(entry!=null && entry.isValid()) {
+			hits.incrementAndGet();
+			return (T) entry.value;
+		}
+		misses.incrementAndGet();
+
+		// the state of the file is taken before it is read, so that a concurrent modification is detected next time
+		long lastModified = file!=null ? file.lastModified() : 0;
+		long length = file!=null ? file.length() : 0;
+		T value = loader.load();
+		synchronized(entries) {
+			entries.put(key, new Entry(value, file, lastModified, length));
+		}
+		logger.debug("Compiled transformation '{}' ({} hits, {} misses)", new Object[] { key, hits.get(), misses.get() });
+		return value;
+	}
+
+	/**
+	 * Removes all compiled transformations.
+	 */
+	void clear() {
+		synchronized(entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * @return the number of cached transformations
+	 */
+	int size() {
+		synchronized(entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * @return the maximum number of cached transformations
+	 */
+	int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the number of transformations which have been taken from the cache
+	 */
+	long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of transformations which had to be compiled
+	 */
+	long getMisses() {
+		return misses.get();
+	}
+
+}
@@ -15,6 +15,7 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
 import org.openhab.core.transform.TransformationException;
@@ -61,14 +62,19 @@ public class XPathTransformationService implements TransformationService {
 
 			Document doc = builder.parse(inputSource);
 
-			XPath xpath = XPathFactory.newInstance().newXPath();
-			XPathExpression expr = xpath.compile(xpathExpression);
+			XPathExpression expr = compile(xpathExpression);
 
-			String transformationResult = (String) expr.evaluate(doc, XPathConstants.STRING);
+			// compiled expressions are not thread-safe, but they are shared by all transformations
+			String transformationResult;
+			synchronized (expr) {
+				transformationResult = (String) expr.evaluate(doc, XPathConstants.STRING);
+			}
 
 			logger.debug("transformation resulted in '{}'", transformationResult);
 
 			return transformationResult;
+		} catch (TransformationException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new TransformationException("transformation throws exceptions", e);
 		} finally {
@@ -79,4 +85,17 @@ public class XPathTransformationService implements TransformationService {
 
 	}
 
+	private static XPathExpression compile(final String xpathExpression) throws TransformationException {
+		return TransformationCache.getInstance().get("xpath", xpathExpression, new TransformationCache.Loader<XPathExpression>() {
+			public XPathExpression load() throws TransformationException {
+				try {
+					XPath xpath = XPathFactory.newInstance().newXPath();
+					return xpath.compile(xpathExpression);
+				} catch (XPathExpressionException e) {
+					throw new TransformationException("transformation throws exceptions", e);
+				}
+			}
+		});
+	}
+
 }
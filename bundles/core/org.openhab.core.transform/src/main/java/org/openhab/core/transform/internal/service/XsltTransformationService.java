@@ -12,7 +12,7 @@ import java.io.File;
 import java.io.StringReader;
 import java.io.StringWriter;
 
-import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
@@ -53,33 +53,35 @@ public class XsltTransformationService implements TransformationService {
 	 * @{inheritDoc}
 	 * 
 	 */
-	public String transform(String filename, String source) throws TransformationException {
+	public String transform(final String filename, String source) throws TransformationException {
 
 		if (filename == null || source == null) {
 			throw new TransformationException("the given parameters 'filename' and 'source' must not be null");
 		}
 
-		Source xsl = null;
+		final File file = new File(ConfigDispatcher.getConfigFolder() + File.separator + TransformationActivator.TRANSFORM_FOLDER_NAME + File.separator + filename);
 
-		try {
-			String path = ConfigDispatcher.getConfigFolder() + File.separator + TransformationActivator.TRANSFORM_FOLDER_NAME + File.separator + filename;
-			xsl = new StreamSource(new File(path));
-		} catch (Exception e) {
-			String message = "opening file '" + filename + "' throws exception";
+		// the compiled templates are thread-safe, so they are shared by all transformations of the file
+		Templates templates = TransformationCache.getInstance().get("xslt", file, new TransformationCache.Loader<Templates>() {
+			public Templates load() throws TransformationException {
+				try {
+					return TransformerFactory.newInstance().newTemplates(new StreamSource(file));
+				} catch (Exception e) {
+					String message = "opening file '" + filename + "' throws exception";
 
-			logger.error(message, e);
-			throw new TransformationException(message, e);
-		}
+					logger.error(message, e);
+					throw new TransformationException(message, e);
+				}
+			}
+		});
 
-		logger.debug("about to transform '{}' by the function '{}'", source, xsl);
+		logger.debug("about to transform '{}' by the function '{}'", source, filename);
 
 		StringReader xml = new StringReader(source);
 		StringWriter out = new StringWriter();
 
-		Transformer transformer;
-
 		try {
-			transformer = TransformerFactory.newInstance().newTransformer(xsl);
+			Transformer transformer = templates.newTransformer();
 			transformer.transform(new StreamSource(xml), new StreamResult(out));
 		} catch (Exception e) {
 			logger.error("transformation throws exception", e);
@@ -8,7 +8,12 @@
  */
 package org.openhab.core.binding;
 
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
 import org.openhab.core.service.AbstractActiveService;
+import org.openhab.core.service.PollingScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,6 +33,9 @@ public abstract class AbstractActiveBinding<P extends BindingProvider> extends A
 	/** embedded active service to allow the binding to have some code executed in a given interval. */
 	protected AbstractActiveService activeService = new BindingActiveService();
 
+	/** the tasks of the items which are polled individually by name, guarded by themselves */
+	private final Map<String, PollingScheduler.Task> itemTasks = new HashMap<String, PollingScheduler.Task>();
+
 	
 	/**
 	 * Adds <code>provider</code> to the list of {@link BindingProvider}s and 
@@ -55,6 +63,8 @@ public abstract class AbstractActiveBinding<P extends BindingProvider> extends A
 		// refresh thread any longer ...
 		if (this.providers.size() == 0) {
 			activeService.deactivate();
+		} else if (usePerItemPolling()) {
+			updateItemTasks();
 		}
 	}
 
@@ -127,6 +137,132 @@ public abstract class AbstractActiveBinding<P extends BindingProvider> extends A
 	 */
 	protected abstract String getName();
 	
+	/**
+	 * Returns whether the execute method is called by the shared
+	 * {@link org.openhab.core.service.PollingScheduler} instead of a dedicated
+	 * RefreshThread. Bindings can opt in by overriding this method; they may also
+	 * schedule their own tasks per item in the group {@link #getName()}.
+	 * 
+	 * @return <code>true</code> to use the shared scheduler, <code>false</code> by default
+	 */
+	protected boolean useSharedScheduler() {
+		return false;
+	}
+	
+	/**
+	 * Returns whether each item is polled by its own task on the shared
+	 * {@link PollingScheduler} instead of polling all items in the execute method.
+	 * The tasks call {@link #execute(String)} every {@link #getRefreshInterval(String)}
+	 * milliseconds and are interrupted after {@link #getPollingTimeout(String)}, so that
+	 * a slow item does not delay the others. At most {@link #getConcurrencyLimit()}
+	 * items of the binding are polled at the same time.
+	 * 
+	 * @return <code>true</code> to poll the items individually, <code>false</code> by default
+	 */
+	protected boolean usePerItemPolling() {
+		return false;
+	}
+	
+	/**
+	 * Polls a single item; called by the task of the item if {@link #usePerItemPolling()}
+	 * returns <code>true</code>.
+	 * 
+	 * @param itemName the name of the item to poll
+	 */
+	protected void execute(String itemName) {
+	}
+	
+	/**
+	 * Returns the time between two polls of a single item.
+	 * 
+	 * @param itemName the name of the item
+	 * @return the refresh interval in milliseconds, or 0 if the item is not polled
+	 */
+	protected long getRefreshInterval(String itemName) {
+		return 0;
+	}
+	
+	/**
+	 * Returns the time after which the poll of a single item is interrupted.
+	 * 
+	 * @param itemName the name of the item
+	 * @return the timeout in milliseconds, or 0 if the poll is not interrupted
+	 */
+	protected long getPollingTimeout(String itemName) {
+		return 0;
+	}
+	
+	/**
+	 * Returns the maximum number of items of this binding which are polled at the same time.
+	 * 
+	 * @return the concurrency limit, {@link PollingScheduler#DEFAULT_CONCURRENCY_LIMIT} by default
+	 */
+	protected int getConcurrencyLimit() {
+		return PollingScheduler.DEFAULT_CONCURRENCY_LIMIT;
+	}
+	
+	/**
+	 * Schedules the tasks of all polled items and cancels the tasks of items which
+	 * are not polled any more or whose interval or timeout has changed.
+	 */
+	private void updateItemTasks() {
+		Map<String, Long> intervals = new HashMap<String, Long>();
+		if (activeService.isProperlyConfigured()) {
+			for (P provider : providers) {
+				for (String itemName : provider.getItemNames()) {
+					long interval = getRefreshInterval(itemName);
+					if (interval > 0) {
+						intervals.put(itemName, interval);
+					}
+				}
+			}
+		}
+		
+		PollingScheduler scheduler = PollingScheduler.getInstance();
+		scheduler.setConcurrencyLimit(getName(), getConcurrencyLimit());
+		synchronized (itemTasks) {
+			for (Iterator<Map.Entry<String, PollingScheduler.Task>> it = itemTasks.entrySet().iterator(); it.hasNext();) {
+				Map.Entry<String, PollingScheduler.Task> entry = it.next();
+				PollingScheduler.Task task = entry.getValue();
+				Long interval = intervals.get(entry.getKey());
+				if (interval == null || interval != task.getInterval()
+						|| Math.max(getPollingTimeout(entry.getKey()), 0) != task.getTimeout()) {
+					task.cancel();
+					it.remove();
+				}
+			}
+			for (Map.Entry<String, Long> entry : intervals.entrySet()) {
+				final String itemName = entry.getKey();
+				if (!itemTasks.containsKey(itemName)) {
+					itemTasks.put(itemName, scheduler.schedule(getName(), getName() + " " + itemName, entry.getValue(),
+						getPollingTimeout(itemName), new Runnable() {
+							public void run() {
+								execute(itemName);
+							}
+						}));
+				}
+			}
+			if (!intervals.isEmpty()) {
+				logger.debug("{} polls {} items", getName(), itemTasks.size());
+			}
+		}
+	}
+	
+	private void cancelItemTasks() {
+		synchronized (itemTasks) {
+			for (PollingScheduler.Task task : itemTasks.values()) {
+				task.cancel();
+			}
+			itemTasks.clear();
+		}
+	}
+	
+	private boolean hasItemTasks() {
+		synchronized (itemTasks) {
+			return !itemTasks.isEmpty();
+		}
+	}
+	
 	
 	/** private inner class, which delegates method calls to the outer binding instance */
 	private class BindingActiveService extends AbstractActiveService {
@@ -136,7 +272,40 @@ public abstract class AbstractActiveBinding<P extends BindingProvider> extends A
 		 */
 		@Override
 		protected void start() {
-			super.start();
+			if (usePerItemPolling()) {
+				updateItemTasks();
+			} else {
+				super.start();
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void shutdown() {
+			super.shutdown();
+			cancelItemTasks();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void setProperlyConfigured(boolean properlyConfigured) {
+			super.setProperlyConfigured(properlyConfigured);
+			if (properlyConfigured && usePerItemPolling()) {
+				// the intervals or timeouts of the items may have changed
+				updateItemTasks();
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isRunning() {
+			return usePerItemPolling() ? hasItemTasks() : super.isRunning();
 		}
 
 		/**
@@ -166,6 +335,11 @@ public abstract class AbstractActiveBinding<P extends BindingProvider> extends A
 			return AbstractActiveBinding.this.getName();
 		}
 
+		@Override
+		protected boolean useSharedScheduler() {
+			return AbstractActiveBinding.this.useSharedScheduler();
+		}
+
 	}
 	
 }
\ No newline at end of file
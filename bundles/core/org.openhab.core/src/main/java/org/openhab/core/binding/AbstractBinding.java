@@ -8,18 +8,30 @@
  */
 package org.openhab.core.binding;
 
+import java.lang.reflect.Method;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 
 import org.openhab.core.events.AbstractEventSubscriber;
 import org.openhab.core.events.EventPublisher;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.State;
+import org.osgi.service.event.Event;
 
 
 /**
  * Base class for bindings which send events.
  * 
+ * <p>Commands and updates for items with a binding configuration are routed
+ * directly to the binding by the event publisher, so that the binding does not
+ * have to check the events for all other items. This requires the binding
+ * providers to notify their listeners about all changes. Bindings which override
+ * {@link #handleEvent(Event)}, {@link #receiveCommand(String, Command)} or
+ * {@link #receiveUpdate(String, State)} keep receiving all events through the
+ * EventAdmin, as they might be interested in other items as well.</p>
+ * 
  * @author Thomas.Eichstaedt-Engelen
  * @author Kai Kreuzer
  * @since 1.0.0
@@ -32,6 +44,19 @@ public abstract class AbstractBinding<P extends BindingProvider> extends Abstrac
 	
 	protected EventPublisher eventPublisher = null;
 	
+	/** keeps the routing table up to date, independently of the listener methods overridden by subclasses */
+	private final BindingChangeListener routingListener = new BindingChangeListener() {
+		public void bindingChanged(BindingProvider provider, String itemName) {
+			updateRoute(itemName);
+		}
+		public void allBindingsChanged(BindingProvider provider) {
+			updateRoutes();
+		}
+	};
+	
+	/** <code>null</code> until it has been determined whether events can be routed to this binding */
+	private volatile Boolean routable = null;
+	
 	
 	public void setEventPublisher(EventPublisher eventPublisher) {
 		this.eventPublisher = eventPublisher;
@@ -55,7 +80,9 @@ public abstract class AbstractBinding<P extends BindingProvider> extends Abstrac
 	 */
 	public void addBindingProvider(P provider) {
 		this.providers.add(provider);
+		provider.addBindingChangeListener(routingListener);
         provider.addBindingChangeListener(this);
+        updateRoutes();
         allBindingsChanged(provider);
     }
 
@@ -68,6 +95,65 @@ public abstract class AbstractBinding<P extends BindingProvider> extends Abstrac
 	public void removeBindingProvider(P provider) {
 		this.providers.remove(provider);
 		provider.removeBindingChangeListener(this);
+		provider.removeBindingChangeListener(routingListener);
+		updateRoutes();
+	}
+	
+	/**
+	 * Determines the items of all providers and passes them to the routing table.
+	 */
+	private void updateRoutes() {
+		if (isRoutable()) {
+			Set<String> itemNames = new HashSet<String>();
+			for (P provider : providers) {
+				itemNames.addAll(provider.getItemNames());
+			}
+			BindingRoutingTable.getInstance().setItems(this, itemNames);
+		}
+	}
+	
+	private void updateRoute(String itemName) {
+		if (isRoutable()) {
+			BindingRoutingTable.getInstance().setItem(this, itemName, providesBindingFor(itemName));
+		}
+	}
+	
+	/**
+	 * Events can only be routed to bindings which handle the events in the methods
+	 * of this class, as others might be interested in items without a binding configuration.
+	 */
+	private boolean isRoutable() {
+		if (routable == null) {
+			boolean result = BindingRoutingTable.getInstance().isEnabled();
+			try {
+				result = result
+					&& isInherited(getClass().getMethod("handleEvent", Event.class))
+					&& isInherited(getClass().getMethod("receiveCommand", String.class, Command.class))
+					&& isInherited(getClass().getMethod("receiveUpdate", String.class, State.class));
+			} catch (NoSuchMethodException e) {
+				result = false;
+			}
+			routable = result;
+		}
+		return routable;
+	}
+	
+	private static boolean isInherited(Method method) {
+		Class<?> declaringClass = method.getDeclaringClass();
+		return declaringClass == AbstractBinding.class || declaringClass == AbstractEventSubscriber.class;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void handleEvent(Event event) {
+		// events from the event publisher have already been routed to us directly
+		if (event.getProperty(BindingRoutingTable.ROUTED_PROPERTY) != null
+				&& BindingRoutingTable.getInstance().isRouted(this)) {
+			return;
+		}
+		super.handleEvent(event);
 	}
 	
 	
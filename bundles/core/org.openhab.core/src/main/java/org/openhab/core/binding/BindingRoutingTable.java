@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.binding;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of the items for which commands and updates are routed directly
+ * to a binding by the event publisher, instead of being broadcast to all
+ * bindings through the EventAdmin.
+ *
+ * <p>The table is maintained by the {@link AbstractBinding}s themselves from the
+ * notifications of their binding providers. Events which have been routed are
+ * still passed to the EventAdmin for all other subscribers; they are marked with
+ * the property {@link #ROUTED_PROPERTY}, so that the routed bindings ignore them.</p>
+ *
+ * <p>Routing can be disabled by setting the system property <code>noEventRouting</code>
+ * to <code>true</code>.</p>
+ *
+ * @since 1.8.0
+ */
+public final class BindingRoutingTable {
+
+	/** the event property which marks events that have already been routed to the bindings */
+	public static final String ROUTED_PROPERTY = "routed";
+
+	private static final AbstractBinding<?>[] NO_BINDINGS = new AbstractBinding<?>[0];
+
+	private static final BindingRoutingTable instance =
+		new BindingRoutingTable(!"true".equalsIgnoreCase(System.getProperty("noEventRouting")));
+
+	private final boolean enabled;
+
+	/** the bindings by item name; the arrays are never modified */
+	private final Map<String, AbstractBinding<?>[]> routes = new ConcurrentHashMap<String, AbstractBinding<?>[]>();
+
+	/** the item names by binding, guarded by the routes */
+	private final Map<AbstractBinding<?>, Set<String>> itemsByBinding = new ConcurrentHashMap<AbstractBinding<?>, Set<String>>();
+
+	private BindingRoutingTable(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * @return the routing table shared by all bindings
+	 */
+	public static BindingRoutingTable getInstance() {
+		return instance;
+	}
+
+	/**
+	 * @return true, if events are routed to the bindings
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Replaces the item names for which events are routed to the given binding.
+	 *
+	 * @param binding the binding
+	 * @param itemNames the items for which the binding has a binding configuration
+	 */
+	public void setItems(AbstractBinding<?> binding, Collection<String> itemNames) {
+		// the routes are replaced one by one, so that the readers never see an item
+		// without its binding while the items of the binding are being updated
+		synchronized(routes) {
+			Set<String> newItems = new HashSet<String>(itemNames);
+			Set<String> oldItems = itemsByBinding.get(binding);
+			if(!newItems.isEmpty()) {
+				itemsByBinding.put(binding, newItems);
+			}
+			for(String itemName : newItems) {
+				if(oldItems==null || !oldItems.contains(itemName)) {
+					addRoute(itemName, binding);
+				}
+			}
+			if(oldItems!=null) {
+				for(String itemName : oldItems) {
+					if(!newItems.contains(itemName)) {
+						removeRoute(itemName, binding);
+					}
+				}
+			}
+			if(newItems.isEmpty()) {
+				itemsByBinding.remove(binding);
+			}
+		}
+	}
+
+	/**
+	 * Adds or removes a single item of the given binding.
+	 *
+	 * @param binding the binding
+	 * @param itemName the name of the item
+	 * @param bound true, if the binding has a binding configuration for the item
+	 */
+	public void setItem(AbstractBinding<?> binding, String itemName, boolean bound) {
+		synchronized(routes) {
+			Set<String> items = itemsByBinding.get(binding);
+			if(bound) {
+				if(items==null) {
+					items = new HashSet<String>();
+					itemsByBinding.put(binding, items);
+				}
+				if(items.add(itemName)) {
+					addRoute(itemName, binding);
+				}
+			} else if(items!=null && items.remove(itemName)) {
+				removeRoute(itemName, binding);
+				if(items.isEmpty()) {
+					itemsByBinding.remove(binding);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param binding the binding to check
+	 * @return true, if events are currently routed to the binding
+	 */
+	public boolean isRouted(AbstractBinding<?> binding) {
+		return itemsByBinding.containsKey(binding);
+	}
+
+	/**
+	 * @param itemName the name of the item
+	 * @return the bindings to which the events of the item are routed; the
+	 *         returned array must not be modified
+	 */
+	public AbstractBinding<?>[] getBindings(String itemName) {
+		AbstractBinding<?>[] bindings = routes.get(itemName);
+		return bindings!=null ? bindings : NO_BINDINGS;
+	}
+
+	private void addRoute(String itemName, AbstractBinding<?> binding) {
+		AbstractBinding<?>[] bindings = routes.get(itemName);
+		if(bindings==null) {
+			routes.put(itemName, new AbstractBinding<?>[] { binding });
+		} else {
+			AbstractBinding<?>[] newBindings = new AbstractBinding<?>[bindings.length + 1];
+			System.arraycopy(bindings, 0, newBindings, 0, bindings.length);
+			newBindings[bindings.length] = binding;
+			routes.put(itemName, newBindings);
+		}
+	}
+
+	private void removeRoute(String itemName, AbstractBinding<?> binding) {
+		AbstractBinding<?>[] bindings = routes.get(itemName);
+		if(bindings==null) {
+			return;
+		}
+		for(int i = 0; i < bindings.length; i++) {
+			if(bindings[i]==binding) {
+				if(bindings.length==1) {
+					routes.remove(itemName);
+				} else {
+					AbstractBinding<?>[] newBindings = new AbstractBinding<?>[bindings.length - 1];
+					System.arraycopy(bindings, 0, newBindings, 0, i);
+					System.arraycopy(bindings, i + 1, newBindings, i, bindings.length - i - 1);
+					routes.put(itemName, newBindings);
+				}
+				return;
+			}
+		}
+	}
+
+}
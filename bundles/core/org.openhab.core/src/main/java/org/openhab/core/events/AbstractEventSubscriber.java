@@ -23,6 +23,9 @@ abstract public class AbstractEventSubscriber implements EventSubscriber, EventH
 	 * {@inheritDoc}
 	 */
 	public void handleEvent(Event event) {  
+		if(this instanceof ItemEventListener && ItemEvent.isDispatchedTo(event, (ItemEventListener) this)) {
+			return; // we have already received this event directly
+		}
 		String itemName = (String) event.getProperty("item");
 		
 		String topic = event.getTopic();
@@ -20,4 +20,7 @@ public interface EventConstants {
 
 	public static final String TOPIC_SEPERATOR = "/";
 	
+	/** the event property which holds an immutable copy of the {@link ItemEventListener}s that have already received the event */
+	public static final String DISPATCHED_PROPERTY = "dispatched";
+	
 }
@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.events;
+
+import java.util.Collection;
+
+import org.openhab.core.types.Command;
+import org.openhab.core.types.EventType;
+import org.openhab.core.types.State;
+import org.openhab.core.types.Type;
+import org.osgi.service.event.Event;
+
+/**
+ * An item event as it is passed to the {@link ItemEventListener}s. In contrast
+ * to the OSGi {@link Event}s, the item name, the event type and the payload are
+ * directly available and do not have to be parsed from the topic and the
+ * event properties.
+ * 
+ * @since 1.8.0
+ */
+public final class ItemEvent {
+
+	private final EventType type;
+	private final String itemName;
+	private final Type payload;
+
+	private ItemEvent(EventType type, String itemName, Type payload) {
+		this.type = type;
+		this.itemName = itemName;
+		this.payload = payload;
+	}
+
+	/**
+	 * Creates an event for a command which is sent to an item.
+	 * 
+	 * @param itemName the name of the item
+	 * @param command the command
+	 * @return the event
+	 */
+	public static ItemEvent createCommandEvent(String itemName, Command command) {
+		return new ItemEvent(EventType.COMMAND, itemName, command);
+	}
+
+	/**
+	 * Creates an event for a status update of an item.
+	 * 
+	 * @param itemName the name of the item
+	 * @param newState the new state
+	 * @return the event
+	 */
+	public static ItemEvent createUpdateEvent(String itemName, State newState) {
+		return new ItemEvent(EventType.UPDATE, itemName, newState);
+	}
+
+	/**
+	 * Checks whether an event which has been received through the EventAdmin has
+	 * already been passed to the given listener directly.
+	 * 
+	 * @param event the event received through the EventAdmin
+	 * @param listener the listener which received the event
+	 * @return true, if the listener should ignore the event
+	 */
+	public static boolean isDispatchedTo(Event event, ItemEventListener listener) {
+		Object listeners = event.getProperty(EventConstants.DISPATCHED_PROPERTY);
+		return listeners instanceof Collection<?> && ((Collection<?>) listeners).contains(listener);
+	}
+
+	/**
+	 * @return whether the event is a command or a status update
+	 */
+	public EventType getType() {
+		return type;
+	}
+
+	/**
+	 * @return the name of the item
+	 */
+	public String getItemName() {
+		return itemName;
+	}
+
+	/**
+	 * @return the command or the new state
+	 */
+	public Type getPayload() {
+		return payload;
+	}
+
+	/**
+	 * @return the command, or <code>null</code> if this is a status update
+	 */
+	public Command getCommand() {
+		return type == EventType.COMMAND ? (Command) payload : null;
+	}
+
+	/**
+	 * @return the new state, or <code>null</code> if this is a command
+	 */
+	public State getState() {
+		return type == EventType.UPDATE ? (State) payload : null;
+	}
+
+	@Override
+	public String toString() {
+		return itemName + " received " + type + " " + payload;
+	}
+
+}
@@ -0,0 +1,33 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.events;
+
+/**
+ * Services which implement this interface receive all commands and status updates
+ * from the {@link EventPublisher} directly, without going through the OSGi
+ * EventAdmin.
+ * 
+ * <p>Commands which are sent are passed in the thread of the sender, events which
+ * are posted are passed asynchronously, one after another in the order they have
+ * been posted. The same events are still broadcasted through the EventAdmin; if
+ * a listener also receives them as an EventHandler, it should ignore the events
+ * for which {@link ItemEvent#isDispatchedTo} returns true.</p>
+ * 
+ * @since 1.8.0
+ */
+public interface ItemEventListener {
+
+	/**
+	 * Is called for each command and status update of an item.
+	 * 
+	 * @param event the event
+	 */
+	public void itemEventReceived(ItemEvent event);
+
+}
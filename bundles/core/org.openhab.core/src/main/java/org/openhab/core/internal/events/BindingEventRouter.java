@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.internal.events;
+
+import org.openhab.core.binding.AbstractBinding;
+import org.openhab.core.binding.BindingRoutingTable;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers item events directly to the bindings which have a binding configuration
+ * for the item, as registered in the {@link BindingRoutingTable}.
+ *
+ * <p>Posted events are delivered by a {@link SerialEventExecutor} per binding, so
+ * that each binding receives its events in the order they have been posted, while
+ * a slow binding does not delay the events of the other bindings.</p>
+ *
+ * @since 1.8.0
+ */
+public class BindingEventRouter {
+
+	private static final Logger logger = LoggerFactory.getLogger(BindingEventRouter.class);
+
+	private static final BindingEventRouter instance = new BindingEventRouter(BindingRoutingTable.getInstance());
+
+	private final BindingRoutingTable routingTable;
+
+	BindingEventRouter(BindingRoutingTable routingTable) {
+		this.routingTable = routingTable;
+	}
+
+	/**
+	 * @return the router shared by all event publishers
+	 */
+	public static BindingEventRouter getInstance() {
+		return instance;
+	}
+
+	/**
+	 * @return true, if events are routed to the bindings
+	 */
+	public boolean isEnabled() {
+		return routingTable.isEnabled();
+	}
+
+	/**
+	 * Passes a command synchronously to all bindings of the item.
+	 */
+	void sendCommand(String itemName, Command command) {
+		for(AbstractBinding<?> binding : routingTable.getBindings(itemName)) {
+			receiveCommand(binding, itemName, command);
+		}
+	}
+
+	/**
+	 * Passes a command asynchronously to all bindings of the item.
+	 */
+	void postCommand(final String itemName, final Command command) {
+		for(final AbstractBinding<?> binding : routingTable.getBindings(itemName)) {
+			SerialEventExecutor.forReceiver(binding).execute(new Runnable() {
+				public void run() {
+					receiveCommand(binding, itemName, command);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Passes an update asynchronously to all bindings of the item.
+	 */
+	void postUpdate(final String itemName, final State newState) {
+		for(final AbstractBinding<?> binding : routingTable.getBindings(itemName)) {
+			SerialEventExecutor.forReceiver(binding).execute(new Runnable() {
+				public void run() {
+					try {
+						binding.receiveUpdate(itemName, newState);
+					} catch (RuntimeException e) {
+						logger.error("Binding " + binding.getClass().getName() + " failed to handle update '" + newState + "' for item '" + itemName + "'", e);
+					}
+				}
+			});
+		}
+	}
+
+	private void receiveCommand(AbstractBinding<?> binding, String itemName, Command command) {
+		try {
+			binding.receiveCommand(itemName, command);
+		} catch (RuntimeException e) {
+			logger.error("Binding " + binding.getClass().getName() + " failed to handle command '" + command + "' for item '" + itemName + "'", e);
+		}
+	}
+
+}
@@ -11,10 +11,17 @@ package org.openhab.core.internal.events;
 import static org.openhab.core.events.EventConstants.TOPIC_PREFIX;
 import static org.openhab.core.events.EventConstants.TOPIC_SEPERATOR;
 
+import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
+import org.openhab.core.binding.BindingRoutingTable;
+import org.openhab.core.events.EventConstants;
 import org.openhab.core.events.EventPublisher;
+import org.openhab.core.events.ItemEvent;
+import org.openhab.core.events.ItemEventListener;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.EventType;
 import org.openhab.core.types.State;
@@ -28,6 +35,12 @@ import org.slf4j.LoggerFactory;
  * Through it, openHAB events can be sent to the OSGi EventAdmin service
  * in order to broadcast them.
  * 
+ * <p>Bindings with a configuration for the item receive the events directly
+ * through the {@link BindingEventRouter}, and all registered {@link ItemEventListener}s
+ * receive them as typed {@link ItemEvent}s. Posted events are delivered by a
+ * {@link SerialEventExecutor} per receiver, so that a slow listener does not
+ * delay the others.</p>
+ * 
  * @author Kai Kreuzer
  *
  */
@@ -35,9 +48,19 @@ public class EventPublisherImpl implements EventPublisher {
 
 	private static final Logger logger = 
 		LoggerFactory.getLogger(EventPublisherImpl.class);
+	
+	private static final String COMMAND_TOPIC_PREFIX = TOPIC_PREFIX + TOPIC_SEPERATOR + EventType.COMMAND + TOPIC_SEPERATOR;
+	
+	private static final String UPDATE_TOPIC_PREFIX = TOPIC_PREFIX + TOPIC_SEPERATOR + EventType.UPDATE + TOPIC_SEPERATOR;
 		
 	private EventAdmin eventAdmin;
 	
+	private final BindingEventRouter router = BindingEventRouter.getInstance();
+	
+	/** the registered listeners; the sets are never modified, but replaced on each change,
+	 *  so that the EventAdmin events can carry them as the dispatched listeners */
+	private volatile Set<ItemEventListener> itemEventListeners = Collections.emptySet();
+	
 	
 	public void setEventAdmin(EventAdmin eventAdmin) {
 		this.eventAdmin = eventAdmin;
@@ -47,13 +70,34 @@ public class EventPublisherImpl implements EventPublisher {
 		this.eventAdmin = null;
 	}
 	
+	public synchronized void addItemEventListener(ItemEventListener listener) {
+		Set<ItemEventListener> listeners = newListenerSet();
+		listeners.addAll(itemEventListeners);
+		listeners.add(listener);
+		itemEventListeners = Collections.unmodifiableSet(listeners);
+	}
+
+	public synchronized void removeItemEventListener(ItemEventListener listener) {
+		Set<ItemEventListener> listeners = newListenerSet();
+		listeners.addAll(itemEventListeners);
+		listeners.remove(listener);
+		itemEventListeners = Collections.unmodifiableSet(listeners);
+	}
+	
+	private static Set<ItemEventListener> newListenerSet() {
+		return Collections.newSetFromMap(new IdentityHashMap<ItemEventListener, Boolean>());
+	}
+	
 
 	/* (non-Javadoc)
 	 * @see org.openhab.core.internal.events.EventPublisher#sendCommand(org.openhab.core.items.GenericItem, org.openhab.core.datatypes.DataType)
 	 */
 	public void sendCommand(String itemName, Command command) {
 		if (command != null) {
-			if(eventAdmin!=null) eventAdmin.sendEvent(createCommandEvent(itemName, command));
+			Set<ItemEventListener> listeners = itemEventListeners;
+			if(eventAdmin!=null) eventAdmin.sendEvent(createCommandEvent(itemName, command, listeners));
+			if(!listeners.isEmpty()) dispatch(ItemEvent.createCommandEvent(itemName, command), listeners);
+			if(router.isEnabled()) router.sendCommand(itemName, command);
 		} else {
 			logger.warn("given command is NULL, couldn't send command to '{}'", itemName);
 		}
@@ -64,7 +108,10 @@ public class EventPublisherImpl implements EventPublisher {
 	 */
 	public void postCommand(String itemName, Command command) {
 		if (command != null) {
-			if(eventAdmin!=null) eventAdmin.postEvent(createCommandEvent(itemName, command));
+			Set<ItemEventListener> listeners = itemEventListeners;
+			if(eventAdmin!=null) eventAdmin.postEvent(createCommandEvent(itemName, command, listeners));
+			if(!listeners.isEmpty()) post(ItemEvent.createCommandEvent(itemName, command), listeners);
+			if(router.isEnabled()) router.postCommand(itemName, command);
 		} else {
 			logger.warn("given command is NULL, couldn't post command to '{}'", itemName);
 		}
@@ -75,28 +122,55 @@ public class EventPublisherImpl implements EventPublisher {
 	 */
 	public void postUpdate(String itemName, State newState) {
 		if (newState != null) {
-			if(eventAdmin!=null) eventAdmin.postEvent(createUpdateEvent(itemName, newState));
+			Set<ItemEventListener> listeners = itemEventListeners;
+			if(eventAdmin!=null) eventAdmin.postEvent(createUpdateEvent(itemName, newState, listeners));
+			if(!listeners.isEmpty()) post(ItemEvent.createUpdateEvent(itemName, newState), listeners);
+			if(router.isEnabled()) router.postUpdate(itemName, newState);
 		} else {
 			logger.warn("given new state is NULL, couldn't post update for '{}'", itemName);
 		}
 	}
 	
-	private Event createUpdateEvent(String itemName, State newState) {
+	private void post(final ItemEvent event, final Set<ItemEventListener> listeners) {
+		for(final ItemEventListener listener : listeners) {
+			SerialEventExecutor.forReceiver(listener).execute(new Runnable() {
+				public void run() {
+					dispatch(event, listener);
+				}
+			});
+		}
+	}
+	
+	private void dispatch(ItemEvent event, Set<ItemEventListener> listeners) {
+		for(ItemEventListener listener : listeners) {
+			dispatch(event, listener);
+		}
+	}
+	
+	private void dispatch(ItemEvent event, ItemEventListener listener) {
+		try {
+			listener.itemEventReceived(event);
+		} catch (RuntimeException e) {
+			logger.error("Listener " + listener.getClass().getName() + " failed to handle event '" + event + "'", e);
+		}
+	}
+	
+	private Event createUpdateEvent(String itemName, State newState, Set<ItemEventListener> listeners) {
 		Dictionary<String, Object> properties = new Hashtable<String, Object>();
 		properties.put("item", itemName);
 		properties.put("state", newState);
-		return new Event(createTopic(EventType.UPDATE, itemName), properties);
+		if(router.isEnabled()) properties.put(BindingRoutingTable.ROUTED_PROPERTY, Boolean.TRUE);
+		if(!listeners.isEmpty()) properties.put(EventConstants.DISPATCHED_PROPERTY, listeners);
+		return new Event(UPDATE_TOPIC_PREFIX + itemName, properties);
 	}
 
-	private Event createCommandEvent(String itemName, Command command) {
+	private Event createCommandEvent(String itemName, Command command, Set<ItemEventListener> listeners) {
 		Dictionary<String, Object> properties = new Hashtable<String, Object>();
 		properties.put("item", itemName);
 		properties.put("command", command);
-		return new Event(createTopic(EventType.COMMAND, itemName) , properties);
-	}
-
-	private String createTopic(EventType type, String itemName) {
-		return TOPIC_PREFIX + TOPIC_SEPERATOR + type + TOPIC_SEPERATOR + itemName;
+		if(router.isEnabled()) properties.put(BindingRoutingTable.ROUTED_PROPERTY, Boolean.TRUE);
+		if(!listeners.isEmpty()) properties.put(EventConstants.DISPATCHED_PROPERTY, listeners);
+		return new Event(COMMAND_TOPIC_PREFIX + itemName, properties);
 	}
 	
 	
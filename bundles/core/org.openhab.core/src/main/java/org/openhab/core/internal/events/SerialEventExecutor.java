@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.internal.events;
+
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes posted events one after another in the order they have been posted.
+ *
+ * <p>The events of all serial executors are run by a shared pool of daemon
+ * threads. An executor only occupies a thread while it has events to run, so
+ * a slow receiver only delays its own events and the number of threads is
+ * limited by the number of receivers which are busy at the same time. Idle
+ * threads end after a minute.</p>
+ *
+ * <p>Each receiver of events has a single executor, see {@link #forReceiver(Object)},
+ * so that it receives all posted events in the order they have been posted,
+ * no matter whether they are delivered by the {@link BindingEventRouter} or the
+ * {@link EventPublisherImpl}. Like with the asynchronous delivery of the EventAdmin,
+ * there is no order between the events of different receivers.</p>
+ *
+ * @since 1.8.0
+ */
+class SerialEventExecutor {
+
+	private static final Logger logger = LoggerFactory.getLogger(SerialEventExecutor.class);
+
+	private static final ThreadPoolExecutor pool = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+		new SynchronousQueue<Runnable>(), new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "Event Dispatcher");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+	/** the executors by receiver; receivers which are gone are removed by the garbage collector */
+	private static final Map<Object, SerialEventExecutor> executors = new WeakHashMap<Object, SerialEventExecutor>();
+
+	private final String name;
+
+	/** the events which have not been run yet, guarded by this */
+	private final LinkedList<Runnable> tasks = new LinkedList<Runnable>();
+
+	/** true while a thread of the pool runs the events of this executor, guarded by this */
+	private boolean active = false;
+
+	private final Runnable worker = new Runnable() {
+		public void run() {
+			runTasks();
+		}
+	};
+
+	/**
+	 * @param name the name of the thread while it runs the events of this executor
+	 */
+	SerialEventExecutor(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @param receiver the receiver of the events
+	 * @return the executor which delivers all posted events to the receiver
+	 */
+	static SerialEventExecutor forReceiver(Object receiver) {
+		synchronized(executors) {
+			SerialEventExecutor executor = executors.get(receiver);
+			if(executor==null) {
+				executor = new SerialEventExecutor("Event Dispatcher (" + receiver.getClass().getSimpleName() + ")");
+				executors.put(receiver, executor);
+			}
+			return executor;
+		}
+	}
+
+	void execute(Runnable task) {
+		synchronized(this) {
+			tasks.add(task);
+			if(active) {
+				return;
+			}
+			active = true;
+		}
+		pool.execute(worker);
+	}
+
+	private void runTasks() {
+		Thread thread = Thread.currentThread();
+		String poolName = thread.getName();
+		thread.setName(name);
+		try {
+			while(true) {
+				Runnable task;
+				synchronized(this) {
+					task = tasks.poll();
+					if(task==null) {
+						active = false;
+						return;
+					}
+				}
+				try {
+					task.run();
+				} catch (RuntimeException e) {
+					logger.error("Failed to dispatch event in '" + name + "'", e);
+				}
+			}
+		} finally {
+			thread.setName(poolName);
+		}
+	}
+
+}
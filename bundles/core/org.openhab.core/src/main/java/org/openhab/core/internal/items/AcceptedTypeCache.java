@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.internal.items;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.openhab.core.items.GroupItem;
+import org.openhab.core.items.Item;
+import org.openhab.core.types.State;
+
+/**
+ * Remembers which state types are accepted by which item types, so that the
+ * accepted data types only have to be searched once for each combination of
+ * item class and state class.
+ *
+ * <p>The accepted data types are assumed to be the same for all items of a class.
+ * The only exception are {@link GroupItem}s: they are cached by the class of their
+ * base item, and groups without a base item are not cached at all, as their
+ * accepted data types depend on their members.</p>
+ *
+ * @since 1.8.0
+ */
+class AcceptedTypeCache {
+
+	/** whether a state class is accepted, by item class and state class */
+	private final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, Boolean>> cache =
+		new ConcurrentHashMap<Class<?>, ConcurrentMap<Class<?>, Boolean>>();
+
+	/**
+	 * Checks whether the given item accepts the given state.
+	 *
+	 * @param item the item to update
+	 * @param state the new state
+	 * @return true, if the state is an instance of one of the accepted data types of the item
+	 */
+	boolean isAccepted(Item item, State state) {
+		Class<?> itemClass = item.getClass();
+		if(item instanceof GroupItem) {
+			Item baseItem = ((GroupItem) item).getBaseItem();
+			if(baseItem==null) {
+				return isAccepted(item.getAcceptedDataTypes(), state.getClass());
+			}
+			itemClass = baseItem.getClass();
+		}
+		ConcurrentMap<Class<?>, Boolean> acceptedStates = cache.get(itemClass);
+		if(acceptedStates==null) {
+			acceptedStates = new ConcurrentHashMap<Class<?>, Boolean>();
+			ConcurrentMap<Class<?>, Boolean> existing = cache.putIfAbsent(itemClass, acceptedStates);
+			if(existing!=null) {
+				acceptedStates = existing;
+			}
+		}
+		Boolean accepted = acceptedStates.get(state.getClass());
+		if(accepted==null) {
+			accepted = isAccepted(item.getAcceptedDataTypes(), state.getClass());
+			acceptedStates.put(state.getClass(), accepted);
+		}
+		return accepted;
+	}
+
+	/**
+	 * Searches the accepted data types for the given state class or one of its super classes.
+	 */
+	static boolean isAccepted(List<Class<? extends State>> acceptedDataTypes, Class<?> stateClass) {
+		if(acceptedDataTypes.contains(stateClass)) {
+			return true;
+		}
+		// look for the class hierarchy
+		for(Class<? extends State> acceptedDataType : acceptedDataTypes) {
+			if(!acceptedDataType.isEnum() && acceptedDataType.isAssignableFrom(stateClass)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes all cached results.
+	 */
+	void clear() {
+		cache.clear();
+	}
+
+}
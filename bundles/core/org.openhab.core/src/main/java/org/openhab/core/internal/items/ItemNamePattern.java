@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.internal.items;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.openhab.core.items.ItemRegistry;
+
+/**
+ * This is the compiled form of a search pattern as it is accepted by
+ * {@link ItemRegistry#getItems(String)}. A '?' stands for an optional single
+ * character, a '*' for any sequence of characters.
+ *
+ * Compiled patterns are kept in a bounded LRU cache, so that patterns which are
+ * used over and over again (e.g. by sitemaps or rules) are compiled only once.
+ * Patterns which consist of a literal prefix followed by '*' are recognized, so
+ * that the registry can serve them from its sorted name index.
+ *
+ * @since 1.8.0
+ */
+class ItemNamePattern {
+
+	/** the maximum number of compiled patterns that are kept in the cache */
+	private static final int CACHE_SIZE = 256;
+
+	/** characters that can be matched literally, i.e. all characters that are valid in item names */
+	private static final Pattern LITERAL_PATTERN = Pattern.compile("[a-zA-Z0-9_]*");
+
+	private static final Map<String, ItemNamePattern> cache = Collections.synchronizedMap(
+		new LinkedHashMap<String, ItemNamePattern>(CACHE_SIZE, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, ItemNamePattern> eldest) {
+				return size() > CACHE_SIZE;
+			}
+		});
+
+	/** the literal item name, if the pattern does not contain any wildcards */
+	private final String literal;
+
+	/** the literal prefix, if the pattern consists of a prefix followed by '*' only */
+	private final String prefix;
+
+	/** the compiled regular expression for all other patterns */
+	private final Pattern regex;
+
+	private ItemNamePattern(String literal, String prefix, Pattern regex) {
+		this.literal = literal;
+		this.prefix = prefix;
+		this.regex = regex;
+	}
+
+	/**
+	 * Returns the compiled form of the given search pattern, either from the
+	 * cache or by compiling it.
+	 *
+	 * @param pattern the search pattern
+	 * @return the compiled pattern
+	 */
+	static ItemNamePattern compile(String pattern) {
+		ItemNamePattern namePattern = cache.get(pattern);
+		if(namePattern==null) {
+			namePattern = parse(pattern);
+			cache.put(pattern, namePattern);
+		}
+		return namePattern;
+	}
+
+	private static ItemNamePattern parse(String pattern) {
+		if(LITERAL_PATTERN.matcher(pattern).matches()) {
+			return new ItemNamePattern(pattern, null, null);
+		}
+		int end = pattern.length();
+		while(end > 0 && pattern.charAt(end - 1)=='*') {
+			end--;
+		}
+		String head = pattern.substring(0, end);
+		if(end < pattern.length() && LITERAL_PATTERN.matcher(head).matches()) {
+			return new ItemNamePattern(null, head, null);
+		}
+		String regex = pattern.replace("?", ".?").replace("*", ".*?");
+		return new ItemNamePattern(null, null, Pattern.compile(regex));
+	}
+
+	/**
+	 * @return true, if the pattern does not contain any wildcards and thus
+	 * matches a single item name only
+	 */
+	boolean isLiteral() {
+		return literal!=null;
+	}
+
+	/**
+	 * @return the item name this pattern matches or <code>null</code>,
+	 * if this is not a literal pattern
+	 */
+	String getLiteral() {
+		return literal;
+	}
+
+	/**
+	 * @return true, if the pattern matches all item names starting with
+	 * a given prefix
+	 */
+	boolean isPrefix() {
+		return prefix!=null;
+	}
+
+	/**
+	 * @return the prefix all matching item names start with or <code>null</code>,
+	 * if this is not a prefix pattern
+	 */
+	String getPrefix() {
+		return prefix;
+	}
+
+	/**
+	 * Checks whether the given item name matches this pattern.
+	 *
+	 * @param name the item name to check
+	 * @return true, if the name matches
+	 */
+	boolean matches(String name) {
+		if(literal!=null) {
+			return literal.equals(name);
+		} else if(prefix!=null) {
+			return name.startsWith(prefix);
+		} else {
+			return regex.matcher(name).matches();
+		}
+	}
+
+}
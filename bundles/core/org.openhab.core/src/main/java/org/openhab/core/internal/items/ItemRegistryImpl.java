@@ -10,9 +10,15 @@ package org.openhab.core.internal.items;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 
@@ -50,6 +56,15 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 	/** this is our local map in which we store all our items */
 	protected Map<ItemProvider, Collection<Item>> itemMap = new ConcurrentHashMap<ItemProvider, Collection<Item>>();
 	
+	/** index of all registered items by their name, kept in sync with {@link #itemMap} for fast lookups */
+	protected ConcurrentHashMap<String, Item> itemsByName = new ConcurrentHashMap<String, Item>();
+	
+	/** sorted index of all registered items by their name, used to serve prefix searches */
+	protected ConcurrentSkipListMap<String, Item> sortedItemsByName = new ConcurrentSkipListMap<String, Item>();
+	
+	/** index of all registered items by the names of their groups, used to find the members of new groups; guarded by itself */
+	protected Map<String, List<Item>> itemsByGroupName = new HashMap<String, List<Item>>();
+	
 	/** to keep track of all item change listeners */
 	protected Collection<ItemRegistryChangeListener> listeners = new CopyOnWriteArraySet<ItemRegistryChangeListener>();
 
@@ -63,6 +78,11 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 		}
 		// then release all items
 		itemMap.clear();
+		itemsByName.clear();
+		sortedItemsByName.clear();
+		synchronized(itemsByGroupName) {
+			itemsByGroupName.clear();
+		}
     }
 
 	/* (non-Javadoc)
@@ -70,14 +90,11 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 	 */
     @Override
 	public Item getItem(String name) throws ItemNotFoundException {
-		for(Collection<Item> items : itemMap.values()) {
-			for(Item item : items) {
-				if(item.getName().equals(name)) {
-					return item;
-				}
-			}
+		Item item = name!=null ? itemsByName.get(name) : null;
+		if(item==null) {
+			throw new ItemNotFoundException(name);
 		}
-		throw new ItemNotFoundException(name);
+		return item;
 	}
 
 	/* (non-Javadoc)
@@ -116,12 +133,22 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 	 */
     @Override
 	public Collection<Item> getItems(String pattern) {
-		String regex = pattern.replace("?", ".?").replace("*", ".*?");
+		ItemNamePattern namePattern = ItemNamePattern.compile(pattern);
 		Collection<Item> matchedItems = new ArrayList<Item>();
-		for(Collection<Item> items : itemMap.values()) {
-			for(Item item : items) {
-				if(item.getName().matches(regex)) {
-					matchedItems.add(item);
+		if(namePattern.isLiteral()) {
+			Item item = itemsByName.get(namePattern.getLiteral());
+			if(item!=null) {
+				matchedItems.add(item);
+			}
+		} else if(namePattern.isPrefix()) {
+			String prefix = namePattern.getPrefix();
+			matchedItems.addAll(sortedItemsByName.subMap(prefix, prefix + Character.MAX_VALUE).values());
+		} else {
+			for(Collection<Item> items : itemMap.values()) {
+				for(Item item : items) {
+					if(namePattern.matches(item.getName())) {
+						matchedItems.add(item);
+					}
 				}
 			}
 		}
@@ -131,9 +158,9 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 	public void addItemProvider(ItemProvider itemProvider) {
 		// only add this provider if it does not already exist
 		if(!itemMap.containsKey(itemProvider)) {
-			Collection<Item> items = new CopyOnWriteArraySet<Item>(itemProvider.getItems());
+			// the items are read and initialized by allItemsChanged()
 			itemProvider.addItemChangeListener(this);
-        	itemMap.put(itemProvider, items);
+        	itemMap.put(itemProvider, new CopyOnWriteArrayList<Item>());
 			logger.debug("Item provider '{}' has been added.", itemProvider.getClass().getSimpleName());
 			allItemsChanged(itemProvider, null);
 		}
@@ -149,6 +176,7 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 			allItemsChanged(itemProvider, null);
 
 			for(Item item : itemMap.get(itemProvider)) {
+				unindexItem(item);
 				if(item instanceof GenericItem) {
 					((GenericItem) item).dispose();
 				}
@@ -178,22 +206,40 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 	public void allItemsChanged(ItemProvider provider, Collection<String> oldItemNames) {
 		// if the provider did not provide any old item names, we check if we
 		// know them and pass them further on to our listeners
+		Collection<Item> oldItems = itemMap.get(provider);
 		if(oldItemNames==null || oldItemNames.isEmpty()) {
 			oldItemNames = new HashSet<String>();
-            Collection<Item> oldItems;
-            oldItems = itemMap.get(provider);
 			if(oldItems!=null && oldItems.size() > 0) {
 				for(Item oldItem : oldItems) {
 					oldItemNames.add(oldItem.getName());
 				}
 			}
 		}
+		
+		// providers might return the same instances again, which are kept as they are
+		Collection<Item> newItems = provider.getItems();
+		Set<Item> retainedItems = Collections.newSetFromMap(new IdentityHashMap<Item, Boolean>());
+		if(oldItems!=null) {
+			Set<Item> newItemSet = Collections.newSetFromMap(new IdentityHashMap<Item, Boolean>());
+			newItemSet.addAll(newItems);
+			for(Item oldItem : oldItems) {
+				if(newItemSet.contains(oldItem)) {
+					retainedItems.add(oldItem);
+				} else {
+					uninitializeItem(oldItem);
+					unindexItem(oldItem);
+				}
+			}
+		}
 
 		Collection<Item> items = new CopyOnWriteArrayList<Item>();
     	itemMap.put(provider, items);
-		for(Item item : provider.getItems()) {
-			if(initializeItem(item)) {
+		for(Item item : newItems) {
+			if(retainedItems.contains(item)) {
+				items.add(item);
+			} else if(initializeItem(item)) {
 				items.add(item);
+				indexItem(item);
 			}
 		}
 
@@ -209,6 +255,7 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 		if(items!=null) {
 			if(initializeItem(item)) {
 				items.add(item);
+				indexItem(item);
 			} else {
 				return;
 			}
@@ -224,6 +271,8 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
         items = itemMap.get(provider);
 		if(items!=null) {
 			items.remove(item);
+			uninitializeItem(item);
+			unindexItem(item);
 		}
 		for(ItemRegistryChangeListener listener : listeners) {
 			listener.itemRemoved(item);
@@ -240,6 +289,57 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 		listeners.remove(listener);
 	}
 
+	/**
+	 * Adds the given item to the name indexes.
+	 * 
+	 * @param item the item to add to the indexes
+	 */
+	private void indexItem(Item item) {
+		itemsByName.put(item.getName(), item);
+		sortedItemsByName.put(item.getName(), item);
+		synchronized(itemsByGroupName) {
+			for(String groupName : item.getGroupNames()) {
+				List<Item> members = itemsByGroupName.get(groupName);
+				if(members==null) {
+					members = new ArrayList<Item>();
+					itemsByGroupName.put(groupName, members);
+				}
+				members.add(item);
+			}
+		}
+	}
+
+	/**
+	 * Removes the given item from the name indexes, but only if they still
+	 * refer to this very instance (another provider might have registered an
+	 * item with the same name in the meantime).
+	 * 
+	 * @param item the item to remove from the indexes
+	 */
+	private void unindexItem(Item item) {
+		if(item.getName()!=null) {
+			itemsByName.remove(item.getName(), item);
+			sortedItemsByName.remove(item.getName(), item);
+		}
+		synchronized(itemsByGroupName) {
+			for(String groupName : item.getGroupNames()) {
+				List<Item> members = itemsByGroupName.get(groupName);
+				if(members!=null) {
+					// the items are compared by identity, as equal items might be registered by different providers
+					for(int i = 0; i < members.size(); i++) {
+						if(members.get(i)==item) {
+							members.remove(i);
+							break;
+						}
+					}
+					if(members.isEmpty()) {
+						itemsByGroupName.remove(groupName);
+					}
+				}
+			}
+		}
+	}
+
 	/**
 	 * an item should be initialized, which means that the event publisher is
 	 * injected and its implementation is notified that it has just been created,
@@ -258,10 +358,13 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 			
 			if(item instanceof GroupItem) {
 				// fill group with its members 
-				for(Item i : getItems()) {
-					if(i.getGroupNames().contains(item.getName())) {
-						((GroupItem)item).addMember(i);
-					}
+				List<Item> members;
+				synchronized(itemsByGroupName) {
+					members = itemsByGroupName.get(item.getName());
+					members = members!=null ? new ArrayList<Item>(members) : Collections.<Item>emptyList();
+				}
+				for(Item i : members) {
+					((GroupItem)item).addMember(i);
 				}
 			}
 			// add the item to all relevant groups
@@ -282,4 +385,25 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 			return false;
 		}
 	}
+
+	/**
+	 * Reverts the initialization of an item which is no longer registered: it is
+	 * removed from its groups, and a group item releases all of its members.
+	 * 
+	 * @param item the item to uninitialize
+	 */
+	private void uninitializeItem(Item item) {
+		for(String groupName : item.getGroupNames()) {
+			Item groupItem = itemsByName.get(groupName);
+			if(groupItem instanceof GroupItem) {
+				((GroupItem)groupItem).removeMember(item);
+			}
+		}
+		if(item instanceof GroupItem) {
+			((GroupItem) item).removeAllMembers();
+		}
+		if(item instanceof GenericItem) {
+			((GenericItem) item).dispose();
+		}
+	}
 }
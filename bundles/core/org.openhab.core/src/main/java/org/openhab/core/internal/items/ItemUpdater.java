@@ -8,7 +8,14 @@
  */
 package org.openhab.core.internal.items;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.openhab.core.events.AbstractEventSubscriber;
+import org.openhab.core.events.ItemEvent;
+import org.openhab.core.events.ItemEventListener;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.items.GroupItem;
 import org.openhab.core.items.Item;
@@ -23,22 +30,41 @@ import org.slf4j.LoggerFactory;
  * The ItemUpdater listens on the event bus and passes any received status update
  * to the item registry.
  * 
+ * <p>Updates with a state type that is not accepted by the item are rejected
+ * and counted per item.</p>
+ * 
  * @author Kai Kreuzer
  * @since 0.1.0
  *
  */
-public class ItemUpdater extends AbstractEventSubscriber {
+public class ItemUpdater extends AbstractEventSubscriber implements ItemEventListener {
 
 	private static final Logger logger = LoggerFactory.getLogger(ItemUpdater.class);
 	
 	protected ItemRegistry itemRegistry;
 	
+	private final AcceptedTypeCache acceptedTypes = new AcceptedTypeCache();
+	
+	private final ConcurrentHashMap<String, AtomicLong> rejectedUpdates = new ConcurrentHashMap<String, AtomicLong>();
+	
 	public void setItemRegistry(ItemRegistry itemRegistry) {
 		this.itemRegistry = itemRegistry;
 	}
 
 	public void unsetItemRegistry(ItemRegistry itemRegistry) {
 		this.itemRegistry = null;
+		acceptedTypes.clear();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void itemEventReceived(ItemEvent event) {
+		if (event.getState() != null) {
+			receiveUpdate(event.getItemName(), event.getState());
+		} else {
+			receiveCommand(event.getItemName(), event.getCommand());
+		}
 	}
 
 	/**
@@ -49,27 +75,10 @@ public class ItemUpdater extends AbstractEventSubscriber {
 		if (itemRegistry != null) {
 			try {
 				GenericItem item = (GenericItem) itemRegistry.getItem(itemName);
-				boolean isAccepted = false;
-				if (item.getAcceptedDataTypes().contains(newStatus.getClass())) {
-					isAccepted = true;
-				} else {
-					// Look for class hierarchy
-					for (Class<? extends State> state : item.getAcceptedDataTypes()) {
-						try {
-							if (!state.isEnum() && state.newInstance().getClass().isAssignableFrom(newStatus.getClass())) {
-								isAccepted = true;
-								break;
-							}
-						} catch (InstantiationException e) {
-							logger.warn("InstantiationException on {}", e.getMessage()); // Should never happen
-						} catch (IllegalAccessException e) {
-							logger.warn("IllegalAccessException on {}", e.getMessage()); // Should never happen
-						}
-					}
-				}				
-				if (isAccepted) {
+				if (acceptedTypes.isAccepted(item, newStatus)) {
 					item.setState(newStatus);
 				} else {
+					rejected(itemName);
 					logger.debug("Received update of a not accepted type ("	+ newStatus.getClass().getSimpleName() + ") for item " + itemName);
 				}
 			} catch (ItemNotFoundException e) {
@@ -78,6 +87,40 @@ public class ItemUpdater extends AbstractEventSubscriber {
 		}
 	}
 	
+	private void rejected(String itemName) {
+		AtomicLong count = rejectedUpdates.get(itemName);
+		if (count == null) {
+			AtomicLong newCount = new AtomicLong();
+			count = rejectedUpdates.putIfAbsent(itemName, newCount);
+			if (count == null) {
+				count = newCount;
+			}
+		}
+		count.incrementAndGet();
+	}
+	
+	/**
+	 * Returns the number of rejected updates of an item.
+	 * 
+	 * @param itemName the name of the item
+	 * @return the number of updates with a state type not accepted by the item
+	 */
+	public long getRejectedUpdateCount(String itemName) {
+		AtomicLong count = rejectedUpdates.get(itemName);
+		return count != null ? count.get() : 0;
+	}
+	
+	/**
+	 * @return the number of rejected updates of all items which had at least one
+	 */
+	public Map<String, Long> getRejectedUpdateCounts() {
+		Map<String, Long> counts = new HashMap<String, Long>();
+		for (Map.Entry<String, AtomicLong> entry : rejectedUpdates.entrySet()) {
+			counts.put(entry.getKey(), entry.getValue().get());
+		}
+		return counts;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -8,12 +8,10 @@
  */
 package org.openhab.core.items;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Set;
-import java.util.WeakHashMap;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 import org.openhab.core.events.EventPublisher;
 import org.openhab.core.types.Command;
@@ -24,6 +22,14 @@ import org.openhab.core.types.UnDefType;
  * The abstract base class for all items. It provides all relevant logic
  * for the infrastructure, such as publishing updates to the event bus
  * or notifying listeners.
+ * 
+ * <p>Listeners are only weakly referenced. They are kept in an immutable array,
+ * which is replaced whenever a listener is added or removed, so that notifying
+ * the listeners on a state update does not allocate anything.</p>
+ * 
+ * <p>If the statistics are enabled through {@link #setStatisticsEnabled(boolean)}
+ * or the system property <code>itemStatistics</code>, each item counts its state
+ * changes and remembers the time of the last one.</p>
  *  
  * @author Kai Kreuzer
  * @since 0.1.0
@@ -31,9 +37,22 @@ import org.openhab.core.types.UnDefType;
  */
 abstract public class GenericItem implements Item {
 	
+	private static final ListenerReference[] NO_LISTENERS = new ListenerReference[0];
+	
+	private static final AtomicLongFieldUpdater<GenericItem> stateChangeCountUpdater =
+		AtomicLongFieldUpdater.newUpdater(GenericItem.class, "stateChangeCount");
+	
+	private static volatile boolean statisticsEnabled = "true".equalsIgnoreCase(System.getProperty("itemStatistics"));
+	
 	protected EventPublisher eventPublisher;
 
-	protected Set<StateChangeListener> listeners = new CopyOnWriteArraySet<StateChangeListener>(Collections.newSetFromMap(new WeakHashMap<StateChangeListener, Boolean>()));
+	private final Object listenerLock = new Object();
+	
+	private volatile ListenerReference[] listeners = NO_LISTENERS;
+	
+	private volatile long stateChangeCount = 0;
+	
+	private volatile long lastStateChange = 0;
 	
 	protected List<String> groupNames = new ArrayList<String>();
 	
@@ -101,15 +120,25 @@ abstract public class GenericItem implements Item {
 	}
 
 	private void notifyListeners(State oldState, State newState) {
+		// the snapshot is never modified, so it can be iterated without copying it
+		ListenerReference[] snapshot = listeners;
 		// if nothing has changed, we send update notifications
-		Set<StateChangeListener> clonedListeners = null;
-		clonedListeners = new CopyOnWriteArraySet<StateChangeListener>(listeners);
-		for(StateChangeListener listener : clonedListeners) {
-			listener.stateUpdated(this, newState);
+		for(ListenerReference reference : snapshot) {
+			StateChangeListener listener = reference.get();
+			if(listener!=null) {
+				listener.stateUpdated(this, newState);
+			}
 		}
 		if(!oldState.equals(newState)) {
-			for(StateChangeListener listener : clonedListeners) {
-				listener.stateChanged(this, oldState, newState);
+			if(statisticsEnabled) {
+				stateChangeCountUpdater.incrementAndGet(this);
+				lastStateChange = System.currentTimeMillis();
+			}
+			for(ListenerReference reference : snapshot) {
+				StateChangeListener listener = reference.get();
+				if(listener!=null) {
+					listener.stateChanged(this, oldState, newState);
+				}
 			}
 		}
 	}
@@ -125,15 +154,64 @@ abstract public class GenericItem implements Item {
 	}
 
 	public void addStateChangeListener(StateChangeListener listener) {
-		synchronized(listeners) {
-			listeners.add(listener);
+		synchronized(listenerLock) {
+			List<ListenerReference> references = getLiveListeners(listener);
+			references.add(new ListenerReference(listener));
+			listeners = references.toArray(new ListenerReference[references.size()]);
 		}
 	}
 	
 	public void removeStateChangeListener(StateChangeListener listener) {
-		synchronized(listeners) {
-			listeners.remove(listener);
+		synchronized(listenerLock) {
+			List<ListenerReference> references = getLiveListeners(listener);
+			listeners = references.isEmpty() ? NO_LISTENERS : references.toArray(new ListenerReference[references.size()]);
+		}
+	}
+	
+	/**
+	 * Returns the references to all listeners which have not been garbage collected
+	 * yet, except for the given one.
+	 */
+	private List<ListenerReference> getLiveListeners(StateChangeListener except) {
+		List<ListenerReference> references = new ArrayList<ListenerReference>(listeners.length + 1);
+		for(ListenerReference reference : listeners) {
+			StateChangeListener listener = reference.get();
+			if(listener!=null && listener!=except) {
+				references.add(reference);
+			}
 		}
+		return references;
+	}
+	
+	/**
+	 * @return the number of state changes of this item since statistics have been enabled
+	 */
+	public long getStateChangeCount() {
+		return stateChangeCount;
+	}
+	
+	/**
+	 * @return the time of the last state change in milliseconds or 0, if the state has not
+	 * changed since statistics have been enabled
+	 */
+	public long getLastStateChange() {
+		return lastStateChange;
+	}
+	
+	/**
+	 * Enables or disables counting the state changes of all items.
+	 * 
+	 * @param enabled true, if the statistics should be recorded
+	 */
+	public static void setStatisticsEnabled(boolean enabled) {
+		statisticsEnabled = enabled;
+	}
+	
+	/**
+	 * @return true, if the state changes of all items are counted
+	 */
+	public static boolean isStatisticsEnabled() {
+		return statisticsEnabled;
 	}
 	
 
@@ -174,5 +252,15 @@ abstract public class GenericItem implements Item {
 		return true;
 	}
 	
+	/**
+	 * A weak reference to a listener, which can be put into an array without
+	 * an unchecked generic array creation.
+	 */
+	private static class ListenerReference extends WeakReference<StateChangeListener> {
+		
+		ListenerReference(StateChangeListener listener) {
+			super(listener);
+		}
+	}
 	
 }
@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.items;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openhab.core.types.State;
+
+/**
+ * Keeps the state of a {@link GroupItem} up to date incrementally. It remembers
+ * the value each member contributes to the group state, so that a state update of
+ * a single member only requires to replace this member's contribution instead of
+ * calculating the group state from all members again.
+ *
+ * <p>Members are tracked by identity, as the equality of items depends on their state.
+ * All methods are synchronized on the aggregator.</p>
+ *
+ * @since 1.8.0
+ *
+ * @param <V> the type of the values the members contribute
+ */
+public abstract class GroupAggregator<V> {
+
+	private final Map<Item, Contribution<V>> contributions = new IdentityHashMap<Item, Contribution<V>>();
+
+	private int memberCount = 0;
+
+	/**
+	 * Adds the contribution of a new member.
+	 *
+	 * @param item the new member
+	 */
+	public synchronized void addMember(Item item) {
+		Contribution<V> contribution = contributions.get(item);
+		if(contribution==null) {
+			contribution = new Contribution<V>(getValue(item));
+			contributions.put(item, contribution);
+		}
+		contribution.count++;
+		memberCount++;
+		if(contribution.value!=null) {
+			add(contribution.value);
+		}
+	}
+
+	/**
+	 * Replaces all contributions by the ones of the given members.
+	 *
+	 * @param items the current members of the group
+	 */
+	public synchronized void setMembers(List<Item> items) {
+		contributions.clear();
+		memberCount = 0;
+		clear();
+		for(Item item : items) {
+			addMember(item);
+		}
+	}
+
+	/**
+	 * Replaces the contribution of a member by the one of its current state.
+	 *
+	 * @param item the member whose state has been updated
+	 */
+	public synchronized void memberUpdated(Item item) {
+		Contribution<V> contribution = contributions.get(item);
+		if(contribution==null) {
+			return;
+		}
+		V value = getValue(item);
+		if(value==null ? contribution.value==null : value.equals(contribution.value)) {
+			return;
+		}
+		for(int i = 0; i < contribution.count; i++) {
+			if(contribution.value!=null) {
+				remove(contribution.value);
+			}
+			if(value!=null) {
+				add(value);
+			}
+		}
+		contribution.value = value;
+	}
+
+	/**
+	 * @return the current state of the group
+	 */
+	public synchronized State getState() {
+		return calculate(memberCount);
+	}
+
+	/**
+	 * Returns the current state of the group as a state of the requested type.
+	 *
+	 * @param stateClass the type in which the state should be returned
+	 * @return the group state of the requested type or <code>null</code>, if the type is not supported
+	 */
+	public synchronized State getStateAs(Class<? extends State> stateClass) {
+		return calculateAs(memberCount, stateClass);
+	}
+
+	/**
+	 * Determines the value a member contributes to the group state.
+	 *
+	 * @param item the member
+	 * @return the contributed value or <code>null</code>, if the member does not contribute
+	 */
+	protected abstract V getValue(Item item);
+
+	/**
+	 * Adds a contributed value to the aggregated values.
+	 */
+	protected abstract void add(V value);
+
+	/**
+	 * Removes a previously added value from the aggregated values.
+	 */
+	protected abstract void remove(V value);
+
+	/**
+	 * Removes all aggregated values.
+	 */
+	protected abstract void clear();
+
+	/**
+	 * Calculates the group state from the aggregated values.
+	 *
+	 * @param memberCount the number of members, including the ones which do not contribute
+	 * @return the group state
+	 */
+	protected abstract State calculate(int memberCount);
+
+	/**
+	 * Calculates the group state as a state of the requested type. By default, only
+	 * the type of the state returned by {@link #calculate(int)} is supported.
+	 *
+	 * @param memberCount the number of members, including the ones which do not contribute
+	 * @param stateClass the type in which the state should be returned
+	 * @return the group state of the requested type or <code>null</code>, if the type is not supported
+	 */
+	protected State calculateAs(int memberCount, Class<? extends State> stateClass) {
+		State state = calculate(memberCount);
+		return stateClass.isInstance(state) ? state : null;
+	}
+
+	/**
+	 * The value contributed by a member, which might have been added several times.
+	 */
+	private static class Contribution<V> {
+
+		V value;
+		int count;
+
+		Contribution(V value) {
+			this.value = value;
+		}
+	}
+
+}
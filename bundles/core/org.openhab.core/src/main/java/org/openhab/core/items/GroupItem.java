@@ -13,6 +13,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.collections.ListUtils;
 import org.openhab.core.types.Command;
@@ -24,12 +25,20 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 	
 	private static final Logger logger = LoggerFactory.getLogger(GroupItem.class);
 	
+	/** incremented on each membership change of any group, as this might change the members of parent groups */
+	private static final AtomicLong membershipVersion = new AtomicLong();
+	
 	protected final GenericItem baseItem;
 	
 	protected final List<Item> members;
 	
 	protected GroupFunction function;
 
+	/** maintains the group state incrementally, <code>null</code> if the function does not support this */
+	protected final GroupAggregator<?> aggregator;
+	
+	private volatile MemberSnapshot memberSnapshot;
+
 	public GroupItem(String name) {
 		this(name, null);
 	}
@@ -43,6 +52,8 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 		members = new CopyOnWriteArrayList<Item>();
 		this.function = function;
 		this.baseItem = baseItem;
+		this.aggregator = function instanceof IncrementalGroupFunction ?
+				((IncrementalGroupFunction) function).createAggregator() : null;
 	}
 	
 	/**
@@ -74,9 +85,30 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 	 * @return all members of this and all contained {@link GroupItem}s
 	 */
 	public List<Item> getAllMembers() {
-		Set<Item> allMembers = new HashSet<Item>();
-		collectMembers(allMembers, members);
-		return new ArrayList<Item>(allMembers);
+		return new ArrayList<Item>(getMemberSnapshot().allMembers);
+	}
+	
+	/**
+	 * Returns the cached snapshot of all members, which is only collected again
+	 * after the membership of any group has changed.
+	 */
+	private MemberSnapshot getMemberSnapshot() {
+		MemberSnapshot snapshot = memberSnapshot;
+		long version = membershipVersion.get();
+		if(snapshot==null || snapshot.version!=version) {
+			Set<Item> allMembers = new HashSet<Item>();
+			collectMembers(allMembers, members);
+			boolean nestedGroups = false;
+			for(Item member : members) {
+				if(member instanceof GroupItem) {
+					nestedGroups = true;
+					break;
+				}
+			}
+			snapshot = new MemberSnapshot(version, new ArrayList<Item>(allMembers), nestedGroups);
+			memberSnapshot = snapshot;
+		}
+		return snapshot;
 	}
 	
 	private void collectMembers(Set<Item> allMembers, List<Item> members) {
@@ -92,6 +124,10 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 
 	public void addMember(Item item) {
 		members.add(item);
+		membershipVersion.incrementAndGet();
+		if (aggregator != null) {
+			aggregator.addMember(item);
+		}
 		if (item instanceof GenericItem) {
 			GenericItem genericItem = (GenericItem) item;
 			genericItem.addStateChangeListener(this);
@@ -100,12 +136,36 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 	
 	public void removeMember(Item item) {
 		members.remove(item);
+		membershipVersion.incrementAndGet();
+		if (aggregator != null) {
+			// the removed member is found by equality, so we simply start over
+			aggregator.setMembers(members);
+		}
 		if (item instanceof GenericItem) {
 			GenericItem genericItem = (GenericItem) item;
 			genericItem.removeStateChangeListener(this);
 		}
 	}
 	
+	/**
+	 * Removes all members at once, which is cheaper than removing them one
+	 * after another.
+	 */
+	public void removeAllMembers() {
+		List<Item> oldMembers = new ArrayList<Item>(members);
+		members.clear();
+		membershipVersion.incrementAndGet();
+		if (aggregator != null) {
+			aggregator.setMembers(members);
+		}
+		for (Item item : oldMembers) {
+			if (item instanceof GenericItem) {
+				GenericItem genericItem = (GenericItem) item;
+				genericItem.removeStateChangeListener(this);
+			}
+		}
+	}
+	
 	/** 
 	 * The accepted data types of a group item is the same as of the underlying base item.
 	 * If none is defined, the intersection of all sets of accepted data types of all group
@@ -182,7 +242,14 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 	 */
 	@Override
 	public State getStateAs(Class<? extends State> typeClass) {
-		State newState = function.getStateAs(getAllMembers(), typeClass);
+		MemberSnapshot snapshot = getMemberSnapshot();
+		State newState;
+		if(aggregator!=null && !snapshot.nestedGroups) {
+			// without nested groups, all members are the direct members known to the aggregator
+			newState = aggregator.getStateAs(typeClass);
+		} else {
+			newState = function.getStateAs(snapshot.allMembers, typeClass);
+		}
 		if(newState==null && baseItem!=null) {
 			// we use the transformation method from the base item
 			baseItem.setState(state);
@@ -210,13 +277,38 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 	 * @{inheritDoc
 	 */
 	public void stateChanged(Item item, State oldState, State newState) {
-		setState(function.calculate(members));
+		setState(calculateState(item));
 	}
 
 	/**
 	 * @{inheritDoc
 	 */
 	public void stateUpdated(Item item, State state) {
-		setState(function.calculate(members));
+		setState(calculateState(item));
+	}
+	
+	private State calculateState(Item updatedMember) {
+		if(aggregator!=null) {
+			aggregator.memberUpdated(updatedMember);
+			return aggregator.getState();
+		} else {
+			return function.calculate(members);
+		}
+	}
+	
+	/**
+	 * All (recursive) members of a group at a certain membership version.
+	 */
+	private static class MemberSnapshot {
+		
+		final long version;
+		final List<Item> allMembers;
+		final boolean nestedGroups;
+		
+		MemberSnapshot(long version, List<Item> allMembers, boolean nestedGroups) {
+			this.version = version;
+			this.allMembers = allMembers;
+			this.nestedGroups = nestedGroups;
+		}
 	}
 }
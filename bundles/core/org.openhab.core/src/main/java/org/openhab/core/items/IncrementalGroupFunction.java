@@ -0,0 +1,29 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.items;
+
+/**
+ * A {@link GroupFunction} whose result can be maintained incrementally while the
+ * states of the group members change. A {@link GroupItem} with such a function
+ * does not iterate over all its members on each state update of a member.
+ *
+ * @since 1.8.0
+ */
+public interface IncrementalGroupFunction extends GroupFunction {
+
+	/**
+	 * Creates a new aggregator for a single group. The aggregator must calculate the
+	 * same states as {@link #calculate(java.util.List)} and
+	 * {@link #getStateAs(java.util.List, Class)} do for the members added to it.
+	 *
+	 * @return a new aggregator without any members
+	 */
+	public GroupAggregator<?> createAggregator();
+
+}
@@ -38,6 +38,12 @@ public abstract class AbstractActiveService {
 	 */
 	private Thread refreshThread;
 	
+	/**
+	 * holds the task of the shared {@link PollingScheduler} or is <code>null</code>
+	 * if the service is not scheduled at the moment
+	 */
+	private volatile PollingScheduler.Task pollingTask;
+	
 	
 	public AbstractActiveService() {
 		super();
@@ -64,8 +70,17 @@ public abstract class AbstractActiveService {
 				
 		shutdown = false;
 		if (!isRunning()) {
-			this.refreshThread = new RefreshThread(getName(), getRefreshInterval());
-			this.refreshThread.start();
+			if (useSharedScheduler()) {
+				this.pollingTask = PollingScheduler.getInstance().schedule(getName(), getName(), getRefreshInterval(), new Runnable() {
+					public void run() {
+						execute();
+					}
+				});
+				logger.info(getName() + " has been scheduled");
+			} else {
+				this.refreshThread = new RefreshThread(getName(), getRefreshInterval());
+				this.refreshThread.start();
+			}
 		} else {
 			logger.trace("{} is already started > calling start() changed nothing.", getName());
 		}
@@ -77,13 +92,23 @@ public abstract class AbstractActiveService {
 	 */
 	public void shutdown() {
 		this.shutdown = true;
+		PollingScheduler.Task task = this.pollingTask;
+		if (task != null) {
+			this.pollingTask = null;
+			task.cancel();
+			logger.info(getName() + " has been shut down");
+		}
 	}
 	
 	/**
 	 * Interrupts the refresh thread immediately.
 	 */
 	public void interrupt() {
-		if (isRunning()) {
+		PollingScheduler.Task task = this.pollingTask;
+		if (task != null) {
+			// like an interrupted refresh thread, the task is executed right away
+			task.trigger();
+		} else if (isRunning()) {
 			this.refreshThread.interrupt();
 			logger.trace("{} has been interrupted.", getName());
 		}
@@ -93,6 +118,9 @@ public abstract class AbstractActiveService {
 	 * {@inheritDoc}
 	 */
 	public boolean isRunning() {
+		if (this.pollingTask != null) {
+			return true;
+		}
 		if (this.refreshThread != null) {
 			return this.refreshThread.isAlive();
 		}
@@ -146,6 +174,17 @@ public abstract class AbstractActiveService {
 	 */
 	protected abstract String getName();
 	
+	/**
+	 * Returns whether the execute method is called by the shared {@link PollingScheduler}
+	 * instead of a dedicated RefreshThread. Services which do not block in their execute
+	 * method forever can opt in by overriding this method.
+	 * 
+	 * @return <code>true</code> to use the shared scheduler, <code>false</code> by default
+	 */
+	protected boolean useSharedScheduler() {
+		return false;
+	}
+	
 	/**
 	 * Worker thread which calls the execute method frequently.
 	 *  
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.service;
+
+import java.util.Dictionary;
+
+import org.apache.commons.lang.StringUtils;
+import org.osgi.service.cm.ConfigurationException;
+
+/**
+ * Helper methods for reading the values of a {@link org.osgi.service.cm.ManagedService}
+ * configuration.
+ *
+ * @since 1.8.0
+ */
+public final class ConfigurationUtil {
+
+	private ConfigurationUtil() {
+	}
+
+	/**
+	 * Reads a positive number from the configuration.
+	 *
+	 * @param config the configuration
+	 * @param key the configuration key
+	 * @param defaultValue the value to use if the key is not configured
+	 * @return the configured number or the <code>defaultValue</code>
+	 * @throws ConfigurationException if the configured value is not a positive number
+	 */
+	@SuppressWarnings("rawtypes")
+	public static int parsePositiveInt(Dictionary config, String key, int defaultValue) throws ConfigurationException {
+		return parseInt(config, key, defaultValue, 1, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Reads a number within the given bounds from the configuration.
+	 *
+	 * @param config the configuration
+	 * @param key the configuration key
+	 * @param defaultValue the value to use if the key is not configured
+	 * @param minValue the smallest valid value
+	 * @param maxValue the largest valid value
+	 * @return the configured number or the <code>defaultValue</code>
+	 * @throws ConfigurationException if the configured value is not a number between
+	 * <code>minValue</code> and <code>maxValue</code>
+	 */
+	@SuppressWarnings("rawtypes")
+	public static int parseInt(Dictionary config, String key, int defaultValue, int minValue, int maxValue)
+			throws ConfigurationException {
+		String value = (String) config.get(key);
+		if(StringUtils.isBlank(value)) {
+			return defaultValue;
+		}
+		try {
+			int intValue = Integer.parseInt(value.trim());
+			if(intValue >= minValue && intValue <= maxValue) {
+				return intValue;
+			}
+		} catch (NumberFormatException e) {
+			// handled below
+		}
+		if(minValue==1 && maxValue==Integer.MAX_VALUE) {
+			throw new ConfigurationException(key, "The value '" + value + "' is not a positive number");
+		}
+		throw new ConfigurationException(key, "The value '" + value + "' is not a number between " + minValue
+				+ " and " + maxValue);
+	}
+
+}
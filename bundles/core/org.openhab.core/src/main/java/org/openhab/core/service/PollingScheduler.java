@@ -0,0 +1,576 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes the polling tasks of all active services and bindings on a shared,
+ * bounded pool of worker threads, instead of a dedicated refresh thread per
+ * service.
+ *
+ * <p>Each {@link Task} has its own deadline; a single timer thread keeps the
+ * deadlines in a priority queue and hands due tasks to the worker pool. A task
+ * is executed again <code>interval</code> milliseconds after its previous
+ * execution has finished, so it never runs concurrently with itself. Tasks
+ * belong to a group (usually the name of the binding), for which the number
+ * of concurrently executing tasks is limited, so that the tasks of a slow
+ * binding cannot occupy all worker threads. The first execution of a
+ * task is delayed by a random jitter, so that tasks which are scheduled at the
+ * same time (e.g. on startup) are spread over the interval.</p>
+ *
+ * <p>A task can have a timeout: if an execution takes longer, the worker thread
+ * is interrupted. Bindings which poll their items individually schedule a task
+ * per item, so that a slow item only delays its own next execution.</p>
+ *
+ * <p>For each group, the number of executions and the execution times are
+ * recorded, as well as the number of executions which started more than
+ * {@link #OVERDUE_TOLERANCE} milliseconds after their deadline and the number
+ * of executions which exceeded their timeout.</p>
+ *
+ * <p>The number of worker threads can be set with the system property
+ * <code>pollingThreads</code>.</p>
+ *
+ * @since 1.8.0
+ */
+public class PollingScheduler {
+
+	private static final Logger logger = LoggerFactory.getLogger(PollingScheduler.class);
+
+	/** the default number of worker threads */
+	static final int DEFAULT_POOL_SIZE = 10;
+
+	/** the default maximum number of concurrently executed tasks of a group */
+	public static final int DEFAULT_CONCURRENCY_LIMIT = 2;
+
+	/** the maximum jitter of the first execution of a task in milliseconds */
+	static final long MAX_JITTER = 10000L;
+
+	/** the time in milliseconds after its deadline at which an execution is counted as overdue */
+	static final long OVERDUE_TOLERANCE = 1000L;
+
+	private static final PollingScheduler instance = new PollingScheduler(getPoolSize(), MAX_JITTER);
+
+	/**
+	 * A task which is executed periodically until it is cancelled.
+	 */
+	public static class Task implements Runnable {
+
+		private final PollingScheduler scheduler;
+		private final Group group;
+		private final String name;
+		private final Runnable runnable;
+		private final long interval;
+		private final long timeout;
+
+		private volatile boolean cancelled = false;
+
+		/** the thread which executes the task while its timeout is watched, guarded by the task */
+		private Thread runner;
+
+		/** the time at which the task should be executed next, guarded by the task */
+		private long deadline;
+
+		/** the pending timer of the task or <code>null</code> while it is due or running, guarded by the task */
+		private ScheduledFuture<?> future;
+
+		private Task(PollingScheduler scheduler, Group group, String name, Runnable runnable, long interval,
+				long timeout) {
+			this.scheduler = scheduler;
+			this.group = group;
+			this.name = name;
+			this.runnable = runnable;
+			this.interval = interval;
+			this.timeout = timeout;
+		}
+
+		/**
+		 * @return the name of the task
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the time between the end of an execution and the start of the next one in milliseconds
+		 */
+		public long getInterval() {
+			return interval;
+		}
+
+		/**
+		 * @return the time in milliseconds after which an execution is interrupted, or 0 if there is no timeout
+		 */
+		public long getTimeout() {
+			return timeout;
+		}
+
+		/**
+		 * Stops the periodic execution of the task. An execution which is already
+		 * running is not interrupted.
+		 */
+		public void cancel() {
+			cancelled = true;
+			synchronized (this) {
+				if (future != null) {
+					future.cancel(false);
+					future = null;
+				}
+			}
+		}
+
+		/**
+		 * @return <code>true</code>, if the task has been cancelled
+		 */
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		/**
+		 * Executes the task as soon as possible, if it is not running at the moment.
+		 */
+		public void trigger() {
+			synchronized (this) {
+				if (future != null && future.cancel(false)) {
+					future = null;
+					scheduler.schedule(this, 0);
+				}
+			}
+		}
+
+		/**
+		 * Executes the task on a worker thread; the name of the thread is set to
+		 * the name of the task during the execution.
+		 */
+		public void run() {
+			Thread thread = Thread.currentThread();
+			String threadName = thread.getName();
+			long startTime = System.currentTimeMillis();
+			long lateness;
+			synchronized (this) {
+				lateness = startTime - deadline;
+			}
+			ScheduledFuture<?> watchdog = null;
+			try {
+				if (!cancelled) {
+					thread.setName(name);
+					watchdog = scheduler.watch(this, thread);
+					runnable.run();
+				}
+			} catch (RuntimeException e) {
+				logger.error("Error while executing polling task " + name, e);
+			} finally {
+				if (watchdog != null) {
+					scheduler.unwatch(this, watchdog);
+				}
+				thread.setName(threadName);
+				scheduler.finished(this, lateness, System.currentTimeMillis() - startTime);
+			}
+		}
+	}
+
+	/**
+	 * The tasks of a group; all fields are guarded by the instance itself.
+	 */
+	private static class Group {
+
+		final String name;
+		final LinkedList<Task> waiting = new LinkedList<Task>();
+		int concurrencyLimit = DEFAULT_CONCURRENCY_LIMIT;
+		int running;
+		long executions;
+		long overdue;
+		long timedOut;
+		long maxLateness;
+		long totalTime;
+		long maxTime;
+
+		Group(String name) {
+			this.name = name;
+		}
+	}
+
+	/**
+	 * An immutable snapshot of the execution statistics of a group.
+	 */
+	public static class Statistics {
+
+		private final int running;
+		private final int waiting;
+		private final long executions;
+		private final long overdue;
+		private final long timedOut;
+		private final long maxLateness;
+		private final long totalTime;
+		private final long maxTime;
+
+		private Statistics(Group group) {
+			this.running = group.running;
+			this.waiting = group.waiting.size();
+			this.executions = group.executions;
+			this.overdue = group.overdue;
+			this.timedOut = group.timedOut;
+			this.maxLateness = group.maxLateness;
+			this.totalTime = group.totalTime;
+			this.maxTime = group.maxTime;
+		}
+
+		/** @return the number of tasks which are currently executed */
+		public int getRunning() {
+			return running;
+		}
+
+		/** @return the number of due tasks which wait for the concurrency limit of the group */
+		public int getWaiting() {
+			return waiting;
+		}
+
+		/** @return the number of finished executions */
+		public long getExecutions() {
+			return executions;
+		}
+
+		/** @return the number of executions which started more than {@link PollingScheduler#OVERDUE_TOLERANCE} after their deadline */
+		public long getOverdue() {
+			return overdue;
+		}
+
+		/** @return the number of executions which have been interrupted after their timeout */
+		public long getTimedOut() {
+			return timedOut;
+		}
+
+		/** @return the maximum time an execution started after its deadline in milliseconds */
+		public long getMaxLateness() {
+			return maxLateness;
+		}
+
+		/** @return the average execution time in milliseconds */
+		public long getAverageTime() {
+			return executions > 0 ? totalTime / executions : 0;
+		}
+
+		/** @return the maximum execution time in milliseconds */
+		public long getMaxTime() {
+			return maxTime;
+		}
+
+		@Override
+		public String toString() {
+			return "running=" + running + ", waiting=" + waiting + ", executions=" + executions + ", overdue=" + overdue
+					+ ", timedOut=" + timedOut + ", maxLateness=" + maxLateness + "ms, averageTime=" + getAverageTime() + "ms, maxTime=" + maxTime + "ms";
+		}
+	}
+
+	private final ScheduledThreadPoolExecutor timer;
+
+	private final ThreadPoolExecutor workers;
+
+	private final long maxJitter;
+
+	private final Random random = new Random();
+
+	private final ConcurrentHashMap<String, Group> groups = new ConcurrentHashMap<String, Group>();
+
+	/**
+	 * @param poolSize the number of worker threads
+	 * @param maxJitter the maximum delay of the first execution of a task in milliseconds
+	 */
+	PollingScheduler(int poolSize, long maxJitter) {
+		this.maxJitter = maxJitter;
+		this.timer = new ScheduledThreadPoolExecutor(1, new PollingThreadFactory("Polling Scheduler"));
+		this.workers = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new PollingThreadFactory("Polling"));
+		this.workers.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * @return the scheduler shared by all active services
+	 */
+	public static PollingScheduler getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Schedules a task for periodic execution.
+	 *
+	 * @param groupName the name of the group of the task, usually the name of the binding
+	 * @param name the name of the task, which is used as thread name while it is executed
+	 * @param interval the time between the end of an execution and the start of the next one in milliseconds
+	 * @param runnable the code to execute
+	 * @return the task, which can be used to cancel the execution
+	 */
+	public Task schedule(String groupName, String name, long interval, Runnable runnable) {
+		return schedule(groupName, name, interval, 0, runnable);
+	}
+
+	/**
+	 * Schedules a task for periodic execution, which is interrupted if an execution
+	 * takes longer than the given timeout.
+	 *
+	 * @param groupName the name of the group of the task, usually the name of the binding
+	 * @param name the name of the task, which is used as thread name while it is executed
+	 * @param interval the time between the end of an execution and the start of the next one in milliseconds
+	 * @param timeout the time in milliseconds after which an execution is interrupted, or 0 for no timeout
+	 * @param runnable the code to execute
+	 * @return the task, which can be used to cancel the execution
+	 */
+	public Task schedule(String groupName, String name, long interval, long timeout, Runnable runnable) {
+		Task task = new Task(this, getGroup(groupName), name, runnable, Math.max(interval, 0), Math.max(timeout, 0));
+		long jitter = Math.min(task.interval, maxJitter);
+		long delay;
+		synchronized (random) {
+			delay = jitter > 0 ? (long) (random.nextDouble() * jitter) : 0;
+		}
+		synchronized (task) {
+			schedule(task, delay);
+		}
+		return task;
+	}
+
+	/**
+	 * Limits the number of tasks of a group, which are executed at the same time.
+	 * Due tasks which exceed the limit wait until another task of the group has finished.
+	 * The limit is {@link #DEFAULT_CONCURRENCY_LIMIT} unless it is set.
+	 *
+	 * @param groupName the name of the group
+	 * @param limit the maximum number of concurrently executed tasks
+	 */
+	public void setConcurrencyLimit(String groupName, int limit) {
+		Group group = getGroup(groupName);
+		synchronized (group) {
+			group.concurrencyLimit = Math.max(limit, 1);
+		}
+		startWaiting(group);
+	}
+
+	/**
+	 * Returns the execution statistics of all groups, which have been scheduled so far.
+	 *
+	 * @return the statistics by group name
+	 */
+	public Map<String, Statistics> getStatistics() {
+		Map<String, Statistics> statistics = new HashMap<String, Statistics>();
+		for (Group group : groups.values()) {
+			synchronized (group) {
+				statistics.put(group.name, new Statistics(group));
+			}
+		}
+		return Collections.unmodifiableMap(statistics);
+	}
+
+	/**
+	 * Stops the timer and the worker threads; running executions are finished.
+	 */
+	void shutdown() {
+		timer.shutdownNow();
+		workers.shutdown();
+	}
+
+	private Group getGroup(String groupName) {
+		Group group = groups.get(groupName);
+		if (group == null) {
+			Group newGroup = new Group(groupName);
+			group = groups.putIfAbsent(groupName, newGroup);
+			if (group == null) {
+				group = newGroup;
+			}
+		}
+		return group;
+	}
+
+	/**
+	 * Sets the next deadline of a task; the caller must hold the lock of the task.
+	 */
+	private void schedule(final Task task, long delay) {
+		if (task.cancelled || timer.isShutdown()) {
+			return;
+		}
+		task.deadline = System.currentTimeMillis() + delay;
+		task.future = timer.schedule(new Runnable() {
+			public void run() {
+				dispatch(task);
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Called by the timer when a task is due; passes it to the worker pool if
+	 * the concurrency limit of its group allows it.
+	 */
+	private void dispatch(Task task) {
+		synchronized (task) {
+			if (task.cancelled) {
+				return;
+			}
+			task.future = null;
+		}
+		Group group = task.group;
+		synchronized (group) {
+			if (group.running >= group.concurrencyLimit) {
+				group.waiting.add(task);
+				return;
+			}
+			group.running++;
+		}
+		execute(task);
+	}
+
+	/**
+	 * Called when a task has been executed; records the statistics, starts the
+	 * next waiting task of the group and schedules the next execution.
+	 */
+	private void finished(Task task, long lateness, long duration) {
+		Group group = task.group;
+		synchronized (group) {
+			group.running--;
+			group.executions++;
+			group.totalTime += duration;
+			if (duration > group.maxTime) {
+				group.maxTime = duration;
+			}
+			if (lateness > group.maxLateness) {
+				group.maxLateness = lateness;
+			}
+			if (lateness > OVERDUE_TOLERANCE) {
+				group.overdue++;
+				logger.debug("Polling task {} started {}ms after its deadline", task.name, lateness);
+			}
+		}
+		startWaiting(group);
+		synchronized (task) {
+			schedule(task, task.interval);
+		}
+	}
+
+	private void startWaiting(Group group) {
+		while (true) {
+			Task next;
+			synchronized (group) {
+				if (group.running >= group.concurrencyLimit || group.waiting.isEmpty()) {
+					return;
+				}
+				next = group.waiting.poll();
+				if (next.cancelled) {
+					continue;
+				}
+				group.running++;
+			}
+			execute(next);
+		}
+	}
+
+	private void execute(Task task) {
+		try {
+			workers.execute(task);
+		} catch (RejectedExecutionException e) {
+			// the scheduler has been shut down
+			synchronized (task.group) {
+				task.group.running--;
+			}
+		}
+	}
+
+	/**
+	 * Starts watching the timeout of an execution, which is running on the given thread.
+	 *
+	 * @return the watchdog, or <code>null</code> if the task has no timeout
+	 */
+	private ScheduledFuture<?> watch(final Task task, final Thread thread) {
+		if (task.timeout <= 0) {
+			return null;
+		}
+		synchronized (task) {
+			task.runner = thread;
+		}
+		try {
+			return timer.schedule(new Runnable() {
+				public void run() {
+					timedOut(task, thread);
+				}
+			}, task.timeout, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Stops watching the timeout of an execution which has finished; must be called
+	 * on the thread which executed the task.
+	 */
+	private void unwatch(Task task, ScheduledFuture<?> watchdog) {
+		watchdog.cancel(false);
+		synchronized (task) {
+			task.runner = null;
+		}
+		// the watchdog may have interrupted the thread just before the execution finished
+		Thread.interrupted();
+	}
+
+	private void timedOut(Task task, Thread thread) {
+		synchronized (task) {
+			if (task.runner != thread) {
+				return;
+			}
+			thread.interrupt();
+		}
+		synchronized (task.group) {
+			task.group.timedOut++;
+		}
+		logger.warn("Polling task {} did not finish within {}ms and has been interrupted", task.name, task.timeout);
+	}
+
+	private static int getPoolSize() {
+		String poolSize = System.getProperty("pollingThreads");
+		if (poolSize != null) {
+			try {
+				return Math.max(Integer.parseInt(poolSize.trim()), 1);
+			} catch (NumberFormatException e) {
+				logger.warn("Invalid number of polling threads '{}', using {}", poolSize, DEFAULT_POOL_SIZE);
+			}
+		}
+		return DEFAULT_POOL_SIZE;
+	}
+
+	/**
+	 * Creates the daemon threads of the scheduler.
+	 */
+	private static class PollingThreadFactory implements ThreadFactory {
+
+		private final String name;
+		private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+		PollingThreadFactory(String name) {
+			this.name = name;
+		}
+
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, name + "-" + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
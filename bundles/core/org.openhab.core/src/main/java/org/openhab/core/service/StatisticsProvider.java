@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.service;
+
+import java.util.Map;
+
+/**
+ * A service which collects runtime statistics, such as the execution times of
+ * the rules. The statistics are shown by the openHAB console; the console
+ * command which shows them is selected by the service property
+ * {@link #NAME_PROPERTY}.
+ *
+ * @since 1.8.0
+ */
+public interface StatisticsProvider {
+
+	/** the service property with the name of the statistics, e.g. <code>rules</code> */
+	String NAME_PROPERTY = "statistics.name";
+
+	/**
+	 * @return a line which summarizes the statistics, or <code>null</code> if there is none
+	 */
+	String getSummary();
+
+	/**
+	 * @return the statistics by their subject, e.g. by rule name; the <code>toString()</code>
+	 *         of the values is shown on the console
+	 */
+	Map<String, ?> getStatistics();
+
+}
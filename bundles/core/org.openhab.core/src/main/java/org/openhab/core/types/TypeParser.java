@@ -10,17 +10,39 @@ package org.openhab.core.types;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This is a helper class that helps parsing a string into an openHAB type (state or command).
- * 
+ *
+ * <p>The parser for each type is looked up only once and then cached. Types can
+ * register an explicit {@link ValueParser}; for all other types, enums are parsed
+ * by their constant names and any other type through its static <code>valueOf(String)</code>
+ * method.</p>
+ *
  * @author Kai Kreuzer
  * @since 0.1.0
  *
  */
 public class TypeParser {
 
+	/** the parsers by type, including the ones resolved for types without an explicit parser */
+	private static final Map<Class<?>, ValueParser<?>> parsers = new ConcurrentHashMap<Class<?>, ValueParser<?>>();
+
+	/** the explicitly registered parsers by type */
+	private static final Map<Class<?>, ValueParser<?>> registeredParsers = new ConcurrentHashMap<Class<?>, ValueParser<?>>();
+
+	/** marks types which cannot be parsed at all */
+	private static final ValueParser<Type> NO_PARSER = new ValueParser<Type>() {
+		public Type parse(String value) {
+			return null;
+		}
+	};
+
 	/**
 	 * <p>Determines a state from a string. Possible state types are passed as a parameter.
 	 * Note that the order matters here; the first type that accepts the string as a valid
@@ -28,22 +50,15 @@ public class TypeParser {
 	 * <p>Example: The type list is OnOffType.class,StringType.class. The string "ON" is now
 	 * accepted by the OnOffType and thus OnOffType.ON will be returned (and not a StringType
 	 * with value "ON").</p>
-	 *  
-	 * @param types possible types of the state to consider 
+	 *
+	 * @param types possible types of the state to consider
 	 * @param s the string to parse
 	 * @return the corresponding State instance or <code>null</code>
 	 */
 	public static State parseState(List<Class<? extends State>> types, String s) {
-		for(Class<? extends Type> type : types) {
-			try {									
-				Method valueOf = type.getMethod("valueOf", String.class);
-				State state = (State) valueOf.invoke(type, s);
-				if(state!=null) return state;
-			} catch (NoSuchMethodException e) {
-			} catch (IllegalArgumentException e) {
-			} catch (IllegalAccessException e) {
-			} catch (InvocationTargetException e) {
-			}
+		for(Class<? extends State> type : types) {
+			State state = (State) getParser(type).parse(s);
+			if(state!=null) return state;
 		}
 		return null;
 	}
@@ -55,25 +70,122 @@ public class TypeParser {
 	 * <p>Example: The type list is OnOffType.class,StringType.class. The string "ON" is now
 	 * accepted by the OnOffType and thus OnOffType.ON will be returned (and not a StringType
 	 * with value "ON").</p>
-	 *  
-	 * @param types possible types of the command to consider 
+	 *
+	 * @param types possible types of the command to consider
 	 * @param s the string to parse
 	 * @return the corresponding Command instance or <code>null</code>
 	 */
 	public static Command parseCommand(List<Class<? extends Command>> types, String s) {
 		if(s!=null) {
 			for(Class<? extends Command> type : types) {
-				try {									
-					Method valueOf = type.getMethod("valueOf", String.class);
-					Command value = (Command) valueOf.invoke(type, s);
-					if(value!=null) return value;
-				} catch (NoSuchMethodException e) {
-				} catch (IllegalArgumentException e) {
-				} catch (IllegalAccessException e) {
-				} catch (InvocationTargetException e) {
-				}		
+				Command value = (Command) getParser(type).parse(s);
+				if(value!=null) return value;
 			}
 		}
 		return null;
 	}
+
+	/**
+	 * Registers an explicit parser for the given type, which is used instead of
+	 * its <code>valueOf(String)</code> method.
+	 *
+	 * @param type the type to register the parser for
+	 * @param parser the parser for the type
+	 */
+	public static <T extends Type> void registerParser(Class<T> type, ValueParser<? extends T> parser) {
+		registeredParsers.put(type, parser);
+		parsers.put(type, parser);
+	}
+
+	/**
+	 * Removes the explicit parser of the given type, so that it is parsed through
+	 * its <code>valueOf(String)</code> method again.
+	 *
+	 * @param type the type to remove the parser for
+	 */
+	public static void unregisterParser(Class<? extends Type> type) {
+		registeredParsers.remove(type);
+		parsers.remove(type);
+	}
+
+	/**
+	 * Returns the parser for the given type, resolving and caching it on first use.
+	 *
+	 * @param type the type to get the parser for
+	 * @return the parser, never <code>null</code>
+	 */
+	static ValueParser<?> getParser(Class<? extends Type> type) {
+		ValueParser<?> parser = parsers.get(type);
+		if(parser==null) {
+			parser = createParser(type);
+			parsers.put(type, parser);
+			// a parser might have been registered concurrently, which must not be overwritten
+			ValueParser<?> registeredParser = registeredParsers.get(type);
+			if(registeredParser!=null) {
+				parsers.put(type, registeredParser);
+				parser = registeredParser;
+			}
+		}
+		return parser;
+	}
+
+	private static ValueParser<?> createParser(Class<? extends Type> type) {
+		if(type.isEnum()) {
+			return new EnumParser(type.getEnumConstants());
+		}
+		try {
+			Method valueOf = type.getMethod("valueOf", String.class);
+			if(Modifier.isStatic(valueOf.getModifiers())) {
+				return new ValueOfParser(valueOf);
+			}
+		} catch (NoSuchMethodException e) {
+		} catch (SecurityException e) {
+		}
+		return NO_PARSER;
+	}
+
+	/**
+	 * Parses the constants of an enum type by their names without going through
+	 * {@link Enum#valueOf(Class, String)}, which throws an exception for unknown names.
+	 */
+	private static class EnumParser implements ValueParser<Type> {
+
+		private final Map<String, Type> constants;
+
+		EnumParser(Type[] enumConstants) {
+			constants = new HashMap<String, Type>(enumConstants.length * 2);
+			for(Type constant : enumConstants) {
+				constants.put(((Enum<?>) constant).name(), constant);
+			}
+		}
+
+		public Type parse(String value) {
+			return value!=null ? constants.get(value) : null;
+		}
+	}
+
+	/**
+	 * Parses values through the cached static <code>valueOf(String)</code> method
+	 * of a type, treating any exception as an invalid value.
+	 */
+	private static class ValueOfParser implements ValueParser<Type> {
+
+		private final Method valueOf;
+
+		ValueOfParser(Method valueOf) {
+			this.valueOf = valueOf;
+		}
+
+		public Type parse(String value) {
+			try {
+				Object result = valueOf.invoke(null, value);
+				return result instanceof Type ? (Type) result : null;
+			} catch (IllegalArgumentException e) {
+			} catch (IllegalAccessException e) {
+			} catch (InvocationTargetException e) {
+			}
+			return null;
+		}
+	}
+
 }
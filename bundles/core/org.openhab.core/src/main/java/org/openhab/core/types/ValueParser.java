@@ -0,0 +1,33 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.types;
+
+/**
+ * A parser which creates instances of a single {@link Type} from their string
+ * representation. It is the equivalent of the static <code>valueOf(String)</code>
+ * method of the type, but signals invalid values by returning <code>null</code>
+ * instead of throwing an exception.
+ *
+ * <p>Parsers can be registered for a type through {@link TypeParser#registerParser(Class, ValueParser)}.</p>
+ *
+ * @since 1.8.0
+ *
+ * @param <T> the type created by this parser
+ */
+public interface ValueParser<T extends Type> {
+
+	/**
+	 * Parses the given string.
+	 *
+	 * @param value the string to parse
+	 * @return the parsed value or <code>null</code>, if the string is not a valid value of the type
+	 */
+	T parse(String value);
+
+}
@@ -9,6 +9,8 @@
 package org.openhab.io.console;
 
 import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
 
 import org.apache.commons.lang.ArrayUtils;
 import org.openhab.core.events.EventPublisher;
@@ -20,11 +22,14 @@ import org.openhab.core.scriptengine.Script;
 import org.openhab.core.scriptengine.ScriptEngine;
 import org.openhab.core.scriptengine.ScriptExecutionException;
 import org.openhab.core.scriptengine.ScriptParsingException;
+import org.openhab.core.service.PollingScheduler;
+import org.openhab.core.service.StatisticsProvider;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.State;
 import org.openhab.core.types.TypeParser;
 import org.openhab.io.console.internal.ConsoleActivator;
 import org.openhab.io.multimedia.actions.Audio;
+import org.osgi.framework.ServiceReference;
 
 import com.google.common.base.Joiner;
 
@@ -59,6 +64,12 @@ public class ConsoleInterpreter {
 			ConsoleInterpreter.handleStatus(args, console);
 		} else if(arg.equals("say")) {
 			ConsoleInterpreter.handleSay(args, console);
+		} else if(arg.equals("polling")) {
+			ConsoleInterpreter.handlePolling(args, console);
+		} else if(arg.equals("rulestats")) {
+			ConsoleInterpreter.handleRuleStats(args, console);
+		} else if(arg.equals("httpstats")) {
+			ConsoleInterpreter.handleHttpStats(args, console);
 		} else if(arg.equals(">")) {
 			ConsoleInterpreter.handleScript(args, console);
 		} else {
@@ -264,6 +275,87 @@ public class ConsoleInterpreter {
 		}
 	}
 
+	/**
+	 * This method handles a polling command, which shows the statistics of the
+	 * shared polling scheduler.
+	 * 
+	 * @param args array which contains the arguments for the polling command
+	 * @param console the console for printing messages for the user
+	 */
+	public static void handlePolling(String[] args, Console console) {
+		Map<String, PollingScheduler.Statistics> statistics = 
+			new TreeMap<String, PollingScheduler.Statistics>(PollingScheduler.getInstance().getStatistics());
+		if(statistics.size()>0) {
+			for(Map.Entry<String, PollingScheduler.Statistics> entry : statistics.entrySet()) {
+				console.println(entry.getKey() + ": " + entry.getValue());
+			}
+		} else {
+			console.println("No polling tasks have been scheduled.");
+		}
+	}
+
+	/**
+	 * This method handles a rulestats command, which shows the execution
+	 * statistics of the rules.
+	 * 
+	 * @param args array which contains the arguments for the rulestats command
+	 * @param console the console for printing messages for the user
+	 */
+	public static void handleRuleStats(String[] args, Console console) {
+		printStatistics("rules", "Rule engine is not available.", "No rules have been executed yet.", console);
+	}
+
+	/**
+	 * This method handles a httpstats command, which shows the response time
+	 * statistics of the urls requested by the HTTP binding.
+	 * 
+	 * @param args array which contains the arguments for the httpstats command
+	 * @param console the console for printing messages for the user
+	 */
+	public static void handleHttpStats(String[] args, Console console) {
+		printStatistics("http", "HTTP binding is not available.", "No urls have been requested yet.", console);
+	}
+
+	/**
+	 * Prints the statistics of the {@link StatisticsProvider} with the given name.
+	 * 
+	 * @param name the name of the statistics
+	 * @param unavailable the message, if there is no provider of the statistics
+	 * @param empty the message, if no statistics have been collected yet
+	 * @param console the console for printing messages for the user
+	 */
+	private static void printStatistics(String name, String unavailable, String empty, Console console) {
+		StatisticsProvider provider = getStatisticsProvider(name);
+		if(provider==null) {
+			console.println(unavailable);
+			return;
+		}
+		String summary = provider.getSummary();
+		if(summary!=null) {
+			console.println(summary);
+		}
+		Map<String, ?> statistics = new TreeMap<String, Object>(provider.getStatistics());
+		if(statistics.size()>0) {
+			for(Map.Entry<String, ?> entry : statistics.entrySet()) {
+				console.println(entry.getKey() + ": " + entry.getValue());
+			}
+		} else {
+			console.println(empty);
+		}
+	}
+
+	private static StatisticsProvider getStatisticsProvider(String name) {
+		ServiceReference<StatisticsProvider>[] references = ConsoleActivator.statisticsProviderTracker.getServiceReferences();
+		if(references!=null) {
+			for(ServiceReference<StatisticsProvider> reference : references) {
+				if(name.equals(reference.getProperty(StatisticsProvider.NAME_PROPERTY))) {
+					return ConsoleActivator.statisticsProviderTracker.getService(reference);
+				}
+			}
+		}
+		return null;
+	}
+
 	public static void handleScript(String[] args, Console console) {
 		ScriptEngine scriptEngine = ConsoleActivator.scriptEngineTracker.getService();
 		if(scriptEngine!=null) {
@@ -305,6 +397,9 @@ public class ConsoleInterpreter {
 				getStatusUsage(),
 				getItemsUsage(),
 				getSayUsage(),
+				getPollingUsage(),
+				getRuleStatsUsage(),
+				getHttpStatsUsage(),
 				getScriptUsage()
 		};
 	}
@@ -329,6 +424,18 @@ public class ConsoleInterpreter {
 		return "say <sentence to say> - Says a message through TTS on the host machine";
 	}
 
+	public static String getPollingUsage() {
+		return "polling - shows the statistics of the shared polling scheduler";
+	}
+
+	public static String getRuleStatsUsage() {
+		return "rulestats - shows the execution statistics of the rules";
+	}
+
+	public static String getHttpStatsUsage() {
+		return "httpstats - shows the response time statistics of the urls requested by the HTTP binding";
+	}
+
 	public static String getScriptUsage() {
 		return "> <script to execute> - Executes a script";
 	}
@@ -11,6 +11,7 @@ package org.openhab.io.console.internal;
 import org.openhab.core.events.EventPublisher;
 import org.openhab.core.items.ItemRegistry;
 import org.openhab.core.scriptengine.ScriptEngine;
+import org.openhab.core.service.StatisticsProvider;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
 import org.osgi.util.tracker.ServiceTracker;
@@ -23,6 +24,7 @@ public final class ConsoleActivator implements BundleActivator {
 	public static ServiceTracker<ItemRegistry, ItemRegistry> itemRegistryTracker;
 	public static ServiceTracker<EventPublisher, EventPublisher> eventPublisherTracker;
 	public static ServiceTracker<ScriptEngine, ScriptEngine> scriptEngineTracker;
+	public static ServiceTracker<StatisticsProvider, StatisticsProvider> statisticsProviderTracker;
 	
 	/**
 	 * Called whenever the OSGi framework starts our bundle
@@ -36,6 +38,9 @@ public final class ConsoleActivator implements BundleActivator {
 
 		scriptEngineTracker = new ServiceTracker<ScriptEngine, ScriptEngine>(bc, ScriptEngine.class, null);
 		scriptEngineTracker.open();
+
+		statisticsProviderTracker = new ServiceTracker<StatisticsProvider, StatisticsProvider>(bc, StatisticsProvider.class, null);
+		statisticsProviderTracker.open();
 	}
 
 	/**
@@ -44,5 +49,6 @@ public final class ConsoleActivator implements BundleActivator {
 	public void stop(BundleContext bc) throws Exception {
 		itemRegistryTracker.close();
 		eventPublisherTracker.close();
+		statisticsProviderTracker.close();
 	}
 }
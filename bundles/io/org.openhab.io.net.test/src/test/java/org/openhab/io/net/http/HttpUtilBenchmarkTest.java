@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.net.http;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import junit.framework.Assert;
+
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.SimpleHttpConnectionManager;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes requests against a local HTTP server and compares the requests per
+ * second of {@link HttpUtil} with a new connection for every request. The
+ * benchmark is ignored by default and has to be run manually.
+ *
+ * @since 1.8.0
+ */
+public class HttpUtilBenchmarkTest {
+
+	private static final Logger logger = LoggerFactory.getLogger(HttpUtilBenchmarkTest.class);
+
+	private static final int REQUESTS = 500;
+
+	private static final int TIMEOUT = 5000;
+
+	private TestHttpServer server;
+
+	@Before
+	public void init() throws IOException {
+		server = new TestHttpServer("OK");
+	}
+
+	@After
+	public void cleanup() throws IOException {
+		server.stop();
+		HttpUtil.shutdown();
+	}
+
+	@Test
+	public void testConnectionsAreReused() {
+		for (int i = 0; i < 20; i++) {
+			Assert.assertEquals("OK", HttpUtil.executeUrl("GET", server.getUrl(), TIMEOUT));
+		}
+		Assert.assertEquals(20, server.getRequests());
+		Assert.assertEquals(1, server.getConnections());
+	}
+
+	@Test
+	public void testExecuteUrlAsync() throws InterruptedException, ExecutionException {
+		List<Future<String>> responses = new ArrayList<Future<String>>();
+		for (int i = 0; i < 20; i++) {
+			responses.add(HttpUtil.executeUrlAsync("GET", server.getUrl(), TIMEOUT));
+		}
+		for (Future<String> response : responses) {
+			Assert.assertEquals("OK", response.get());
+		}
+		Assert.assertEquals(20, server.getRequests());
+		// the number of connections per host is limited
+		Assert.assertTrue(server.getConnections() <= 4);
+	}
+
+	@Test
+	@Ignore("benchmark, run manually")
+	public void benchmark() throws Exception {
+		// warm up
+		for (int i = 0; i < 50; i++) {
+			HttpUtil.executeUrl("GET", server.getUrl(), TIMEOUT);
+			executeWithoutPool(server.getUrl());
+		}
+
+		long start = System.nanoTime();
+		for (int i = 0; i < REQUESTS; i++) {
+			executeWithoutPool(server.getUrl());
+		}
+		long unpooled = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (int i = 0; i < REQUESTS; i++) {
+			HttpUtil.executeUrl("GET", server.getUrl(), TIMEOUT);
+		}
+		long pooled = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		List<Future<String>> responses = new ArrayList<Future<String>>(REQUESTS);
+		for (int i = 0; i < REQUESTS; i++) {
+			responses.add(HttpUtil.executeUrlAsync("GET", server.getUrl(), TIMEOUT));
+		}
+		for (Future<String> response : responses) {
+			Assert.assertEquals("OK", response.get());
+		}
+		long async = System.nanoTime() - start;
+
+		logger.info("HttpUtil benchmark: new connection per request {} req/s, pooled connections {} req/s, asynchronous {} req/s",
+				new Object[] { perSecond(unpooled), perSecond(pooled), perSecond(async) });
+	}
+
+	private static String executeWithoutPool(String url) throws IOException {
+		HttpClient client = new HttpClient(new SimpleHttpConnectionManager(true));
+		GetMethod method = new GetMethod(url);
+		try {
+			client.executeMethod(method);
+			return method.getResponseBodyAsString();
+		} finally {
+			method.releaseConnection();
+		}
+	}
+
+	private static long perSecond(long nanos) {
+		return REQUESTS * 1000000000L / Math.max(nanos, 1);
+	}
+
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.net.http;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A minimal HTTP/1.1 server with keep-alive support, which answers every
+ * request with a fixed body and counts the opened connections.
+ *
+ * @since 1.8.0
+ */
+class TestHttpServer {
+
+	private final String body;
+	private final ServerSocket serverSocket;
+	private final AtomicInteger connections = new AtomicInteger();
+	private final AtomicInteger requests = new AtomicInteger();
+
+	private volatile boolean running = true;
+
+	TestHttpServer(String body) throws IOException {
+		this.body = body;
+		this.serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+		Thread acceptor = new Thread("Test HTTP Server") {
+			@Override
+			public void run() {
+				while (running) {
+					try {
+						final Socket socket = serverSocket.accept();
+						connections.incrementAndGet();
+						Thread handler = new Thread("Test HTTP Connection") {
+							@Override
+							public void run() {
+								handle(socket);
+							}
+						};
+						handler.setDaemon(true);
+						handler.start();
+					} catch (IOException e) {
+						// the server socket has been closed
+					}
+				}
+			}
+		};
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	String getUrl() {
+		return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/";
+	}
+
+	int getConnections() {
+		return connections.get();
+	}
+
+	int getRequests() {
+		return requests.get();
+	}
+
+	void stop() throws IOException {
+		running = false;
+		serverSocket.close();
+	}
+
+	private void handle(Socket socket) {
+		try {
+			InputStream in = new BufferedInputStream(socket.getInputStream());
+			OutputStream out = socket.getOutputStream();
+			byte[] response = ("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nContent-Length: " + body.length()
+					+ "\r\n\r\n" + body).getBytes("ISO-8859-1");
+			while (running) {
+				String requestLine = readLine(in);
+				if (requestLine == null) {
+					break;
+				}
+				int contentLength = 0;
+				boolean close = false;
+				String header;
+				while ((header = readLine(in)) != null && header.length() > 0) {
+					String lowerCase = header.toLowerCase();
+					if (lowerCase.startsWith("content-length:")) {
+						contentLength = Integer.parseInt(header.substring(15).trim());
+					} else if (lowerCase.startsWith("connection:") && lowerCase.contains("close")) {
+						close = true;
+					}
+				}
+				for (int i = 0; i < contentLength; i++) {
+					in.read();
+				}
+				requests.incrementAndGet();
+				out.write(response);
+				out.flush();
+				if (close) {
+					break;
+				}
+			}
+		} catch (IOException e) {
+			// the client has closed the connection
+		} finally {
+			try {
+				socket.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	private static String readLine(InputStream in) throws IOException {
+		StringBuilder line = new StringBuilder();
+		int c;
+		while ((c = in.read()) != -1) {
+			if (c == '\n') {
+				int length = line.length();
+				return length > 0 && line.charAt(length - 1) == '\r' ? line.substring(0, length - 1) : line.toString();
+			}
+			line.append((char) c);
+		}
+		return line.length() > 0 ? line.toString() : null;
+	}
+
+}
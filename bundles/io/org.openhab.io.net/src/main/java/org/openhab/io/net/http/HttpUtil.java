@@ -13,6 +13,13 @@ import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.GZIPInputStream;
@@ -26,6 +33,7 @@ import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.HttpException;
 import org.apache.commons.httpclient.HttpMethod;
 import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
 import org.apache.commons.httpclient.URIException;
 import org.apache.commons.httpclient.UsernamePasswordCredentials;
 import org.apache.commons.httpclient.auth.AuthScope;
@@ -35,7 +43,9 @@ import org.apache.commons.httpclient.methods.GetMethod;
 import org.apache.commons.httpclient.methods.InputStreamRequestEntity;
 import org.apache.commons.httpclient.methods.PostMethod;
 import org.apache.commons.httpclient.methods.PutMethod;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
 import org.apache.commons.httpclient.params.HttpMethodParams;
+import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
@@ -45,6 +55,15 @@ import org.slf4j.LoggerFactory;
 /**
  * Some common methods to be used in both HTTP-In-Binding and HTTP-Out-Binding
  * 
+ * <p>All requests share a pool of keep-alive connections, so that subsequent
+ * requests to the same host do not have to open a new connection each time.
+ * The number of connections per host and in total can be set with the system
+ * properties <code>http.maxConnectionsPerHost</code> (default 4) and
+ * <code>http.maxConnections</code> (default 20); idle connections are closed
+ * after {@link #IDLE_CONNECTION_TIMEOUT} milliseconds. Note that at most 4
+ * requests to the same host are executed at the same time by default; further
+ * requests wait for a free connection up to their timeout.</p>
+ * 
  * @author Thomas.Eichstaedt-Engelen
  * @author Kai Kreuzer
  * @since 0.6.0
@@ -56,6 +75,18 @@ public class HttpUtil {
 	/** {@link Pattern} which matches the credentials out of an URL */ 
 	private static final Pattern URL_CREDENTIALS_PATTERN = Pattern.compile("http://(.*?):(.*?)@.*");
 	
+	/** the time after which idle connections are closed in milliseconds */
+	static final long IDLE_CONNECTION_TIMEOUT = 30000L;
+	
+	/** the connections which are shared by all requests, created on first use */
+	private static MultiThreadedHttpConnectionManager connectionManager;
+	
+	/** the thread which closes idle connections of the {@link #connectionManager} */
+	private static IdleConnectionTimeoutThread idleConnectionThread;
+	
+	/** the threads which execute the asynchronous requests, created on first use */
+	private static ThreadPoolExecutor asyncExecutor;
+	
 
 	/**
 	 * Executes the given <code>url</code> with the given <code>httpMethod</code>.
@@ -153,7 +184,9 @@ public class HttpUtil {
 	 */
 	public static String executeUrl(String httpMethod, String url, Properties httpHeaders, InputStream content, String contentType, int timeout, String proxyHost, Integer proxyPort, String proxyUser, String proxyPassword, String nonProxyHosts) {
 		
-		HttpClient client = new HttpClient();
+		HttpClient client = new HttpClient(getConnectionManager());
+		// don't wait forever if all connections to the host are in use
+		client.getParams().setConnectionManagerTimeout(timeout);
 		
 		// only configure a proxy if a host is provided
 		if (StringUtils.isNotBlank(proxyHost) && proxyPort != null && shouldUseProxy(url, nonProxyHosts)) {
@@ -166,8 +199,11 @@ public class HttpUtil {
 		  
 		HttpMethod method = HttpUtil.createHttpMethod(httpMethod, url);
         method.getParams().setSoTimeout(timeout);
+		// requests with content are not retried: they are not idempotent and
+		// the content stream has already been consumed by the first attempt
+		int retryCount = method instanceof EntityEnclosingMethod ? 0 : 3;
 		method.getParams().setParameter(HttpMethodParams.RETRY_HANDLER,
-				new DefaultHttpMethodRetryHandler(3, false));
+				new DefaultHttpMethodRetryHandler(retryCount, false));
 		if(httpHeaders != null){
 			for(String httpHeaderKey: httpHeaders.stringPropertyNames()){
 				method.addRequestHeader(new Header(httpHeaderKey,httpHeaders.getProperty(httpHeaderKey)));
@@ -239,6 +275,110 @@ public class HttpUtil {
 		return null;
 	}
 
+	/**
+	 * Executes the given <code>url</code> with the given <code>httpMethod</code>
+	 * asynchronously on a separate thread.
+	 * 
+	 * @param httpMethod the HTTP method to use
+	 * @param url the url to execute (in milliseconds)
+	 * @param timeout the socket timeout to wait for data
+	 * 
+	 * @return the future response body, which is <code>NULL</code> when the request went wrong
+	 * @see #executeUrl(String, String, int)
+	 */
+	public static Future<String> executeUrlAsync(String httpMethod, String url, int timeout) {
+		return executeUrlAsync(httpMethod, url, null, null, null, timeout);
+	}
+	
+	/**
+	 * Executes the given <code>url</code> with the given <code>httpMethod</code>
+	 * asynchronously on a separate thread. The <code>content</code> is read by
+	 * that thread, so it must not be closed before the request has been executed.
+	 * 
+	 * @param httpMethod the HTTP method to use
+	 * @param url the url to execute (in milliseconds)
+	 * @param httpHeaders optional http request headers which has to be sent within request 
+	 * @param content the content to be send to the given <code>url</code> or 
+	 * <code>null</code> if no content should be send.
+	 * @param contentType the content type of the given <code>content</code>
+	 * @param timeout the socket timeout to wait for data
+	 * 
+	 * @return the future response body, which is <code>NULL</code> when the request went wrong
+	 * @see #executeUrl(String, String, Properties, InputStream, String, int)
+	 */
+	public static Future<String> executeUrlAsync(final String httpMethod, final String url, final Properties httpHeaders, final InputStream content, final String contentType, final int timeout) {
+		return getAsyncExecutor().submit(new Callable<String>() {
+			public String call() {
+				return executeUrl(httpMethod, url, httpHeaders, content, contentType, timeout);
+			}
+		});
+	}
+	
+	private static synchronized ThreadPoolExecutor getAsyncExecutor() {
+		if (asyncExecutor == null) {
+			int poolSize = getConnectionManager().getParams().getMaxTotalConnections();
+			asyncExecutor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						private final AtomicInteger threadNumber = new AtomicInteger(1);
+						
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable, "HTTP Request-" + threadNumber.getAndIncrement());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+			asyncExecutor.allowCoreThreadTimeOut(true);
+		}
+		return asyncExecutor;
+	}
+	
+	private static synchronized MultiThreadedHttpConnectionManager getConnectionManager() {
+		if (connectionManager == null) {
+			connectionManager = new MultiThreadedHttpConnectionManager();
+			HttpConnectionManagerParams params = connectionManager.getParams();
+			params.setDefaultMaxConnectionsPerHost(getIntProperty("http.maxConnectionsPerHost", 4));
+			params.setMaxTotalConnections(getIntProperty("http.maxConnections", 20));
+			
+			idleConnectionThread = new IdleConnectionTimeoutThread();
+			idleConnectionThread.setName("HTTP Idle Connections");
+			idleConnectionThread.setConnectionTimeout(IDLE_CONNECTION_TIMEOUT);
+			idleConnectionThread.setTimeoutInterval(IDLE_CONNECTION_TIMEOUT / 2);
+			idleConnectionThread.addConnectionManager(connectionManager);
+			idleConnectionThread.start();
+		}
+		return connectionManager;
+	}
+	
+	/**
+	 * Closes the shared connections and stops the threads of the asynchronous
+	 * requests; called when the bundle is stopped. Subsequent requests create
+	 * new connections and threads.
+	 */
+	public static synchronized void shutdown() {
+		if (asyncExecutor != null) {
+			asyncExecutor.shutdown();
+			asyncExecutor = null;
+		}
+		if (connectionManager != null) {
+			idleConnectionThread.shutdown();
+			idleConnectionThread = null;
+			connectionManager.shutdown();
+			connectionManager = null;
+		}
+	}
+	
+	private static int getIntProperty(String name, int defaultValue) {
+		String value = System.getProperty(name);
+		if (StringUtils.isNotBlank(value)) {
+			try {
+				return Math.max(Integer.parseInt(value.trim()), 1);
+			} catch (NumberFormatException e) {
+				logger.warn("'{}' is not a valid value for {} - using {} instead", new Object[] { value, name, defaultValue });
+			}
+		}
+		return defaultValue;
+	}
+
 	/**
 	 * Determines whether the list of <code>nonProxyHosts</code> contains the
 	 * host (which is part of the given <code>urlString</code> or not.
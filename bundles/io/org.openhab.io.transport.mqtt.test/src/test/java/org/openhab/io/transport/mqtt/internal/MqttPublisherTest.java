@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.mqtt.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttDeliveryToken;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since 1.8.0
+ */
+public class MqttPublisherTest {
+
+	private static final long TIMEOUT = 5000;
+
+	/**
+	 * Records the sent messages; their delivery is reported by the test.
+	 */
+	private static class TestSender implements MqttPublisher.Sender {
+
+		final List<String> sent = new ArrayList<String>();
+		final List<IMqttDeliveryToken> tokens = new ArrayList<IMqttDeliveryToken>();
+		volatile boolean fail;
+
+		@Override
+		public synchronized IMqttDeliveryToken send(String topic, byte[] payload) throws Exception {
+			if (fail) {
+				throw new Exception("not connected");
+			}
+			IMqttDeliveryToken token = new MqttDeliveryToken("test");
+			sent.add(topic + "=" + new String(payload));
+			tokens.add(token);
+			notifyAll();
+			return token;
+		}
+
+		synchronized void awaitSent(int count) throws InterruptedException {
+			long end = System.currentTimeMillis() + TIMEOUT;
+			while (sent.size() < count && System.currentTimeMillis() < end) {
+				wait(10);
+			}
+			assertEquals(count, sent.size());
+		}
+
+		synchronized IMqttDeliveryToken getToken(int index) {
+			return tokens.get(index);
+		}
+
+		synchronized List<String> getSent() {
+			return new ArrayList<String>(sent);
+		}
+	}
+
+	private TestSender sender;
+
+	private MqttPublisher publisher;
+
+	@Before
+	public void init() {
+		sender = new TestSender();
+		publisher = new MqttPublisher("test", sender);
+	}
+
+	@After
+	public void cleanup() {
+		publisher.stop();
+	}
+
+	@Test
+	public void testInFlightWindow() throws InterruptedException {
+		publisher.setMaxInFlight(3);
+		MqttPublisher.Message last = null;
+		for (int i = 0; i < 8; i++) {
+			last = publisher.publish("topic" + i, "ON".getBytes());
+		}
+		publisher.start();
+
+		sender.awaitSent(3);
+		Thread.sleep(50);
+		assertEquals(3, sender.getSent().size());
+		assertEquals(3, publisher.getStatistics().getInFlight());
+		assertEquals(5, publisher.getStatistics().getQueueDepth());
+
+		publisher.delivered(sender.getToken(0));
+		publisher.delivered(sender.getToken(1));
+		for (int i = 2; i < 8; i++) {
+			// never more than three messages are in flight
+			sender.awaitSent(Math.min(i + 3, 8));
+			publisher.delivered(sender.getToken(i));
+		}
+		assertTrue(last.awaitDelivery(TIMEOUT));
+
+		MqttPublisher.Statistics statistics = publisher.getStatistics();
+		assertEquals(8, statistics.getPublished());
+		assertEquals(8, statistics.getDelivered());
+		assertEquals(0, statistics.getQueueDepth());
+		assertEquals(8, statistics.getMaxQueueDepth());
+		assertEquals(0, statistics.getInFlight());
+	}
+
+	@Test
+	public void testMaxInFlightIsLimited() {
+		publisher.setMaxInFlight(100);
+		assertEquals(MqttPublisher.DEFAULT_MAX_IN_FLIGHT, publisher.getMaxInFlight());
+		publisher.setMaxInFlight(0);
+		assertEquals(1, publisher.getMaxInFlight());
+	}
+
+	@Test
+	public void testCoalescing() throws InterruptedException {
+		publisher.setMaxInFlight(1);
+		publisher.setCoalesce(true);
+		publisher.start();
+		publisher.publish("a", "1".getBytes());
+		sender.awaitSent(1);
+
+		publisher.publish("a", "2".getBytes());
+		publisher.publish("b", "1".getBytes());
+		publisher.publish("a", "3".getBytes());
+		MqttPublisher.Message message = publisher.publish("a", "4".getBytes());
+
+		publisher.delivered(sender.getToken(0));
+		sender.awaitSent(2);
+		publisher.delivered(sender.getToken(1));
+		sender.awaitSent(3);
+		publisher.delivered(sender.getToken(2));
+
+		assertTrue(message.awaitDelivery(TIMEOUT));
+		List<String> sent = sender.getSent();
+		assertEquals("a=1", sent.get(0));
+		assertEquals("a=4", sent.get(1));
+		assertEquals("b=1", sent.get(2));
+		assertEquals(2, publisher.getStatistics().getCoalesced());
+	}
+
+	@Test
+	public void testNoCoalescingByDefault() throws InterruptedException {
+		publisher.setMaxInFlight(1);
+		publisher.start();
+		publisher.publish("a", "1".getBytes());
+		sender.awaitSent(1);
+		publisher.publish("a", "2".getBytes());
+		publisher.publish("a", "3".getBytes());
+
+		publisher.delivered(sender.getToken(0));
+		sender.awaitSent(2);
+		publisher.delivered(sender.getToken(1));
+		sender.awaitSent(3);
+
+		assertEquals("a=2", sender.getSent().get(1));
+		assertEquals("a=3", sender.getSent().get(2));
+		assertEquals(0, publisher.getStatistics().getCoalesced());
+	}
+
+	@Test
+	public void testAwaitDelivery() throws InterruptedException {
+		publisher.start();
+		MqttPublisher.Message message = publisher.publish("a", "1".getBytes());
+		sender.awaitSent(1);
+		assertFalse(message.awaitDelivery(50));
+
+		publisher.delivered(sender.getToken(0));
+		assertTrue(message.awaitDelivery(TIMEOUT));
+	}
+
+	@Test
+	public void testFailedMessage() throws InterruptedException {
+		sender.fail = true;
+		publisher.start();
+		MqttPublisher.Message message = publisher.publish("a", "1".getBytes());
+
+		assertFalse(message.awaitDelivery(TIMEOUT));
+		assertEquals(1, publisher.getStatistics().getFailed());
+		assertEquals(0, publisher.getStatistics().getInFlight());
+	}
+
+	@Test
+	public void testDiscard() throws InterruptedException {
+		publisher.setMaxInFlight(1);
+		publisher.start();
+		MqttPublisher.Message sent = publisher.publish("a", "1".getBytes());
+		sender.awaitSent(1);
+		MqttPublisher.Message queued = publisher.publish("b", "1".getBytes());
+
+		publisher.discard();
+
+		assertFalse(sent.awaitDelivery(TIMEOUT));
+		assertFalse(queued.awaitDelivery(TIMEOUT));
+		assertEquals(2, publisher.getStatistics().getFailed());
+		assertEquals(0, publisher.getStatistics().getQueueDepth());
+		assertEquals(0, publisher.getStatistics().getInFlight());
+		// a late delivery of a discarded message is ignored
+		publisher.delivered(sender.getToken(0));
+		assertEquals(0, publisher.getStatistics().getDelivered());
+	}
+
+}
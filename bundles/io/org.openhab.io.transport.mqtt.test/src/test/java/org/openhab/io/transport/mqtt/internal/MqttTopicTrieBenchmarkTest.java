@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.mqtt.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Matches the topics of a home automation like topic tree against several
+ * hundred subscriptions and compares the messages per second of
+ * {@link MqttTopicTrie} with a regular expression match of every subscription.
+ * The benchmark itself is not run by default.
+ *
+ * @since 1.8.0
+ */
+public class MqttTopicTrieBenchmarkTest {
+
+	private static final Logger logger = LoggerFactory.getLogger(MqttTopicTrieBenchmarkTest.class);
+
+	private static final String[] FLOORS = { "ground", "first", "second", "basement" };
+
+	private static final String[] ROOMS = { "kitchen", "living", "bath", "bed", "office", "hall", "garage",
+			"cellar" };
+
+	private static final String[] DEVICES = { "light", "shutter", "thermostat", "window", "motion", "socket" };
+
+	private static final String[] PROPERTIES = { "state", "command", "battery" };
+
+	private static final int MESSAGES = 200000;
+
+	private List<String> filters;
+
+	private List<String> topics;
+
+	private MqttTopicTrie<String> trie;
+
+	@Before
+	public void init() {
+		filters = new ArrayList<String>();
+		topics = new ArrayList<String>();
+		for (String floor : FLOORS) {
+			for (String room : ROOMS) {
+				for (String device : DEVICES) {
+					for (String property : PROPERTIES) {
+						String topic = "home/" + floor + "/" + room + "/" + device + "/" + property;
+						topics.add(topic);
+						if (!"battery".equals(property)) {
+							filters.add(topic);
+						}
+					}
+				}
+				filters.add("home/" + floor + "/" + room + "/+/battery");
+			}
+		}
+		for (String device : DEVICES) {
+			filters.add("home/+/+/" + device + "/state");
+		}
+		filters.add("home/ground/#");
+		filters.add("home/+/kitchen/#");
+		filters.add("$SYS/#");
+
+		trie = new MqttTopicTrie<String>();
+		for (String filter : filters) {
+			trie.add(filter, filter);
+		}
+	}
+
+	@Test
+	public void testTrieMatchesLikeRegularExpressions() {
+		for (String topic : topics) {
+			assertEquals(matchAll(filters, topic).size(), trie.match(topic).size());
+		}
+	}
+
+	@Test
+	@Ignore("benchmark, run manually")
+	public void benchmark() {
+		Random random = new Random(42);
+		String[] messages = new String[MESSAGES];
+		for (int i = 0; i < MESSAGES; i++) {
+			messages[i] = topics.get(random.nextInt(topics.size()));
+		}
+
+		// warm up
+		for (int i = 0; i < 10000; i++) {
+			trie.match(messages[i]);
+			matchAll(filters, messages[i]);
+		}
+
+		long matches = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < MESSAGES / 20; i++) {
+			matches += matchAll(filters, messages[i]).size();
+		}
+		long regex = (System.nanoTime() - start) * 20;
+
+		start = System.nanoTime();
+		for (int i = 0; i < MESSAGES; i++) {
+			matches += trie.match(messages[i]).size();
+		}
+		long trieTime = System.nanoTime() - start;
+
+		logger.info("MQTT topic matching benchmark ({} subscriptions, {} matches): regular expressions {} msg/s, "
+				+ "topic trie {} msg/s", new Object[] { filters.size(), matches, perSecond(regex), perSecond(trieTime) });
+	}
+
+	/**
+	 * Matches a topic the way it has been done before the topic trie, by
+	 * converting every subscription into a regular expression.
+	 */
+	private static List<String> matchAll(List<String> filters, String topic) {
+		List<String> result = new ArrayList<String>();
+		for (String filter : filters) {
+			if (filter.equals(topic)) {
+				result.add(filter);
+				continue;
+			}
+			if (filter.indexOf('+') == -1 && filter.indexOf('#') == -1) {
+				continue;
+			}
+			String regex = StringUtils.replace(filter, "+", "[^/]*");
+			regex = StringUtils.replace(regex, "#", ".*");
+			if (topic.matches(regex)) {
+				result.add(filter);
+			}
+		}
+		return result;
+	}
+
+	private static long perSecond(long nanos) {
+		return MESSAGES * 1000000000L / Math.max(nanos, 1);
+	}
+
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.mqtt.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @since 1.8.0
+ */
+public class MqttTopicTrieTest {
+
+	private MqttTopicTrie<String> trie;
+
+	@Before
+	public void init() {
+		trie = new MqttTopicTrie<String>();
+	}
+
+	@Test
+	public void testExactMatch() {
+		trie.add("home/kitchen/temperature", "a");
+		trie.add("home/kitchen/humidity", "b");
+
+		assertEquals(Arrays.asList("a"), trie.match("home/kitchen/temperature"));
+		assertEquals(Arrays.asList("b"), trie.match("home/kitchen/humidity"));
+		assertTrue(trie.match("home/kitchen").isEmpty());
+		assertTrue(trie.match("home/kitchen/temperature/value").isEmpty());
+		assertTrue(trie.match("home/living/temperature").isEmpty());
+	}
+
+	@Test
+	public void testSingleLevelWildcard() {
+		trie.add("home/+/temperature", "a");
+		trie.add("+/+", "b");
+
+		assertEquals(Arrays.asList("a"), trie.match("home/kitchen/temperature"));
+		assertEquals(Arrays.asList("a"), trie.match("home/living/temperature"));
+		assertEquals(Arrays.asList("b"), trie.match("home/kitchen"));
+		assertTrue(trie.match("home/kitchen/humidity").isEmpty());
+		assertTrue(trie.match("home/kitchen/sensor/temperature").isEmpty());
+		// an empty level is matched as well
+		assertEquals(Arrays.asList("a"), trie.match("home//temperature"));
+	}
+
+	@Test
+	public void testMultiLevelWildcard() {
+		trie.add("home/#", "a");
+		trie.add("#", "b");
+
+		assertEquals(Arrays.asList("a", "b"), sorted(trie.match("home/kitchen/temperature")));
+		assertEquals(Arrays.asList("a", "b"), sorted(trie.match("home/kitchen")));
+		// '#' also matches the parent level
+		assertEquals(Arrays.asList("a", "b"), sorted(trie.match("home")));
+		assertEquals(Arrays.asList("b"), trie.match("garden/temperature"));
+	}
+
+	@Test
+	public void testCombinedWildcards() {
+		trie.add("home/+/sensor/#", "a");
+		trie.add("home/kitchen/sensor/temperature", "b");
+
+		assertEquals(Arrays.asList("a", "b"), sorted(trie.match("home/kitchen/sensor/temperature")));
+		assertEquals(Arrays.asList("a"), trie.match("home/living/sensor/humidity/value"));
+		assertTrue(trie.match("home/living/actor/light").isEmpty());
+	}
+
+	@Test
+	public void testValueIsReturnedForEveryMatchingFilter() {
+		trie.add("home/kitchen/temperature", "a");
+		trie.add("home/+/temperature", "a");
+
+		assertEquals(Arrays.asList("a", "a"), trie.match("home/kitchen/temperature"));
+	}
+
+	@Test
+	public void testRemove() {
+		trie.add("home/kitchen/temperature", "a");
+		trie.add("home/+/temperature", "b");
+		trie.add("home/#", "c");
+		assertEquals(3, trie.size());
+
+		assertTrue(trie.remove("home/+/temperature", "b"));
+		assertFalse(trie.remove("home/+/temperature", "b"));
+		assertFalse(trie.remove("home/kitchen/temperature", "c"));
+		assertFalse(trie.remove("garden/#", "c"));
+		assertEquals(Arrays.asList("a", "c"), sorted(trie.match("home/kitchen/temperature")));
+
+		assertTrue(trie.remove("home/#", "c"));
+		assertTrue(trie.remove("home/kitchen/temperature", "a"));
+		assertEquals(0, trie.size());
+		assertTrue(trie.match("home/kitchen/temperature").isEmpty());
+
+		// the pruned levels can be used again
+		trie.add("home/kitchen/temperature", "a");
+		assertEquals(Arrays.asList("a"), trie.match("home/kitchen/temperature"));
+	}
+
+	@Test
+	public void testRemoveKeepsOtherValuesOfTheSameFilter() {
+		trie.add("home/kitchen/temperature", "a");
+		trie.add("home/kitchen/temperature", "b");
+
+		assertTrue(trie.remove("home/kitchen/temperature", "a"));
+		assertEquals(Arrays.asList("b"), trie.match("home/kitchen/temperature"));
+	}
+
+	private static List<String> sorted(List<String> values) {
+		Collections.sort(values);
+		return values;
+	}
+
+}
@@ -101,6 +101,10 @@ public class MqttService implements ManagedService {
 				conn.setLastWill(will);
 			} else if (property.equals("keepAlive")) {
 				conn.setKeepAliveInterval(Integer.parseInt(value));
+			} else if (property.equals("maxInFlight")) {
+				conn.setMaxInFlight(Integer.parseInt(value));
+			} else if (property.equals("coalesce")) {
+				conn.setCoalesce(Boolean.parseBoolean(value));
 			} else {
 				logger.warn("Unrecognized property: {}", key);
 			}
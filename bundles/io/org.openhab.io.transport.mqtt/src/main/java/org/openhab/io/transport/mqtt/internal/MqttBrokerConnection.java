@@ -12,6 +12,8 @@ import java.security.cert.X509Certificate;
 import java.util.List;
 import java.util.Properties;
 import java.util.Timer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.net.ssl.SSLContext;
@@ -24,7 +26,6 @@ import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
 import org.eclipse.paho.client.mqttv3.MqttCallback;
 import org.eclipse.paho.client.mqttv3.MqttClient;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
-import org.eclipse.paho.client.mqttv3.MqttDeliveryToken;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.eclipse.paho.client.mqttv3.MqttTopic;
@@ -54,6 +55,8 @@ public class MqttBrokerConnection implements MqttCallback {
 
 	private static final int RECONNECT_FREQUENCY = 60000;
 
+	private static final int DELIVERY_TIMEOUT = 10000;
+
 	private String name;
 
 	private String url;
@@ -78,12 +81,20 @@ public class MqttBrokerConnection implements MqttCallback {
 
 	private List<MqttMessageConsumer> consumers = new CopyOnWriteArrayList<MqttMessageConsumer>();
 
+	/** the consumers by their topic, to find the consumers of a received message */
+	private MqttTopicTrie<MqttMessageConsumer> consumersByTopic = new MqttTopicTrie<MqttMessageConsumer>();
+
 	private List<MqttMessageProducer> producers = new CopyOnWriteArrayList<MqttMessageProducer>();
 
 	private Timer reconnectTimer;
 
 	private int keepAliveInterval = 60;
 
+	/** the topics of the client by their name, to avoid a lookup for every message */
+	private ConcurrentMap<String, MqttTopic> topics = new ConcurrentHashMap<String, MqttTopic>();
+
+	private final MqttPublisher messagePublisher;
+
 	/**
 	 * Create a new connection with the given name.
 	 * 
@@ -92,6 +103,12 @@ public class MqttBrokerConnection implements MqttCallback {
 	 */
 	public MqttBrokerConnection(String name) {
 		this.name = name;
+		this.messagePublisher = new MqttPublisher(name, new MqttPublisher.Sender() {
+			@Override
+			public IMqttDeliveryToken send(String topic, byte[] payload) throws Exception {
+				return sendMessage(topic, payload);
+			}
+		});
 	}
 
 	/**
@@ -113,6 +130,7 @@ public class MqttBrokerConnection implements MqttCallback {
 
 		logger.info("Starting MQTT broker connection '{}'", name);
 		openConnection();
+		messagePublisher.start();
 
 		if (reconnectTimer != null) {
 			// we are active, so stop trying to reconnect
@@ -258,6 +276,52 @@ public class MqttBrokerConnection implements MqttCallback {
 		this.async = async;
 	}
 
+	/**
+	 * @return the maximum number of published messages which are sent to the
+	 *         broker before waiting for their delivery.
+	 */
+	public int getMaxInFlight() {
+		return messagePublisher.getMaxInFlight();
+	}
+
+	/**
+	 * Set the maximum number of published messages which are sent to the
+	 * broker before waiting for their delivery. Valid values are 1 to 10, the
+	 * default is 10.
+	 * 
+	 * @param maxInFlight
+	 */
+	public void setMaxInFlight(int maxInFlight) {
+		messagePublisher.setMaxInFlight(maxInFlight);
+	}
+
+	/**
+	 * @return true if a message which has not been sent yet is replaced by a
+	 *         newer message for the same topic.
+	 */
+	public boolean isCoalesce() {
+		return messagePublisher.isCoalesce();
+	}
+
+	/**
+	 * Set whether a message which has not been sent yet should be replaced by
+	 * a newer message for the same topic, so that only the latest state of a
+	 * topic is sent when the broker is slower than the updates.
+	 * 
+	 * @param coalesce
+	 *            true to coalesce.
+	 */
+	public void setCoalesce(boolean coalesce) {
+		messagePublisher.setCoalesce(coalesce);
+	}
+
+	/**
+	 * @return a snapshot of the statistics of the published messages.
+	 */
+	public MqttPublisher.Statistics getPublishStatistics() {
+		return messagePublisher.getStatistics();
+	}
+
 	/**
 	 * Set client id to use when connecting to the broker. If none is specified,
 	 * a default is generated.
@@ -425,21 +489,11 @@ public class MqttBrokerConnection implements MqttCallback {
 					return;
 				}
 
-				// Create and configure a message
-				MqttMessage message = new MqttMessage(payload);
-				message.setQos(qos);
-				message.setRetained(retain);
-
-				// publish message asynchronously
-				MqttTopic mqttTopic = client.getTopic(topic);
-				MqttDeliveryToken deliveryToken = mqttTopic.publish(message);
-
-				logger.debug("Publishing message {} to topic '{}'",
-						deliveryToken.getMessageId(), topic);
+				// queue the message for the publisher thread
+				MqttPublisher.Message message = messagePublisher.publish(topic, payload);
 				if (!async) {
 					// wait for publish confirmation
-					deliveryToken.waitForCompletion(10000);
-					if (!deliveryToken.isComplete()) {
+					if (!message.awaitDelivery(DELIVERY_TIMEOUT)) {
 						logger.error(
 								"Did not receive completion message within timeout limit whilst publishing to topic '{}'",
 								topic);
@@ -451,6 +505,31 @@ public class MqttBrokerConnection implements MqttCallback {
 
 	}
 
+	/**
+	 * Send a message to the broker without waiting for its delivery.
+	 * 
+	 * @return the token of the message.
+	 */
+	private IMqttDeliveryToken sendMessage(String topic, byte[] payload) throws MqttException {
+		// a message can only be published once, so it cannot be reused
+		MqttMessage message = new MqttMessage(payload);
+		message.setQos(qos);
+		message.setRetained(retain);
+
+		MqttTopic mqttTopic = topics.get(topic);
+		if (mqttTopic == null) {
+			mqttTopic = client.getTopic(topic);
+			topics.put(topic, mqttTopic);
+		}
+		IMqttDeliveryToken deliveryToken = mqttTopic.publish(message);
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Publishing message {} to topic '{}'",
+					deliveryToken.getMessageId(), topic);
+		}
+		return deliveryToken;
+	}
+
 	/**
 	 * Add a new message consumer to this connection.
 	 * 
@@ -459,6 +538,7 @@ public class MqttBrokerConnection implements MqttCallback {
 	 */
 	public synchronized void addConsumer(MqttMessageConsumer subscriber) {
 		consumers.add(subscriber);
+		consumersByTopic.add(subscriber.getTopic(), subscriber);
 		if (started) {
 			startConsumer(subscriber);
 		}
@@ -512,6 +592,7 @@ public class MqttBrokerConnection implements MqttCallback {
 			logger.error("Error unsubscribing topic from broker", e);
 		}
 		consumers.remove(subscriber);
+		consumersByTopic.remove(subscriber.getTopic(), subscriber);
 
 	}
 
@@ -528,6 +609,8 @@ public class MqttBrokerConnection implements MqttCallback {
 			logger.error("Error closing connection to broker", e);
 		}
 		started = false;
+		messagePublisher.stop();
+		logger.debug("Publish statistics of broker '{}': {}", name, messagePublisher.getStatistics());
 	}
 
 	@Override
@@ -544,6 +627,7 @@ public class MqttBrokerConnection implements MqttCallback {
 		}
 		
 		started = false;
+		messagePublisher.discard();
 		logger.info(
 				"Starting connection helper to periodically try restore connection to broker '{}'",
 				name);
@@ -557,54 +641,20 @@ public class MqttBrokerConnection implements MqttCallback {
 	@Override
 	public void deliveryComplete(IMqttDeliveryToken token) {
 		logger.trace("Message with id {} delivered.", token.getMessageId());
+		messagePublisher.delivered(token);
 	}
 
 	@Override
 	public void messageArrived(String topic, MqttMessage message)
 			throws Exception {
 
-		logger.trace("Received message on topic '{}' : {}", topic, new String(
-				message.getPayload()));
-		for (MqttMessageConsumer consumer : consumers) {
-			if (isTopicMatch(topic, consumer.getTopic())) {
-				consumer.processMessage(topic, message.getPayload());
-			}
-		}
-	}
-
-	/**
-	 * Check if the topic on which a message was received matches provided
-	 * target topic. The matching will take into account the + and # wildcards.
-	 * 
-	 * @param source
-	 *            topic from received message
-	 * @param target
-	 *            topic as defined with possible wildcards.
-	 * @return true if both topics match.
-	 */
-	private boolean isTopicMatch(String source, String target) {
-		if (source.equals(target)) {
-			return true;
+		if (logger.isTraceEnabled()) {
+			logger.trace("Received message on topic '{}' : {}", topic, new String(
+					message.getPayload()));
 		}
-		if (target.indexOf('+') == -1 && target.indexOf('#') == -1) {
-			return false;
-		} else {
-
-			String regex = target;
-			regex = StringUtils.replace(regex, "+", "[^/]*");
-			regex = StringUtils.replace(regex, "#", ".*");
-			boolean result = source.matches(regex);
-			if (result) {
-				logger.trace("Topic match for '{}' and '{}' using regex {}",
-						source, target, regex);
-				return true;
-			} else {
-				logger.trace("No topic match for '{}' and '{}' using regex {}",
-						source, target, regex);
-				return false;
-			}
+		for (MqttMessageConsumer consumer : consumersByTopic.match(topic)) {
+			consumer.processMessage(topic, message.getPayload());
 		}
-
 	}
 
 	/**
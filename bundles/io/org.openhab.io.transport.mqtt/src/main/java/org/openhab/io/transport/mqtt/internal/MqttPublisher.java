@@ -0,0 +1,450 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.mqtt.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes the messages of a broker connection from a single sender thread
+ * without waiting for the delivery of every message.
+ *
+ * <p>Up to <code>maxInFlight</code> messages are sent to the broker before the
+ * sender waits for their delivery. Deliveries are only recorded by the MQTT
+ * client callback and processed in batches by the sender thread. If
+ * coalescing is enabled, a message which is still queued is replaced by a
+ * newer message for the same topic, so that stale states are not sent at
+ * all.</p>
+ *
+ * @since 1.8.0
+ */
+public class MqttPublisher {
+
+	private static final Logger logger = LoggerFactory.getLogger(MqttPublisher.class);
+
+	/** the maximum number of unacknowledged messages the MQTT client supports */
+	static final int DEFAULT_MAX_IN_FLIGHT = 10;
+
+	/** the maximum number of queued messages before publishing blocks */
+	static final int MAX_QUEUE_SIZE = 1000;
+
+	/**
+	 * Sends a single message to the broker.
+	 */
+	interface Sender {
+
+		/**
+		 * @return the token which is passed to {@link MqttPublisher#delivered(IMqttDeliveryToken)}
+		 *         when the message has been delivered
+		 */
+		IMqttDeliveryToken send(String topic, byte[] payload) throws Exception;
+	}
+
+	/**
+	 * A queued or sent message.
+	 */
+	static class Message {
+
+		final String topic;
+		byte[] payload;
+		final long queued = System.nanoTime();
+		boolean failed;
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		Message(String topic, byte[] payload) {
+			this.topic = topic;
+			this.payload = payload;
+		}
+
+		/**
+		 * Waits until the message has been delivered or has failed.
+		 *
+		 * @return <code>true</code>, if the message has been delivered in time
+		 */
+		boolean awaitDelivery(long timeout) throws InterruptedException {
+			return done.await(timeout, TimeUnit.MILLISECONDS) && !failed;
+		}
+	}
+
+	/**
+	 * A snapshot of the publishing statistics.
+	 */
+	public static class Statistics {
+
+		private final long published;
+		private final long coalesced;
+		private final long delivered;
+		private final long failed;
+		private final int queueDepth;
+		private final int maxQueueDepth;
+		private final int inFlight;
+		private final long totalLatency;
+		private final long maxLatency;
+
+		private Statistics(MqttPublisher publisher) {
+			this.published = publisher.published;
+			this.coalesced = publisher.coalesced;
+			this.delivered = publisher.delivered;
+			this.failed = publisher.failed;
+			this.queueDepth = publisher.queue.size();
+			this.maxQueueDepth = publisher.maxQueueDepth;
+			this.inFlight = publisher.inFlight.size() + publisher.sending;
+			this.totalLatency = publisher.totalLatency;
+			this.maxLatency = publisher.maxLatency;
+		}
+
+		/** @return the number of published messages */
+		public long getPublished() {
+			return published;
+		}
+
+		/** @return the number of queued messages which have been replaced by a newer message for the same topic */
+		public long getCoalesced() {
+			return coalesced;
+		}
+
+		/** @return the number of messages which have been delivered to the broker */
+		public long getDelivered() {
+			return delivered;
+		}
+
+		/** @return the number of messages which could not be sent */
+		public long getFailed() {
+			return failed;
+		}
+
+		/** @return the number of messages which wait to be sent */
+		public int getQueueDepth() {
+			return queueDepth;
+		}
+
+		/** @return the maximum number of messages which have waited to be sent */
+		public int getMaxQueueDepth() {
+			return maxQueueDepth;
+		}
+
+		/** @return the number of sent messages which have not been delivered yet */
+		public int getInFlight() {
+			return inFlight;
+		}
+
+		/** @return the average time from publishing until delivery in milliseconds */
+		public long getAverageLatency() {
+			return delivered > 0 ? totalLatency / delivered : 0;
+		}
+
+		/** @return the maximum time from publishing until delivery in milliseconds */
+		public long getMaxLatency() {
+			return maxLatency;
+		}
+
+		@Override
+		public String toString() {
+			return "published=" + published + ", coalesced=" + coalesced + ", delivered=" + delivered + ", failed="
+					+ failed + ", queueDepth=" + queueDepth + ", maxQueueDepth=" + maxQueueDepth + ", inFlight="
+					+ inFlight + ", averageLatency=" + getAverageLatency() + "ms, maxLatency=" + maxLatency + "ms";
+		}
+	}
+
+	private final String name;
+
+	private final Sender sender;
+
+	private volatile int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+
+	private volatile boolean coalesce;
+
+	/** guards all of the following fields */
+	private final Object lock = new Object();
+
+	private final LinkedList<Message> queue = new LinkedList<Message>();
+
+	/** the queued messages by their topic, if coalescing is enabled */
+	private final Map<String, Message> queuedByTopic = new HashMap<String, Message>();
+
+	private final Map<IMqttDeliveryToken, Message> inFlight = new IdentityHashMap<IMqttDeliveryToken, Message>();
+
+	/** the messages which have been delivered but not processed by the sender thread yet */
+	private List<Message> acknowledged = new ArrayList<Message>();
+
+	/** the number of messages which are taken from the queue but not registered as in flight yet */
+	private int sending;
+
+	/** the deliveries which have been reported before their message has been registered as in flight */
+	private final Set<IMqttDeliveryToken> earlyDeliveries = Collections
+			.newSetFromMap(new IdentityHashMap<IMqttDeliveryToken, Boolean>());
+
+	/** incremented when the undelivered messages are discarded */
+	private int generation;
+
+	private Thread thread;
+
+	private long published;
+	private long coalesced;
+	private long delivered;
+	private long failed;
+	private int maxQueueDepth;
+	private long totalLatency;
+	private long maxLatency;
+
+	MqttPublisher(String name, Sender sender) {
+		this.name = name;
+		this.sender = sender;
+	}
+
+	/**
+	 * Sets the maximum number of sent messages which have not been delivered
+	 * yet. It is limited to {@link #DEFAULT_MAX_IN_FLIGHT}, which is the
+	 * maximum the MQTT client supports.
+	 */
+	void setMaxInFlight(int maxInFlight) {
+		this.maxInFlight = Math.max(1, Math.min(maxInFlight, DEFAULT_MAX_IN_FLIGHT));
+	}
+
+	int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	/**
+	 * Sets whether a queued message is replaced by a newer message for the same topic.
+	 */
+	void setCoalesce(boolean coalesce) {
+		this.coalesce = coalesce;
+	}
+
+	boolean isCoalesce() {
+		return coalesce;
+	}
+
+	/**
+	 * Starts the sender thread, if it is not running yet.
+	 */
+	void start() {
+		synchronized (lock) {
+			if (thread != null) {
+				return;
+			}
+			thread = new Thread("MQTT Publisher '" + name + "'") {
+				@Override
+				public void run() {
+					send(this);
+				}
+			};
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Stops the sender thread; all messages which have not been delivered yet are discarded.
+	 */
+	void stop() {
+		synchronized (lock) {
+			if (thread != null) {
+				thread.interrupt();
+				thread = null;
+			}
+		}
+		discard();
+	}
+
+	/**
+	 * Queues a message for sending; blocks while the queue is full.
+	 *
+	 * @return the queued message, which may be an already queued message for the same topic
+	 */
+	Message publish(String topic, byte[] payload) throws InterruptedException {
+		synchronized (lock) {
+			published++;
+			if (coalesce) {
+				Message message = queuedByTopic.get(topic);
+				if (message != null) {
+					message.payload = payload;
+					coalesced++;
+					return message;
+				}
+			}
+			while (queue.size() >= MAX_QUEUE_SIZE) {
+				lock.wait();
+			}
+			Message message = new Message(topic, payload);
+			queue.add(message);
+			if (coalesce) {
+				queuedByTopic.put(topic, message);
+			}
+			if (queue.size() > maxQueueDepth) {
+				maxQueueDepth = queue.size();
+			}
+			lock.notifyAll();
+			return message;
+		}
+	}
+
+	/**
+	 * Records the delivery of a message; it is processed by the sender thread.
+	 */
+	void delivered(IMqttDeliveryToken token) {
+		synchronized (lock) {
+			Message message = inFlight.remove(token);
+			if (message != null) {
+				acknowledge(message);
+			} else if (sending > 0) {
+				earlyDeliveries.add(token);
+			}
+		}
+	}
+
+	/**
+	 * Discards all messages which have not been delivered yet, e.g. because
+	 * the connection to the broker has been lost.
+	 */
+	void discard() {
+		List<Message> discarded = new ArrayList<Message>();
+		synchronized (lock) {
+			discarded.addAll(queue);
+			discarded.addAll(inFlight.values());
+			queue.clear();
+			queuedByTopic.clear();
+			inFlight.clear();
+			generation++;
+			failed += discarded.size();
+			lock.notifyAll();
+		}
+		if (!discarded.isEmpty()) {
+			logger.warn("Discarded {} undelivered messages for broker '{}'", discarded.size(), name);
+		}
+		for (Message message : discarded) {
+			message.failed = true;
+			message.done.countDown();
+		}
+	}
+
+	/**
+	 * @return a snapshot of the publishing statistics
+	 */
+	public Statistics getStatistics() {
+		synchronized (lock) {
+			return new Statistics(this);
+		}
+	}
+
+	private void send(Thread current) {
+		List<Message> batch = new ArrayList<Message>();
+		while (true) {
+			List<Message> acks;
+			int batchGeneration;
+			synchronized (lock) {
+				try {
+					while (thread == current && acknowledged.isEmpty()
+							&& (queue.isEmpty() || inFlight.size() >= maxInFlight)) {
+						lock.wait();
+					}
+				} catch (InterruptedException e) {
+					return;
+				}
+				if (thread != current) {
+					return;
+				}
+				acks = acknowledged;
+				acknowledged = new ArrayList<Message>();
+				while (!queue.isEmpty() && inFlight.size() + batch.size() < maxInFlight) {
+					Message message = queue.removeFirst();
+					if (queuedByTopic.get(message.topic) == message) {
+						queuedByTopic.remove(message.topic);
+					}
+					batch.add(message);
+				}
+				sending = batch.size();
+				batchGeneration = generation;
+				if (!batch.isEmpty()) {
+					// wake up publishers which wait for space in the queue
+					lock.notifyAll();
+				}
+			}
+			for (Message message : acks) {
+				message.done.countDown();
+			}
+			for (Message message : batch) {
+				sendMessage(message, batchGeneration);
+			}
+			batch.clear();
+		}
+	}
+
+	private void sendMessage(Message message, int batchGeneration) {
+		IMqttDeliveryToken token;
+		try {
+			token = sender.send(message.topic, message.payload);
+		} catch (Exception e) {
+			logger.error("Error publishing message to topic '" + message.topic + "' of broker '" + name + "'", e);
+			synchronized (lock) {
+				sent();
+				failed++;
+			}
+			message.failed = true;
+			message.done.countDown();
+			return;
+		}
+		synchronized (lock) {
+			boolean delivered = earlyDeliveries.remove(token);
+			sent();
+			if (batchGeneration != generation) {
+				// the message has been discarded while it was sent
+				failed++;
+				message.failed = true;
+				message.done.countDown();
+			} else if (delivered) {
+				acknowledge(message);
+			} else {
+				inFlight.put(token, message);
+			}
+		}
+	}
+
+	/**
+	 * Must be called while holding the lock.
+	 */
+	private void sent() {
+		sending--;
+		if (sending == 0 && !earlyDeliveries.isEmpty()) {
+			// deliveries of messages which have not been sent by this publisher
+			earlyDeliveries.clear();
+		}
+	}
+
+	/**
+	 * Must be called while holding the lock.
+	 */
+	private void acknowledge(Message message) {
+		long latency = (System.nanoTime() - message.queued) / 1000000;
+		delivered++;
+		totalLatency += latency;
+		if (latency > maxLatency) {
+			maxLatency = latency;
+		}
+		acknowledged.add(message);
+		if (acknowledged.size() == 1) {
+			// the following acknowledgements are processed together with this one
+			lock.notifyAll();
+		}
+	}
+
+}
@@ -0,0 +1,251 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.mqtt.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps values (like message consumers) by their MQTT topic filter and finds
+ * all values whose filter matches the topic of a received message.
+ *
+ * <p>The filters are split into their levels and stored in a trie, with
+ * separate children for the single level wildcard <code>+</code> and the
+ * multi level wildcard <code>#</code>. Matching a topic therefore only
+ * depends on the depth of the topic and the number of wildcard branches,
+ * not on the number of filters.</p>
+ *
+ * <p>Lookups can run concurrently; changes are exclusive.</p>
+ *
+ * @since 1.8.0
+ */
+class MqttTopicTrie<T> {
+
+	private static final String SINGLE_LEVEL_WILDCARD = "+";
+	private static final String MULTI_LEVEL_WILDCARD = "#";
+
+	/**
+	 * A level of a topic filter.
+	 */
+	private static class Node<T> {
+
+		/** the children by their literal level */
+		Map<String, Node<T>> children;
+
+		/** the child for the level <code>+</code> */
+		Node<T> singleLevel;
+
+		/** the values of the filters which end with <code>#</code> after this level */
+		List<T> multiLevelValues;
+
+		/** the values of the filters which end at this level */
+		List<T> values;
+
+		boolean isEmpty() {
+			return (children == null || children.isEmpty()) && singleLevel == null
+					&& multiLevelValues == null && values == null;
+		}
+	}
+
+	private final Node<T> root = new Node<T>();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private int size;
+
+	/**
+	 * Adds a value for a topic filter.
+	 *
+	 * @param filter the topic filter, which may contain the wildcards <code>+</code> and <code>#</code>
+	 * @param value the value to add
+	 */
+	void add(String filter, T value) {
+		lock.writeLock().lock();
+		try {
+			Node<T> node = root;
+			String[] levels = split(filter);
+			for (int i = 0; i < levels.length; i++) {
+				String level = levels[i];
+				if (MULTI_LEVEL_WILDCARD.equals(level) && i == levels.length - 1) {
+					node.multiLevelValues = addValue(node.multiLevelValues, value);
+					size++;
+					return;
+				}
+				node = getOrCreateChild(node, level);
+			}
+			node.values = addValue(node.values, value);
+			size++;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes a value of a topic filter.
+	 *
+	 * @param filter the topic filter the value has been added with
+	 * @param value the value to remove
+	 * @return <code>true</code>, if the value has been removed
+	 */
+	boolean remove(String filter, T value) {
+		lock.writeLock().lock();
+		try {
+			if (remove(root, split(filter), 0, value)) {
+				size--;
+				return true;
+			}
+			return false;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Finds the values of all filters which match the given topic.
+	 *
+	 * @param topic the topic of a received message, without wildcards
+	 * @return the matching values, which may contain a value several times if
+	 *         it has been added for several matching filters
+	 */
+	List<T> match(String topic) {
+		String[] levels = split(topic);
+		List<T> result = null;
+		lock.readLock().lock();
+		try {
+			result = match(root, levels, 0, result);
+		} finally {
+			lock.readLock().unlock();
+		}
+		if (result == null) {
+			return Collections.emptyList();
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of values
+	 */
+	int size() {
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private List<T> match(Node<T> node, String[] levels, int index, List<T> result) {
+		// a trailing '#' also matches its parent level
+		if (node.multiLevelValues != null) {
+			result = addAll(result, node.multiLevelValues);
+		}
+		if (index == levels.length) {
+			if (node.values != null) {
+				result = addAll(result, node.values);
+			}
+			return result;
+		}
+		if (node.children != null) {
+			Node<T> child = node.children.get(levels[index]);
+			if (child != null) {
+				result = match(child, levels, index + 1, result);
+			}
+		}
+		if (node.singleLevel != null) {
+			result = match(node.singleLevel, levels, index + 1, result);
+		}
+		return result;
+	}
+
+	private boolean remove(Node<T> node, String[] levels, int index, T value) {
+		if (index == levels.length) {
+			if (node.values != null && node.values.remove(value)) {
+				if (node.values.isEmpty()) {
+					node.values = null;
+				}
+				return true;
+			}
+			return false;
+		}
+		String level = levels[index];
+		if (MULTI_LEVEL_WILDCARD.equals(level) && index == levels.length - 1) {
+			if (node.multiLevelValues != null && node.multiLevelValues.remove(value)) {
+				if (node.multiLevelValues.isEmpty()) {
+					node.multiLevelValues = null;
+				}
+				return true;
+			}
+			return false;
+		}
+		Node<T> child = SINGLE_LEVEL_WILDCARD.equals(level) ? node.singleLevel
+				: (node.children != null ? node.children.get(level) : null);
+		if (child == null || !remove(child, levels, index + 1, value)) {
+			return false;
+		}
+		// prune the levels which are not used anymore
+		if (child.isEmpty()) {
+			if (SINGLE_LEVEL_WILDCARD.equals(level)) {
+				node.singleLevel = null;
+			} else {
+				node.children.remove(level);
+				if (node.children.isEmpty()) {
+					node.children = null;
+				}
+			}
+		}
+		return true;
+	}
+
+	private Node<T> getOrCreateChild(Node<T> node, String level) {
+		if (SINGLE_LEVEL_WILDCARD.equals(level)) {
+			if (node.singleLevel == null) {
+				node.singleLevel = new Node<T>();
+			}
+			return node.singleLevel;
+		}
+		if (node.children == null) {
+			node.children = new HashMap<String, Node<T>>(4);
+		}
+		Node<T> child = node.children.get(level);
+		if (child == null) {
+			child = new Node<T>();
+			node.children.put(level, child);
+		}
+		return child;
+	}
+
+	private static <T> List<T> addValue(List<T> values, T value) {
+		if (values == null) {
+			values = new ArrayList<T>(1);
+		}
+		values.add(value);
+		return values;
+	}
+
+	private static <T> List<T> addAll(List<T> result, List<T> values) {
+		if (result == null) {
+			result = new ArrayList<T>(values.size());
+		}
+		result.addAll(values);
+		return result;
+	}
+
+	/**
+	 * Splits a topic into its levels; empty levels are kept.
+	 */
+	private static String[] split(String topic) {
+		return topic.split("/", -1);
+	}
+
+}
@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.item.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.ecore.EObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.items.Item;
+import org.openhab.core.items.ItemFactory;
+import org.openhab.core.items.ItemProvider;
+import org.openhab.core.items.ItemsChangeListener;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.items.SwitchItem;
+import org.openhab.model.core.EventType;
+import org.openhab.model.core.ModelRepository;
+import org.openhab.model.core.ModelRepositoryChangeListener;
+import org.openhab.model.items.ItemModel;
+import org.openhab.model.items.ItemsFactory;
+import org.openhab.model.items.ModelGroupItem;
+import org.openhab.model.items.ModelItem;
+import org.openhab.model.items.ModelNormalItem;
+
+/**
+ * @since 1.8.0
+ */
+public class GenericItemProviderTest {
+
+	private static final String MODEL_NAME = "test.items";
+
+	private TestModelRepository modelRepository;
+	private RecordingListener listener;
+	private GenericItemProvider provider;
+
+	@Before
+	public void init() {
+		modelRepository = new TestModelRepository();
+		listener = new RecordingListener();
+		provider = new GenericItemProvider();
+		provider.addItemFactory(new TestItemFactory());
+		provider.setModelRepository(modelRepository);
+		provider.addItemChangeListener(listener);
+	}
+
+	@Test
+	public void testUnchangedItemsAreKept() {
+		modelRepository.setModel(createModel(normalItem("Light", "Switch"), normalItem("Temperature", "Number")));
+		Map<String, Item> items = getItems();
+
+		modelRepository.setModel(createModel(normalItem("Light", "Switch"), normalItem("Temperature", "Number")));
+		provider.modelChanged(MODEL_NAME, EventType.MODIFIED);
+
+		assertTrue(listener.events.isEmpty());
+		assertSame(items.get("Light"), getItems().get("Light"));
+		assertSame(items.get("Temperature"), getItems().get("Temperature"));
+	}
+
+	@Test
+	public void testChangedItemIsReplaced() {
+		modelRepository.setModel(createModel(normalItem("Light", "Switch"), normalItem("Temperature", "Number")));
+		Map<String, Item> items = getItems();
+
+		modelRepository.setModel(createModel(normalItem("Light", "Number"), normalItem("Temperature", "Number")));
+		provider.modelChanged(MODEL_NAME, EventType.MODIFIED);
+
+		assertEquals("[removed Light, added Light]", listener.events.toString());
+		Map<String, Item> newItems = getItems();
+		assertTrue(newItems.get("Light") instanceof NumberItem);
+		assertNotSame(items.get("Light"), newItems.get("Light"));
+		assertSame(items.get("Temperature"), newItems.get("Temperature"));
+	}
+
+	@Test
+	public void testChangedGroupsReplaceItem() {
+		modelRepository.setModel(createModel(normalItem("Light", "Switch", "Lights")));
+		Item light = getItems().get("Light");
+
+		modelRepository.setModel(createModel(normalItem("Light", "Switch", "Lights", "Kitchen")));
+		provider.modelChanged(MODEL_NAME, EventType.MODIFIED);
+
+		assertEquals("[removed Light, added Light]", listener.events.toString());
+		Item newLight = getItems().get("Light");
+		assertNotSame(light, newLight);
+		assertEquals("[Lights, Kitchen]", newLight.getGroupNames().toString());
+	}
+
+	@Test
+	public void testChangedGroupTypeReplacesGroup() {
+		modelRepository.setModel(createModel(groupItem("Lights", null)));
+		Item group = getItems().get("Lights");
+
+		modelRepository.setModel(createModel(groupItem("Lights", "Switch")));
+		provider.modelChanged(MODEL_NAME, EventType.MODIFIED);
+
+		assertEquals("[removed Lights, added Lights]", listener.events.toString());
+		assertNotSame(group, getItems().get("Lights"));
+	}
+
+	@Test
+	public void testAddedAndRemovedItems() {
+		modelRepository.setModel(createModel(normalItem("Light", "Switch"), normalItem("Temperature", "Number")));
+		Map<String, Item> items = getItems();
+
+		modelRepository.setModel(createModel(normalItem("Light", "Switch"), normalItem("Humidity", "Number")));
+		provider.modelChanged(MODEL_NAME, EventType.MODIFIED);
+
+		assertEquals("[removed Temperature, added Humidity]", listener.events.toString());
+		Map<String, Item> newItems = getItems();
+		assertEquals(2, newItems.size());
+		assertSame(items.get("Light"), newItems.get("Light"));
+		assertTrue(newItems.get("Humidity") instanceof NumberItem);
+	}
+
+	@Test
+	public void testRemovedModel() {
+		modelRepository.setModel(createModel(normalItem("Light", "Switch")));
+		getItems();
+
+		modelRepository.setModel(null);
+		provider.modelChanged(MODEL_NAME, EventType.REMOVED);
+
+		assertEquals("[removed Light]", listener.events.toString());
+		assertTrue(getItems().isEmpty());
+	}
+
+	private Map<String, Item> getItems() {
+		Map<String, Item> items = new HashMap<String, Item>();
+		for (Item item : provider.getItems()) {
+			items.put(item.getName(), item);
+		}
+		return items;
+	}
+
+	private static ItemModel createModel(ModelItem... modelItems) {
+		ItemModel model = ItemsFactory.eINSTANCE.createItemModel();
+		for (ModelItem modelItem : modelItems) {
+			model.getItems().add(modelItem);
+		}
+		return model;
+	}
+
+	private static ModelNormalItem normalItem(String name, String type, String... groups) {
+		ModelNormalItem modelItem = ItemsFactory.eINSTANCE.createModelNormalItem();
+		modelItem.setName(name);
+		modelItem.setType(type);
+		for (String group : groups) {
+			modelItem.getGroups().add(group);
+		}
+		return modelItem;
+	}
+
+	private static ModelGroupItem groupItem(String name, String type) {
+		ModelGroupItem modelItem = ItemsFactory.eINSTANCE.createModelGroupItem();
+		modelItem.setName(name);
+		modelItem.setType(type);
+		return modelItem;
+	}
+
+	static class TestItemFactory implements ItemFactory {
+
+		public GenericItem createItem(String itemTypeName, String itemName) {
+			if ("Switch".equals(itemTypeName)) {
+				return new SwitchItem(itemName);
+			}
+			if ("Number".equals(itemTypeName)) {
+				return new NumberItem(itemName);
+			}
+			return null;
+		}
+
+		public String[] getSupportedItemTypes() {
+			return new String[] { "Switch", "Number" };
+		}
+	}
+
+	static class RecordingListener implements ItemsChangeListener {
+
+		final List<String> events = new ArrayList<String>();
+
+		public void allItemsChanged(ItemProvider provider, Collection<String> oldItemNames) {
+			events.add("all changed");
+		}
+
+		public void itemAdded(ItemProvider provider, Item item) {
+			events.add("added " + item.getName());
+		}
+
+		public void itemRemoved(ItemProvider provider, Item item) {
+			events.add("removed " + item.getName());
+		}
+	}
+
+	static class TestModelRepository implements ModelRepository {
+
+		private ItemModel model;
+
+		void setModel(ItemModel model) {
+			this.model = model;
+		}
+
+		public EObject getModel(String name) {
+			return MODEL_NAME.equals(name) ? model : null;
+		}
+
+		public boolean addOrRefreshModel(String name, InputStream inputStream) {
+			return false;
+		}
+
+		public boolean removeModel(String name) {
+			return false;
+		}
+
+		public Iterable<String> getAllModelNamesOfType(String modelType) {
+			return model != null && "items".equals(modelType) ? Collections.singletonList(MODEL_NAME)
+					: Collections.<String>emptyList();
+		}
+
+		public void addModelRepositoryChangeListener(ModelRepositoryChangeListener listener) {
+		}
+
+		public void removeModelRepositoryChangeListener(ModelRepositoryChangeListener listener) {
+		}
+	}
+
+}
@@ -10,8 +10,10 @@ package org.openhab.model.item.internal;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -45,6 +47,12 @@ import org.slf4j.LoggerFactory;
 /**
  * ItemProvider implementation which computes *.items file based item configurations.
  * 
+ * <p>The items of each model are kept, so that the same instances are returned as long
+ * as their definition does not change. When a model changes, only the items whose
+ * definition has changed are replaced, which is announced to the listeners by
+ * {@link ItemsChangeListener#itemRemoved(ItemProvider, Item)} and
+ * {@link ItemsChangeListener#itemAdded(ItemProvider, Item)}.</p>
+ * 
  * @author Kai Kreuzer 
  * @author Thomas.Eichstaedt-Engelen
  */
@@ -63,6 +71,22 @@ public class GenericItemProvider implements ItemProvider, ModelRepositoryChangeL
 	
 	private Collection<ItemFactory> itemFactorys = new ArrayList<ItemFactory>();
 	
+	/** the items of each model by item name, guarded by itself */
+	private final Map<String, Map<String, ItemEntry>> itemsByModel = new HashMap<String, Map<String, ItemEntry>>();
+	
+	/**
+	 * An item together with the definition it has been created from.
+	 */
+	private static class ItemEntry {
+		final Item item;
+		final String definition;
+		
+		ItemEntry(Item item, String definition) {
+			this.item = item;
+			this.definition = definition;
+		}
+	}
+	
 	
 	public GenericItemProvider() {
 		// make sure that the DSL is correctly registered with EMF before we
@@ -79,6 +103,9 @@ public class GenericItemProvider implements ItemProvider, ModelRepositoryChangeL
 	public void unsetModelRepository(ModelRepository modelRepository) {
 		modelRepository.removeModelRepositoryChangeListener(this);
 		this.modelRepository = null;
+		synchronized (itemsByModel) {
+			itemsByModel.clear();
+		}
 	}
 	
 	/**
@@ -89,6 +116,15 @@ public class GenericItemProvider implements ItemProvider, ModelRepositoryChangeL
 	public void addItemFactory(ItemFactory factory) {
 		itemFactorys.add(factory);
 		dispatchBindingsPerItemType(null, factory.getSupportedItemTypes());
+		
+		// items which could not be created before might be supported by the new factory
+		List<String> modelNames;
+		synchronized (itemsByModel) {
+			modelNames = new ArrayList<String>(itemsByModel.keySet());
+		}
+		for (String modelName : modelNames) {
+			updateItems(modelName);
+		}
 	}
 	
 	/**
@@ -130,24 +166,119 @@ public class GenericItemProvider implements ItemProvider, ModelRepositoryChangeL
 	}
 	
 	private Collection<Item> getItemsFromModel(String modelName) {
+		List<Item> items = new ArrayList<Item>();
+		synchronized (itemsByModel) {
+			Map<String, ItemEntry> entries = itemsByModel.get(modelName);
+			if (entries == null) {
+				entries = readItemsFromModel(modelName, Collections.<String, ItemEntry>emptyMap());
+				itemsByModel.put(modelName, entries);
+			}
+			for (ItemEntry entry : entries.values()) {
+				items.add(entry.item);
+			}
+		}
+		return items;
+	}
+	
+	/**
+	 * Reads the items of a model. Items whose definition has not changed are reused.
+	 * 
+	 * @param modelName the name of the model to read
+	 * @param oldEntries the previous items of the model by name
+	 * @return the items of the model by name
+	 */
+	private Map<String, ItemEntry> readItemsFromModel(String modelName, Map<String, ItemEntry> oldEntries) {
 		logger.debug("Read items from model '{}'", modelName);
 		
-		List<Item> items = new ArrayList<Item>();
+		Map<String, ItemEntry> entries = new LinkedHashMap<String, ItemEntry>();
 		if (modelRepository != null) {
 			ItemModel model = (ItemModel) modelRepository.getModel(modelName);
 			if (model != null) {
 				for(ModelItem modelItem : model.getItems()) {
+					String definition = getDefinition(modelItem);
+					ItemEntry oldEntry = oldEntries.get(modelItem.getName());
+					if (oldEntry != null && oldEntry.definition.equals(definition)) {
+						entries.put(modelItem.getName(), oldEntry);
+						continue;
+					}
 					Item item = createItemFromModelItem(modelItem);
 					if (item != null) {
 						for (String groupName : modelItem.getGroups()) {
 							item.getGroupNames().add(groupName);
 						}
-						items.add(item);
+						entries.put(item.getName(), new ItemEntry(item, definition));
 					}
 				}
 			}
 		}
-		return items;
+		return entries;
+	}
+	
+	/**
+	 * Reads a changed model again and notifies the listeners about the items which 
+	 * have been removed, added or replaced.
+	 * 
+	 * @param modelName the name of the changed model
+	 */
+	private void updateItems(String modelName) {
+		List<Item> removedItems = new ArrayList<Item>();
+		List<Item> addedItems = new ArrayList<Item>();
+		synchronized (itemsByModel) {
+			Map<String, ItemEntry> oldEntries = itemsByModel.get(modelName);
+			if (oldEntries == null) {
+				oldEntries = Collections.emptyMap();
+			}
+			Map<String, ItemEntry> newEntries = readItemsFromModel(modelName, oldEntries);
+			if (newEntries.isEmpty()) {
+				itemsByModel.remove(modelName);
+			} else {
+				itemsByModel.put(modelName, newEntries);
+			}
+			
+			for (ItemEntry oldEntry : oldEntries.values()) {
+				ItemEntry newEntry = newEntries.get(oldEntry.item.getName());
+				if (newEntry == null || newEntry.item != oldEntry.item) {
+					removedItems.add(oldEntry.item);
+				}
+			}
+			for (ItemEntry newEntry : newEntries.values()) {
+				ItemEntry oldEntry = oldEntries.get(newEntry.item.getName());
+				if (oldEntry == null || oldEntry.item != newEntry.item) {
+					addedItems.add(newEntry.item);
+				}
+			}
+		}
+		logger.debug("Model '{}' has changed: {} items removed, {} items added",
+			new Object[] { modelName, removedItems.size(), addedItems.size() });
+		
+		for (ItemsChangeListener listener : listeners) {
+			for (Item item : removedItems) {
+				listener.itemRemoved(this, item);
+			}
+			for (Item item : addedItems) {
+				listener.itemAdded(this, item);
+			}
+		}
+	}
+	
+	/**
+	 * Returns everything of a model item which is used to create the {@link Item}: its type,
+	 * the group function and arguments of a group, and the names of its groups.
+	 * 
+	 * @param modelItem the model item
+	 * @return a string which differs if the item has to be created again
+	 */
+	private String getDefinition(ModelItem modelItem) {
+		StringBuilder definition = new StringBuilder();
+		if (modelItem instanceof ModelGroupItem) {
+			ModelGroupItem modelGroupItem = (ModelGroupItem) modelItem;
+			definition.append("Group:").append(modelGroupItem.getType());
+			definition.append(':').append(modelGroupItem.getFunction()).append(modelGroupItem.getArgs());
+		} else {
+			definition.append(modelItem.getType());
+		}
+		definition.append(modelItem.getGroups());
+		return definition.toString();
 	}
 
 	private void processBindingConfigsFromModel(String modelName) {
@@ -380,8 +511,8 @@ public class GenericItemProvider implements ItemProvider, ModelRepositoryChangeL
 	/**
 	 * {@inheritDoc}
 	 * <p>
-	 * Dispatches all binding configs and
-	 * fires all {@link ItemsChangeListener}s if {@code modelName} ends with "items".
+	 * Dispatches all binding configs and notifies all {@link ItemsChangeListener}s
+	 * about the changed items if {@code modelName} ends with "items".
 	 */
 	@Override
 	public void modelChanged(String modelName, EventType type) {
@@ -389,9 +520,7 @@ public class GenericItemProvider implements ItemProvider, ModelRepositoryChangeL
 
 			processBindingConfigsFromModel(modelName);
 			
-			for (ItemsChangeListener listener : listeners) {
-			 	listener.allItemsChanged(this, null);
-			}
+			updateItems(modelName);
 		}
 	}
 	
@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.rule.internal.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.openhab.core.library.items.SwitchItem;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.types.State;
+import org.openhab.model.rule.internal.engine.RuleTriggerManager.TriggerTypes;
+import org.openhab.model.rule.rules.Rule;
+import org.openhab.model.rule.rules.RuleModel;
+import org.openhab.model.rule.rules.RulesFactory;
+import org.openhab.model.rule.rules.UpdateEventTrigger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures how long the {@link RuleTriggerManager} takes to load and unload a
+ * rule model, to remove its startup rules one by one after they have been
+ * executed, and to look up the rules which are triggered by an update.
+ *
+ * @since 1.8.0
+ */
+public class RuleTriggerManagerBenchmarkTest {
+
+	private static final Logger logger = LoggerFactory.getLogger(RuleTriggerManagerBenchmarkTest.class);
+
+	private static final int ITEMS = 500;
+
+	private static final int RULES = 2000;
+
+	private static final int EVENTS = 100000;
+
+	private static final int ROUNDS = 3;
+
+	@Test
+	@Ignore("benchmark, run manually")
+	public void benchmark() {
+		RuleTriggerManager manager = new RuleTriggerManager();
+		SwitchItem[] items = new SwitchItem[ITEMS];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = new SwitchItem("Benchmark" + i);
+		}
+
+		for (int round = 0; round < ROUNDS; round++) {
+			RuleModel model = createModel();
+
+			long start = System.nanoTime();
+			manager.addRuleModel(model);
+			long added = System.nanoTime();
+			for (Rule rule : getStartupRules(manager)) {
+				manager.removeRule(TriggerTypes.STARTUP, rule);
+			}
+			long startedUp = System.nanoTime();
+			int triggered = 0;
+			for (int i = 0; i < EVENTS; i++) {
+				for (Rule rule : manager.getRules(TriggerTypes.UPDATE, items[i % ITEMS], (State) OnOffType.ON)) {
+					if (rule != null) {
+						triggered++;
+					}
+				}
+			}
+			long matched = System.nanoTime();
+			manager.removeRuleModel(model);
+			long removed = System.nanoTime();
+
+			logger.info("rule trigger benchmark round {}: add {}ms, remove startup rules {}ms, {} lookups/s "
+					+ "({} triggered), remove {}ms ({} rules, {} items)", new Object[] { round,
+					(added - start) / 1000000, (startedUp - added) / 1000000,
+					EVENTS * 1000000000L / (matched - startedUp), triggered, (removed - matched) / 1000000,
+					RULES, ITEMS });
+		}
+	}
+
+	/**
+	 * Creates a model whose rules are triggered by updates of two items each;
+	 * every fourth rule is also a startup rule.
+	 */
+	private static RuleModel createModel() {
+		RuleModel model = RulesFactory.eINSTANCE.createRuleModel();
+		for (int i = 0; i < RULES; i++) {
+			Rule rule = RulesFactory.eINSTANCE.createRule();
+			rule.setName("rule" + i);
+			rule.getEventtrigger().add(createUpdateTrigger("Benchmark" + (i % ITEMS), i % 2 == 0 ? "ON" : null));
+			rule.getEventtrigger().add(createUpdateTrigger("Benchmark" + ((i + 1) % ITEMS), null));
+			if (i % 4 == 0) {
+				rule.getEventtrigger().add(RulesFactory.eINSTANCE.createSystemOnStartupTrigger());
+			}
+			model.getRules().add(rule);
+		}
+		return model;
+	}
+
+	private static UpdateEventTrigger createUpdateTrigger(String itemName, String state) {
+		UpdateEventTrigger trigger = RulesFactory.eINSTANCE.createUpdateEventTrigger();
+		trigger.setItem(itemName);
+		trigger.setState(state);
+		return trigger;
+	}
+
+	private static List<Rule> getStartupRules(RuleTriggerManager manager) {
+		List<Rule> rules = new ArrayList<Rule>();
+		for (Rule rule : manager.getRules(TriggerTypes.STARTUP)) {
+			rules.add(rule);
+		}
+		return rules;
+	}
+
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.rule.internal.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.library.items.SwitchItem;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.openhab.model.rule.internal.engine.RuleTriggerManager.TriggerTypes;
+import org.openhab.model.rule.rules.ChangedEventTrigger;
+import org.openhab.model.rule.rules.CommandEventTrigger;
+import org.openhab.model.rule.rules.Rule;
+import org.openhab.model.rule.rules.RuleModel;
+import org.openhab.model.rule.rules.RulesFactory;
+import org.openhab.model.rule.rules.UpdateEventTrigger;
+
+/**
+ * @since 1.8.0
+ */
+public class RuleTriggerManagerTest {
+
+	private RuleTriggerManager manager;
+
+	private SwitchItem item1;
+	private SwitchItem item2;
+
+	@Before
+	public void init() {
+		manager = new RuleTriggerManager();
+		item1 = new SwitchItem("Item1");
+		item2 = new SwitchItem("Item2");
+	}
+
+	@Test
+	public void testRuleWithUpdateTriggersOnTwoItemsFiresOnce() {
+		Rule rule = createRule("update");
+		rule.getEventtrigger().add(createUpdateTrigger("Item1", null));
+		rule.getEventtrigger().add(createUpdateTrigger("Item2", null));
+		manager.addRule(rule);
+
+		assertEquals(1, toList(manager.getRules(TriggerTypes.UPDATE, item1, (State) OnOffType.ON)).size());
+		assertEquals(1, toList(manager.getRules(TriggerTypes.UPDATE, item2, (State) OnOffType.ON)).size());
+	}
+
+	@Test
+	public void testRuleWithConditionalTriggersOnTwoItems() {
+		Rule rule = createRule("conditional");
+		rule.getEventtrigger().add(createUpdateTrigger("Item1", "ON"));
+		rule.getEventtrigger().add(createUpdateTrigger("Item2", "OFF"));
+		manager.addRule(rule);
+
+		assertEquals(1, toList(manager.getRules(TriggerTypes.UPDATE, item1, (State) OnOffType.ON)).size());
+		assertTrue(toList(manager.getRules(TriggerTypes.UPDATE, item1, (State) OnOffType.OFF)).isEmpty());
+		assertEquals(1, toList(manager.getRules(TriggerTypes.UPDATE, item2, (State) OnOffType.OFF)).size());
+		assertTrue(toList(manager.getRules(TriggerTypes.UPDATE, item2, (State) OnOffType.ON)).isEmpty());
+	}
+
+	@Test
+	public void testRuleWithChangeAndCommandTriggersOnTwoItemsFiresOnce() {
+		Rule rule = createRule("change and command");
+		ChangedEventTrigger change1 = RulesFactory.eINSTANCE.createChangedEventTrigger();
+		change1.setItem("Item1");
+		ChangedEventTrigger change2 = RulesFactory.eINSTANCE.createChangedEventTrigger();
+		change2.setItem("Item2");
+		CommandEventTrigger command1 = RulesFactory.eINSTANCE.createCommandEventTrigger();
+		command1.setItem("Item1");
+		CommandEventTrigger command2 = RulesFactory.eINSTANCE.createCommandEventTrigger();
+		command2.setItem("Item2");
+		rule.getEventtrigger().add(change1);
+		rule.getEventtrigger().add(change2);
+		rule.getEventtrigger().add(command1);
+		rule.getEventtrigger().add(command2);
+		manager.addRule(rule);
+
+		assertEquals(1, toList(manager.getRules(TriggerTypes.CHANGE, item1, OnOffType.OFF, OnOffType.ON)).size());
+		assertEquals(1, toList(manager.getRules(TriggerTypes.COMMAND, item2, (Command) OnOffType.ON)).size());
+	}
+
+	@Test
+	public void testRemoveRuleModel() {
+		RuleModel model = RulesFactory.eINSTANCE.createRuleModel();
+		for (int i = 0; i < 3; i++) {
+			Rule rule = createRule("rule" + i);
+			rule.getEventtrigger().add(createUpdateTrigger("Item1", null));
+			model.getRules().add(rule);
+		}
+		Rule otherRule = createRule("other");
+		otherRule.getEventtrigger().add(createUpdateTrigger("Item1", null));
+		manager.addRuleModel(model);
+		manager.addRule(otherRule);
+		assertEquals(4, toList(manager.getRules(TriggerTypes.UPDATE, item1, (State) OnOffType.ON)).size());
+
+		manager.removeRuleModel(model);
+
+		assertEquals(1, toList(manager.getRules(TriggerTypes.UPDATE, item1, (State) OnOffType.ON)).size());
+		manager.clearAll();
+		assertTrue(toList(manager.getRules(TriggerTypes.UPDATE, item1, (State) OnOffType.ON)).isEmpty());
+	}
+
+	private static Rule createRule(String name) {
+		Rule rule = RulesFactory.eINSTANCE.createRule();
+		rule.setName(name);
+		return rule;
+	}
+
+	private static UpdateEventTrigger createUpdateTrigger(String itemName, String state) {
+		UpdateEventTrigger trigger = RulesFactory.eINSTANCE.createUpdateEventTrigger();
+		trigger.setItem(itemName);
+		trigger.setState(state);
+		return trigger;
+	}
+
+	private static List<Rule> toList(Iterable<Rule> rules) {
+		List<Rule> result = new ArrayList<Rule>();
+		for (Rule rule : rules) {
+			result.add(rule);
+		}
+		return result;
+	}
+
+}
@@ -18,10 +18,18 @@ import static org.openhab.model.rule.internal.engine.RuleTriggerManager.TriggerT
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
 
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.xtext.naming.QualifiedName;
+import org.openhab.core.events.ItemEvent;
+import org.openhab.core.events.ItemEventListener;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
@@ -31,14 +39,18 @@ import org.openhab.core.items.StateChangeListener;
 import org.openhab.core.scriptengine.Script;
 import org.openhab.core.scriptengine.ScriptEngine;
 import org.openhab.core.scriptengine.ScriptExecutionException;
-import org.openhab.core.scriptengine.ScriptExecutionThread;
+import org.openhab.core.service.ConfigurationUtil;
+import org.openhab.core.service.StatisticsProvider;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.EventType;
 import org.openhab.core.types.State;
 import org.openhab.model.core.ModelRepository;
 import org.openhab.model.core.ModelRepositoryChangeListener;
 import org.openhab.model.rule.rules.Rule;
+import org.openhab.model.rule.internal.engine.RuleExecutor.Mode;
 import org.openhab.model.rule.rules.RuleModel;
+import org.osgi.service.cm.ConfigurationException;
+import org.osgi.service.cm.ManagedService;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
@@ -49,23 +61,38 @@ import com.google.common.collect.Lists;
 /**
  * This class is the core of the openHAB rule engine. It listens to changes to the rules folder, evaluates the trigger
  * conditions of the rules and schedules them for execution dependent on their triggering conditions.
+ * The triggered rules are executed by a {@link RuleExecutor}, which can be configured through the
+ * 'ruleengine' configuration. The execution statistics of the rules are shown by the console
+ * command 'rulestats'.
  * 
  * @author Kai Kreuzer
  * @since 0.9.0
  * 
  */
 @SuppressWarnings("restriction")
-public class RuleEngine implements EventHandler, ItemRegistryChangeListener, StateChangeListener,
-		ModelRepositoryChangeListener {
+public class RuleEngine implements EventHandler, ItemEventListener, ItemRegistryChangeListener, StateChangeListener,
+		ModelRepositoryChangeListener, ManagedService, StatisticsProvider {
 
 	static private final Logger logger = LoggerFactory.getLogger(RuleEngine.class);
 
+	private static final int DEFAULT_THREADS = 20;
+
+	/** the maximum number of threads, so that a misconfiguration does not exhaust the system */
+	private static final int MAX_THREADS = 200;
+
+	private static final int DEFAULT_QUEUE_SIZE = 1000;
+
+	private static final String MODE_PREFIX = "mode.";
+
 	private ItemRegistry itemRegistry;
 	private ModelRepository modelRepository;
 	private ScriptEngine scriptEngine;
 
 	private RuleTriggerManager triggerManager;
 
+	private volatile RuleExecutor ruleExecutor = new RuleExecutor(DEFAULT_THREADS, DEFAULT_QUEUE_SIZE, Mode.CONCURRENT,
+			new HashMap<String, Mode>());
+
 	public void activate() {
 		triggerManager = new RuleTriggerManager();
 
@@ -99,6 +126,62 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 		executeRules(triggerManager.getRules(SHUTDOWN));
 		triggerManager.clearAll();
 		triggerManager = null;
+		ruleExecutor.shutdown();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("rawtypes")
+	public void updated(Dictionary config) throws ConfigurationException {
+		int threads = DEFAULT_THREADS;
+		int queueSize = DEFAULT_QUEUE_SIZE;
+		Mode defaultMode = Mode.CONCURRENT;
+		Map<String, Mode> ruleModes = new HashMap<String, Mode>();
+		if (config != null) {
+			threads = ConfigurationUtil.parseInt(config, "threads", DEFAULT_THREADS, 1, MAX_THREADS);
+			queueSize = ConfigurationUtil.parsePositiveInt(config, "queuesize", DEFAULT_QUEUE_SIZE);
+			Enumeration keys = config.keys();
+			while (keys.hasMoreElements()) {
+				String key = (String) keys.nextElement();
+				if ("mode".equals(key)) {
+					defaultMode = parseMode(config, key);
+				} else if (key.startsWith(MODE_PREFIX)) {
+					ruleModes.put(key.substring(MODE_PREFIX.length()), parseMode(config, key));
+				}
+			}
+		}
+		RuleExecutor oldExecutor = ruleExecutor;
+		ruleExecutor = new RuleExecutor(threads, queueSize, defaultMode, ruleModes);
+		oldExecutor.shutdown();
+		logger.debug("Rule engine uses {} threads, default execution mode is {}", threads, defaultMode);
+	}
+
+	@SuppressWarnings("rawtypes")
+	private Mode parseMode(Dictionary config, String key) throws ConfigurationException {
+		String value = (String) config.get(key);
+		Mode mode = Mode.fromString(StringUtils.trim(value));
+		if (mode == null) {
+			throw new ConfigurationException(key, "Unknown execution mode '" + value
+					+ "', valid values are 'concurrent', 'queue', 'skip' and 'coalesce'");
+		}
+		return mode;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getSummary() {
+		RuleExecutor executor = ruleExecutor;
+		return "Threads: " + executor.getActiveCount() + " of " + executor.getPoolSize() + " busy, queued: "
+				+ executor.getQueueSize() + ", run by triggering threads: " + executor.getCallerRuns();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Map<String, ?> getStatistics() {
+		return ruleExecutor.getStatistics();
 	}
 
 	public void setItemRegistry(ItemRegistry itemRegistry) {
@@ -214,6 +297,9 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 	 * {@inheritDoc}
 	 */
 	public void handleEvent(Event event) {
+		if (ItemEvent.isDispatchedTo(event, this)) {
+			return; // we have already received this event directly
+		}
 		String itemName = (String) event.getProperty("item");
 
 		String topic = event.getTopic();
@@ -231,6 +317,15 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public void itemEventReceived(ItemEvent event) {
+		if (event.getType() == EventType.COMMAND) {
+			receiveCommand(event.getItemName(), event.getCommand());
+		}
+	}
+
 	public void modelChanged(String modelName, org.openhab.model.core.EventType type) {
 		if (triggerManager != null) {
 			if (isEnabled() && modelName.endsWith("rules")) {
@@ -295,22 +390,21 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 		return message;
 	}
 
-	protected synchronized void executeRule(Rule rule) {
+	protected void executeRule(Rule rule) {
 		executeRule(rule, new RuleEvaluationContext());
 	}
 
-	protected synchronized void executeRule(Rule rule, RuleEvaluationContext context) {
+	protected void executeRule(Rule rule, RuleEvaluationContext context) {
 		Script script = scriptEngine.newScriptFromXExpression(rule.getScript());
 
 		logger.debug("Executing rule '{}'", rule.getName());
 
 		context.setGlobalContext(RuleContextHelper.getContext(rule));
 
-		ScriptExecutionThread thread = new ScriptExecutionThread(rule.getName(), script, context);
-		thread.start();
+		ruleExecutor.execute(rule.getName(), script, context);
 	}
 
-	protected synchronized void executeRules(Iterable<Rule> rules) {
+	protected void executeRules(Iterable<Rule> rules) {
 		for (Rule rule : rules) {
 			executeRule(rule);
 		}
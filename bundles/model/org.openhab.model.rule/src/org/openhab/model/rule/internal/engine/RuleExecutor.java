@@ -0,0 +1,416 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.rule.internal.engine;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.xtext.xbase.interpreter.IEvaluationContext;
+import org.openhab.core.scriptengine.Script;
+import org.openhab.core.scriptengine.ScriptExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes the scripts of triggered rules on a bounded pool of worker threads,
+ * instead of starting a new thread for every single rule execution.
+ *
+ * <p>How several triggers of the same rule are handled while the rule is still
+ * running, is defined by its {@link Mode}. For each rule, the number of executions,
+ * skipped and coalesced triggers, the number of pending executions and the
+ * execution times are recorded.</p>
+ *
+ * <p>If all worker threads are busy and the queue is full, e.g. because rules
+ * sleep or wait for a long time, triggered rules are executed by the triggering
+ * thread; this is logged once until the worker threads have caught up.</p>
+ *
+ * @since 1.8.0
+ */
+@SuppressWarnings("restriction")
+public class RuleExecutor {
+
+	static private final Logger logger = LoggerFactory.getLogger(RuleExecutor.class);
+
+	/**
+	 * Defines how a rule is executed if it is triggered while it is still running
+	 */
+	public enum Mode {
+		/** the rule is executed in parallel to the running execution */
+		CONCURRENT,
+		/** the execution is queued and started after the running execution has finished */
+		QUEUE,
+		/** the trigger is ignored */
+		SKIP,
+		/** like {@link #QUEUE}, but only the latest pending trigger is kept */
+		COALESCE;
+
+		/**
+		 * Parses the configured mode name.
+		 *
+		 * @param name the mode name, e.g. "concurrent", "queue", "skip" or "coalesce"
+		 * @return the mode or <code>null</code>, if the name is unknown
+		 */
+		public static Mode fromString(String name) {
+			for (Mode mode : values()) {
+				if (mode.name().equalsIgnoreCase(name)) {
+					return mode;
+				}
+			}
+			return null;
+		}
+	}
+
+	private final ThreadPoolExecutor executor;
+
+	private final Mode defaultMode;
+
+	private final Map<String, Mode> ruleModes;
+
+	private final ConcurrentHashMap<String, RuleState> ruleStates = new ConcurrentHashMap<String, RuleState>();
+
+	/** true while executions are rejected by the pool and run by the triggering thread */
+	private final AtomicBoolean saturated = new AtomicBoolean(false);
+
+	private final AtomicLong callerRuns = new AtomicLong();
+
+	/**
+	 * @param poolSize the number of worker threads
+	 * @param queueSize the maximum number of executions waiting for a worker thread;
+	 * if it is exceeded, the rule is executed by the triggering thread
+	 * @param defaultMode the mode for all rules without an explicit mode
+	 * @param ruleModes the modes of individual rules by their name
+	 */
+	public RuleExecutor(int poolSize, int queueSize, Mode defaultMode, Map<String, Mode> ruleModes) {
+		this.defaultMode = defaultMode;
+		this.ruleModes = new HashMap<String, Mode>(ruleModes);
+		this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(queueSize), new RuleThreadFactory(),
+				new CallerRunsHandler());
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Schedules the script of a rule for execution, respecting the mode of the rule.
+	 *
+	 * @param ruleName the name of the rule
+	 * @param script the script to execute
+	 * @param context the evaluation context for the script
+	 */
+	public void execute(String ruleName, Script script, IEvaluationContext context) {
+		RuleState state = getState(ruleName);
+		Execution execution = new Execution(state, script, context);
+		switch (state.mode) {
+			case CONCURRENT:
+				submit(execution);
+				break;
+			case SKIP:
+				synchronized (state) {
+					if (state.running > 0) {
+						state.skipped++;
+						logger.debug("Skipping execution of rule '{}' as it is still running", ruleName);
+						return;
+					}
+					state.running++;
+				}
+				submit(execution);
+				break;
+			case QUEUE:
+			case COALESCE:
+				synchronized (state) {
+					if (state.running > 0) {
+						if (state.mode == Mode.COALESCE && !state.pending.isEmpty()) {
+							state.pending.clear();
+							state.coalesced++;
+						}
+						state.pending.add(execution);
+						return;
+					}
+					state.running++;
+				}
+				submit(execution);
+				break;
+		}
+	}
+
+	/**
+	 * Shuts down the worker threads. Executions which are already queued are
+	 * still processed.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * @return the number of rule executions waiting for a free worker thread
+	 */
+	public int getQueueSize() {
+		return executor.getQueue().size();
+	}
+
+	/**
+	 * @return the number of worker threads which are currently executing rules
+	 */
+	public int getActiveCount() {
+		return executor.getActiveCount();
+	}
+
+	/**
+	 * @return the number of worker threads
+	 */
+	public int getPoolSize() {
+		return executor.getCorePoolSize();
+	}
+
+	/**
+	 * @return the number of executions which have been run by the triggering
+	 * thread, as all worker threads were busy and the queue was full
+	 */
+	public long getCallerRuns() {
+		return callerRuns.get();
+	}
+
+	/**
+	 * Returns the execution statistics of all rules, which have been executed so far.
+	 *
+	 * @return the statistics by rule name
+	 */
+	public Map<String, RuleStatistics> getStatistics() {
+		Map<String, RuleStatistics> statistics = new HashMap<String, RuleStatistics>();
+		for (RuleState state : ruleStates.values()) {
+			synchronized (state) {
+				statistics.put(state.ruleName, new RuleStatistics(state));
+			}
+		}
+		return Collections.unmodifiableMap(statistics);
+	}
+
+	private RuleState getState(String ruleName) {
+		RuleState state = ruleStates.get(ruleName);
+		if (state == null) {
+			Mode mode = ruleModes.get(ruleName);
+			RuleState newState = new RuleState(ruleName, mode != null ? mode : defaultMode);
+			state = ruleStates.putIfAbsent(ruleName, newState);
+			if (state == null) {
+				state = newState;
+			}
+		}
+		return state;
+	}
+
+	private void submit(Execution execution) {
+		// if the execution is rejected, it is run by the calling thread, see CallerRunsHandler
+		executor.execute(execution);
+	}
+
+	/**
+	 * Called when an execution has finished; starts the next pending execution of
+	 * the same rule if there is one.
+	 */
+	private void finished(RuleState state, long duration) {
+		Execution next = null;
+		synchronized (state) {
+			state.executions++;
+			state.totalTime += duration;
+			if (duration > state.maxTime) {
+				state.maxTime = duration;
+			}
+			if (state.mode != Mode.CONCURRENT) {
+				next = state.pending.poll();
+				if (next == null) {
+					state.running--;
+				}
+			}
+		}
+		if (next != null) {
+			submit(next);
+		}
+		if (saturated.get() && executor.getQueue().isEmpty() && saturated.compareAndSet(true, false)) {
+			logger.info("Rule engine threads have caught up, {} rule executions have been run by triggering threads so far",
+					callerRuns.get());
+		}
+	}
+
+	/**
+	 * A single execution of a rule script.
+	 */
+	private class Execution implements Runnable {
+
+		private final RuleState state;
+		private final Script script;
+		private final IEvaluationContext context;
+
+		Execution(RuleState state, Script script, IEvaluationContext context) {
+			this.state = state;
+			this.script = script;
+			this.context = context;
+		}
+
+		public void run() {
+			Thread thread = Thread.currentThread();
+			String threadName = thread.getName();
+			thread.setName(state.ruleName);
+			long startTime = System.currentTimeMillis();
+			try {
+				script.execute(context);
+			} catch (ScriptExecutionException e) {
+				String msg = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+				if (msg == null) {
+					logger.error("Error during the execution of rule '{}'", state.ruleName, e.getCause());
+				} else {
+					logger.error("Error during the execution of rule '{}': {}", new String[] { state.ruleName, msg });
+				}
+			} catch (RuntimeException e) {
+				logger.error("Error during the execution of rule '" + state.ruleName + "'", e);
+			} finally {
+				thread.setName(threadName);
+				finished(state, System.currentTimeMillis() - startTime);
+			}
+		}
+	}
+
+	/**
+	 * The mutable execution state of a single rule; all fields are guarded by the
+	 * instance itself.
+	 */
+	private static class RuleState {
+
+		final String ruleName;
+		final Mode mode;
+		final LinkedList<Execution> pending = new LinkedList<Execution>();
+		int running;
+		long executions;
+		long skipped;
+		long coalesced;
+		long totalTime;
+		long maxTime;
+
+		RuleState(String ruleName, Mode mode) {
+			this.ruleName = ruleName;
+			this.mode = mode;
+		}
+	}
+
+	/**
+	 * An immutable snapshot of the execution statistics of a single rule.
+	 */
+	public static class RuleStatistics {
+
+		private final Mode mode;
+		private final int pending;
+		private final long executions;
+		private final long skipped;
+		private final long coalesced;
+		private final long totalTime;
+		private final long maxTime;
+
+		private RuleStatistics(RuleState state) {
+			this.mode = state.mode;
+			this.pending = state.pending.size();
+			this.executions = state.executions;
+			this.skipped = state.skipped;
+			this.coalesced = state.coalesced;
+			this.totalTime = state.totalTime;
+			this.maxTime = state.maxTime;
+		}
+
+		/** @return the execution mode of the rule */
+		public Mode getMode() {
+			return mode;
+		}
+
+		/** @return the number of executions waiting for the running execution to finish */
+		public int getPending() {
+			return pending;
+		}
+
+		/** @return the number of finished executions */
+		public long getExecutions() {
+			return executions;
+		}
+
+		/** @return the number of triggers which have been skipped as the rule was still running */
+		public long getSkipped() {
+			return skipped;
+		}
+
+		/** @return the number of pending triggers which have been replaced by a newer one */
+		public long getCoalesced() {
+			return coalesced;
+		}
+
+		/** @return the average execution time in milliseconds */
+		public long getAverageTime() {
+			return executions > 0 ? totalTime / executions : 0;
+		}
+
+		/** @return the maximum execution time in milliseconds */
+		public long getMaxTime() {
+			return maxTime;
+		}
+
+		@Override
+		public String toString() {
+			return "mode=" + mode + ", pending=" + pending + ", executions=" + executions + ", skipped=" + skipped
+					+ ", coalesced=" + coalesced + ", averageTime=" + getAverageTime() + "ms, maxTime=" + maxTime + "ms";
+		}
+	}
+
+	/**
+	 * Runs rejected executions on the triggering thread like the {@link ThreadPoolExecutor.CallerRunsPolicy},
+	 * but logs it, as it delays the triggering thread, and still runs them after the shutdown.
+	 */
+	private class CallerRunsHandler implements RejectedExecutionHandler {
+
+		public void rejectedExecution(Runnable runnable, ThreadPoolExecutor pool) {
+			Execution execution = (Execution) runnable;
+			if (pool.isShutdown()) {
+				logger.debug("Executing rule '{}' on the triggering thread as the rule engine is shut down",
+						execution.state.ruleName);
+			} else {
+				callerRuns.incrementAndGet();
+				if (saturated.compareAndSet(false, true)) {
+					logger.warn("All {} rule engine threads are busy and {} rule executions are waiting; rules are "
+							+ "executed by the triggering threads until the threads have caught up. Rules which sleep "
+							+ "or wait for a long time block a thread, see 'ruleengine:threads'.", pool.getCorePoolSize(),
+							pool.getQueue().size());
+				} else {
+					logger.debug("Executing rule '{}' on the triggering thread as all rule engine threads are busy",
+							execution.state.ruleName);
+				}
+			}
+			execution.run();
+		}
+	}
+
+	/**
+	 * Creates the daemon worker threads of the rule engine.
+	 */
+	private static class RuleThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "RuleEngine-" + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
@@ -19,7 +19,9 @@ import static org.quartz.TriggerBuilder.newTrigger;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -29,7 +31,6 @@ import org.openhab.core.items.Item;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.State;
 import org.openhab.core.types.Type;
-import org.openhab.core.types.TypeParser;
 import org.openhab.model.rule.rules.ChangedEventTrigger;
 import org.openhab.model.rule.rules.CommandEventTrigger;
 import org.openhab.model.rule.rules.EventTrigger;
@@ -61,6 +62,11 @@ import com.google.common.collect.Sets;
  * It keeps lists of which rule must be executed for which trigger and takes
  * over the evaluation of states and trigger conditions for the rule engine.
  * 
+ * <p>For the item based triggers, the rules are additionally compiled into
+ * {@link TriggerBucket}s per item and trigger type. The states and commands of
+ * the triggers are parsed only once per item type, so that matching an event
+ * does not involve any parsing.</p>
+ * 
  * @author Kai Kreuzer
  * @since 0.9.0
  *
@@ -86,6 +92,11 @@ public class RuleTriggerManager {
 	private List<Rule> systemShutdownTriggeredRules = Lists.newArrayList();
 	private List<Rule> timerEventTriggeredRules = Lists.newArrayList();
 
+	// compiled trigger conditions by item name, rebuilt whenever rules are added or removed
+	private volatile Map<String, TriggerBucket> updateBuckets = Collections.emptyMap();
+	private volatile Map<String, TriggerBucket> changeBuckets = Collections.emptyMap();
+	private volatile Map<String, TriggerBucket> commandBuckets = Collections.emptyMap();
+
 	// the scheduler used for timer events
 	private Scheduler scheduler;
 	
@@ -154,95 +165,107 @@ public class RuleTriggerManager {
 		return internalGetRules(triggerType, item, null, command);
 	}
 
-	private Iterable<Rule> getAllRules(TriggerTypes type, String itemName) {
-		switch(type) {
-			case STARTUP:  return systemStartupTriggeredRules;
-			case SHUTDOWN: return systemShutdownTriggeredRules;
-			case UPDATE:   return updateEventTriggeredRules.get(itemName);
-			case CHANGE:   return changedEventTriggeredRules.get(itemName);
-			case COMMAND:  return commandEventTriggeredRules.get(itemName);
-			default:       return Sets.newHashSet();
-		}
-	}
-
 	private Iterable<Rule> internalGetRules(TriggerTypes triggerType, Item item, Type oldType, Type newType) {
-		List<Rule> result = Lists.newArrayList();
-		Iterable<Rule> rules = getAllRules(triggerType, item.getName());
-		if(rules==null) {
-			rules = Lists.newArrayList();
-		}
 		switch(triggerType) {
 		case STARTUP:  return systemStartupTriggeredRules;
 		case SHUTDOWN: return systemShutdownTriggeredRules;
 		case TIMER :   return timerEventTriggeredRules;
 		case UPDATE:   
 			if(newType instanceof State) {
-				State state = (State) newType;
-				for(Rule rule : rules) {
-					for(EventTrigger t : rule.getEventtrigger()) {
-						if (t instanceof UpdateEventTrigger) {
-							UpdateEventTrigger ut = (UpdateEventTrigger) t;
-							if(ut.getItem().equals(item.getName())) {
-								if(ut.getState()!=null) {
-									State triggerState = TypeParser.parseState(item.getAcceptedDataTypes(), ut.getState());
-									if(!state.equals(triggerState)) {
-										continue;
-									}
-								}
-								result.add(rule);
-							}
-						}
-					}
+				TriggerBucket bucket = updateBuckets.get(item.getName());
+				if(bucket!=null) {
+					return bucket.getRules(triggerType, item, null, newType);
 				}
 			}
 			break;
 		case CHANGE:
 			if(newType instanceof State && oldType instanceof State) {
-				State newState = (State) newType;
-				State oldState = (State) oldType;
-				for(Rule rule : rules) {
-					for(EventTrigger t : rule.getEventtrigger()) {
-						if (t instanceof ChangedEventTrigger) {
-							ChangedEventTrigger ct = (ChangedEventTrigger) t;						
-							if(ct.getItem().equals(item.getName())) {
-								if(ct.getOldState()!=null) {
-									State triggerOldState = TypeParser.parseState(item.getAcceptedDataTypes(), ct.getOldState());
-									if(!oldState.equals(triggerOldState)) {
-										continue;
-									}								
-								}
-								if(ct.getNewState()!=null) {
-									State triggerNewState = TypeParser.parseState(item.getAcceptedDataTypes(), ct.getNewState());
-									if(!newState.equals(triggerNewState)) {
-										continue;
-									}								
-								}
-								result.add(rule);
-							}
-						}
-					}
+				TriggerBucket bucket = changeBuckets.get(item.getName());
+				if(bucket!=null) {
+					return bucket.getRules(triggerType, item, oldType, newType);
 				}
 			}
 			break;
 		case COMMAND:  
 			if(newType instanceof Command) {
-				Command command = (Command) newType;
-				for(Rule rule : rules) {
-					for(EventTrigger t : rule.getEventtrigger()) {
-						if (t instanceof CommandEventTrigger) {
-							CommandEventTrigger ct = (CommandEventTrigger) t;
-							Command triggerCommand = TypeParser.parseCommand(item.getAcceptedCommandTypes(), ct.getCommand());
-							if(ct.getItem().equals(item.getName()) &&
-									(triggerCommand==null || command.equals(triggerCommand))) {
-								result.add(rule);
-							}
+				TriggerBucket bucket = commandBuckets.get(item.getName());
+				if(bucket!=null) {
+					return bucket.getRules(triggerType, item, null, newType);
+				}
+			}
+			break;
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Compiles the trigger conditions of all item based triggers into new
+	 * {@link TriggerBucket}s.
+	 */
+	private synchronized void rebuildBuckets() {
+		Map<String, TriggerBucket.Builder> updateBuilders = new HashMap<String, TriggerBucket.Builder>();
+		Map<String, TriggerBucket.Builder> changeBuilders = new HashMap<String, TriggerBucket.Builder>();
+		Map<String, TriggerBucket.Builder> commandBuilders = new HashMap<String, TriggerBucket.Builder>();
+		// a rule is listed for every item it triggers on, so only add its triggers on that item
+		for(Map.Entry<String, Set<Rule>> entry : updateEventTriggeredRules.entrySet()) {
+			String itemName = entry.getKey();
+			for(Rule rule : entry.getValue()) {
+				for(EventTrigger t : rule.getEventtrigger()) {
+					if(t instanceof UpdateEventTrigger) {
+						UpdateEventTrigger ut = (UpdateEventTrigger) t;
+						if(ut.getItem().equals(itemName)) {
+							getBuilder(updateBuilders, itemName).add(rule, ut.getState(), null);
 						}
 					}
 				}
 			}
-			break;
 		}
-		return result;
+		for(Map.Entry<String, Set<Rule>> entry : changedEventTriggeredRules.entrySet()) {
+			String itemName = entry.getKey();
+			for(Rule rule : entry.getValue()) {
+				for(EventTrigger t : rule.getEventtrigger()) {
+					if(t instanceof ChangedEventTrigger) {
+						ChangedEventTrigger ct = (ChangedEventTrigger) t;
+						if(ct.getItem().equals(itemName)) {
+							getBuilder(changeBuilders, itemName).add(rule, ct.getOldState(), ct.getNewState());
+						}
+					}
+				}
+			}
+		}
+		for(Map.Entry<String, Set<Rule>> entry : commandEventTriggeredRules.entrySet()) {
+			String itemName = entry.getKey();
+			for(Rule rule : entry.getValue()) {
+				for(EventTrigger t : rule.getEventtrigger()) {
+					if(t instanceof CommandEventTrigger) {
+						CommandEventTrigger ct = (CommandEventTrigger) t;
+						if(ct.getItem().equals(itemName)) {
+							getBuilder(commandBuilders, itemName).add(rule, ct.getCommand(), null);
+						}
+					}
+				}
+			}
+		}
+		updateBuckets = build(updateBuilders);
+		changeBuckets = build(changeBuilders);
+		commandBuckets = build(commandBuilders);
+	}
+
+	private static TriggerBucket.Builder getBuilder(Map<String, TriggerBucket.Builder> builders, String itemName) {
+		TriggerBucket.Builder builder = builders.get(itemName);
+		if(builder==null) {
+			builder = new TriggerBucket.Builder();
+			builders.put(itemName, builder);
+		}
+		return builder;
+	}
+
+	private static Map<String, TriggerBucket> build(Map<String, TriggerBucket.Builder> builders) {
+		Map<String, TriggerBucket> buckets = new HashMap<String, TriggerBucket>(builders.size() * 4 / 3 + 1);
+		for(Map.Entry<String, TriggerBucket.Builder> entry : builders.entrySet()) {
+			buckets.put(entry.getKey(), entry.getValue().build());
+		}
+		return buckets;
 	}
 
 	/**
@@ -250,7 +273,14 @@ public class RuleTriggerManager {
 	 * 
 	 * @param type the trigger type 
 	 */
-	public void clear(TriggerTypes type) {
+	public synchronized void clear(TriggerTypes type) {
+		internalClear(type);
+		if(isItemTrigger(type)) {
+			rebuildBuckets();
+		}
+	}
+
+	private void internalClear(TriggerTypes type) {
 		switch(type) {
 			case STARTUP:  	systemStartupTriggeredRules.clear(); break;
 			case SHUTDOWN: 	systemShutdownTriggeredRules.clear(); break;
@@ -267,13 +297,18 @@ public class RuleTriggerManager {
 	/**
 	 * Removes all rules from all mapping tables.
 	 */
-	public void clearAll() {
-		clear(STARTUP);
-		clear(SHUTDOWN);
-		clear(UPDATE);
-		clear(CHANGE);
-		clear(COMMAND);
-		clear(TIMER);
+	public synchronized void clearAll() {
+		for(TriggerTypes type : TriggerTypes.values()) {
+			internalClear(type);
+		}
+		rebuildBuckets();
+	}
+
+	/**
+	 * @return true, if the rules of the given trigger type are compiled into {@link TriggerBucket}s
+	 */
+	private static boolean isItemTrigger(TriggerTypes type) {
+		return type==UPDATE || type==CHANGE || type==COMMAND;
 	}
 	
 	/**
@@ -282,6 +317,11 @@ public class RuleTriggerManager {
 	 * @param rule the rule to add
 	 */
 	public synchronized void addRule(Rule rule) {
+		internalAddRule(rule);
+		rebuildBuckets();
+	}
+
+	private synchronized void internalAddRule(Rule rule) {
 		for(EventTrigger t : rule.getEventtrigger()) {
 			// add the rule to the lookup map for the trigger kind
 			if(t instanceof SystemOnStartupTrigger) {
@@ -329,7 +369,7 @@ public class RuleTriggerManager {
 	 * @param type the trigger type for which the rule should be removed
 	 * @param rule the rule to add
 	 */
-	public void removeRule(TriggerTypes type, Rule rule) {
+	public synchronized void removeRule(TriggerTypes type, Rule rule) {
 		switch(type) {
 			case STARTUP:  	systemStartupTriggeredRules.remove(rule); break;
 			case SHUTDOWN: 	systemShutdownTriggeredRules.remove(rule); break;
@@ -340,6 +380,10 @@ public class RuleTriggerManager {
 							removeTimerRule(rule);
 							break;
 		}
+		// e.g. the startup rules are removed one by one after they have been executed
+		if(isItemTrigger(type)) {
+			rebuildBuckets();
+		}
 	}
 	
 	/**
@@ -347,10 +391,11 @@ public class RuleTriggerManager {
 	 * 
 	 * @param model the rule model
 	 */
-	public void addRuleModel(RuleModel model) {
+	public synchronized void addRuleModel(RuleModel model) {
 		for(Rule rule : model.getRules()) {
-			addRule(rule);
+			internalAddRule(rule);
 		}
+		rebuildBuckets();
 	}
 
 	/**
@@ -358,36 +403,36 @@ public class RuleTriggerManager {
 	 * 
 	 * @param ruleModel the rule model
 	 */
-	public void removeRuleModel(RuleModel ruleModel) {
-		removeRules(UPDATE, updateEventTriggeredRules.values(), ruleModel);
-		removeRules(CHANGE, changedEventTriggeredRules.values(), ruleModel);
-		removeRules(COMMAND, commandEventTriggeredRules.values(), ruleModel);
-		removeRules(STARTUP, Collections.singletonList(systemStartupTriggeredRules), ruleModel);
-		removeRules(SHUTDOWN, Collections.singletonList(systemShutdownTriggeredRules), ruleModel);		
-		removeRules(TIMER, Collections.singletonList(timerEventTriggeredRules), ruleModel);		
+	public synchronized void removeRuleModel(RuleModel ruleModel) {
+		Set<Rule> modelRules = ruleModel!=null ? new HashSet<Rule>(ruleModel.getRules()) : Collections.<Rule>emptySet();
+		removeRules(UPDATE, updateEventTriggeredRules.values(), modelRules);
+		removeRules(CHANGE, changedEventTriggeredRules.values(), modelRules);
+		removeRules(COMMAND, commandEventTriggeredRules.values(), modelRules);
+		removeRules(STARTUP, Collections.singletonList(systemStartupTriggeredRules), modelRules);
+		removeRules(SHUTDOWN, Collections.singletonList(systemShutdownTriggeredRules), modelRules);		
+		removeRules(TIMER, Collections.singletonList(timerEventTriggeredRules), modelRules);		
+		rebuildBuckets();
 	}
 
-	private void removeRules(TriggerTypes type, Collection<? extends Collection<Rule>> ruleSets, RuleModel model) {
+	private void removeRules(TriggerTypes type, Collection<? extends Collection<Rule>> ruleSets, Set<Rule> modelRules) {
 		for(Collection<Rule> ruleSet : ruleSets) {
-			// first remove all rules of the model, if not null (=non-existent)
-			if(model!=null) {
-				for(Rule rule : model.getRules()) {
-					ruleSet.remove(rule);
+			// remove all rules of the model and all proxified rules in a single pass over the set
+			for(Iterator<Rule> it = ruleSet.iterator(); it.hasNext();) {
+				Rule rule = it.next();
+				if(modelRules.contains(rule)) {
+					it.remove();
+				} else if(rule.eIsProxy()) {
+					it.remove();
 					if(type==TIMER) {
 						removeTimerRule(rule);
 					}
 				}
 			}
-
-			// now also remove all proxified rules from the set
-			Set<Rule> clonedSet = new HashSet<Rule>(ruleSet);
-			for(Rule rule : clonedSet) {
-				if(rule.eIsProxy()) {
-					ruleSet.remove(rule);
-					if(type==TIMER) {
-						removeTimerRule(rule);
-					}
-				}
+		}
+		if(type==TIMER) {
+			// the timers are looked up by rule name, so they are removed even if the rule is not in the set
+			for(Rule rule : modelRules) {
+				removeTimerRule(rule);
 			}
 		}
 	}
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.rule.internal.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.openhab.core.items.Item;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.openhab.core.types.Type;
+import org.openhab.core.types.TypeParser;
+import org.openhab.model.rule.internal.engine.RuleTriggerManager.TriggerTypes;
+import org.openhab.model.rule.rules.Rule;
+
+/**
+ * Holds the compiled triggers of a single trigger type for a single item.
+ *
+ * <p>Triggers without any state or command condition are kept in a precomputed list,
+ * which is returned as is if none of the conditional triggers matches. The state and
+ * command strings of conditional triggers are parsed on first use and cached
+ * together with the accepted types of the item they were parsed for, so that they
+ * are only parsed again if the item type changes.</p>
+ *
+ * @since 1.8.0
+ */
+class TriggerBucket {
+
+	/** the rules of all triggers without conditions */
+	private final List<Rule> unconditionalRules;
+
+	/** the triggers with state or command conditions */
+	private final Condition[] conditions;
+
+	private TriggerBucket(List<Rule> unconditionalRules, Condition[] conditions) {
+		this.unconditionalRules = unconditionalRules;
+		this.conditions = conditions;
+	}
+
+	/**
+	 * Returns all rules for which the trigger condition is true for the given item and types.
+	 *
+	 * @param triggerType the trigger type of this bucket
+	 * @param item the item which caused the event
+	 * @param oldType the previous state for {@link TriggerTypes#CHANGE} triggers, <code>null</code> otherwise
+	 * @param newType the new state or the received command
+	 * @return all rules for which the trigger condition is true
+	 */
+	Iterable<Rule> getRules(TriggerTypes triggerType, Item item, Type oldType, Type newType) {
+		List<Rule> result = null;
+		for(Condition condition : conditions) {
+			if(condition.matches(triggerType, item, oldType, newType)) {
+				if(result==null) {
+					result = new ArrayList<Rule>(unconditionalRules.size() + conditions.length);
+					result.addAll(unconditionalRules);
+				}
+				result.add(condition.rule);
+			}
+		}
+		return result!=null ? result : unconditionalRules;
+	}
+
+	/**
+	 * A single trigger with a condition on the (old and/or new) state or the command.
+	 */
+	private static class Condition {
+
+		final Rule rule;
+		final String firstValue;
+		final String secondValue;
+
+		/** the values parsed for the accepted types of the last matched item */
+		private volatile ParsedValues parsedValues;
+
+		Condition(Rule rule, String firstValue, String secondValue) {
+			this.rule = rule;
+			this.firstValue = firstValue;
+			this.secondValue = secondValue;
+		}
+
+		boolean matches(TriggerTypes triggerType, Item item, Type oldType, Type newType) {
+			switch(triggerType) {
+				case UPDATE:
+					return newType.equals(getParsedValues(item.getAcceptedDataTypes(), false).first);
+				case CHANGE: {
+					ParsedValues values = getParsedValues(item.getAcceptedDataTypes(), false);
+					return (firstValue==null || oldType.equals(values.first))
+							&& (secondValue==null || newType.equals(values.second));
+				}
+				case COMMAND: {
+					// a command which cannot be parsed matches any command
+					Type triggerCommand = getParsedValues(item.getAcceptedCommandTypes(), true).first;
+					return triggerCommand==null || newType.equals(triggerCommand);
+				}
+				default:
+					return false;
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private ParsedValues getParsedValues(List<?> types, boolean command) {
+			ParsedValues values = parsedValues;
+			if(values==null || (values.types!=types && !values.types.equals(types))) {
+				Type first;
+				Type second;
+				if(command) {
+					first = TypeParser.parseCommand((List<Class<? extends Command>>) types, firstValue);
+					second = null;
+				} else {
+					first = firstValue!=null ? TypeParser.parseState((List<Class<? extends State>>) types, firstValue) : null;
+					second = secondValue!=null ? TypeParser.parseState((List<Class<? extends State>>) types, secondValue) : null;
+				}
+				values = new ParsedValues(types, first, second);
+				parsedValues = values;
+			}
+			return values;
+		}
+	}
+
+	/**
+	 * The values of a {@link Condition}, parsed for a certain list of accepted types.
+	 */
+	private static class ParsedValues {
+
+		final List<?> types;
+		final Type first;
+		final Type second;
+
+		ParsedValues(List<?> types, Type first, Type second) {
+			this.types = types;
+			this.first = first;
+			this.second = second;
+		}
+	}
+
+	/**
+	 * Collects the triggers for a new {@link TriggerBucket}.
+	 */
+	static class Builder {
+
+		private final List<Rule> unconditionalRules = new ArrayList<Rule>();
+		private final List<Condition> conditions = new ArrayList<Condition>();
+
+		/**
+		 * Adds a trigger of a rule.
+		 *
+		 * @param rule the rule of the trigger
+		 * @param firstValue the state, old state or command of the trigger, may be <code>null</code>
+		 * @param secondValue the new state of a change trigger, may be <code>null</code>
+		 */
+		void add(Rule rule, String firstValue, String secondValue) {
+			if(firstValue==null && secondValue==null) {
+				unconditionalRules.add(rule);
+			} else {
+				conditions.add(new Condition(rule, firstValue, secondValue));
+			}
+		}
+
+		TriggerBucket build() {
+			return new TriggerBucket(Collections.unmodifiableList(new ArrayList<Rule>(unconditionalRules)),
+					conditions.toArray(new Condition[conditions.size()]));
+		}
+	}
+
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.influxdb.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+import org.influxdb.InfluxDB;
+import org.influxdb.dto.Pong;
+import org.influxdb.dto.Serie;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.items.Item;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.PersistenceEntry;
+import org.openhab.core.persistence.PersistentStateRestorer;
+import org.osgi.service.cm.ConfigurationException;
+
+import retrofit.RetrofitError;
+import retrofit.client.Header;
+import retrofit.client.Response;
+
+/**
+ * @since 1.8.0
+ */
+public class InfluxDBPersistenceServiceTest {
+
+  private static final String URL = "http://127.0.0.1:8086";
+
+  private TestService service;
+
+  @Before
+  public void init() throws ConfigurationException {
+    service = new TestService();
+    service.setPersistentStateRestorer(new PersistentStateRestorer() {
+      public void initializeItems(String modelName) {
+      }
+    });
+  }
+
+  @Test
+  public void testNetworkFailuresAreRetried() throws ConfigurationException {
+    configure(10);
+    service.failure = RetrofitError.networkError(URL, new IOException("Connection refused"));
+    service.store(entries(1));
+    assertEquals(1, service.getPendingPoints());
+
+    service.failure = null;
+    service.store(entries(2));
+    assertEquals("[1, 2]", service.written.toString());
+    assertEquals(0, service.getPendingPoints());
+  }
+
+  @Test
+  public void testRejectedPointsAreNotRetried() throws ConfigurationException {
+    configure(10);
+    service.failure = RetrofitError.httpError(URL,
+        new Response(URL, 400, "Bad Request", Collections.<Header>emptyList(), null), null, null);
+    service.store(entries(1));
+    assertEquals(0, service.getPendingPoints());
+
+    service.failure = null;
+    service.store(entries(2));
+    assertEquals("[2]", service.written.toString());
+  }
+
+  @Test
+  public void testOldestPointsAreDroppedWhenBufferIsFull() throws ConfigurationException {
+    configure(3);
+    service.failure = RetrofitError.networkError(URL, new IOException("Connection refused"));
+    service.store(entries(1, 2));
+    service.store(entries(3, 4, 5));
+    assertEquals(3, service.getPendingPoints());
+
+    service.failure = null;
+    service.store(entries());
+    assertEquals("[3, 4, 5]", service.written.toString());
+  }
+
+  @Test
+  public void testPointsAreBufferedUntilConfigured() throws ConfigurationException {
+    service.store(entries(1));
+    assertEquals(1, service.getPendingPoints());
+
+    configure(10);
+    service.store(entries(2));
+    assertEquals("[1, 2]", service.written.toString());
+  }
+
+  @Test
+  public void testPagesDoNotOverlap() throws ConfigurationException {
+    configure(10);
+    service.rows = new int[] { 1, 2, 3, 4 };
+
+    // InfluxDB returns the rows up to the end of the requested page
+    FilterCriteria filter = new FilterCriteria().setItemName("Temperature").setPageSize(2).setPageNumber(1);
+    List<String> values = new ArrayList<String>();
+    for (HistoricItem historicItem : service.query(filter)) {
+      values.add(historicItem.getState().toString());
+    }
+    assertEquals("[3, 4]", values.toString());
+  }
+
+  private void configure(int retryBufferSize) throws ConfigurationException {
+    Hashtable<String, Object> config = new Hashtable<String, Object>();
+    config.put("password", "secret");
+    config.put("retrybuffer", String.valueOf(retryBufferSize));
+    service.updated(config);
+  }
+
+  private static List<PersistenceEntry> entries(int... values) {
+    Item item = new NumberItem("Temperature");
+    List<PersistenceEntry> entries = new ArrayList<PersistenceEntry>();
+    for (int value : values) {
+      entries.add(new PersistenceEntry(item, null, new DecimalType(value), new Date(value * 1000L)));
+    }
+    return entries;
+  }
+
+  /**
+   * Writes and queries an InfluxDB stub, which fails with a configurable exception.
+   */
+  static class TestService extends InfluxDBPersistenceService {
+
+    final List<Object> written = new ArrayList<Object>();
+    RuntimeException failure;
+    int[] rows = new int[0];
+
+    @Override
+    InfluxDB createClient() {
+      return (InfluxDB) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { InfluxDB.class },
+          new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+              if (method.getName().equals("ping")) {
+                Pong pong = new Pong();
+                pong.setStatus("ok");
+                return pong;
+              } else if (method.getName().equals("write")) {
+                return write((Serie[]) args[2]);
+              } else if (method.getName().equals("query")) {
+                return query((String) args[1]);
+              }
+              throw new UnsupportedOperationException(method.getName());
+            }
+          });
+    }
+
+    private Object write(Serie[] series) {
+      if (failure != null) {
+        throw failure;
+      }
+      for (Serie serie : series) {
+        for (Map<String, Object> row : serie.getRows()) {
+          written.add(row.get("value"));
+        }
+      }
+      return null;
+    }
+
+    private List<Serie> query(String query) {
+      Serie.Builder builder = new Serie.Builder("Temperature").columns("time", "value");
+      for (int row : rows) {
+        builder.values((double) row * 1000, row);
+      }
+      return Collections.singletonList(builder.build());
+    }
+  }
+
+}
@@ -9,11 +9,15 @@
 package org.openhab.persistence.influxdb.internal;
 
 import java.math.BigDecimal;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
 import java.util.Dictionary;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -40,12 +44,17 @@ import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.OpenClosedType;
 import org.openhab.core.library.types.PercentType;
 import org.openhab.core.library.types.StringType;
+import org.openhab.core.library.types.UpDownType;
+import org.openhab.core.persistence.AggregatingPersistenceService;
+import org.openhab.core.persistence.BatchPersistenceService;
 import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Aggregation;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricAggregator.AggregatedItem;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.PersistenceEntry;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.PersistentStateRestorer;
-import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
 import org.osgi.service.cm.ConfigurationException;
@@ -65,30 +74,46 @@ import retrofit.RetrofitError;
  * The defaults for the database name, the database user and the database url are "openhab",
  * "openhab" and "http://127.0.0.1:8086".
  * 
+ * Aggregations of numeric items are computed by InfluxDB, as long as
+ * the bucket size is a multiple of a second.
+ * 
+ * Queued states are written in batches, with one series per item and one request per batch.
+ * The points of writes which fail because the database is not reachable, and the points which
+ * are stored while the service is not yet configured or connected, are kept for the next batch,
+ * up to a limit of <code>retrybuffer</code> points; if there are more, the oldest points are
+ * dropped. Points of writes which are rejected by the database are dropped right away.
+ * 
  * @author Theo Weiss - Initial Contribution
  * @author Ben Jones - Upgraded influxdb-java version
  * @author Dan Byers - Allow more item types to be handled
  * @since 1.5.0
  */
-public class InfluxDBPersistenceService implements QueryablePersistenceService, ManagedService {
+public class InfluxDBPersistenceService implements AggregatingPersistenceService,
+    BatchPersistenceService, ManagedService {
 
   private static final String DEFAULT_URL = "http://127.0.0.1:8086";
   private static final String DEFAULT_DB = "openhab";
   private static final String DEFAULT_USER = "openhab";
+  private static final int DEFAULT_RETRY_BUFFER_SIZE = 10000;
   private static final String OK_STATUS = "ok";
   private static final String DIGITAL_VALUE_OFF = "0";
   private static final String DIGITAL_VALUE_ON = "1";
   private static final String VALUE_COLUMN_NAME = "value";
+  private static final String ENTRY_COLUMNS = VALUE_COLUMN_NAME + ", time";
   private ItemRegistry itemRegistry;
   private InfluxDB influxDB;
   private static final Logger logger = LoggerFactory.getLogger(InfluxDBPersistenceService.class);
-  private static final Object TIME_COLUMN_NAME = "time";
+  private static final String TIME_COLUMN_NAME = "time";
   private String dbName;
   private String url;
   private String user;
   private String password;
   private boolean isProperlyConfigured;
   private boolean connected;
+  private int retryBufferSize = DEFAULT_RETRY_BUFFER_SIZE;
+
+  /** the points which have not been written yet, oldest first, guarded by themselves */
+  private final Deque<PersistenceEntry> retryBuffer = new ArrayDeque<PersistenceEntry>();
   
   private PersistentStateRestorer persistentStateRestorer;
 
@@ -121,11 +146,18 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService,
     if (influxDB == null) {
       // reuse an existing InfluxDB object because it has no state concerning the database
       // connection
-      influxDB = InfluxDBFactory.connect(url, user, password);
+      influxDB = createClient();
     }
     connected = true;
   }
 
+  /**
+   * Creates the client for the configured database.
+   */
+  InfluxDB createClient() {
+    return InfluxDBFactory.connect(url, user, password);
+  }
+
   private boolean checkConnection() {
     boolean dbStatus = false;
     if (! connected) {
@@ -175,51 +207,146 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService,
    */
   @Override
   public void store(Item item, String alias) {
-    if (item.getState() instanceof UnDefType) {
-      return;
+    store(Collections.singletonList(new PersistenceEntry(item, alias, item.getState(), new Date())));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void store(Collection<PersistenceEntry> entries) {
+    List<PersistenceEntry> newPoints = new ArrayList<PersistenceEntry>(entries.size());
+    for (PersistenceEntry entry : entries) {
+      if (!(entry.getState() instanceof UnDefType)) {
+        newPoints.add(entry);
+      }
     }
 
     if (!isProperlyConfigured) {
       logger.warn("Configuration for influxdb not yet loaded or broken.");
+      buffer(newPoints, false);
       return;
     }
 
     if (!isConnected()) {
       logger.warn("InfluxDB is not yet connected");
+      buffer(newPoints, false);
       return;
     }
 
-    String realName = item.getName();
-    String name = (alias != null) ? alias : realName;
-    
-    State state = null;
-    if (item instanceof DimmerItem || item instanceof RollershutterItem) {
-      state = item.getStateAs(PercentType.class);
-    } else if (item instanceof ColorItem) {
-      state = item.getStateAs(HSBType.class);
-    } else {
-        // All other items should return the best format by default
-        state = item.getState();
+    List<PersistenceEntry> points;
+    synchronized (retryBuffer) {
+      points = new ArrayList<PersistenceEntry>(retryBuffer.size() + newPoints.size());
+      points.addAll(retryBuffer);
+      retryBuffer.clear();
+    }
+    points.addAll(newPoints);
+    if (points.isEmpty()) {
+      return;
     }
-    Object value = stateToObject(state);
-    logger.trace("storing {} in influxdb {}", name, value);
 
-    // For now time is calculated by influxdb, may be this should be configurable?
-    Serie serie = new Serie.Builder(name)
-      .columns(VALUE_COLUMN_NAME)
-      .values(value)
-      .build();
-    // serie.setColumns(new String[] {"time", VALUE_COLUMN_NAME});
-    // Object[] point = new Object[] {System.currentTimeMillis(), value};
+    // one series per name with one row per point
+    Map<String, Serie.Builder> builders = new LinkedHashMap<String, Serie.Builder>();
+    for (PersistenceEntry entry : points) {
+      String name = entry.getName();
+      Object value = stateToObject(convertState(entry.getItem(), entry.getState()));
+      logger.trace("storing {} in influxdb {}", name, value);
+
+      Serie.Builder builder = builders.get(name);
+      if (builder == null) {
+        builder = new Serie.Builder(name).columns(TIME_COLUMN_NAME, VALUE_COLUMN_NAME);
+        builders.put(name, builder);
+      }
+      builder.values(entry.getTimestamp().getTime(), value);
+    }
+    Serie[] series = new Serie[builders.size()];
+    int i = 0;
+    for (Serie.Builder builder : builders.values()) {
+      series[i++] = builder.build();
+    }
 
     try {
-      influxDB.write(dbName, TimeUnit.MILLISECONDS, serie);
+      influxDB.write(dbName, TimeUnit.MILLISECONDS, series);
+      logger.debug("stored {} points of {} series", points.size(), series.length);
     } catch (RuntimeException e) {
-      logger.error("storing failed with exception for item: {}", name);
       handleDatabaseException(e);
+      if (e instanceof RetrofitError && ((RetrofitError) e).isNetworkError()) {
+        logger.error("storing failed with exception for {} points, retrying with the next write",
+            points.size());
+        // points added by concurrent writes are newer
+        buffer(points, true);
+      } else {
+        // the database has answered with an error, which won't go away by sending the points again
+        logger.error("storing was rejected by the database, dropped {} points", points.size());
+      }
     }
   }
 
+  /**
+   * Returns the number of points which wait to be written, because the database was not
+   * reachable or the service was not yet configured or connected when they were stored.
+   * 
+   * @return the number of pending points
+   */
+  public int getPendingPoints() {
+    synchronized (retryBuffer) {
+      return retryBuffer.size();
+    }
+  }
+
+  /**
+   * Keeps points which have not been written for the next write, dropping the oldest points if
+   * there are more than <code>retryBufferSize</code>.
+   * 
+   * @param points the points which have not been written, oldest first
+   * @param older <code>true</code> if the points are older than the buffered points
+   */
+  private void buffer(List<PersistenceEntry> points, boolean older) {
+    if (points.isEmpty()) {
+      return;
+    }
+    int dropped = 0;
+    int pending;
+    synchronized (retryBuffer) {
+      if (older) {
+        for (int i = points.size() - 1; i >= 0; i--) {
+          retryBuffer.addFirst(points.get(i));
+        }
+      } else {
+        retryBuffer.addAll(points);
+      }
+      while (retryBuffer.size() > retryBufferSize) {
+        retryBuffer.removeFirst();
+        dropped++;
+      }
+      pending = retryBuffer.size();
+    }
+    if (dropped > 0) {
+      logger.warn("retry buffer is full, dropped {} points", dropped);
+    }
+    logger.debug("{} points wait to be written", pending);
+  }
+
+  /**
+   * Converts the state of an item into the type which is stored for the item.
+   * 
+   * @param item the item
+   * @param state the state of the item
+   * @return the state to store
+   */
+  private State convertState(Item item, State state) {
+    // eg. DimmerItem can have the state ON or OFF, which are stored as 100 or 0
+    if (item instanceof DimmerItem || item instanceof RollershutterItem) {
+      if (state == OnOffType.ON || state == UpDownType.DOWN) {
+        return PercentType.HUNDRED;
+      } else if (state == OnOffType.OFF || state == UpDownType.UP) {
+        return PercentType.ZERO;
+      }
+    }
+    // All other items should return the best format by default
+    return state;
+  }
+
   private void handleDatabaseException(Exception e) {
     if (e instanceof RetrofitError) {
       // e.g. raised if influxdb is not running
@@ -266,6 +393,18 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService,
       logger.debug("using default db name {}", DEFAULT_DB);
     }
 
+    String retryBufferString = (String) config.get("retrybuffer");
+    if (StringUtils.isBlank(retryBufferString)) {
+      retryBufferSize = DEFAULT_RETRY_BUFFER_SIZE;
+    } else {
+      try {
+        retryBufferSize = Integer.parseInt(retryBufferString.trim());
+      } catch (NumberFormatException e) {
+        throw new ConfigurationException("influxdb:retrybuffer",
+            "The retry buffer size must be a number.");
+      }
+    }
+
     isProperlyConfigured = true;
 
     connect();
@@ -291,22 +430,12 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService,
       return Collections.emptyList();
     }
 
-    List<HistoricItem> historicItems = new ArrayList<HistoricItem>();
-
-    StringBuffer query = new StringBuffer();
-    query.append("select ");
-    query.append(VALUE_COLUMN_NAME);
-    query.append(", ");
-    query.append(TIME_COLUMN_NAME);
-    query.append(" ");
-    query.append("from ");
-
-    if (filter.getItemName() != null) {
-      query.append(filter.getItemName());
-    } else {
-      query.append("/.*/");
+    if (filter.getAggregation() != null) {
+      return queryAggregated(filter);
     }
 
+    List<HistoricItem> historicItems = new ArrayList<HistoricItem>();
+
     logger.trace("filter itemname: {}", filter.getItemName());
     logger.trace("filter ordering: {}", filter.getOrdering().toString());
     logger.trace("filter state: {}", filter.getState());
@@ -316,6 +445,186 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService,
     logger.trace("filter getPageSize: {}", filter.getPageSize());
     logger.trace("filter getPageNumber: {}", filter.getPageNumber());
 
+    int limit = (filter.getPageNumber() + 1) * filter.getPageSize();
+    logger.trace("appending limit {}", limit);
+    String query = buildQuery(ENTRY_COLUMNS, filter, 0, filter.getOrdering() == Ordering.ASCENDING,
+        limit);
+
+    int totalEntriesAffected = ((filter.getPageNumber() + 1) * filter.getPageSize());
+    int startEntryNum = totalEntriesAffected - (totalEntriesAffected - (filter.getPageSize() * filter.getPageNumber()));
+    logger.trace("startEntryNum {}", startEntryNum);
+    
+    logger.debug("query string: {}", query);
+    List<Serie> results = Collections.emptyList();
+    try {
+      results = influxDB.query(dbName, query, TimeUnit.MILLISECONDS);
+    } catch (RuntimeException e) {
+      logger.error("query failed with database error");
+      handleDatabaseException(e);
+    }
+    for (Serie result : results) {
+      String historicItemName = result.getName();
+      logger.trace("item name {}", historicItemName);
+      int entryCount = 0;
+      for (Map<String, Object> row : result.getRows()) {
+        entryCount++;
+        // the rows of the previous pages are the first startEntryNum rows, so the first row of
+        // the requested page is row startEntryNum + 1
+        if (entryCount > startEntryNum) {
+          Double rawTime = (Double) row.get(TIME_COLUMN_NAME);
+          Object rawValue = row.get(VALUE_COLUMN_NAME);
+          logger.trace("adding historic item {}: time {} value {}", historicItemName, rawTime,
+              rawValue);
+          Date time = new Date(rawTime.longValue());
+          State value = objectToState(rawValue, historicItemName);
+          historicItems.add(new InfluxdbItem(historicItemName, value, time));
+        } else {
+          logger.trace("omitting item value for {}", historicItemName);
+        }
+      }
+    }
+
+    return historicItems;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public boolean supportsAggregation(FilterCriteria filter) {
+    Aggregation aggregation = filter.getAggregation();
+    if (filter.getItemName() == null) {
+      return false;
+    }
+    if (filter.getBucketSize() > 0) {
+      // buckets are only supported as 'group by time(<seconds>s)'
+      if (filter.getBucketSize() % 1000 != 0) {
+        return false;
+      }
+    } else if (aggregation == Aggregation.MIN || aggregation == Aggregation.MAX) {
+      // the functions do not return the time of the selected value
+      return false;
+    } else if (aggregation != Aggregation.FIRST && aggregation != Aggregation.LAST
+        && filter.getBeginDate() == null) {
+      // the time of the value is the time of the first entry, which is not returned
+      return false;
+    }
+    if (itemRegistry != null) {
+      try {
+        Item item = itemRegistry.getItem(filter.getItemName());
+        return item instanceof NumberItem || item instanceof DimmerItem
+            || item instanceof RollershutterItem;
+      } catch (ItemNotFoundException e) {
+        logger.warn("Could not find item '{}' in registry", filter.getItemName());
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Lets InfluxDB aggregate the values of a numeric item.
+   * 
+   * @param filter the filter with an aggregation
+   * @return the aggregated values
+   */
+  private Iterable<HistoricItem> queryAggregated(FilterCriteria filter) {
+    Aggregation aggregation = filter.getAggregation();
+    long bucketSize = filter.getBucketSize();
+    boolean selectEntry = bucketSize <= 0
+        && (aggregation == Aggregation.FIRST || aggregation == Aggregation.LAST);
+
+    String query;
+    if (selectEntry) {
+      query = buildQuery(ENTRY_COLUMNS, filter, 0, aggregation == Aggregation.FIRST, 1);
+    } else {
+      String function = aggregation == Aggregation.AVG ? "mean" : aggregation.name().toLowerCase();
+      // only fetch the buckets up to the requested page
+      long limit = (long) (filter.getPageNumber() + 1) * filter.getPageSize();
+      query = buildQuery(function + "(" + VALUE_COLUMN_NAME + ")", filter, bucketSize,
+          bucketSize > 0 && filter.getOrdering() == Ordering.ASCENDING,
+          bucketSize > 0 && limit < Integer.MAX_VALUE ? (int) limit : 0);
+    }
+
+    logger.debug("query string: {}", query);
+    List<Serie> results = Collections.emptyList();
+    try {
+      results = influxDB.query(dbName, query, TimeUnit.MILLISECONDS);
+    } catch (RuntimeException e) {
+      logger.error("query failed with database error");
+      handleDatabaseException(e);
+    }
+
+    List<HistoricItem> historicItems = new ArrayList<HistoricItem>();
+    for (Serie result : results) {
+      for (Map<String, Object> row : result.getRows()) {
+        Object rawValue = null;
+        for (Map.Entry<String, Object> column : row.entrySet()) {
+          if (!TIME_COLUMN_NAME.equals(column.getKey()) && !"sequence_number".equals(column.getKey())) {
+            rawValue = column.getValue();
+          }
+        }
+        if (rawValue == null || (aggregation == Aggregation.COUNT
+            && new BigDecimal(String.valueOf(rawValue)).signum() == 0)) {
+          continue;
+        }
+        Date time;
+        if (bucketSize > 0 || selectEntry) {
+          time = new Date(((Double) row.get(TIME_COLUMN_NAME)).longValue());
+        } else {
+          time = filter.getBeginDate();
+        }
+        historicItems.add(new AggregatedItem(filter.getItemName(),
+            new DecimalType(String.valueOf(rawValue)), time));
+      }
+    }
+
+    // there is no offset in the query language
+    long from = (long) filter.getPageNumber() * filter.getPageSize();
+    if (from >= historicItems.size()) {
+      return Collections.emptyList();
+    }
+    return historicItems.subList((int) from,
+        (int) Math.min(historicItems.size(), from + filter.getPageSize()));
+  }
+
+  /**
+   * Builds a select query over the whole time range of a filter.
+   * 
+   * @param columns the selected columns or aggregate function
+   * @param filter the filter with the item name and the time range
+   * @param bucketSize the size of the groups in milliseconds, or 0 to select single values
+   * @param ascending true to return the oldest values first
+   * @param limit the maximum number of values, or 0 for no limit
+   * @return the query string
+   */
+  private String buildQuery(String columns, FilterCriteria filter, long bucketSize,
+      boolean ascending, int limit) {
+    StringBuilder query = new StringBuilder("select ");
+    query.append(columns);
+    query.append(" from ");
+    if (filter.getItemName() != null) {
+      query.append(filter.getItemName());
+    } else {
+      query.append("/.*/");
+    }
+    appendWhereClause(query, filter);
+    if (bucketSize > 0) {
+      query.append(" group by time(");
+      query.append(bucketSize / 1000);
+      query.append("s)");
+    }
+    // InfluxDB returns results in DESCENDING order by default
+    // http://influxdb.com/docs/v0.7/api/query_language.html#select-and-time-ranges
+    if (ascending) {
+      query.append(" order asc");
+    }
+    if (limit > 0) {
+      query.append(" limit ");
+      query.append(limit);
+    }
+    return query.toString();
+  }
+
+  private void appendWhereClause(StringBuilder query, FilterCriteria filter) {
     if ((filter.getState() != null && filter.getOperator() != null)
         || filter.getBeginDate() != null || filter.getEndDate() != null) {
       query.append(" where ");
@@ -357,50 +666,6 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService,
       }
 
     }
-
-    // InfluxDB returns results in DESCENDING order by default
-    // http://influxdb.com/docs/v0.7/api/query_language.html#select-and-time-ranges
-    if (filter.getOrdering() == Ordering.ASCENDING) {
-      query.append(" order asc");
-    }
-
-    int limit = (filter.getPageNumber() + 1) * filter.getPageSize();
-    query.append(" limit " + limit);
-    logger.trace("appending limit {}", limit);
-
-    int totalEntriesAffected = ((filter.getPageNumber() + 1) * filter.getPageSize());
-    int startEntryNum = totalEntriesAffected - (totalEntriesAffected - (filter.getPageSize() * filter.getPageNumber()));
-    logger.trace("startEntryNum {}", startEntryNum);
-    
-    logger.debug("query string: {}", query.toString());
-    List<Serie> results = Collections.emptyList();
-    try {
-      results = influxDB.query(dbName, query.toString(), TimeUnit.MILLISECONDS);
-    } catch (RuntimeException e) {
-      logger.error("query failed with database error");
-      handleDatabaseException(e);
-    }
-    for (Serie result : results) {
-      String historicItemName = result.getName();
-      logger.trace("item name {}", historicItemName);
-      int entryCount = 0;
-      for (Map<String, Object> row : result.getRows()) {
-        entryCount++;
-        if (entryCount >= startEntryNum) {
-          Double rawTime = (Double) row.get(TIME_COLUMN_NAME);
-          Object rawValue = row.get(VALUE_COLUMN_NAME);
-          logger.trace("adding historic item {}: time {} value {}", historicItemName, rawTime,
-              rawValue);
-          Date time = new Date(rawTime.longValue());
-          State value = objectToState(rawValue, historicItemName);
-          historicItems.add(new InfluxdbItem(historicItemName, value, time));
-        } else {
-          logger.trace("omitting item value for {}", historicItemName);
-        }
-      }
-    }
-
-    return historicItems;
   }
 
   private String getTimeFilter(Date time) {
@@ -0,0 +1,204 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.jpa.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.items.Item;
+import org.openhab.core.items.ItemNotFoundException;
+import org.openhab.core.items.ItemRegistry;
+import org.openhab.core.items.ItemRegistryChangeListener;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Aggregation;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.PersistenceEntry;
+
+/**
+ * Runs the queries of the {@link JpaPersistenceService} against an embedded
+ * in-memory Derby database, using the <code>default_test</code> persistence
+ * unit, whose schema is dropped and recreated for every test.
+ *
+ * @since 1.8.0
+ */
+public class JpaPersistenceServiceTest {
+
+	/** the begin date of open time ranges */
+	private static final long MIN_TIME = 0L;
+
+	/** the end date of open time ranges, 9999-12-31 */
+	private static final long MAX_TIME = 253402214400000L;
+
+	private JpaPersistenceService service;
+
+	private final NumberItem temperature = new NumberItem("Temperature");
+	private final NumberItem humidity = new NumberItem("Humidity");
+
+	@Before
+	public void init() {
+		JpaConfiguration.dbConnectionUrl = "jdbc:derby:memory:openhab;create=true";
+		JpaConfiguration.dbDriverClass = "org.apache.derby.jdbc.EmbeddedDriver";
+		JpaConfiguration.dbUserName = "APP";
+		JpaConfiguration.dbPassword = "APP";
+		JpaConfiguration.isInitialized = true;
+
+		service = new JpaPersistenceService() {
+			@Override
+			protected String getPersistenceUnitName() {
+				return "default_test";
+			}
+		};
+		service.setItemRegistry(new StubItemRegistry(temperature, humidity));
+	}
+
+	@After
+	public void close() {
+		service.deactivate();
+		JpaConfiguration.isInitialized = false;
+	}
+
+	@Test
+	public void testCountOfOpenRange() {
+		store(temperature, 20, 1000);
+		store(temperature, 21, 2000);
+		store(temperature, 22, 3000);
+		store(humidity, 40, 1500);
+
+		HistoricItem count = single(service.query(count("Temperature")));
+
+		assertEquals(3, ((DecimalType) count.getState()).intValue());
+		// without a begin date the oldest entry is the timestamp of the count
+		assertEquals(1000, count.getTimestamp().getTime());
+	}
+
+	@Test
+	public void testCountWithinRange() {
+		store(temperature, 20, 1000);
+		store(temperature, 21, 2000);
+		store(temperature, 22, 3000);
+		store(temperature, 23, 4000);
+
+		FilterCriteria filter = count("Temperature").setBeginDate(new Date(2000)).setEndDate(new Date(3000));
+		HistoricItem count = single(service.query(filter));
+
+		// both ends of the range are included
+		assertEquals(2, ((DecimalType) count.getState()).intValue());
+		assertEquals(2000, count.getTimestamp().getTime());
+	}
+
+	@Test
+	public void testCountIncludesBoundaryDates() {
+		store(temperature, 20, MIN_TIME);
+		store(temperature, 21, 1000);
+		store(temperature, 22, MAX_TIME);
+
+		HistoricItem count = single(service.query(count("Temperature")));
+
+		assertEquals(3, ((DecimalType) count.getState()).intValue());
+		assertEquals(MIN_TIME, count.getTimestamp().getTime());
+	}
+
+	@Test
+	public void testQueryIncludesBoundaryDates() {
+		store(temperature, 22, MAX_TIME);
+		store(temperature, 20, MIN_TIME);
+
+		FilterCriteria filter = new FilterCriteria().setItemName("Temperature").setOrdering(Ordering.ASCENDING);
+		Iterator<HistoricItem> result = service.query(filter).iterator();
+
+		assertEquals(MIN_TIME, result.next().getTimestamp().getTime());
+		assertEquals(MAX_TIME, result.next().getTimestamp().getTime());
+		assertFalse(result.hasNext());
+	}
+
+	@Test
+	public void testCountWithoutEntries() {
+		store(humidity, 40, 1000);
+
+		assertFalse(service.query(count("Temperature")).iterator().hasNext());
+		FilterCriteria filter = count("Humidity").setBeginDate(new Date(2000));
+		assertFalse(service.query(filter).iterator().hasNext());
+	}
+
+	private void store(Item item, int value, long time) {
+		service.store(Collections.singletonList(new PersistenceEntry(item, null, new DecimalType(value), new Date(
+				time))));
+	}
+
+	private static FilterCriteria count(String itemName) {
+		return new FilterCriteria().setItemName(itemName).setAggregation(Aggregation.COUNT);
+	}
+
+	private static HistoricItem single(Iterable<HistoricItem> result) {
+		Iterator<HistoricItem> iterator = result.iterator();
+		assertTrue(iterator.hasNext());
+		HistoricItem item = iterator.next();
+		assertFalse(iterator.hasNext());
+		return item;
+	}
+
+	/**
+	 * A registry which only knows the given items.
+	 */
+	private static class StubItemRegistry implements ItemRegistry {
+
+		private final List<Item> items = new ArrayList<Item>();
+
+		StubItemRegistry(Item... items) {
+			Collections.addAll(this.items, items);
+		}
+
+		public Item getItem(String name) throws ItemNotFoundException {
+			for (Item item : items) {
+				if (item.getName().equals(name)) {
+					return item;
+				}
+			}
+			throw new ItemNotFoundException(name);
+		}
+
+		public Item getItemByPattern(String name) throws ItemNotFoundException {
+			return getItem(name);
+		}
+
+		public Collection<Item> getItems() {
+			return items;
+		}
+
+		public Collection<Item> getItems(String pattern) {
+			return items;
+		}
+
+		public boolean isValidItemName(String itemName) {
+			return true;
+		}
+
+		public void addItemRegistryChangeListener(ItemRegistryChangeListener listener) {
+		}
+
+		public void removeItemRegistryChangeListener(ItemRegistryChangeListener listener) {
+		}
+
+	}
+
+}
@@ -8,6 +8,8 @@
  */
 package org.openhab.persistence.jpa.internal;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -22,9 +24,20 @@ import javax.persistence.Query;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
 import org.openhab.core.items.ItemRegistry;
+import org.openhab.core.library.items.DimmerItem;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.items.RollershutterItem;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.AggregatingPersistenceService;
+import org.openhab.core.persistence.BatchPersistenceService;
 import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Aggregation;
+import org.openhab.core.persistence.HistoricAggregator.AggregatedItem;
+import org.openhab.core.persistence.HistoricCursor;
+import org.openhab.core.persistence.HistoricCursors;
 import org.openhab.core.persistence.HistoricItem;
-import org.openhab.core.persistence.QueryablePersistenceService;
+import org.openhab.core.persistence.PersistenceEntry;
+import org.openhab.core.persistence.StreamingPersistenceService;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.types.UnDefType;
 import org.openhab.persistence.jpa.internal.model.JpaPersistentItem;
@@ -34,12 +47,33 @@ import org.slf4j.LoggerFactory;
  /** 
 	 JPA based implementation of QueryablePersistenceService.
 	 
+	 As the values are stored as strings, only the count and the first or last
+	 value of numeric items are aggregated by the database.
+	 
+	 Cursors load the result in pages of CURSOR_PAGE_SIZE entries, each within
+	 its own EntityManager.
+	 
+	 Queued states are persisted in batches, each within a single transaction.
+	 Queries use the named queries of JpaPersistentItem, with open time ranges
+	 replaced by MIN_DATE and MAX_DATE, so that the provider can reuse the
+	 compiled queries.
+	 
  * @author Manfred Bergmann
  * @since 1.6.0
  */
-public class JpaPersistenceService implements QueryablePersistenceService {
+public class JpaPersistenceService implements AggregatingPersistenceService, StreamingPersistenceService,
+		BatchPersistenceService {
 	private static final Logger logger = LoggerFactory.getLogger(JpaPersistenceService.class);
 
+	/** the number of entries which are loaded at once by a cursor */
+	private static final int CURSOR_PAGE_SIZE = 1000;
+
+	/** the begin date of queries without a begin date */
+	private static final Date MIN_DATE = new Date(0L);
+
+	/** the end date of queries without an end date (9999-12-31, the maximum of most databases) */
+	private static final Date MAX_DATE = new Date(253402214400000L);
+
 	protected ItemRegistry itemRegistry;
 	
 	private EntityManagerFactory emf = null;
@@ -89,49 +123,59 @@ public class JpaPersistenceService implements QueryablePersistenceService {
 
 	@Override
 	public void store(Item item, String alias) {
-		logger.debug("Storing item: " + item.getName());
-		
-		if (item.getState() instanceof UnDefType) {
-			logger.debug("This item is of undefined type. Cannot perist it!");
-			return;
-		}
-		
+		store(Collections.singletonList(new PersistenceEntry(item, alias, item.getState(), new Date())));
+	}
+
+	@Override
+	public void store(Collection<PersistenceEntry> entries) {
 		if(!JpaConfiguration.isInitialized) {
 			logger.warn("Trying to create EntityManagerFactory but we don't have configuration yet!");
 			return;
 		}
 		
-		// determine item name to be stored
-		String name = (alias != null) ? alias : item.getName();
-		
-		JpaPersistentItem pItem = new JpaPersistentItem();
-		try {
-			pItem.setValue(StateHelper.toString(item.getState()));
-		} catch (Exception e1) {
-			logger.error("Error on converting state value to string: {}", e1.getMessage());
+		List<JpaPersistentItem> pItems = new ArrayList<JpaPersistentItem>(entries.size());
+		for(PersistenceEntry entry : entries) {
+			logger.debug("Storing item: " + entry.getItem().getName());
+			
+			if (entry.getState() instanceof UnDefType) {
+				logger.debug("This item is of undefined type. Cannot perist it!");
+				continue;
+			}
+			
+			JpaPersistentItem pItem = new JpaPersistentItem();
+			try {
+				pItem.setValue(StateHelper.toString(entry.getState()));
+			} catch (Exception e1) {
+				logger.error("Error on converting state value to string: {}", e1.getMessage());
+				continue;
+			}
+			// the alias is stored as name, if there is one
+			pItem.setName(entry.getName());
+			pItem.setRealName(entry.getItem().getName());
+			pItem.setTimestamp(entry.getTimestamp());
+			pItems.add(pItem);
+		}
+		if(pItems.isEmpty()) {
 			return;
 		}
-		pItem.setName(name);
-		pItem.setRealName(item.getName());
-		pItem.setTimestamp(new Date());
 
 		EntityManager em = getEntityManagerFactory().createEntityManager();
 		try {
-			logger.debug("Persisting item...");
+			logger.debug("Persisting {} items...", pItems.size());
 			// In RESOURCE_LOCAL calls to EntityManager require a begin/commit			
 			em.getTransaction().begin();
-			em.persist(pItem);
+			for(JpaPersistentItem pItem : pItems) {
+				em.persist(pItem);
+			}
 			em.getTransaction().commit();
-			logger.debug("Persisting item...done");
+			logger.debug("Persisting {} items...done", pItems.size());
 		} catch (Exception e) {
-			logger.error("Error on persisting item! Rolling back!");
+			logger.error("Error on persisting items! Rolling back!");
 			logger.error(e.getMessage(), e);
 			em.getTransaction().rollback();
 		} finally {
 			em.close();
 		}
-		
-		logger.debug("Storing item...done");
 	}
 
 	@Override
@@ -146,24 +190,14 @@ public class JpaPersistenceService implements QueryablePersistenceService {
 		String itemName = filter.getItemName();
 		Item item = getItemFromRegistry(itemName);
 		
-		String sortOrder;
-		if(filter.getOrdering() == Ordering.ASCENDING) sortOrder = "ASC";
-		else sortOrder = "DESC";
-
-		boolean hasBeginDate = false;
-		boolean hasEndDate = false;
-		String queryString = "SELECT n FROM " + JpaPersistentItem.class.getSimpleName() + " n WHERE n.realName = :itemName";
-		if(filter.getBeginDate() != null) {
-			queryString += " AND n.timestamp >= :beginDate";
-			hasBeginDate = true;
+		if(filter.getAggregation() != null) {
+			return queryAggregated(filter);
 		}
-		if(filter.getEndDate() != null) {
-			 queryString += " AND n.timestamp <= :endDate";
-			 hasEndDate = true;
-		}
-		queryString += " ORDER BY n.timestamp " + sortOrder;
 		
-		logger.debug("The query: " + queryString);
+		String queryName = filter.getOrdering() == Ordering.ASCENDING 
+			? JpaPersistentItem.QUERY_ASCENDING : JpaPersistentItem.QUERY_DESCENDING;
+		
+		logger.debug("The query: " + queryName);
 
 		EntityManager em = getEntityManagerFactory().createEntityManager();
 		try {
@@ -171,10 +205,8 @@ public class JpaPersistenceService implements QueryablePersistenceService {
 			em.getTransaction().begin();
 			
 			logger.debug("Creating query...");
-			Query query = em.createQuery(queryString);
-			query.setParameter("itemName", item.getName());
-			if(hasBeginDate) query.setParameter("beginDate", filter.getBeginDate());
-			if(hasEndDate) query.setParameter("endDate", filter.getEndDate());
+			Query query = em.createNamedQuery(queryName);
+			setParameters(query, filter);
 			
 			query.setFirstResult(filter.getPageNumber() * filter.getPageSize());
 			query.setMaxResults(filter.getPageSize());
@@ -201,6 +233,105 @@ public class JpaPersistenceService implements QueryablePersistenceService {
 		return Collections.emptyList();			
 	}
 	
+	@Override
+	public HistoricCursor openCursor(FilterCriteria filter) {
+		return HistoricCursors.paged(this, filter, CURSOR_PAGE_SIZE);
+	}
+
+	@Override
+	public boolean supportsAggregation(FilterCriteria filter) {
+		if(filter.getBucketSize() > 0) {
+			return false;
+		}
+		switch(filter.getAggregation()) {
+			case COUNT:
+			case FIRST:
+			case LAST:
+				Item item = getItemFromRegistry(filter.getItemName());
+				return item instanceof NumberItem || item instanceof DimmerItem || item instanceof RollershutterItem;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Counts the entries or selects the first or last entry of a filter without a bucket size.
+	 * @param filter the filter with an aggregation
+	 * @return the aggregated value, if there are any matching entries
+	 */
+	private Iterable<HistoricItem> queryAggregated(FilterCriteria filter) {
+		if(filter.getPageNumber() > 0 || filter.getPageSize() == 0) {
+			// there is only a single value
+			return Collections.emptyList();
+		}
+		
+		boolean count = filter.getAggregation() == Aggregation.COUNT;
+		String queryName;
+		if(count) {
+			queryName = JpaPersistentItem.QUERY_COUNT;
+		} else if(filter.getAggregation() == Aggregation.FIRST) {
+			queryName = JpaPersistentItem.QUERY_ASCENDING;
+		} else {
+			queryName = JpaPersistentItem.QUERY_DESCENDING;
+		}
+		
+		logger.debug("The query: " + queryName);
+
+		EntityManager em = getEntityManagerFactory().createEntityManager();
+		try {
+			em.getTransaction().begin();
+			
+			Query query = em.createNamedQuery(queryName);
+			setParameters(query, filter);
+			
+			HistoricItem historicItem = null;
+			if(count) {
+				Object[] result = (Object[]) query.getSingleResult();
+				long entries = ((Number) result[0]).longValue();
+				if(entries > 0) {
+					Date timestamp = filter.getBeginDate() != null ? filter.getBeginDate() : (Date) result[1];
+					historicItem = new AggregatedItem(filter.getItemName(), new DecimalType(entries), timestamp);
+				}
+			} else {
+				query.setMaxResults(1);
+				@SuppressWarnings("unchecked")
+				List<JpaPersistentItem> result = (List<JpaPersistentItem>) query.getResultList();
+				if(!result.isEmpty()) {
+					JpaPersistentItem entry = result.get(0);
+					// the stored value is the decimal string of the selected state
+					historicItem = new AggregatedItem(filter.getItemName(), 
+						new DecimalType(entry.getValue()), entry.getTimestamp());
+				}
+			}
+			em.getTransaction().commit();
+			
+			if(historicItem == null) {
+				return Collections.emptyList();
+			}
+			return Collections.singletonList(historicItem);
+			
+		} catch (Exception e) {
+			logger.error("Error on querying database!");
+			logger.error(e.getMessage(), e);
+			em.getTransaction().rollback();
+		} finally {
+			em.close();
+		}
+		
+		return Collections.emptyList();
+	}
+	
+	/**
+	 * Sets the parameters of the named queries of JpaPersistentItem.
+	 * @param query the named query
+	 * @param filter the filter to apply
+	 */
+	private void setParameters(Query query, FilterCriteria filter) {
+		query.setParameter("itemName", filter.getItemName());
+		query.setParameter("beginDate", filter.getBeginDate() != null ? filter.getBeginDate() : MIN_DATE);
+		query.setParameter("endDate", filter.getEndDate() != null ? filter.getEndDate() : MAX_DATE);
+	}
+	
 	/**
 	 * Creates a new EntityManagerFactory with properties read from openhab.cfg via JpaConfiguration.
 	 * @return initialized EntityManagerFactory
@@ -16,6 +16,8 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
@@ -33,8 +35,27 @@ import org.openhab.core.types.State;
 
 @Entity
 @Table(name = "HISTORIC_ITEM")
+@NamedQueries({
+	@NamedQuery(name = JpaPersistentItem.QUERY_ASCENDING, query = "SELECT n FROM JpaPersistentItem n"
+		+ " WHERE n.realName = :itemName AND n.timestamp >= :beginDate AND n.timestamp <= :endDate"
+		+ " ORDER BY n.timestamp ASC"),
+	@NamedQuery(name = JpaPersistentItem.QUERY_DESCENDING, query = "SELECT n FROM JpaPersistentItem n"
+		+ " WHERE n.realName = :itemName AND n.timestamp >= :beginDate AND n.timestamp <= :endDate"
+		+ " ORDER BY n.timestamp DESC"),
+	@NamedQuery(name = JpaPersistentItem.QUERY_COUNT, query = "SELECT COUNT(n), MIN(n.timestamp) FROM JpaPersistentItem n"
+		+ " WHERE n.realName = :itemName AND n.timestamp >= :beginDate AND n.timestamp <= :endDate")
+})
 public class JpaPersistentItem implements HistoricItem {
 
+	/** selects the entries of an item within a time range in ascending order */
+	public static final String QUERY_ASCENDING = "JpaPersistentItem.findAscending";
+
+	/** selects the entries of an item within a time range in descending order */
+	public static final String QUERY_DESCENDING = "JpaPersistentItem.findDescending";
+
+	/** counts the entries of an item within a time range and selects the oldest timestamp */
+	public static final String QUERY_COUNT = "JpaPersistentItem.count";
+
 	@Id
 	@GeneratedValue(strategy=GenerationType.AUTO)
 	private Long id;
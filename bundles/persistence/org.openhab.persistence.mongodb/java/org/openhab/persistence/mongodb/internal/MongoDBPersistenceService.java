@@ -8,10 +8,11 @@
  */
 package org.openhab.persistence.mongodb.internal;
 
+import java.math.BigDecimal;
 import java.text.DateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.Date;
 import java.util.Dictionary;
 import java.util.List;
@@ -35,13 +36,18 @@ import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.OpenClosedType;
 import org.openhab.core.library.types.PercentType;
 import org.openhab.core.library.types.StringType;
+import org.openhab.core.persistence.AggregatingPersistenceService;
 import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Aggregation;
 import org.openhab.core.persistence.FilterCriteria.Operator;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricAggregator.AggregatedItem;
+import org.openhab.core.persistence.HistoricCursor;
+import org.openhab.core.persistence.HistoricCursors;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.PersistentStateRestorer;
-import org.openhab.core.persistence.QueryablePersistenceService;
+import org.openhab.core.persistence.StreamingPersistenceService;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
 import org.osgi.service.cm.ConfigurationException;
@@ -59,11 +65,15 @@ import com.mongodb.MongoClientURI;
 /**
  * This is the implementation of the MongoDB {@link PersistenceService}.
  * 
+ * Aggregations of numeric items are computed by the
+ * aggregation framework of MongoDB. Cursors are backed by a MongoDB cursor which
+ * fetches the documents in batches.
+ * 
  * @author Thorsten Hoeger
  * @since 1.5.0
  */
-public class MongoDBPersistenceService implements QueryablePersistenceService,
-		ManagedService {
+public class MongoDBPersistenceService implements AggregatingPersistenceService,
+		StreamingPersistenceService, ManagedService {
 
 	private static final String FIELD_ID = "_id";
 	private static final String FIELD_ITEM = "item";
@@ -71,6 +81,9 @@ public class MongoDBPersistenceService implements QueryablePersistenceService,
 	private static final String FIELD_TIMESTAMP = "timestamp";
 	private static final String FIELD_VALUE = "value";
 
+	/** the number of documents which are fetched at once by a cursor */
+	private static final int CURSOR_BATCH_SIZE = 1000;
+
 	private static final Logger logger = LoggerFactory
 			.getLogger(MongoDBPersistenceService.class);
 
@@ -262,19 +275,104 @@ public class MongoDBPersistenceService implements QueryablePersistenceService,
 
 	@Override
 	public Iterable<HistoricItem> query(FilterCriteria filter) {
+		List<HistoricItem> items = new ArrayList<HistoricItem>();
+		HistoricCursor cursor = openCursor(filter);
+		try {
+			while (cursor.hasNext()) {
+				items.add(cursor.next());
+			}
+		} finally {
+			cursor.close();
+		}
+		return items;
+	}
+
+	/**
+	 * @{inheritDoc}
+	 */
+	public HistoricCursor openCursor(FilterCriteria filter) {
 		if (!initialized)
-			return Collections.emptyList();
+			return HistoricCursors.wrap(null);
 
 		if (!isConnected())
 			connectToDatabase();
 
 		if (!isConnected())
-			return Collections.emptyList();
+			return HistoricCursors.wrap(null);
+
+		if (filter.getAggregation() != null) {
+			return HistoricCursors.wrap(queryAggregated(filter));
+		}
 
-		String name = filter.getItemName();
-		Item item = getItem(name);
+		final String name = filter.getItemName();
+		final Item item = getItem(name);
 
-		List<HistoricItem> items = new ArrayList<HistoricItem>();
+		DBObject query = createQuery(filter);
+
+		Integer sortDir = (filter.getOrdering() == Ordering.ASCENDING) ? 1 : -1;
+		final DBCursor cursor = this.mongoCollection.find(query)
+				.sort(new BasicDBObject(FIELD_TIMESTAMP, sortDir))
+				.skip(filter.getPageNumber() * filter.getPageSize())
+				.limit(filter.getPageSize())
+				.batchSize(CURSOR_BATCH_SIZE);
+
+		return new HistoricCursor() {
+			public boolean hasNext() {
+				return cursor.hasNext();
+			}
+
+			public HistoricItem next() {
+				return toHistoricItem((BasicDBObject) cursor.next(), item, name);
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+			public void close() {
+				cursor.close();
+			}
+		};
+	}
+
+	private HistoricItem toHistoricItem(BasicDBObject obj, Item item, String name) {
+		final State state;
+		if (item instanceof NumberItem) {
+			state = new DecimalType(obj.getDouble(FIELD_VALUE));
+		} else if (item instanceof DimmerItem) {
+			state = new PercentType(obj.getInt(FIELD_VALUE));
+		} else if (item instanceof SwitchItem) {
+			state = OnOffType.valueOf(obj.getString(FIELD_VALUE));
+		} else if (item instanceof ContactItem) {
+			state = OpenClosedType.valueOf(obj.getString(FIELD_VALUE));
+		} else if (item instanceof RollershutterItem) {
+			state = new PercentType(obj.getInt(FIELD_VALUE));
+		} else if (item instanceof ColorItem) {
+			state = new HSBType(obj.getString(FIELD_VALUE));
+		} else if (item instanceof DateTimeItem) {
+			Calendar cal = Calendar.getInstance();
+			cal.setTime(obj.getDate(FIELD_VALUE));
+			state = new DateTimeType(cal);
+		} else {
+			state = new StringType(obj.getString(FIELD_VALUE));
+		}
+
+		return new MongoDBItem(name, state, obj.getDate(FIELD_TIMESTAMP));
+	}
+
+	/**
+	 * @{inheritDoc}
+	 */
+	public boolean supportsAggregation(FilterCriteria filter) {
+		Item item = getItem(filter.getItemName());
+		return item instanceof NumberItem || item instanceof DimmerItem
+				|| item instanceof RollershutterItem;
+	}
+
+	/**
+	 * Creates the query object which matches the entries of a filter.
+	 */
+	private DBObject createQuery(FilterCriteria filter) {
 		DBObject query = new BasicDBObject();
 		if (filter.getItemName() != null) {
 			query.put(FIELD_ITEM, filter.getItemName());
@@ -284,51 +382,131 @@ public class MongoDBPersistenceService implements QueryablePersistenceService,
 			Object value = convertValue(filter.getState());
 			query.put(FIELD_VALUE, new BasicDBObject(op, value));
 		}
-		if (filter.getBeginDate() != null) {
-			query.put(FIELD_TIMESTAMP,
-					new BasicDBObject("$gte", filter.getBeginDate()));
+		if (filter.getBeginDate() != null || filter.getEndDate() != null) {
+			BasicDBObject range = new BasicDBObject();
+			if (filter.getBeginDate() != null) {
+				range.append("$gte", filter.getBeginDate());
+			}
+			if (filter.getEndDate() != null) {
+				range.append("$lte", filter.getEndDate());
+			}
+			query.put(FIELD_TIMESTAMP, range);
 		}
-		if (filter.getEndDate() != null) {
-			query.put(FIELD_TIMESTAMP,
-					new BasicDBObject("$lte", filter.getEndDate()));
+		return query;
+	}
+
+	/**
+	 * Lets MongoDB aggregate the values of a numeric item.
+	 * 
+	 * @param filter
+	 *            the filter with an aggregation
+	 * @return the aggregated values
+	 */
+	private Iterable<HistoricItem> queryAggregated(FilterCriteria filter) {
+		Aggregation aggregation = filter.getAggregation();
+		long bucketSize = filter.getBucketSize();
+		DBObject query = createQuery(filter);
+		List<HistoricItem> items = new ArrayList<HistoricItem>();
+		if (filter.getPageSize() == 0) {
+			return items;
 		}
 
-		Integer sortDir = (filter.getOrdering() == Ordering.ASCENDING) ? 1 : -1;
-		DBCursor cursor = this.mongoCollection.find(query)
-				.sort(new BasicDBObject(FIELD_TIMESTAMP, sortDir))
-				.skip(filter.getPageNumber() * filter.getPageSize())
-				.limit(filter.getPageSize());
-
-		while (cursor.hasNext()) {
-			BasicDBObject obj = (BasicDBObject) cursor.next();
-
-			final State state;
-			if (item instanceof NumberItem) {
-				state = new DecimalType(obj.getDouble(FIELD_VALUE));
-			} else if (item instanceof DimmerItem) {
-				state = new PercentType(obj.getInt(FIELD_VALUE));
-			} else if (item instanceof SwitchItem) {
-				state = OnOffType.valueOf(obj.getString(FIELD_VALUE));
-			} else if (item instanceof ContactItem) {
-				state = OpenClosedType.valueOf(obj.getString(FIELD_VALUE));
-			} else if (item instanceof RollershutterItem) {
-				state = new PercentType(obj.getInt(FIELD_VALUE));
-			} else if (item instanceof ColorItem) {
-				state = new HSBType(obj.getString(FIELD_VALUE));
-			} else if (item instanceof DateTimeItem) {
-				Calendar cal = Calendar.getInstance();
-				cal.setTime(obj.getDate(FIELD_VALUE));
-				state = new DateTimeType(cal);
-			} else {
-				state = new StringType(obj.getString(FIELD_VALUE));
+		if (bucketSize <= 0) {
+			if (filter.getPageNumber() > 0) {
+				// there is only a single value
+				return items;
 			}
+			if (aggregation != Aggregation.AVG
+					&& aggregation != Aggregation.SUM
+					&& aggregation != Aggregation.COUNT) {
+				// select a single entry
+				BasicDBObject sort;
+				if (aggregation == Aggregation.MIN || aggregation == Aggregation.MAX) {
+					sort = new BasicDBObject(FIELD_VALUE,
+							aggregation == Aggregation.MIN ? 1 : -1).append(
+							FIELD_TIMESTAMP, 1);
+				} else {
+					sort = new BasicDBObject(FIELD_TIMESTAMP,
+							aggregation == Aggregation.FIRST ? 1 : -1);
+				}
+				DBCursor cursor = this.mongoCollection.find(query).sort(sort)
+						.limit(1);
+				try {
+					if (cursor.hasNext()) {
+						BasicDBObject obj = (BasicDBObject) cursor.next();
+						items.add(new AggregatedItem(filter.getItemName(),
+								toDecimal(obj), obj.getDate(FIELD_TIMESTAMP)));
+					}
+				} finally {
+					cursor.close();
+				}
+				return items;
+			}
+		}
+
+		// the start of the bucket: timestamp - timestamp % bucketSize
+		Object groupId = null;
+		if (bucketSize > 0) {
+			BasicDBObject millis = new BasicDBObject("$subtract", Arrays.asList(
+					"$" + FIELD_TIMESTAMP, new Date(0)));
+			groupId = new BasicDBObject("$subtract", Arrays.asList(millis,
+					new BasicDBObject("$mod", Arrays.asList(millis, bucketSize))));
+		}
+		BasicDBObject group = new BasicDBObject(FIELD_ID, groupId);
+		if (aggregation == Aggregation.COUNT) {
+			group.append(FIELD_VALUE, new BasicDBObject("$sum", 1));
+		} else {
+			group.append(FIELD_VALUE, new BasicDBObject("$"
+					+ aggregation.name().toLowerCase(), "$" + FIELD_VALUE));
+		}
+		group.append(FIELD_TIMESTAMP, new BasicDBObject("$min", "$"
+				+ FIELD_TIMESTAMP));
+
+		int sortDir = (filter.getOrdering() == Ordering.ASCENDING) ? 1 : -1;
+		List<DBObject> pipeline = new ArrayList<DBObject>();
+		pipeline.add(new BasicDBObject("$match", query));
+		pipeline.add(new BasicDBObject("$sort", new BasicDBObject(
+				FIELD_TIMESTAMP, 1)));
+		pipeline.add(new BasicDBObject("$group", group));
+		if (bucketSize > 0) {
+			pipeline.add(new BasicDBObject("$sort", new BasicDBObject(FIELD_ID,
+					sortDir)));
+			pipeline.add(new BasicDBObject("$skip", filter.getPageNumber()
+					* filter.getPageSize()));
+			pipeline.add(new BasicDBObject("$limit", filter.getPageSize()));
+		}
 
-			items.add(new MongoDBItem(name, state, obj.getDate(FIELD_TIMESTAMP)));
+		for (DBObject result : this.mongoCollection.aggregate(pipeline)
+				.results()) {
+			BasicDBObject obj = (BasicDBObject) result;
+			if (obj.get(FIELD_VALUE) == null) {
+				// none of the entries has a numeric value
+				continue;
+			}
+			Date timestamp;
+			if (bucketSize > 0) {
+				timestamp = new Date(obj.getLong(FIELD_ID));
+			} else if (filter.getBeginDate() != null) {
+				timestamp = filter.getBeginDate();
+			} else {
+				timestamp = obj.getDate(FIELD_TIMESTAMP);
+			}
+			items.add(new AggregatedItem(filter.getItemName(), toDecimal(obj),
+					timestamp));
 		}
 
 		return items;
 	}
 
+	/**
+	 * Converts the value of an aggregation result without expanding e.g. 21.3
+	 * to the binary representation of the double.
+	 */
+	private DecimalType toDecimal(BasicDBObject obj) {
+		return new DecimalType(BigDecimal.valueOf(obj.getDouble(FIELD_VALUE))
+				.stripTrailingZeros());
+	}
+
 	private String convertOperator(Operator operator) {
 		switch (operator) {
 		case EQ:
@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.mysql.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.persistence.mysql.internal.MysqlConnectionPool.PooledConnection;
+
+/**
+ * @since 1.8.0
+ */
+public class MysqlConnectionPoolTest {
+
+	private StubDatabase database;
+
+	@Before
+	public void init() {
+		database = new StubDatabase();
+	}
+
+	@Test
+	public void testReturnedConnectionIsReused() throws SQLException {
+		MysqlConnectionPool pool = createPool(2);
+
+		PooledConnection pooled = pool.acquire();
+		Connection connection = pooled.getConnection();
+		pooled.release();
+		pooled = pool.acquire();
+
+		assertSame(connection, pooled.getConnection());
+		assertEquals(1, database.connections.size());
+	}
+
+	@Test
+	public void testBorrowedConnectionsAreNotShared() throws SQLException {
+		MysqlConnectionPool pool = createPool(2);
+
+		PooledConnection first = pool.acquire();
+		PooledConnection second = pool.acquire();
+
+		assertFalse(first.getConnection() == second.getConnection());
+		assertEquals(2, database.connections.size());
+	}
+
+	@Test
+	public void testBorrowWaitsForReturnedConnection() throws SQLException, InterruptedException {
+		final MysqlConnectionPool pool = createPool(1);
+		PooledConnection pooled = pool.acquire();
+		final AtomicReference<PooledConnection> borrowed = new AtomicReference<PooledConnection>();
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					borrowed.set(pool.acquire());
+				} catch (SQLException e) {
+					// the connection is not set
+				}
+			}
+		};
+		thread.start();
+		Thread.sleep(100);
+		assertTrue(borrowed.get() == null);
+
+		pooled.release();
+		thread.join(5000);
+
+		assertSame(pooled, borrowed.get());
+		assertEquals(1, database.connections.size());
+	}
+
+	@Test
+	public void testInvalidConnectionIsReplaced() throws SQLException {
+		MysqlConnectionPool pool = createPool(1);
+		// validate every idle connection
+		pool.validationInterval = 0;
+
+		pool.acquire().release();
+		database.connections.get(0).valid = false;
+		PooledConnection pooled = pool.acquire();
+
+		assertEquals(2, database.connections.size());
+		assertTrue(database.connections.get(0).closed);
+		assertSame(database.connections.get(1).connection, pooled.getConnection());
+	}
+
+	@Test
+	public void testInvalidatedConnectionIsClosed() throws SQLException {
+		MysqlConnectionPool pool = createPool(1);
+
+		pool.acquire().invalidate();
+		pool.acquire();
+
+		assertTrue(database.connections.get(0).closed);
+		assertEquals(2, database.connections.size());
+	}
+
+	@Test
+	public void testStatementsAreCachedPerConnection() throws SQLException {
+		MysqlConnectionPool pool = createPool(1);
+
+		PooledConnection pooled = pool.acquire();
+		pooled.prepare("INSERT INTO Item1 (TIME, VALUE) VALUES(?,?)");
+		pooled.release();
+		pooled = pool.acquire();
+		pooled.prepare("INSERT INTO Item1 (TIME, VALUE) VALUES(?,?)");
+
+		assertEquals(1, database.connections.get(0).prepared);
+	}
+
+	@Test
+	public void testIdleConnectionsAreClosedWithPool() throws SQLException {
+		MysqlConnectionPool pool = createPool(2);
+		PooledConnection idle = pool.acquire();
+		PooledConnection inUse = pool.acquire();
+		idle.release();
+
+		pool.close();
+		assertTrue(database.connections.get(0).closed);
+		assertFalse(database.connections.get(1).closed);
+
+		inUse.release();
+		assertTrue(database.connections.get(1).closed);
+	}
+
+	private MysqlConnectionPool createPool(int maxConnections) {
+		return new MysqlConnectionPool("jdbc:mysql://localhost/openhab", "openhab", "secret", maxConnections, -1) {
+			@Override
+			Connection openConnection() {
+				return database.open();
+			}
+		};
+	}
+
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.mysql.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Hashtable;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.items.Item;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.PersistenceEntry;
+import org.openhab.core.persistence.PersistentStateRestorer;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+import org.osgi.service.cm.ConfigurationException;
+
+/**
+ * @since 1.8.0
+ */
+public class MysqlPersistenceServiceTest {
+
+	private static final String INSERT = " (TIME, VALUE) VALUES(?,?) ON DUPLICATE KEY UPDATE VALUE=?";
+
+	private StubDatabase database;
+	private MysqlPersistenceService service;
+
+	private final Item temperature = new NumberItem("Temperature");
+	private final Item humidity = new NumberItem("Humidity");
+
+	@Before
+	public void init() throws ConfigurationException {
+		database = new StubDatabase();
+		service = new MysqlPersistenceService() {
+			@Override
+			MysqlConnectionPool createPool() {
+				return new MysqlConnectionPool("jdbc:mysql://localhost/openhab", "openhab", "secret", 1, -1) {
+					@Override
+					Connection openConnection() {
+						return database.open();
+					}
+				};
+			}
+		};
+		service.setPersistentStateRestorer(new PersistentStateRestorer() {
+			public void initializeItems(String modelName) {
+			}
+		});
+		Hashtable<String, String> config = new Hashtable<String, String>();
+		config.put("url", "jdbc:mysql://localhost/openhab");
+		config.put("user", "openhab");
+		config.put("password", "secret");
+		service.updated(config);
+		database.log.clear();
+	}
+
+	@Test
+	public void testStatesAreBatchedByTable() {
+		List<PersistenceEntry> entries = new ArrayList<PersistenceEntry>();
+		entries.add(entry(temperature, new DecimalType(20), 1000));
+		entries.add(entry(humidity, new DecimalType(40), 1000));
+		entries.add(entry(temperature, UnDefType.UNDEF, 2000));
+		entries.add(entry(temperature, new DecimalType(21), 3000));
+
+		service.store(entries);
+
+		// one batch per table, all tables within one transaction
+		assertEquals("[INSERT INTO Item1" + INSERT + " x2, INSERT INTO Item2" + INSERT + " x1, commit]",
+				database.log.toString());
+	}
+
+	@Test
+	public void testBatchesShareConnectionAndStatements() {
+		List<PersistenceEntry> entries = new ArrayList<PersistenceEntry>();
+		entries.add(entry(temperature, new DecimalType(20), 1000));
+
+		service.store(entries);
+		service.store(entries);
+
+		assertEquals(1, database.connections.size());
+		assertEquals(1, database.connections.get(0).prepared);
+	}
+
+	private static PersistenceEntry entry(Item item, State state, long time) {
+		return new PersistenceEntry(item, null, state, new Date(time));
+	}
+
+}
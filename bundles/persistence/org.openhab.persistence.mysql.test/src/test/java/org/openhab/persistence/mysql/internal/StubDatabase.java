@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.mysql.internal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A database which opens stub connections. The connections record the SQL
+ * statements which are executed on them, and know the tables of the items
+ * <code>Temperature</code> and <code>Humidity</code>.
+ *
+ * @since 1.8.0
+ */
+class StubDatabase {
+
+	/** the executed statements and transaction commands, in their order */
+	final List<String> log = Collections.synchronizedList(new ArrayList<String>());
+
+	final List<StubConnection> connections = Collections.synchronizedList(new ArrayList<StubConnection>());
+
+	/**
+	 * @return a new connection to the database
+	 */
+	Connection open() {
+		StubConnection stub = new StubConnection(connections.size() + 1);
+		connections.add(stub);
+		return stub.connection;
+	}
+
+	/**
+	 * A connection, which can be invalidated as if the server had closed it.
+	 */
+	class StubConnection {
+
+		final int number;
+		final Connection connection;
+		volatile boolean valid = true;
+		volatile boolean closed = false;
+		int prepared;
+
+		StubConnection(int number) {
+			this.number = number;
+			this.connection = proxy(Connection.class, new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) {
+					String name = method.getName();
+					if (name.equals("createStatement")) {
+						return createStatement();
+					} else if (name.equals("prepareStatement")) {
+						prepared++;
+						return prepareStatement((String) args[0]);
+					} else if (name.equals("isValid")) {
+						return valid;
+					} else if (name.equals("close")) {
+						closed = true;
+					} else if (name.equals("commit") || name.equals("rollback")) {
+						log.add(name);
+					}
+					return defaultValue(method);
+				}
+			});
+		}
+	}
+
+	private Statement createStatement() {
+		return proxy(Statement.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("executeUpdate")) {
+					return 1;
+				} else if (method.getName().equals("executeQuery")) {
+					return itemsResultSet();
+				}
+				return defaultValue(method);
+			}
+		});
+	}
+
+	private PreparedStatement prepareStatement(final String sql) {
+		return proxy(PreparedStatement.class, new InvocationHandler() {
+			private int batchSize;
+
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("addBatch")) {
+					batchSize++;
+				} else if (method.getName().equals("executeBatch")) {
+					log.add(sql + " x" + batchSize);
+					int[] result = new int[batchSize];
+					batchSize = 0;
+					return result;
+				}
+				return defaultValue(method);
+			}
+		});
+	}
+
+	/**
+	 * @return the rows of the <code>Items</code> table
+	 */
+	private ResultSet itemsResultSet() {
+		final String[] itemNames = { "Temperature", "Humidity" };
+		return proxy(ResultSet.class, new InvocationHandler() {
+			private int row = -1;
+
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("next")) {
+					return ++row < itemNames.length;
+				} else if (method.getName().equals("getInt")) {
+					return row + 1;
+				} else if (method.getName().equals("getString")) {
+					return itemNames[row];
+				}
+				return defaultValue(method);
+			}
+		});
+	}
+
+	private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+		return type.cast(Proxy.newProxyInstance(StubDatabase.class.getClassLoader(), new Class<?>[] { type }, handler));
+	}
+
+	private static Object defaultValue(Method method) {
+		Class<?> type = method.getReturnType();
+		if (type == boolean.class) {
+			return false;
+		} else if (type == int.class) {
+			return 0;
+		} else if (type == long.class) {
+			return 0L;
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,282 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.mysql.internal;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A small pool of connections to the MySQL server, so that the persistence
+ * service does not have to serialize all stores and queries on a single
+ * connection.
+ *
+ * Each pooled connection keeps the prepared statements which have been used on
+ * it, so that recurring statements (like the insert statement of a table) are
+ * only prepared once per connection. At most {@link #STATEMENT_CACHE_SIZE}
+ * statements are kept per connection; the least recently used ones are closed.
+ *
+ * @since 1.8.0
+ */
+class MysqlConnectionPool {
+
+	private static final Logger logger = LoggerFactory.getLogger(MysqlConnectionPool.class);
+
+	/** the maximum number of prepared statements cached per connection */
+	static final int STATEMENT_CACHE_SIZE = 100;
+
+	/** the time to wait for a free connection in milliseconds */
+	private static final long ACQUIRE_TIMEOUT = 10000L;
+
+	/** the time a connection may be idle before it is validated again in milliseconds */
+	static final long VALIDATION_INTERVAL = 30000L;
+
+	/**
+	 * A connection of the pool, together with its prepared statements.
+	 */
+	static class PooledConnection {
+
+		private final MysqlConnectionPool pool;
+		private final Connection connection;
+
+		private final Map<String, PreparedStatement> statements = new LinkedHashMap<String, PreparedStatement>(16,
+				0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+				if (size() > STATEMENT_CACHE_SIZE) {
+					closeStatement(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+
+		private long lastUsed;
+
+		private PooledConnection(MysqlConnectionPool pool, Connection connection) {
+			this.pool = pool;
+			this.connection = connection;
+			this.lastUsed = System.currentTimeMillis();
+		}
+
+		Connection getConnection() {
+			return connection;
+		}
+
+		/**
+		 * Returns the connection to its pool.
+		 */
+		void release() {
+			pool.release(this);
+		}
+
+		/**
+		 * Closes the connection after an error instead of returning it to its pool.
+		 */
+		void invalidate() {
+			pool.invalidate(this);
+		}
+
+		/**
+		 * Returns the cached prepared statement for the given SQL, or prepares
+		 * a new one. The statement must not be closed by the caller.
+		 *
+		 * @param sql the SQL statement
+		 * @return the prepared statement
+		 * @throws SQLException if the statement could not be prepared
+		 */
+		PreparedStatement prepare(String sql) throws SQLException {
+			PreparedStatement statement = statements.get(sql);
+			if (statement == null) {
+				statement = connection.prepareStatement(sql);
+				statements.put(sql, statement);
+			}
+			return statement;
+		}
+
+		private void close() {
+			for (PreparedStatement statement : statements.values()) {
+				closeStatement(statement);
+			}
+			statements.clear();
+			try {
+				connection.close();
+			} catch (SQLException e) {
+				logger.debug("mySQL: Error closing connection : " + e.getMessage());
+			}
+		}
+
+		private static void closeStatement(PreparedStatement statement) {
+			try {
+				statement.close();
+			} catch (SQLException e) {
+				logger.debug("mySQL: Error closing statement : " + e.getMessage());
+			}
+		}
+	}
+
+	private final String url;
+	private final String user;
+	private final String password;
+	private final int waitTimeout;
+
+	/** the permits for the connections which are in use or may still be opened */
+	private final Semaphore permits;
+
+	/** the idle connections, most recently used first, guarded by themselves */
+	private final Deque<PooledConnection> idle = new ArrayDeque<PooledConnection>();
+
+	private volatile boolean closed = false;
+
+	/** the time a connection may be idle before it is validated again in milliseconds */
+	long validationInterval = VALIDATION_INTERVAL;
+
+	/**
+	 * @param url the JDBC URL of the database
+	 * @param user the database user
+	 * @param password the password of the user
+	 * @param maxConnections the maximum number of open connections
+	 * @param waitTimeout the session wait_timeout in seconds, or -1 to keep the server default
+	 */
+	MysqlConnectionPool(String url, String user, String password, int maxConnections, int waitTimeout) {
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.waitTimeout = waitTimeout;
+		this.permits = new Semaphore(Math.max(1, maxConnections), true);
+	}
+
+	/**
+	 * Takes a connection from the pool, or opens a new one. Each successful
+	 * call must be followed by a call to {@link PooledConnection#release()} or
+	 * {@link PooledConnection#invalidate()}.
+	 *
+	 * @return the connection for exclusive use by the calling thread
+	 * @throws SQLException if no connection could be opened, or if all connections
+	 *             are in use for too long
+	 */
+	PooledConnection acquire() throws SQLException {
+		if (closed) {
+			throw new SQLException("mySQL: Connection pool has been closed");
+		}
+		try {
+			if (!permits.tryAcquire(ACQUIRE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+				throw new SQLException("mySQL: Timeout waiting for a free connection");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("mySQL: Interrupted while waiting for a free connection");
+		}
+		try {
+			PooledConnection pooled;
+			while ((pooled = pollIdle()) != null) {
+				if (System.currentTimeMillis() - pooled.lastUsed < validationInterval || isValid(pooled)) {
+					return pooled;
+				}
+				logger.debug("mySQL: Discarding invalid connection");
+				pooled.close();
+			}
+			return open();
+		} catch (SQLException e) {
+			permits.release();
+			throw e;
+		} catch (RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	private void release(PooledConnection pooled) {
+		pooled.lastUsed = System.currentTimeMillis();
+		boolean discard;
+		synchronized (idle) {
+			discard = closed;
+			if (!discard) {
+				idle.addFirst(pooled);
+			}
+		}
+		if (discard) {
+			pooled.close();
+		}
+		permits.release();
+	}
+
+	private void invalidate(PooledConnection pooled) {
+		pooled.close();
+		permits.release();
+	}
+
+	/**
+	 * Closes all idle connections. Connections which are in use are closed when
+	 * they are released.
+	 */
+	void close() {
+		closed = true;
+		PooledConnection pooled;
+		while ((pooled = pollIdle()) != null) {
+			pooled.close();
+		}
+	}
+
+	private PooledConnection pollIdle() {
+		synchronized (idle) {
+			return idle.pollFirst();
+		}
+	}
+
+	private boolean isValid(PooledConnection pooled) {
+		try {
+			return pooled.connection.isValid(5);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Opens a new connection to the database.
+	 *
+	 * @return the connection
+	 * @throws SQLException if the connection could not be opened
+	 */
+	Connection openConnection() throws SQLException {
+		return DriverManager.getConnection(url, user, password);
+	}
+
+	private PooledConnection open() throws SQLException {
+		Connection connection = openConnection();
+		logger.debug("mySQL: Opened connection to database {}", url);
+		if (waitTimeout != -1) {
+			logger.debug("mySQL: Setting wait_timeout to {} seconds.", waitTimeout);
+			Statement st = connection.createStatement();
+			try {
+				st.executeUpdate("SET SESSION wait_timeout=" + waitTimeout);
+			} catch (SQLException e) {
+				connection.close();
+				throw e;
+			} finally {
+				st.close();
+			}
+		}
+		return new PooledConnection(this, connection);
+	}
+
+}
@@ -8,22 +8,27 @@
  */
 package org.openhab.persistence.mysql.internal;
 
+import java.math.BigDecimal;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.Formatter;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -46,14 +51,23 @@ import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.OpenClosedType;
 import org.openhab.core.library.types.PercentType;
 import org.openhab.core.library.types.StringType;
+import org.openhab.core.persistence.AggregatingPersistenceService;
+import org.openhab.core.persistence.BatchPersistenceService;
 import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Aggregation;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricAggregator.AggregatedItem;
+import org.openhab.core.persistence.HistoricCursor;
+import org.openhab.core.persistence.HistoricCursors;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.PagedHistoricCursor;
+import org.openhab.core.persistence.PersistenceEntry;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.PersistentStateRestorer;
-import org.openhab.core.persistence.QueryablePersistenceService;
+import org.openhab.core.persistence.StreamingPersistenceService;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
+import org.openhab.persistence.mysql.internal.MysqlConnectionPool.PooledConnection;
 import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.cm.ManagedService;
 import org.slf4j.Logger;
@@ -80,16 +94,34 @@ import org.slf4j.LoggerFactory;
  * keep the best resolution, we store as a number in SQL and convert to
  * DecimalType before persisting to MySQL.
  * 
+ * Aggregations of numeric items are computed by MySQL,
+ * using one group per bucket if a bucket size is given.
+ * 
+ * Cursors fetch the rows in pages of {@link #CURSOR_PAGE_SIZE} rows. As the time is
+ * the primary key of each table, each page continues after the time of the last row.
+ * 
+ * Stores and queries use a pool of up to <code>maxConnections</code> connections.
+ * Queued item states are written in batches: the states of each table are inserted
+ * with a single JDBC batch of a cached prepared statement, and all tables of a batch
+ * are written in one transaction.
+ * 
  * @author Helmut Lehmeyer #2705
  * @author Henrik Sjöstrand
  * @author Thomas.Eichstaedt-Engelen
  * @author Chris Jackson
  * @since 1.1.0
  */
-public class MysqlPersistenceService implements QueryablePersistenceService, ManagedService {
+public class MysqlPersistenceService implements AggregatingPersistenceService, StreamingPersistenceService,
+		BatchPersistenceService, ManagedService {
 
 	private static final Pattern EXTRACT_CONFIG_PATTERN = Pattern.compile("^(.*?)\\.([0-9.a-zA-Z]+)$");
 
+	/** the number of rows which are fetched at once by a cursor */
+	static final int CURSOR_PAGE_SIZE = 1000;
+
+	/** the default maximum number of connections to the database */
+	private static final int DEFAULT_MAX_CONNECTIONS = 4;
+
 	private static final Logger logger = LoggerFactory.getLogger(MysqlPersistenceService.class);
 
 	private String driverClass = "com.mysql.jdbc.Driver";
@@ -107,9 +139,11 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 	
 	private int waitTimeout = -1;
 
-	private Connection connection = null;
+	private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+	private volatile MysqlConnectionPool pool = null;
 
-	private Map<String, String> sqlTables = new HashMap<String, String>();
+	private Map<String, String> sqlTables = new ConcurrentHashMap<String, String>();
 	private Map<String, String> sqlTypes = new HashMap<String, String>();
 
 	
@@ -154,7 +188,19 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 		return "mysql";
 	}
 
-	private String getTable(Item item) {
+	private String getTable(PooledConnection pooled, Item item) {
+		String tableName = sqlTables.get(item.getName());
+		if (tableName != null)
+			return tableName;
+
+		return createTable(pooled.getConnection(), item);
+	}
+
+	/**
+	 * Creates the table of an item. Synchronized, so that concurrent stores of a
+	 * new item do not create several tables.
+	 */
+	private synchronized String createTable(Connection connection, Item item) {
 		PreparedStatement statement = null;
 		String sqlCmd = null;
 		int rowId = 0;
@@ -274,10 +320,13 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 	 * @{inheritDoc
 	 */
 	public void store(Item item, String alias) {
-		// Don't log undefined/uninitialised data
-		if(item.getState() instanceof UnDefType)
-			return;
+		store(Collections.singletonList(new PersistenceEntry(item, alias, item.getState(), new Date())));
+	}
 
+	/**
+	 * @{inheritDoc}
+	 */
+	public void store(Collection<PersistenceEntry> entries) {
 		// If we've not initialised the bundle, then return
 		if (initialized == false)
 			return;
@@ -289,60 +338,104 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 		// If we still didn't manage to connect, then return!
 		if (!isConnected()) {
 			logger.warn(
-					"mySQL: No connection to database. Can not persist item '{}'! Will retry connecting to database when error count:{} equals errReconnectThreshold:{}",
-					item,errCnt,errReconnectThreshold);
+					"mySQL: No connection to database. Can not persist {} item states! Will retry connecting to database when error count:{} equals errReconnectThreshold:{}",
+					entries.size(), errCnt, errReconnectThreshold);
 			return;
 		}
 
-		// Get the table name for this item
-		String tableName = getTable(item);
-		if (tableName == null) {
-			logger.error("Unable to store item '{}'.", item.getName());
+		PooledConnection pooled = acquireConnection();
+		if (pooled == null) {
 			return;
 		}
 
-		// Do some type conversion to ensure we know the data type.
-		// This is necessary for items that have multiple types and may return their
-		// state in a format that's not preferred or compatible with the MySQL type.
-		// eg. DimmerItem can return OnOffType (ON, OFF), or PercentType (0-100).
-		// We need to make sure we cover the best type for serialisation.
-		String value;
-		if (item instanceof DimmerItem || item instanceof RollershutterItem) {
-			value = item.getStateAs(PercentType.class).toString();
-		} else if (item instanceof ColorItem) {
-			value = item.getStateAs(HSBType.class).toString();
-		} else {
-			// All other items should return the best format by default
-			value = item.getState().toString();
+		boolean success = false;
+		try {
+			// Group the states by table, the tables are created before the transaction starts
+			Map<String, List<PersistenceEntry>> entriesByTable = new LinkedHashMap<String, List<PersistenceEntry>>();
+			for (PersistenceEntry entry : entries) {
+				// Don't log undefined/uninitialised data
+				if (entry.getState() instanceof UnDefType)
+					continue;
+
+				// Get the table name for this item
+				String tableName = getTable(pooled, entry.getItem());
+				if (tableName == null) {
+					logger.error("Unable to store item '{}'.", entry.getItem().getName());
+					continue;
+				}
+
+				List<PersistenceEntry> tableEntries = entriesByTable.get(tableName);
+				if (tableEntries == null) {
+					tableEntries = new ArrayList<PersistenceEntry>();
+					entriesByTable.put(tableName, tableEntries);
+				}
+				tableEntries.add(entry);
+			}
+
+			success = entriesByTable.isEmpty() || insert(pooled, entriesByTable);
+		} finally {
+			if (success) {
+				pooled.release();
+			} else {
+				pooled.invalidate();
+			}
 		}
+	}
 
+	/**
+	 * Inserts the states of several tables within a single transaction.
+	 * 
+	 * @param pooled the connection to use
+	 * @param entriesByTable the states to insert by table name
+	 * @return true, if the states have been stored
+	 */
+	private boolean insert(PooledConnection pooled, Map<String, List<PersistenceEntry>> entriesByTable) {
+		Connection connection = pooled.getConnection();
 		String sqlCmd = null;
-		//Statement statement = null;
-		PreparedStatement statement = null;
+		int count = 0;
 		try {
-			sqlCmd = new String("INSERT INTO " + tableName + " (TIME, VALUE) VALUES(NOW(),?) ON DUPLICATE KEY UPDATE VALUE=?;");
-			statement = connection.prepareStatement(sqlCmd);
-			statement.setString(1, item.getState().toString());
-			statement.setString(2, item.getState().toString());
-			statement.executeUpdate();
+			long timerStart = System.currentTimeMillis();
 
-			logger.debug("mySQL: Stored item '{}' as '{}'[{}] in SQL database at {}.", item.getName(), item.getState()
-					.toString(), value, (new java.util.Date()).toString());
-			logger.debug("mySQL: {}", sqlCmd);
+			connection.setAutoCommit(false);
+			for (Map.Entry<String, List<PersistenceEntry>> tableEntries : entriesByTable.entrySet()) {
+				sqlCmd = "INSERT INTO " + tableEntries.getKey()
+						+ " (TIME, VALUE) VALUES(?,?) ON DUPLICATE KEY UPDATE VALUE=?";
+				PreparedStatement statement = pooled.prepare(sqlCmd);
+				for (PersistenceEntry entry : tableEntries.getValue()) {
+					// the time column has a resolution of one second
+					long time = entry.getTimestamp().getTime();
+					String value = entry.getState().toString();
+					statement.setTimestamp(1, new Timestamp(time - time % 1000));
+					statement.setString(2, value);
+					statement.setString(3, value);
+					statement.addBatch();
+					count++;
+				}
+				statement.executeBatch();
+			}
+			connection.commit();
+
+			long timerStop = System.currentTimeMillis();
+			logger.debug("mySQL: Stored {} item states in {} tables in {}ms.", count, entriesByTable.size(),
+					timerStop - timerStart);
 
 			// Success
 			errCnt = 0;
-		} catch (Exception e) {
+			return true;
+		} catch (SQLException e) {
 			errCnt++;
 
-			logger.error("mySQL: Could not store item '{}' in database with statement '{}': {}", item.getName(),
-					sqlCmd, e.getMessage());
+			logger.error("mySQL: Could not store {} item states in database with statement '{}': {}", count, sqlCmd,
+					e.getMessage());
+			try {
+				connection.rollback();
+			} catch (SQLException logOrIgnore) {
+			}
+			return false;
 		} finally {
-			if (statement != null) {
-				try {
-					statement.close();
-				} catch (Exception hidden) {
-				}
+			try {
+				connection.setAutoCommit(true);
+			} catch (SQLException logOrIgnore) {
 			}
 		}
 	}
@@ -360,50 +453,57 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 	 * @return true if connection has been established, false otherwise
 	 */
 	private boolean isConnected() {
-		//Check if connection is valid
-		try {
-			if (connection!= null && !connection.isValid(5000)) {
-				errCnt++;
-				logger.error("mySQL: Connection is not valid!");
-			}
-		} catch (SQLException e) {
-			errCnt++;
-			
-			logger.error("mySQL: Error while checking connection: {}", e);
-		}
-		
 		// Error check. If we have 'errReconnectThreshold' errors in a row, then
 		// reconnect to the database
 		if (errReconnectThreshold != 0 && errCnt >= errReconnectThreshold) {
 			logger.error("mySQL: Error count exceeded {}. Disconnecting database.", errReconnectThreshold);
 			disconnectFromDatabase();
 		}
-		return connection != null;
+		return pool != null;
+	}
+
+	/**
+	 * Takes a connection from the pool. Invalid connections are replaced by the pool.
+	 * 
+	 * @return the connection, or null if no connection could be opened
+	 */
+	private PooledConnection acquireConnection() {
+		MysqlConnectionPool pool = this.pool;
+		if (pool == null) {
+			return null;
+		}
+		try {
+			return pool.acquire();
+		} catch (SQLException e) {
+			errCnt++;
+			logger.error("mySQL: Error while getting a connection: {}", e.getMessage());
+			return null;
+		}
 	}
 
 	/**
 	 * Connects to the database
 	 */
-	private void connectToDatabase() {
+	private synchronized void connectToDatabase() {
+		if (pool != null) {
+			return;
+		}
+		PooledConnection pooled = null;
 		try {
 			// Reset the error counter
 			errCnt = 0;
 
 			logger.debug("mySQL: Attempting to connect to database {}", url);
 			Class.forName(driverClass).newInstance();
-			connection = DriverManager.getConnection(url, user, password);
+			MysqlConnectionPool newPool = createPool();
+			pooled = newPool.acquire();
+			Connection connection = pooled.getConnection();
 			logger.debug("mySQL: Connected to database {}", url);
 
 			Statement st = connection.createStatement();
 			int result = st.executeUpdate("SHOW TABLES LIKE 'Items'");
 			st.close();
 			
-			if(waitTimeout != -1) {
-				logger.debug("mySQL: Setting wait_timeout to {} seconds.", waitTimeout);
-				st = connection.createStatement();
-				st.executeUpdate("SET SESSION wait_timeout="+waitTimeout);
-				st.close();
-			}
 			if (result == 0) {
 				st = connection.createStatement();
 				st.executeUpdate(
@@ -423,24 +523,35 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 			}
 			rs.close();
 			st.close();
+
+			pooled.release();
+			pool = newPool;
 		} catch (Exception e) {
+			if (pooled != null) {
+				pooled.invalidate();
+			}
 			logger.error("mySQL: Failed connecting to the SQL database using: driverClass=" + driverClass + ", url="
 					+ url + ", user=" + user + ", password=" + password, e);
 		}
 	}
 
+	/**
+	 * Creates the pool of connections to the configured database.
+	 * 
+	 * @return the connection pool
+	 */
+	MysqlConnectionPool createPool() {
+		return new MysqlConnectionPool(url, user, password, maxConnections, waitTimeout);
+	}
+
 	/**
 	 * Disconnects from the database
 	 */
-	private void disconnectFromDatabase() {
-		if (connection != null) {
-			try {
-				connection.close();
-				logger.debug("mySQL: Disconnected from database {}", url);
-			} catch (Exception e) {
-				logger.error("mySQL: Failed disconnecting from the SQL database {}", e);
-			}
-			connection = null;
+	private synchronized void disconnectFromDatabase() {
+		if (pool != null) {
+			pool.close();
+			logger.debug("mySQL: Disconnected from database {}", url);
+			pool = null;
 		}
 	}
 
@@ -518,6 +629,11 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 				waitTimeout = Integer.parseInt(tmpString);
 			}
 
+			tmpString = (String) config.get("maxConnections");
+			if (StringUtils.isNotBlank(tmpString)) {
+				maxConnections = Integer.parseInt(tmpString);
+			}
+
 			// reconnect to the database in case the configuration has changed.
 			disconnectFromDatabase();
 			connectToDatabase();
@@ -533,6 +649,38 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 
 	@Override
 	public Iterable<HistoricItem> query(FilterCriteria filter) {
+		return queryItems(filter, null, (long) filter.getPageNumber() * filter.getPageSize(), filter.getPageSize());
+	}
+
+	/**
+	 * @{inheritDoc}
+	 */
+	public HistoricCursor openCursor(final FilterCriteria filter) {
+		if (filter.getAggregation() != null || filter.getPageSize() <= CURSOR_PAGE_SIZE) {
+			return HistoricCursors.wrap(query(filter));
+		}
+		final long firstOffset = (long) filter.getPageNumber() * filter.getPageSize();
+		return new PagedHistoricCursor(CURSOR_PAGE_SIZE, filter.getPageSize()) {
+			@Override
+			protected List<HistoricItem> fetchPage(int offset, int pageSize, HistoricItem last) {
+				if (last == null) {
+					return queryItems(filter, null, firstOffset, pageSize);
+				}
+				return queryItems(filter, last.getTimestamp(), 0, pageSize);
+			}
+		};
+	}
+
+	/**
+	 * Queries the rows of a filter.
+	 * 
+	 * @param filter the filter to apply to the query
+	 * @param after only return rows after this time in the order of the filter, may be null
+	 * @param offset the number of rows to skip
+	 * @param limit the maximum number of rows to return
+	 * @return the rows, or null if the query failed
+	 */
+	private List<HistoricItem> queryItems(FilterCriteria filter, Date after, long offset, int limit) {
 		if (!initialized) {
 			logger.debug("Query aborted on item {} - mySQL not initialised!", filter.getItemName());
 			return Collections.emptyList();
@@ -592,20 +740,39 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 			filterString += " TIME<'" + mysqlDateFormat.format(filter.getEndDate().getTime()) + "'";
 		}
 
+		if (filter.getAggregation() != null) {
+			return queryAggregated(filter, table, filterString);
+		}
+
+		if (after != null) {
+			if (filterString.isEmpty())
+				filterString += " WHERE";
+			else
+				filterString += " AND";
+			filterString += " TIME" + (filter.getOrdering() == Ordering.ASCENDING ? ">" : "<") + "'"
+					+ mysqlDateFormat.format(after) + "'";
+		}
+
 		if (filter.getOrdering() == Ordering.ASCENDING) {
 			filterString += " ORDER BY Time ASC";
 		} else {
 			filterString += " ORDER BY Time DESC";
 		}
 
-		if (filter.getPageSize() != 0x7fffffff)
-			filterString += " LIMIT " + filter.getPageNumber() * filter.getPageSize() + "," + filter.getPageSize();
+		if (limit != 0x7fffffff)
+			filterString += " LIMIT " + offset + "," + limit;
 
+		PooledConnection pooled = acquireConnection();
+		if (pooled == null) {
+			return null;
+		}
+
+		Statement st = null;
 		try {
 			long timerStart = System.currentTimeMillis();
 
 			// Retrieve the table array
-			Statement st = connection.createStatement();
+			st = pooled.getConnection().createStatement();
 
 			String queryString = new String();
 			queryString = "SELECT Time, Value FROM " + table;
@@ -649,7 +816,6 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 			}
 
 			rs.close();
-			st.close();
 
 			long timerStop = System.currentTimeMillis();
 			logger.debug("mySQL: query returned {} rows in {}ms", count, timerStop - timerStart);
@@ -661,7 +827,156 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 		} catch (SQLException e) {
 			errCnt++;
 			logger.error("mySQL: Error running querying : " + e.getMessage());
+			pooled.invalidate();
+			pooled = null;
+		} finally {
+			closeStatement(st);
+			if (pooled != null) {
+				pooled.release();
+			}
 		}
 		return null;
 	}
+
+	/**
+	 * @{inheritDoc}
+	 */
+	public boolean supportsAggregation(FilterCriteria filter) {
+		if (filter.getBucketSize() > 0
+				&& (filter.getAggregation() == Aggregation.FIRST || filter.getAggregation() == Aggregation.LAST)) {
+			// MySQL has no aggregate function for the first or last value of a group
+			return false;
+		}
+		Item item = null;
+		try {
+			if (itemRegistry != null) {
+				item = itemRegistry.getItem(filter.getItemName());
+			}
+		} catch (ItemNotFoundException e) {
+			return false;
+		}
+		if (item instanceof GroupItem) {
+			item = GroupItem.class.cast(item).getBaseItem();
+		}
+		return item instanceof NumberItem || item instanceof DimmerItem || item instanceof RollershutterItem;
+	}
+
+	/**
+	 * Lets MySQL aggregate the values of a numeric table.
+	 * 
+	 * @param filter the filter with an aggregation
+	 * @param table the table of the item
+	 * @param filterString the WHERE clause of the query, may be empty
+	 * @return the aggregated values, which are empty if the query failed
+	 */
+	private List<HistoricItem> queryAggregated(FilterCriteria filter, String table, String filterString) {
+		Aggregation aggregation = filter.getAggregation();
+		long bucketSize = filter.getBucketSize();
+		String direction = filter.getOrdering() == Ordering.ASCENDING ? "ASC" : "DESC";
+
+		String queryString;
+		if (bucketSize > 0) {
+			queryString = "SELECT FLOOR(UNIX_TIMESTAMP(Time)*1000/" + bucketSize + ") AS Bucket, "
+					+ getAggregateFunction(aggregation) + " FROM " + table + filterString
+					+ " GROUP BY Bucket ORDER BY Bucket " + direction;
+			if (filter.getPageSize() != 0x7fffffff)
+				queryString += " LIMIT " + filter.getPageNumber() * filter.getPageSize() + "," + filter.getPageSize();
+		} else if (filter.getPageNumber() > 0 || filter.getPageSize() == 0) {
+			// there is only a single value
+			return Collections.emptyList();
+		} else if (aggregation == Aggregation.MIN || aggregation == Aggregation.MAX) {
+			queryString = "SELECT Time, Value FROM " + table + filterString + " ORDER BY Value "
+					+ (aggregation == Aggregation.MIN ? "ASC" : "DESC") + ", Time ASC LIMIT 1";
+		} else if (aggregation == Aggregation.FIRST || aggregation == Aggregation.LAST) {
+			queryString = "SELECT Time, Value FROM " + table + filterString + " ORDER BY Time "
+					+ (aggregation == Aggregation.FIRST ? "ASC" : "DESC") + " LIMIT 1";
+		} else {
+			queryString = "SELECT MIN(Time), " + getAggregateFunction(aggregation) + ", COUNT(Value) FROM " + table
+					+ filterString;
+		}
+
+		PooledConnection pooled = acquireConnection();
+		if (pooled == null) {
+			return Collections.emptyList();
+		}
+
+		Statement st = null;
+		try {
+			long timerStart = System.currentTimeMillis();
+
+			st = pooled.getConnection().createStatement();
+			logger.debug("mySQL: " + queryString);
+			ResultSet rs = st.executeQuery(queryString);
+
+			List<HistoricItem> items = new ArrayList<HistoricItem>();
+			while (rs.next()) {
+				Date timestamp;
+				if (bucketSize > 0) {
+					timestamp = new Date(rs.getLong(1) * bucketSize);
+				} else if (aggregation == Aggregation.AVG || aggregation == Aggregation.SUM
+						|| aggregation == Aggregation.COUNT) {
+					if (rs.getLong(3) == 0) {
+						// no matching entries
+						continue;
+					}
+					timestamp = filter.getBeginDate() != null ? filter.getBeginDate() : rs.getTimestamp(1);
+				} else {
+					timestamp = rs.getTimestamp(1);
+				}
+				// read the decimal value, so that e.g. 21.3 is not expanded to its binary representation
+				BigDecimal value = rs.getBigDecimal(2);
+				if (value == null) {
+					// no values to aggregate, e.g. the SUM of NULL values only
+					continue;
+				}
+				items.add(new AggregatedItem(filter.getItemName(), new DecimalType(value), timestamp));
+			}
+
+			rs.close();
+
+			long timerStop = System.currentTimeMillis();
+			logger.debug("mySQL: aggregation returned {} rows in {}ms", items.size(), timerStop - timerStart);
+
+			errCnt = 0;
+
+			return items;
+		} catch (SQLException e) {
+			errCnt++;
+			logger.error("mySQL: Error running aggregation : " + e.getMessage());
+			pooled.invalidate();
+			pooled = null;
+		} finally {
+			closeStatement(st);
+			if (pooled != null) {
+				pooled.release();
+			}
+		}
+		return Collections.emptyList();
+	}
+
+	private void closeStatement(Statement st) {
+		if (st != null) {
+			try {
+				// closes its result set as well
+				st.close();
+			} catch (SQLException e) {
+				logger.debug("mySQL: Error closing statement : " + e.getMessage());
+			}
+		}
+	}
+
+	private static String getAggregateFunction(Aggregation aggregation) {
+		switch (aggregation) {
+		case AVG:
+			return "AVG(Value)";
+		case SUM:
+			return "SUM(Value)";
+		case MIN:
+			return "MIN(Value)";
+		case MAX:
+			return "MAX(Value)";
+		default:
+			return "COUNT(Value)";
+		}
+	}
 }
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.rrd4j.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.rrd4j.ConsolFun;
+import org.rrd4j.DsType;
+import org.rrd4j.core.RrdBackendFactory;
+import org.rrd4j.core.RrdDb;
+import org.rrd4j.core.RrdDef;
+
+/**
+ * @since 1.8.0
+ */
+public class RRD4jDbPoolTest {
+
+	private TestOpener opener;
+
+	@Before
+	public void init() {
+		opener = new TestOpener();
+	}
+
+	@Test
+	public void testDatabaseIsKeptOpen() {
+		RRD4jDbPool pool = new RRD4jDbPool(opener, 2);
+
+		RRD4jDbPool.Handle handle = pool.acquire("Temperature");
+		RrdDb db = handle.getDb();
+		pool.release(handle);
+		handle = pool.acquire("Temperature");
+		assertSame(db, handle.getDb());
+		pool.release(handle);
+
+		assertEquals(1, opener.opened.get());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedDatabaseIsClosed() {
+		RRD4jDbPool pool = new RRD4jDbPool(opener, 2);
+
+		for (String name : new String[] { "Temperature", "Humidity", "Pressure" }) {
+			pool.release(pool.acquire(name));
+		}
+
+		assertEquals(2, pool.size());
+		assertEquals(1, opener.closed.get());
+		pool.closeAll();
+		assertEquals(0, pool.size());
+		assertEquals(3, opener.closed.get());
+	}
+
+	@Test
+	public void testFileIsNeverOpenTwice() throws InterruptedException {
+		// with a capacity of one, the databases are evicted and reopened all the time
+		final RRD4jDbPool pool = new RRD4jDbPool(opener, 1);
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 500; j++) {
+						pool.release(pool.acquire("Item" + (j % 3)));
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		pool.closeAll();
+
+		assertEquals(0, opener.duplicates.get());
+		assertEquals(opener.opened.get(), opener.closed.get());
+	}
+
+	@Test
+	public void testFailedOpenReleasesDatabase() {
+		RRD4jDbPool pool = new RRD4jDbPool(opener, 2);
+		opener.failures.set(1);
+
+		try {
+			pool.acquire("Temperature");
+			fail("the exception of the opener is not passed on");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(0, pool.size());
+
+		// the database is not locked by the failed attempt
+		RRD4jDbPool.Handle handle = pool.acquire("Temperature");
+		assertNotNull(handle.getDb());
+		pool.release(handle);
+		assertEquals(1, opener.opened.get());
+	}
+
+	/**
+	 * Opens databases in memory and records whether a database is opened while
+	 * the previous database of the same name has not been closed yet.
+	 */
+	static class TestOpener implements RRD4jDbPool.Opener {
+
+		final ConcurrentMap<String, AtomicInteger> openFiles = new ConcurrentHashMap<String, AtomicInteger>();
+		final AtomicInteger opened = new AtomicInteger();
+		final AtomicInteger closed = new AtomicInteger();
+		final AtomicInteger duplicates = new AtomicInteger();
+		final AtomicInteger failures = new AtomicInteger();
+
+		public RrdDb open(String name) {
+			if (failures.getAndDecrement() > 0) {
+				throw new IllegalArgumentException("Invalid definition of " + name);
+			}
+			openFiles.putIfAbsent(name, new AtomicInteger());
+			if (openFiles.get(name).incrementAndGet() > 1) {
+				duplicates.incrementAndGet();
+			}
+			opened.incrementAndGet();
+			try {
+				return new TrackedDb(name, this);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	static class TrackedDb extends RrdDb {
+
+		private final String name;
+		private final TestOpener opener;
+
+		TrackedDb(String name, TestOpener opener) throws IOException {
+			super(createDef(name), RrdBackendFactory.getFactory("MEMORY"));
+			this.name = name;
+			this.opener = opener;
+		}
+
+		@Override
+		public synchronized void close() throws IOException {
+			// closing a file takes a while, which gives other threads the chance to reopen it
+			Thread.yield();
+			opener.openFiles.get(name).decrementAndGet();
+			opener.closed.incrementAndGet();
+			super.close();
+		}
+
+		private static RrdDef createDef(String name) {
+			RrdDef def = new RrdDef(name, 1);
+			def.addDatasource("state", DsType.GAUGE, 60, Double.NaN, Double.NaN);
+			def.addArchive(ConsolFun.AVERAGE, 0.5, 1, 60);
+			return def;
+		}
+	}
+
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.rrd4j.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Hashtable;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.types.DecimalType;
+import org.osgi.service.cm.ConfigurationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures how many states per second the {@link RRD4jService} stores, when
+ * several threads store the states of different items. The databases are
+ * written to a temporary folder, which is set as <code>smarthome.userdata</code>
+ * before the service is loaded, so the benchmark has to run in its own JVM.
+ *
+ * @since 1.8.0
+ */
+public class RRD4jServiceBenchmarkTest {
+
+	private static final Logger logger = LoggerFactory.getLogger(RRD4jServiceBenchmarkTest.class);
+
+	private static final int ITEMS = 800;
+
+	private static final int THREADS = 4;
+
+	private static final int ROUNDS = 3;
+
+	@Test
+	@Ignore("benchmark, run manually")
+	public void benchmark() throws ConfigurationException, InterruptedException, IOException {
+		File folder = File.createTempFile("rrd4j", "");
+		folder.delete();
+		System.setProperty("smarthome.userdata", folder.getAbsolutePath());
+		try {
+			final RRD4jService service = new RRD4jService();
+			Hashtable<String, Object> config = new Hashtable<String, Object>();
+			config.put("backend", "file");
+			service.updated(config);
+
+			final NumberItem[] items = new NumberItem[ITEMS];
+			for (int i = 0; i < items.length; i++) {
+				items[i] = new NumberItem("Benchmark" + i);
+				items[i].setState(new DecimalType(i));
+			}
+
+			// the first round creates the databases
+			for (int round = 0; round < ROUNDS; round++) {
+				long start = System.nanoTime();
+				Thread[] threads = new Thread[THREADS];
+				for (int t = 0; t < threads.length; t++) {
+					final int first = t;
+					threads[t] = new Thread() {
+						@Override
+						public void run() {
+							for (int i = first; i < items.length; i += THREADS) {
+								service.store(items[i]);
+							}
+						}
+					};
+					threads[t].start();
+				}
+				for (Thread thread : threads) {
+					thread.join();
+				}
+				logger.info("rrd4j benchmark round {}: {} stores/s ({} items, {} threads)", new Object[] { round,
+						ITEMS * 1000000000L / (System.nanoTime() - start), ITEMS, THREADS });
+			}
+			service.deactivate();
+		} finally {
+			FileUtils.deleteQuietly(folder);
+		}
+	}
+
+}
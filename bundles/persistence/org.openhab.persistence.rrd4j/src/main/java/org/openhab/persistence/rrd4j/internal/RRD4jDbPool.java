@@ -0,0 +1,246 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.rrd4j.internal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.rrd4j.core.RrdDb;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the most recently used rrd4j databases open, so that the files do not
+ * have to be opened and closed again for every single sample.
+ *
+ * <p>Each database is guarded by its own lock: a database is only used by one thread
+ * at a time, while different databases can be accessed concurrently. When more than
+ * <code>capacity</code> databases are open, the least recently used ones which are
+ * not in use are closed. A database which is still being closed is not opened again
+ * until it has been closed, so that a file is never open twice.</p>
+ *
+ * @since 1.8.0
+ */
+class RRD4jDbPool {
+
+	private static final Logger logger = LoggerFactory.getLogger(RRD4jDbPool.class);
+
+	/**
+	 * Opens or creates the database for a name.
+	 */
+	interface Opener {
+		/**
+		 * @param name the name of the database
+		 * @return the database, or <code>null</code> if it could not be opened
+		 */
+		RrdDb open(String name);
+	}
+
+	/**
+	 * An open database, which is locked while it is in use.
+	 */
+	static class Handle {
+
+		private final String name;
+		private final ReentrantLock lock = new ReentrantLock();
+
+		/** the number of threads which use or wait for the database, guarded by the pool */
+		private int users;
+
+		/** the database, guarded by the lock */
+		private RrdDb db;
+
+		private Handle(String name) {
+			this.name = name;
+		}
+
+		RrdDb getDb() {
+			return db;
+		}
+	}
+
+	private final Opener opener;
+
+	/** the handles in access order, guarded by themselves */
+	private final LinkedHashMap<String, Handle> handles = new LinkedHashMap<String, Handle>(16, 0.75f, true);
+
+	/** the handles which have been removed from the pool but are not closed yet, guarded by the handles */
+	private final Map<String, Handle> closing = new HashMap<String, Handle>();
+
+	private volatile int capacity;
+
+	RRD4jDbPool(Opener opener, int capacity) {
+		this.opener = opener;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Sets the maximum number of databases which are kept open when they are not in use.
+	 */
+	void setCapacity(int capacity) {
+		this.capacity = capacity;
+		close(evict());
+	}
+
+	/**
+	 * Opens the database with the given name for exclusive use by the calling thread.
+	 * Each successful call must be followed by a call to {@link #release(Handle)}.
+	 *
+	 * @param name the name of the database
+	 * @return the handle of the locked database, or <code>null</code> if it could not be opened
+	 * @throws RuntimeException if opening the database fails, in which case it is not acquired
+	 */
+	Handle acquire(String name) {
+		Handle handle;
+		synchronized(handles) {
+			awaitClosed(name);
+			handle = handles.get(name);
+			if(handle==null) {
+				handle = new Handle(name);
+				handles.put(name, handle);
+			}
+			handle.users++;
+		}
+		handle.lock.lock();
+		if(handle.db==null || handle.db.isClosed()) {
+			boolean opened = false;
+			try {
+				handle.db = opener.open(name);
+				opened = handle.db!=null;
+			} finally {
+				// also unlock the handle if the database could not be opened due to an exception
+				if(!opened) {
+					handle.db = null;
+					release(handle);
+				}
+			}
+			if(!opened) {
+				return null;
+			}
+		}
+		return handle;
+	}
+
+	/**
+	 * Unlocks a database which has been acquired before.
+	 *
+	 * @param handle the handle returned by {@link #acquire(String)}
+	 */
+	void release(Handle handle) {
+		handle.lock.unlock();
+		List<Handle> evicted;
+		synchronized(handles) {
+			handle.users--;
+			if(handle.users==0 && handle.db==null) {
+				handles.remove(handle.name);
+			}
+			evicted = evict();
+		}
+		close(evicted);
+	}
+
+	/**
+	 * Closes all databases which are not in use.
+	 */
+	void closeAll() {
+		List<Handle> closed = new ArrayList<Handle>();
+		synchronized(handles) {
+			for(Iterator<Handle> it = handles.values().iterator(); it.hasNext();) {
+				Handle handle = it.next();
+				if(handle.users==0) {
+					it.remove();
+					closing.put(handle.name, handle);
+					closed.add(handle);
+				}
+			}
+		}
+		close(closed);
+	}
+
+	/**
+	 * @return the number of open databases
+	 */
+	int size() {
+		synchronized(handles) {
+			return handles.size();
+		}
+	}
+
+	/**
+	 * Removes the least recently used handles which are not in use until the capacity is reached.
+	 */
+	private List<Handle> evict() {
+		List<Handle> evicted = null;
+		synchronized(handles) {
+			int excess = handles.size() - capacity;
+			for(Iterator<Handle> it = handles.values().iterator(); excess > 0 && it.hasNext();) {
+				Handle handle = it.next();
+				if(handle.users==0) {
+					it.remove();
+					closing.put(handle.name, handle);
+					excess--;
+					if(evicted==null) {
+						evicted = new ArrayList<Handle>();
+					}
+					evicted.add(handle);
+				}
+			}
+		}
+		return evicted;
+	}
+
+	/**
+	 * Waits until an evicted database with the given name has been closed; must be
+	 * called while holding the lock of the handles.
+	 */
+	private void awaitClosed(String name) {
+		boolean interrupted = false;
+		while(closing.containsKey(name)) {
+			try {
+				handles.wait();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if(interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void close(List<Handle> closed) {
+		if(closed==null) {
+			return;
+		}
+		for(Handle handle : closed) {
+			// the handle has been removed from the pool while it was not in use, so the lock is free
+			handle.lock.lock();
+			try {
+				if(handle.db!=null) {
+					handle.db.close();
+					handle.db = null;
+				}
+			} catch (IOException e) {
+				logger.debug("Error closing rrd4j database '{}': {}", handle.name, e.getMessage());
+			} finally {
+				handle.lock.unlock();
+				synchronized(handles) {
+					closing.remove(handle.name);
+					handles.notifyAll();
+				}
+			}
+		}
+	}
+
+}
@@ -15,13 +15,16 @@ import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
@@ -33,18 +36,24 @@ import org.openhab.core.library.items.SwitchItem;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.OpenClosedType;
+import org.openhab.core.persistence.AggregatingPersistenceService;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricAggregator;
+import org.openhab.core.persistence.HistoricCursor;
+import org.openhab.core.persistence.HistoricCursors;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceService;
-import org.openhab.core.persistence.QueryablePersistenceService;
+import org.openhab.core.persistence.StreamingPersistenceService;
 import org.openhab.core.types.State;
 import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.cm.ManagedService;
+import org.openhab.persistence.rrd4j.internal.RRD4jDbPool.Handle;
 import org.rrd4j.ConsolFun;
 import org.rrd4j.DsType;
 import org.rrd4j.core.FetchData;
 import org.rrd4j.core.FetchRequest;
+import org.rrd4j.core.RrdBackendFactory;
 import org.rrd4j.core.RrdDb;
 import org.rrd4j.core.RrdDef;
 import org.rrd4j.core.Sample;
@@ -56,11 +65,20 @@ import org.apache.commons.lang.StringUtils;
  * This is the implementation of the RRD4j {@link PersistenceService}. To learn
  * more about RRD4j please visit their <a href="https://github.com/rrd4j/rrd4j">website</a>.
  * 
+ * <p>The databases are kept open in a {@link RRD4jDbPool}, so that different items can
+ * be stored concurrently without opening their files again for each sample. The size
+ * of the pool and the rrd4j backend (FILE, NIO or SAFE) are configured through the
+ * <code>poolsize</code> and <code>backend</code> settings.</p>
+ * 
+ * <p>Aggregations are computed from the consolidated values of the archive which best
+ * matches the bucket size, without creating an item for each raw value. Cursors only keep
+ * the fetched values and create the items while they are iterated.</p>
+ * 
  * @author Kai Kreuzer
  * @author Jan N. Klug
  * @since 1.0.0
  */
-public class RRD4jService implements QueryablePersistenceService, ManagedService {
+public class RRD4jService implements AggregatingPersistenceService, StreamingPersistenceService, ManagedService {
 
 	private ConcurrentHashMap<String, RrdDefConfig> rrdDefs = new ConcurrentHashMap<String, RrdDefConfig>();
 
@@ -70,7 +88,27 @@ public class RRD4jService implements QueryablePersistenceService, ManagedService
 
 	private static final Logger logger = LoggerFactory.getLogger(RRD4jService.class);
 
-	private Map<String,Timer> timers = new HashMap<String,Timer>();
+	private static final int DEFAULT_POOL_SIZE = 256;
+
+	/** the pending samples which are stored again one second later, by database name */
+	private final Map<String, ScheduledFuture<?>> deferredSamples = new ConcurrentHashMap<String, ScheduledFuture<?>>();
+
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "RRD4j deferred samples");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	private final RRD4jDbPool pool = new RRD4jDbPool(new RRD4jDbPool.Opener() {
+		public RrdDb open(String name) {
+			return getDB(name);
+		}
+	}, DEFAULT_POOL_SIZE);
+
+	/** the rrd4j backend for opening the database files, or <code>null</code> for the rrd4j default */
+	private volatile RrdBackendFactory backendFactory;
 
 	protected ItemRegistry itemRegistry;
 
@@ -82,6 +120,12 @@ public class RRD4jService implements QueryablePersistenceService, ManagedService
 		this.itemRegistry = null;
 	}
 
+	public void deactivate() {
+		scheduler.shutdownNow();
+		deferredSamples.clear();
+		pool.closeAll();
+	}
+
 	/**
 	 * @{inheritDoc}
 	 */
@@ -92,73 +136,79 @@ public class RRD4jService implements QueryablePersistenceService, ManagedService
 	/**
 	 * @{inheritDoc}
 	 */
-	public synchronized void store(final Item item, final String alias) {
+	public void store(final Item item, final String alias) {
 		final String name = alias==null ? item.getName() : alias;
-		RrdDb db = getDB(name);
-		if(db!=null) {
-			ConsolFun function = getConsolidationFunction(db);
-			long now = System.currentTimeMillis()/1000;
-			if(function!=ConsolFun.AVERAGE) {
-				try {
-					// we store the last value again, so that the value change in the database is not interpolated, but
-					// happens right at this spot
-					if(now - 1 > db.getLastUpdateTime()) {
-						// only do it if there is not already a value
-						double lastValue = db.getLastDatasourceValue(DATASOURCE_STATE);
-						if(!Double.isNaN(lastValue)) {
-							Sample sample = db.createSample();
-							sample.setTime(now - 1);
-							sample.setValue(DATASOURCE_STATE, lastValue);
-							sample.update();
-							logger.debug("Stored '{}' with state '{}' in rrd4j database", name, mapToState(lastValue, item.getName()));
+		Handle handle = pool.acquire(name);
+		if(handle!=null) {
+			RrdDb db = handle.getDb();
+			try {
+				ConsolFun function = getConsolidationFunction(db);
+				long now = System.currentTimeMillis()/1000;
+				if(function!=ConsolFun.AVERAGE) {
+					try {
+						// we store the last value again, so that the value change in the database is not interpolated, but
+						// happens right at this spot
+						if(now - 1 > db.getLastUpdateTime()) {
+							// only do it if there is not already a value
+							double lastValue = db.getLastDatasourceValue(DATASOURCE_STATE);
+							if(!Double.isNaN(lastValue)) {
+								Sample sample = db.createSample();
+								sample.setTime(now - 1);
+								sample.setValue(DATASOURCE_STATE, lastValue);
+								sample.update();
+								logger.debug("Stored '{}' with state '{}' in rrd4j database", name, mapToState(lastValue, item.getName()));
+							}
 						}
+					} catch (IOException e) {
+						logger.debug("Error re-storing last value: {}", e.getMessage());
 					}
-				} catch (IOException e) {
-					logger.debug("Error re-storing last value: {}", e.getMessage());
 				}
-			}
-			try {
-				Sample sample = db.createSample();
-				sample.setTime(now);
-
-				DecimalType state = (DecimalType) item.getStateAs(DecimalType.class);
-				if (state!=null) {
-					double value = state.toBigDecimal().doubleValue();
-					if (db.getDatasource(DATASOURCE_STATE).getType()==DsType.COUNTER) { // counter values must be adjusted by stepsize
-						value = value * db.getRrdDef().getStep();
+				try {
+					Sample sample = db.createSample();
+					sample.setTime(now);
+
+					DecimalType state = (DecimalType) item.getStateAs(DecimalType.class);
+					if (state!=null) {
+						double value = state.toBigDecimal().doubleValue();
+						if (db.getDatasource(DATASOURCE_STATE).getType()==DsType.COUNTER) { // counter values must be adjusted by stepsize
+							value = value * db.getRrdDef().getStep();
+						}
+						sample.setValue(DATASOURCE_STATE, value);
+						sample.update();
+						logger.debug("Stored '{}' with state '{}' in rrd4j database", name, item.getState());
 					}
-					sample.setValue(DATASOURCE_STATE, value);
-					sample.update();
-					logger.debug("Stored '{}' with state '{}' in rrd4j database", name, item.getState());
-				}
-			} catch (IllegalArgumentException e) {
-				if(e.getMessage().contains("at least one second step is required")) {
+				} catch (IllegalArgumentException e) {
+					if(e.getMessage().contains("at least one second step is required")) {
 
-					// we try to store the value one second later
-					TimerTask task = new TimerTask() {
-						public void run() {
-							store(item, name);
-						}
-					};
-					Timer timer = timers.get(name);
-					if(timer!=null) {
-						timer.cancel();
-						timers.remove(name);
+						// we try to store the value one second later
+						deferSample(item, name);
+					} else {
+						logger.warn("Could not persist '{}' to rrd4j database: {}", new String[] { name, e.getMessage() });
 					}
-					timer = new Timer();
-					timers.put(name, timer);
-					timer.schedule(task, 1000);
-				} else {
+				} catch (Exception e) {
 					logger.warn("Could not persist '{}' to rrd4j database: {}", new String[] { name, e.getMessage() });
 				}
-			} catch (Exception e) {
-				logger.warn("Could not persist '{}' to rrd4j database: {}", new String[] { name, e.getMessage() });
+			} finally {
+				pool.release(handle);
 			}
-			try {
-				db.close();
-			} catch (IOException e) {
-				logger.debug("Error closing rrd4j database: {}", e.getMessage());
+		}
+	}
+
+	private void deferSample(final Item item, final String name) {
+		Runnable task = new Runnable() {
+			public void run() {
+				deferredSamples.remove(name);
+				store(item, name);
 			}
+		};
+		try {
+			ScheduledFuture<?> previous = deferredSamples.put(name, scheduler.schedule(task, 1, TimeUnit.SECONDS));
+			if(previous!=null) {
+				previous.cancel(false);
+			}
+		} catch (RejectedExecutionException e) {
+			// this happens if the service is shut down
+			logger.debug("Could not defer sample for '{}': {}", name, e.getMessage());
 		}
 	}
 
@@ -172,8 +222,9 @@ public class RRD4jService implements QueryablePersistenceService, ManagedService
 	@Override
 	public Iterable<HistoricItem> query(FilterCriteria filter) {
 		String itemName = filter.getItemName();
-		RrdDb db = getDB(itemName);
-		if(db!=null) {
+		Handle handle = pool.acquire(itemName);
+		if(handle!=null) {
+			RrdDb db = handle.getDb();
 			ConsolFun consolidationFunction = getConsolidationFunction(db);
 			long start = 0L;
 			long end = filter.getEndDate()==null ? System.currentTimeMillis()/1000 : filter.getEndDate().getTime()/1000;
@@ -203,34 +254,80 @@ public class RRD4jService implements QueryablePersistenceService, ManagedService
 				} else {
 					start = filter.getBeginDate().getTime()/1000;
 				}
-				FetchRequest request = db.createFetchRequest(consolidationFunction, start, end, 1);
+				// let rrd4j choose a coarser archive if the values are aggregated into buckets anyway
+				long resolution = filter.getAggregation()!=null ? Math.max(1, filter.getBucketSize() / 1000) : 1;
+				FetchRequest request = db.createFetchRequest(consolidationFunction, start, end, resolution);
 
-				List<HistoricItem> items = new ArrayList<HistoricItem>();
 				FetchData result = request.fetchData();
 				long ts = result.getFirstTimestamp();
 				long step = result.getRowCount() > 1 ? result.getStep() : 0;
-				for(double value : result.getValues(DATASOURCE_STATE)) {
-					if(!Double.isNaN(value)) {
-						RRD4jItem rrd4jItem = new RRD4jItem(itemName, mapToState(value, itemName), new Date(ts * 1000));
-						items.add(rrd4jItem);
+				if(filter.getAggregation()!=null) {
+					HistoricAggregator aggregator = new HistoricAggregator(filter);
+					for(double value : result.getValues(DATASOURCE_STATE)) {
+						if(!Double.isNaN(value)) {
+							aggregator.add(new Date(ts * 1000), value);
+						}
+						ts += step;
 					}
-					ts += step;
+					return aggregator.getResults();
+				}
+
+				List<HistoricItem> items = new ArrayList<HistoricItem>();
+				ValueCursor cursor = new ValueCursor(itemName, result);
+				while(cursor.hasNext()) {
+					items.add(cursor.next());
 				}
 				return items;
 			} catch (IOException e) {
 				logger.warn("Could not query rrd4j database for item '{}': {}", new String[] { itemName, e.getMessage() });
+			} finally {
+				pool.release(handle);
 			}
 		}
 		return Collections.emptyList();
 	}
 
-	protected synchronized RrdDb getDB(String alias) {
+	/**
+	 * @{inheritDoc}
+	 */
+	public HistoricCursor openCursor(FilterCriteria filter) {
+		if(filter.getBeginDate()==null || filter.getAggregation()!=null) {
+			// the result contains at most a few values anyway
+			return HistoricCursors.wrap(query(filter));
+		}
+		String itemName = filter.getItemName();
+		Handle handle = pool.acquire(itemName);
+		if(handle!=null) {
+			try {
+				RrdDb db = handle.getDb();
+				long start = filter.getBeginDate().getTime()/1000;
+				long end = filter.getEndDate()==null ? System.currentTimeMillis()/1000 : filter.getEndDate().getTime()/1000;
+				FetchRequest request = db.createFetchRequest(getConsolidationFunction(db), start, end, 1);
+				return new ValueCursor(itemName, request.fetchData());
+			} catch (IOException e) {
+				logger.warn("Could not query rrd4j database for item '{}': {}", new String[] { itemName, e.getMessage() });
+			} finally {
+				pool.release(handle);
+			}
+		}
+		return HistoricCursors.wrap(null);
+	}
+
+	/**
+	 * @{inheritDoc}
+	 */
+	public boolean supportsAggregation(FilterCriteria filter) {
+		// rrd4j only allows queries without a begin date for the most recent value
+		return filter.getBeginDate()!=null;
+	}
+
+	protected RrdDb getDB(String alias) {
 		RrdDb db = null;
 		File file = new File(DB_FOLDER + File.separator + alias + ".rrd");
 		try {
 			if (file.exists()) {
 				// recreate the RrdDb instance from the file
-				db = new RrdDb(file.getAbsolutePath());
+				db = backendFactory==null ? new RrdDb(file.getAbsolutePath()) : new RrdDb(file.getAbsolutePath(), backendFactory);
 			} else {
 				File folder = new File(DB_FOLDER);
 				if(!folder.exists()) {
@@ -238,7 +335,7 @@ public class RRD4jService implements QueryablePersistenceService, ManagedService
 				}
 				// create a new database file
 				//db = new RrdDb(getRrdDef(function, file));
-				db = new RrdDb(getRrdDef(alias, file));
+				db = backendFactory==null ? new RrdDb(getRrdDef(alias, file)) : new RrdDb(getRrdDef(alias, file), backendFactory);
 			}
 		} catch (IOException e) {
 			logger.error("Could not create rrd4j database file '{}': {}", new String[] { file.getAbsolutePath(), e.getMessage() });
@@ -355,6 +452,16 @@ public class RRD4jService implements QueryablePersistenceService, ManagedService
 				continue;
 			}
 
+			if (key.equals("backend")) {
+				setBackend((String) config.get(key));
+				continue;
+			}
+
+			if (key.equals("poolsize")) {
+				setPoolSize((String) config.get(key));
+				continue;
+			}
+
 			String[] subkeys = key.split("\\.");
 			if (subkeys.length != 2) {
 				logger.debug("config '{}' should have the format 'name.configkey'", key);
@@ -400,6 +507,29 @@ public class RRD4jService implements QueryablePersistenceService, ManagedService
 		}
 	}
 
+	private void setBackend(String name) {
+		RrdBackendFactory factory;
+		try {
+			factory = StringUtils.isBlank(name) ? null : RrdBackendFactory.getFactory(name.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			logger.warn("Unknown rrd4j backend '{}', using the default backend", name);
+			factory = null;
+		}
+		if (factory != backendFactory) {
+			backendFactory = factory;
+			// databases which are opened from now on use the new backend
+			pool.closeAll();
+		}
+	}
+
+	private void setPoolSize(String value) throws ConfigurationException {
+		try {
+			pool.setCapacity(StringUtils.isBlank(value) ? DEFAULT_POOL_SIZE : Integer.parseInt(value.trim()));
+		} catch (NumberFormatException e) {
+			throw new ConfigurationException("poolsize", "The pool size must be a number: " + value);
+		}
+	}
+
 	private class RrdArchiveDef {
 		public ConsolFun fcn;
 		public double xff;
@@ -542,4 +672,55 @@ public class RRD4jService implements QueryablePersistenceService, ManagedService
 			return sb.toString();
 		}
 	}
+
+	/**
+	 * Iterates over the fetched values of a database and creates the items for the
+	 * values which are not NaN, one at a time.
+	 */
+	private class ValueCursor implements HistoricCursor {
+
+		private final String itemName;
+		private final double[] values;
+		private final long firstTimestamp;
+		private final long step;
+		private int index;
+
+		ValueCursor(String itemName, FetchData data) {
+			this.itemName = itemName;
+			this.values = data.getValues(DATASOURCE_STATE);
+			this.firstTimestamp = data.getFirstTimestamp();
+			this.step = data.getRowCount() > 1 ? data.getStep() : 0;
+			skipNaN();
+		}
+
+		public boolean hasNext() {
+			return index < values.length;
+		}
+
+		public HistoricItem next() {
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Date timestamp = new Date((firstTimestamp + index * step) * 1000);
+			HistoricItem item = new RRD4jItem(itemName, mapToState(values[index], itemName), timestamp);
+			index++;
+			skipNaN();
+			return item;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		public void close() {
+			index = values.length;
+		}
+
+		private void skipNaN() {
+			while(index < values.length && Double.isNaN(values[index])) {
+				index++;
+			}
+		}
+	}
+
 }
@@ -17,7 +17,6 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -30,6 +29,8 @@ import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.OpenClosedType;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricCursor;
+import org.openhab.core.persistence.HistoricCursors;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.QueryablePersistenceService;
@@ -276,7 +277,7 @@ public class DefaultChartProvider implements ChartProvider {
 			label = item.getName();
 		}
 
-		Iterable<HistoricItem> result;
+		HistoricCursor result;
 		FilterCriteria filter;
 
 		// Generate data collections
@@ -294,13 +295,17 @@ public class DefaultChartProvider implements ChartProvider {
 		filter.setItemName(item.getName());
 		filter.setPageSize(1);
 		filter.setOrdering(Ordering.DESCENDING);
-		result = service.query(filter);
-		if(result.iterator().hasNext()) {
-			HistoricItem historicItem = result.iterator().next();
+		result = HistoricCursors.open(service, filter);
+		try {
+			if(result.hasNext()) {
+				HistoricItem historicItem = result.next();
 
-			state = historicItem.getState();
-			xData.add(timeBegin);
-			yData.add(convertData(state));
+				state = historicItem.getState();
+				xData.add(timeBegin);
+				yData.add(convertData(state));
+			}
+		} finally {
+			result.close();
 		}
 
 		// Now, get all the data between the start and end time
@@ -309,27 +314,29 @@ public class DefaultChartProvider implements ChartProvider {
 		filter.setPageSize(Integer.MAX_VALUE);
 		filter.setOrdering(Ordering.ASCENDING);
 		
-		// Get the data from the persistence store
-		result = service.query(filter);
-		Iterator<HistoricItem> it = result.iterator();
-
-		// Iterate through the data
-		while (it.hasNext()) {
-			HistoricItem historicItem = it.next();
-			
-			// For 'binary' states, we need to replicate the data
-			// to avoid diagonal lines
-			if(state instanceof OnOffType || state instanceof OpenClosedType) {
-				Calendar cal = Calendar.getInstance();
-				cal.setTime(historicItem.getTimestamp());
-				cal.add(Calendar.MILLISECOND, -1);
-				xData.add(cal.getTime());
+		// Get the data from the persistence store, without loading it all at once
+		result = HistoricCursors.open(service, filter);
+		try {
+			// Iterate through the data
+			while (result.hasNext()) {
+				HistoricItem historicItem = result.next();
+				
+				// For 'binary' states, we need to replicate the data
+				// to avoid diagonal lines
+				if(state instanceof OnOffType || state instanceof OpenClosedType) {
+					Calendar cal = Calendar.getInstance();
+					cal.setTime(historicItem.getTimestamp());
+					cal.add(Calendar.MILLISECOND, -1);
+					xData.add(cal.getTime());
+					yData.add(convertData(state));
+				}
+
+				state = historicItem.getState();
+				xData.add(historicItem.getTimestamp());
 				yData.add(convertData(state));
 			}
-
-			state = historicItem.getState();
-			xData.add(historicItem.getTimestamp());
-			yData.add(convertData(state));
+		} finally {
+			result.close();
 		}
 
 		// Lastly, add the final state at the endtime